@@ -8,6 +8,7 @@
 package org.csstudio.alarm.beast.server;
 
 import org.csstudio.apputil.test.TestProperties;
+import org.csstudio.apputil.time.BenchmarkTimer;
 import org.junit.Test;
 
 /** JUnit test of the alarm configuration reader
@@ -36,4 +37,39 @@ public class AlarmRDBUnitTest
         final ServerTreeItem root = rdb.readConfiguration();
         root.dump(System.out);
     }
+
+    /** Startup benchmark: Time to read the alarm configuration
+     *  <p>
+     *  Configuration with 40k PVs, reading each component's
+     *  children and automated actions with separate queries: minutes.
+     *  Reading the complete hierarchy, PVs and automated actions
+     *  with a few queries, then building the tree in memory: seconds.
+     */
+    @Test
+    public void benchmarkReadConfiguration() throws Exception
+    {
+        final TestProperties settings = new TestProperties();
+        final String alarm_root = settings.getString("alarm_root");
+        if (alarm_root == null)
+        {
+            System.out.println("Skipped, no configuration.");
+            return;
+        }
+
+        final AlarmRDB rdb = new AlarmRDB(null,
+                settings.getString("alarm_rdb_url"),
+                settings.getString("alarm_rdb_user"),
+                settings.getString("alarm_rdb_password"),
+                "ALARM",
+                alarm_root);
+        for (int run=0; run<3; ++run)
+        {
+            final BenchmarkTimer timer = new BenchmarkTimer();
+            final ServerTreeItem root = rdb.readConfiguration();
+            timer.stop();
+            System.out.println("Read '" + root.getPathName() + "' with " + root.getChildCount() +
+                               " top-level items in " + timer);
+        }
+        rdb.close();
+    }
 }
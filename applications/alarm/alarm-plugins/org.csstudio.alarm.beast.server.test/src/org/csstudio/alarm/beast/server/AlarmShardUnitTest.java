@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.csstudio.alarm.beast.SeverityLevel;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link AlarmShard}s
+ *  and the severity aggregation in the {@link ServerTreeItem}s
+ *
+ *  <p>Replays an 'alarm storm' from a local, simulated PV source
+ *  instead of control system PVs.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmShardUnitTest
+{
+    private static final int AREAS = 10, SYSTEMS = 10, PVS = 100;
+
+    private static final VType OK = ValueFactory.newVDouble(0.0, ValueFactory.alarmNone(), ValueFactory.timeNow(), ValueFactory.displayNone());
+    private static final VType MINOR = ValueFactory.newVDouble(1.0, ValueFactory.newAlarm(AlarmSeverity.MINOR, "LOW"), ValueFactory.timeNow(), ValueFactory.displayNone());
+    private static final VType MAJOR = ValueFactory.newVDouble(2.0, ValueFactory.newAlarm(AlarmSeverity.MAJOR, "LOLO"), ValueFactory.timeNow(), ValueFactory.displayNone());
+
+    /** @return Root of alarm tree with AREAS * SYSTEMS * PVS non-latching PVs */
+    private ServerTreeItem createTree(final List<AlarmPV> pvs) throws Exception
+    {
+        Activator.getLogger().setLevel(Level.WARNING);
+        final ServerTreeItem root = new ServerTreeItem(null, "Root", 0, null);
+        int id = 1;
+        for (int a=0; a<AREAS; ++a)
+        {
+            final ServerTreeItem area = new ServerTreeItem(root, "Area" + a, id++, null);
+            for (int s=0; s<SYSTEMS; ++s)
+            {
+                final ServerTreeItem system = new ServerTreeItem(area, "System" + s, id++, null);
+                for (int p=0; p<PVS; ++p)
+                {
+                    final AlarmPV pv = new AlarmPV(null, system, id++, "PV" + a + "_" + s + "_" + p, "Test",
+                            true, false, false, 0, 0, 0, null,
+                            SeverityLevel.OK, "", SeverityLevel.OK, "", "", Instant.now());
+                    pvs.add(pv);
+                }
+                system.maximizeSeverity();
+            }
+        }
+        return root;
+    }
+
+    /** @return Shards, assigned to the PVs */
+    private AlarmShard[] createShards(final int count, final List<AlarmPV> pvs)
+    {
+        final AlarmShard[] shards = new AlarmShard[count];
+        for (int i=0; i<count; ++i)
+            shards[i] = new AlarmShard(i);
+        if (count > 0)
+            for (AlarmPV pv : pvs)
+                pv.setShard(shards[Math.floorMod(pv.getID(), count)]);
+        return shards;
+    }
+
+    private void awaitShards(final AlarmShard[] shards) throws Exception
+    {
+        for (AlarmShard shard : shards)
+            assertTrue(shard.awaitIdle(60, TimeUnit.SECONDS));
+    }
+
+    /** Replay storm: Each PV receives alternating alarm states,
+     *  sent concurrently by several 'PV' threads
+     *  @param pvs PVs to update
+     *  @param updates Number of updates per PV
+     *  @return Last value sent to each PV
+     */
+    private VType[] replayStorm(final List<AlarmPV> pvs, final int updates) throws Exception
+    {
+        final VType[] last = new VType[pvs.size()];
+        final int sources = 4;
+        final ExecutorService pool = Executors.newFixedThreadPool(sources);
+        for (int s=0; s<sources; ++s)
+        {
+            final int source = s;
+            pool.execute(() ->
+            {
+                final Random random = new Random(source);
+                for (int u=0; u<updates; ++u)
+                    for (int i=source; i<pvs.size(); i+=sources)
+                    {
+                        final int pick = random.nextInt(3);
+                        last[i] = pick == 0 ? OK : (pick == 1 ? MINOR : MAJOR);
+                        pvs.get(i).valueChanged(null, last[i]);
+                    }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        return last;
+    }
+
+    @Test
+    public void testSeverityAggregation() throws Exception
+    {
+        final List<AlarmPV> pvs = new ArrayList<>();
+        final ServerTreeItem root = createTree(pvs);
+        assertThat(root.getSeverity(), equalTo(SeverityLevel.OK));
+
+        final AlarmShard[] shards = createShards(4, pvs);
+
+        // After the storm, tree must reflect the last value of each PV
+        final VType[] last = replayStorm(pvs, 10);
+        awaitShards(shards);
+        SeverityLevel expected = SeverityLevel.OK;
+        for (int i=0; i<last.length; ++i)
+        {
+            final SeverityLevel severity = VTypeHelper.decodeSeverity(last[i]);
+            assertThat(pvs.get(i).getAlarmLogic().getAlarmState().getSeverity(), equalTo(severity));
+            if (severity.ordinal() > expected.ordinal())
+                expected = severity;
+        }
+        assertThat(root.getSeverity(), equalTo(expected));
+
+        // Clear one system
+        final ServerTreeItem system = (ServerTreeItem) root.getChild(3).getChild(7);
+        for (int i=0; i<system.getChildCount(); ++i)
+            ((AlarmPV) system.getChild(i)).valueChanged(null, OK);
+        awaitShards(shards);
+        assertThat(system.getSeverity(), equalTo(SeverityLevel.OK));
+
+        // Disabled PVs do not count
+        final AlarmPV pv = (AlarmPV) system.getChild(0);
+        pv.valueChanged(null, MAJOR);
+        awaitShards(shards);
+        assertThat(system.getSeverity(), equalTo(SeverityLevel.MAJOR));
+        pv.getAlarmLogic().setEnabled(false);
+        assertThat(system.getSeverity(), equalTo(SeverityLevel.OK));
+
+        // Clear all
+        for (AlarmPV p : pvs)
+            p.valueChanged(null, OK);
+        awaitShards(shards);
+        assertThat(root.getSeverity(), equalTo(SeverityLevel.OK));
+
+        for (AlarmShard shard : shards)
+            shard.shutdown();
+    }
+
+    /** Storm replay benchmark
+     *  <p>
+     *  10000 PVs, 20 updates each:
+     *  Compare evaluation on the 'PV' threads with evaluation by shards.
+     */
+    @Test
+    public void testStormReplay() throws Exception
+    {
+        for (int shard_count : new int[] { 0, 1, 4, 8 })
+        {
+            final List<AlarmPV> pvs = new ArrayList<>();
+            final ServerTreeItem root = createTree(pvs);
+            final AlarmShard[] shards = createShards(shard_count, pvs);
+
+            final long start = System.nanoTime();
+            replayStorm(pvs, 20);
+            final long sent = System.nanoTime();
+            awaitShards(shards);
+            final long done = System.nanoTime();
+            System.out.format("%d shards: Storm of %d updates sent in %.3f s, evaluated after %.3f s, root %s\n",
+                              shard_count, 20 * pvs.size(),
+                              (sent - start)/1e9, (done - start)/1e9, root.getSeverity().name());
+            for (AlarmShard shard : shards)
+                shard.shutdown();
+        }
+    }
+}
@@ -26,6 +26,10 @@ import org.csstudio.vtype.pv.PVPool;
 import org.diirt.vtype.VType;
 
 /** A PV with alarm state
+ *
+ *  <p>When assigned to an {@link AlarmShard},
+ *  received values are evaluated on the shard's thread.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -54,6 +58,12 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     /** Started when pv is created to check if it ever connects */
     private transient TimerTask connection_timeout_task = null;
 
+    /** Shard that evaluates updates, <code>null</code> to evaluate on the calling thread */
+    private volatile transient AlarmShard shard;
+
+    /** Severity that this PV contributes to its parent, <code>null</code> when not counted */
+    private final transient AtomicReference<SeverityLevel> contributed_severity = new AtomicReference<>();
+
     /** Filter that might be used to compute 'enabled' state;
      *  can be <code>null</code>
      */
@@ -119,6 +129,54 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
         return logic;
     }
 
+    /** @param shard Shard that evaluates updates of this PV, <code>null</code> to evaluate on the calling thread */
+    void setShard(final AlarmShard shard)
+    {
+        this.shard = shard;
+    }
+
+    /** @return Shard that evaluates updates of this PV, may be <code>null</code> */
+    AlarmShard getShard()
+    {
+        return shard;
+    }
+
+    /** @param command Command to execute on the shard, or right now if there is no shard */
+    private void execute(final Runnable command)
+    {
+        final AlarmShard safe_shard = shard;
+        if (safe_shard == null)
+            command.run();
+        else
+            safe_shard.execute(command);
+    }
+
+    /** Update the severity that this PV contributes to its parent.
+     *  Disabled PVs do not contribute.
+     */
+    private void updateSeverity()
+    {
+        // Loop until the contributed severity matches the alarm logic,
+        // passing each change to the parent exactly once
+        while (true)
+        {
+            final SeverityLevel old_severity = contributed_severity.get();
+            final SeverityLevel new_severity = logic.isEnabled() ? logic.getAlarmState().getSeverity() : null;
+            if (new_severity == old_severity)
+                return;
+            if (contributed_severity.compareAndSet(old_severity, new_severity))
+                getParent().updateChildSeverity(old_severity, new_severity);
+        }
+    }
+
+    /** (Un-)acknowledge alarm
+     *  @param acknowledge Acknowledge, or un-acknowledge?
+     */
+    void acknowledge(final boolean acknowledge)
+    {
+        execute(() -> logic.acknowledge(acknowledge));
+    }
+
     /** @return Alarm description */
     public String getDescription()
     {
@@ -196,6 +254,7 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
         else
             logger.log(Level.INFO, "Skipping disabled {0}", getPathName());
 
+        updateSeverity();
         getParent().maximizeSeverity();
     }
 
@@ -241,7 +300,7 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     {
         final boolean new_enable_state = value > 0.0;
         logger.log(Level.FINE, () -> getPathName() + " " + filter + " value " + value);
-        logic.setEnabled(new_enable_state);
+        execute(() -> logic.setEnabled(new_enable_state));
     }
 
     /** Invoked by <code>connection_timer</code> when PV fails to connect
@@ -251,8 +310,11 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     {
         final AlarmState received = new AlarmState(SeverityLevel.UNDEFINED,
             Messages.AlarmMessageNotConnected, "", Instant.now());
-        logic.computeNewState(received);
-        logger.log(Level.INFO, () -> getPathName() + " connection timed out -> " + logic);
+        execute(() ->
+        {
+            logic.computeNewState(received);
+            logger.log(Level.INFO, () -> getPathName() + " connection timed out -> " + logic);
+        });
     }
 
     /** @see PVListener */
@@ -268,10 +330,11 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     {
         final AlarmState received = new AlarmState(SeverityLevel.UNDEFINED,
                 Messages.AlarmMessageDisconnected, "", Instant.now());
-        logic.computeNewState(received);
-        logger.log(Level.INFO, () -> getPathName() + " disconnected -> " + logic);
-
-        getParent().maximizeSeverity();
+        execute(() ->
+        {
+            logic.computeNewState(received);
+            logger.log(Level.INFO, () -> getPathName() + " disconnected -> " + logic);
+        });
     }
 
     /** @see PVListener */
@@ -284,23 +347,21 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
         final AlarmState received = new AlarmState(new_severity, new_message,
                 VTypeHelper.toString(value),
                 VTypeHelper.getTimestamp(value));
-
-        final SeverityLevel old_severity = logic.getAlarmState().getSeverity();
-        logic.computeNewState(received);
-        logger.log(Level.FINE, () -> getPathName() + " received " + value + " -> " + logic);
-
-        if (logic.getAlarmState().getSeverity().equals(old_severity))
-            return;
-
-        // Whenever logic computes new state, maximize up parent tree
-        getParent().maximizeSeverity();
+        // Parent severity is updated via alarmStateChanged
+        execute(() ->
+        {
+            logic.computeNewState(received);
+            logger.log(Level.FINE, () -> getPathName() + " received " + value + " -> " + logic);
+        });
     }
 
     /** AlarmLogicListener: {@inheritDoc} */
     @Override
     public void alarmEnablementChanged(final boolean is_enabled)
     {
-        server.sendEnablementUpdate(this, is_enabled);
+        updateSeverity();
+        if (server != null)
+            server.sendEnablementUpdate(this, is_enabled);
     }
 
     /** AlarmLogicListener: {@inheritDoc} */
@@ -308,6 +369,8 @@ public class AlarmPV extends TreeItem implements AlarmLogicListener, FilterListe
     public void alarmStateChanged(final AlarmState current, final AlarmState alarm)
     {
         logger.log(Level.FINE, () -> getPathName() + " changes to " + current + ", " + alarm);
+        // Whenever logic computes new state, maximize up parent tree
+        updateSeverity();
         if (server != null)
             server.sendStateUpdate(this,
                     current.getSeverity(), current.getMessage(),
@@ -12,13 +12,15 @@ import static org.csstudio.alarm.beast.server.Activator.logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 
+import org.csstudio.alarm.beast.ItemHierarchy;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimestampHelper;
@@ -115,17 +117,12 @@ public class AlarmRDB
             statement.close();
         }
 
-        // Fetch children
-        final PreparedStatement sel_items_by_parent =
-            conn.prepareStatement(sql.sel_items_by_parent);
-        try
-        {
-            readChildren(root, sel_items_by_parent);
-        }
-        finally
-        {
-            sel_items_by_parent.close();
-        }
+        // Fetch complete hierarchy, settings of PVs and severity PVs
+        // with a few queries, then build tree in memory
+        final ItemHierarchy hierarchy = ItemHierarchy.read(conn, sql);
+        final Map<Integer, String> severity_pvs = readSeverityPVs(conn);
+        final Map<Integer, PVConfig> pv_configs = readPVConfigs(conn);
+        addChildren(root, hierarchy, severity_pvs, pv_configs);
 
         // In transactional mode (Connection.setAutoCommit(false)),
         // even SELECTs needed a commit() to end the transaction.
@@ -147,132 +144,153 @@ public class AlarmRDB
         return root;
     }
 
-    /** Read alarm tree hierarchy
-     *  @param parent Parent entry
-     *  @param sel_items_by_parent Prepared statement for fetching child elements
+    /** Configuration and state of a PV as read from RDB */
+    private static class PVConfig
+    {
+        String description;
+        boolean enabled, annunciate, latch;
+        int min_alarm_delay, count;
+        String filter;
+        SeverityLevel current_severity;
+        String current_status;
+        SeverityLevel severity;
+        String status;
+        String value;
+        Instant timestamp;
+    }
+
+    /** Read severity PVs from the automated actions of all items
+     *  @param conn RDB connection
+     *  @return Severity PV names by item ID
      *  @throws Exception on error
      */
-    private void readChildren(final ServerTreeItem parent, final PreparedStatement sel_items_by_parent) throws Exception
+    private Map<Integer, String> readSeverityPVs(final Connection conn) throws Exception
     {
-        final PreparedStatement sel_actions = connection.prepareStatement(sql.sel_auto_actions_by_id);
-        final List<ServerTreeItem> recurse_items = new ArrayList<>();
+        final Map<Integer, String> severity_pvs = new HashMap<>();
+        try
+        (
+            final Statement statement = conn.createStatement();
+            final ResultSet result = statement.executeQuery(sql.sel_all_auto_actions);
+        )
+        {
+            while (result.next())
+            {
+                final String action = result.getString(3);
+                if (action == null  ||  ! action.startsWith(SEVRPV))
+                    continue;
+                final int id = result.getInt(1);
+                final String pv_name = action.substring(SEVRPV.length());
+                final String previous = severity_pvs.put(id, pv_name);
+                if (previous != null)
+                    logger.log(Level.WARNING, "Multiple severity PVs for item " + id + ", '" +
+                               previous + "' as well as '" + pv_name + "'");
+            }
+        }
+        return severity_pvs;
+    }
 
-        sel_items_by_parent.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent.executeQuery();
+    /** Read configuration and state of all PVs
+     *  @param conn RDB connection
+     *  @return {@link PVConfig} by item ID
+     *  @throws Exception on error
+     */
+    private Map<Integer, PVConfig> readPVConfigs(final Connection conn) throws Exception
+    {
+        final Map<Integer, PVConfig> configs = new HashMap<>();
         try
+        (
+            final Statement statement = conn.createStatement();
+            final ResultSet result = statement.executeQuery(sql.sel_all_pvs);
+        )
         {
             while (result.next())
             {
                 final int id = result.getInt(1);
+                final PVConfig config = new PVConfig();
+                config.description = result.getString(4);
+                // Default to most features turned 'on'
+                config.enabled = result.getBoolean(5);
                 if (result.wasNull())
-                    throw new Exception("NULL component ID");
-                final String name = result.getString(17);
+                    config.enabled = true;
+                config.annunciate = result.getBoolean(6);
                 if (result.wasNull())
-                    throw new Exception("NULL component Name");
-                // Ignoring config. time from result.getTimestamp(2)
-
-                // Check PV's ID. If null, this is a component, not PV
-                final int pv_id = result.getInt(3);
+                    config.annunciate = true;
+                config.latch = result.getBoolean(7);
                 if (result.wasNull())
-                {
-                    // Check automated action 'sevrpv:' ...
-                    String severity_pv = null;
-                    sel_actions.setInt(1, id);
-                    try
-                    (
-                        final ResultSet act_res = sel_actions.executeQuery();
-                    )
-                    {
-                        while (act_res.next())
-                        {
-                            final String action = act_res.getString(2);
-                            if (action.startsWith(SEVRPV))
-                            {
-                                final String pv_name = action.substring(SEVRPV.length());
-                                if (severity_pv != null)
-                                    logger.log(Level.WARNING, "Multiple severity PVs for '" + name + "', '" +
-                                               severity_pv + "' as well as '" + pv_name + "'");
-                                severity_pv = pv_name;
-                            }
-                        }
-                    }
-
-                    final ServerTreeItem child = new ServerTreeItem(parent, name, id, severity_pv);
-                    recurse_items.add(child);
-                }
-                else
-                {   // Handle PV
-                    if (id != pv_id)
-                        throw new Exception("Internal RDB error: Item '" + name + "' as ID " + id + " but also PV ID " + pv_id);
-                    // Easy results
-                    String description = result.getString(4);
-                    // Description should not be empty
-                    if (result.wasNull() || description == null || description.length() <= 0)
-                        description = name;
-                    // Default to most features turned 'on'
-                    boolean enabled = result.getBoolean(5);
-                    if (result.wasNull())
-                        enabled = true;
-                    boolean annunciate = result.getBoolean(6);
-                    if (result.wasNull())
-                        annunciate = true;
-                    boolean latch = result.getBoolean(7);
-                    if (result.wasNull())
-                        latch = true;
-                    // 0/null/empty disables these features
-                    final int min_alarm_delay = result.getInt(8);
-                    final int count = result.getInt(9);
-                    final String filter = result.getString(10);
-
-                    // Decode current severity/status IDs, handling NULL as "Ok"
-                    int severity_id = result.getInt(11);
-                    final SeverityLevel current_severity = result.wasNull()
-                        ? SeverityLevel.OK
-                        : severity_mapping.getSeverityLevel(severity_id);
-
-                    int status_id = result.getInt(12);
-                    final String current_status = result.wasNull()
-                        ? ""
-                        : message_mapping.findMessageById(status_id);
-
-                    // Alarm severity/status
-                    severity_id = result.getInt(13);
-                    final SeverityLevel severity = result.wasNull()
-                        ? SeverityLevel.OK
-                        : severity_mapping.getSeverityLevel(severity_id);
-
-                    status_id = result.getInt(14);
-                    final String status = result.wasNull()
-                        ? ""
-                        : message_mapping.findMessageById(status_id);
-
-                    // Alarm value, time
-                    final String value = result.getString(15);
-
-                    final Timestamp time = result.getTimestamp(16);
-                    final Instant timestamp = result.wasNull()
-                        ? Instant.now()
-                        : TimestampHelper.toEPICSTime(time);
-
-                    final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
-
-                    new AlarmPV(server, parent, id, name, description,
-                            enabled, latch, annunciate, min_alarm_delay, count, global_delay, filter,
-                            current_severity, current_status, severity, status, value, timestamp);
-                }
+                    config.latch = true;
+                // 0/null/empty disables these features
+                config.min_alarm_delay = result.getInt(8);
+                config.count = result.getInt(9);
+                config.filter = result.getString(10);
+
+                // Decode current severity/status IDs, handling NULL as "Ok"
+                int severity_id = result.getInt(11);
+                config.current_severity = result.wasNull()
+                    ? SeverityLevel.OK
+                    : severity_mapping.getSeverityLevel(severity_id);
+
+                int status_id = result.getInt(12);
+                config.current_status = result.wasNull()
+                    ? ""
+                    : message_mapping.findMessageById(status_id);
+
+                // Alarm severity/status
+                severity_id = result.getInt(13);
+                config.severity = result.wasNull()
+                    ? SeverityLevel.OK
+                    : severity_mapping.getSeverityLevel(severity_id);
+
+                status_id = result.getInt(14);
+                config.status = result.wasNull()
+                    ? ""
+                    : message_mapping.findMessageById(status_id);
+
+                // Alarm value, time
+                config.value = result.getString(15);
+
+                final Timestamp time = result.getTimestamp(16);
+                config.timestamp = result.wasNull()
+                    ? Instant.now()
+                    : TimestampHelper.toEPICSTime(time);
+
+                configs.put(id, config);
             }
         }
-        finally
+        return configs;
+    }
+
+    /** Create alarm tree hierarchy
+     *  @param parent Parent entry
+     *  @param hierarchy Item hierarchy
+     *  @param severity_pvs Severity PV names by item ID
+     *  @param pv_configs PV configurations by item ID
+     *  @throws Exception on error
+     */
+    private void addChildren(final ServerTreeItem parent, final ItemHierarchy hierarchy,
+                             final Map<Integer, String> severity_pvs,
+                             final Map<Integer, PVConfig> pv_configs) throws Exception
+    {
+        final int global_delay = AlarmServerPreferences.getGlobalAlarmDelay();
+        for (ItemHierarchy.Item item : hierarchy.getChildren(parent.getID()))
         {
-            result.close();
-            sel_actions.close();
+            final int id = item.getID();
+            final String name = item.getName();
+            if (item.isPV())
+            {
+                final PVConfig config = pv_configs.get(id);
+                if (config == null)
+                    throw new Exception("Internal RDB error: No PV configuration for item '" + name + "', ID " + id);
+                // Description should not be empty
+                final String description = (config.description == null  ||  config.description.isEmpty())
+                                         ? name : config.description;
+                new AlarmPV(server, parent, id, name, description,
+                        config.enabled, config.latch, config.annunciate, config.min_alarm_delay, config.count, global_delay, config.filter,
+                        config.current_severity, config.current_status, config.severity, config.status, config.value, config.timestamp);
+            }
+            else
+                addChildren(new ServerTreeItem(parent, name, id, severity_pvs.get(id)),
+                            hierarchy, severity_pvs, pv_configs);
         }
-
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (ServerTreeItem child : recurse_items)
-            readChildren(child, sel_items_by_parent);
     }
 
     /** Read configuration for PV, update it from RDB
@@ -36,6 +36,9 @@ import org.eclipse.osgi.util.NLS;
  *  <p>
  *  Ignores the hierarchy which (some) of the clients may use to
  *  display the alarm state of PVs.
+ *  <p>
+ *  PVs are partitioned into {@link AlarmShard}s which evaluate
+ *  the alarm logic in parallel and queue the resulting state updates.
  *
  *  @author Kay Kasemir, Xihui Chen
  *  @author Jaka Bobnar - RDB batching
@@ -109,21 +112,8 @@ public class AlarmServer implements Runnable
         }
     }
 
-    /** A list holding all the updates, which have not yet been send to the JMS queue */
-    private List<Update> queuedUpdates = new ArrayList<Update>();
-
-    /** A list holding all the global updates, which have not yet been send to the JMS queue */
-    private List<Update> queuedGlobalUpdates = new ArrayList<Update>();
-
-    /** Updates to be persisted in the RDB, mapping the 'latest' by PV.
-     *  While queuedUpdates contains all recent updates, the map only
-     *  retains the most recent update for each PV
-     *  because we only need to store the latest updates of the same PV.
-     */
-    private Map<String,Update> queuedRDBUpdates = new HashMap<String,Update>();
-
-    /** Global updates to be persisted in the RDB, mapping the 'latest' by PV */
-    private Map<String,Update> queuedRDBGlobalUpdates = new HashMap<String,Update>();
+    /** Shards that evaluate the PVs and hold their queued updates */
+    final private AlarmShard shards[];
 
     /** Name of alarm tree root element */
     final String root_name;
@@ -141,19 +131,16 @@ public class AlarmServer implements Runnable
     private volatile NagTimer nag_timer;
 
     /** Hierarchical alarm configuration
-     *  <p><b>NOTE: Access to tree, PV list and map must synchronize on 'this'</b>
+     *  <p>Tree, PV list and map are replaced, never modified,
+     *  when the configuration is read.
      */
-    private ServerTreeItem alarm_tree;
+    private volatile ServerTreeItem alarm_tree;
 
-    /** All the PVs in the alarm_tree, sorted by name
-     *  <p><b>NOTE: Access to tree, PV list and map must synchronize on 'this'</b>
-     */
-    private AlarmPV pv_list[] = new AlarmPV[0];
+    /** All the PVs in the alarm_tree, sorted by name */
+    private volatile AlarmPV pv_list[] = new AlarmPV[0];
 
-    /** All the PVs in the model, mapping PV name (not path name!) to AlarmPV
-     *  <p><b>NOTE: Access to tree, PV list and map must synchronize on 'this'</b>
-     */
-    private Map<String, AlarmPV> pv_map = new HashMap<String, AlarmPV>();
+    /** All the PVs in the model, mapping PV name (not path name!) to AlarmPV */
+    private volatile Map<String, AlarmPV> pv_map = new HashMap<String, AlarmPV>();
 
     /** Indicator for communication errors */
     private volatile boolean had_RDB_error = false;
@@ -177,6 +164,9 @@ public class AlarmServer implements Runnable
         this.work_queue = work_queue;
         this.updatePeriod = (long)(Preferences.getBatchUpdatePeriod()*1000);
         this.batchSize = Preferences.getBatchSize();
+        shards = new AlarmShard[Math.max(1, AlarmServerPreferences.getShardCount())];
+        for (int i=0; i<shards.length; ++i)
+            shards[i] = new AlarmShard(i);
         rdb = new AlarmRDB(this, Preferences.getRDB_Url(),
                 Preferences.getRDB_User(),
                 Preferences.getRDB_Password(),
@@ -208,14 +198,11 @@ public class AlarmServer implements Runnable
         // Entering maintenance mode: Ack' all INVALID alarms
         if (maintenance_mode)
         {
-            synchronized (this)
+            for (AlarmPV pv : pv_list)
             {
-                for (AlarmPV pv : pv_list)
-                {
-                    final AlarmLogic logic = pv.getAlarmLogic();
-                    if (logic.getAlarmState().getSeverity() == SeverityLevel.INVALID)
-                        logic.acknowledge(true);
-                }
+                final AlarmLogic logic = pv.getAlarmLogic();
+                if (logic.getAlarmState().getSeverity() == SeverityLevel.INVALID)
+                    pv.acknowledge(true);
             }
         }
     }
@@ -224,12 +211,11 @@ public class AlarmServer implements Runnable
     public void dump(final PrintStream out)
     {
         out.println("== Alarm Server PV Snapshot ==");
-        synchronized (this)
-        {
-            alarm_tree.dump(out);
-        }
+        alarm_tree.dump(out);
 
         out.println("Work queue size: " + work_queue.size());
+        for (AlarmShard shard : shards)
+            out.println(shard);
 
         // Log memory usage in MB
         final double free = Runtime.getRuntime().freeMemory() / (1024.0*1024.0);
@@ -244,12 +230,7 @@ public class AlarmServer implements Runnable
     /** @return list of all PVs known to the server */
     public AlarmPV[] getPVs()
     {
-        final AlarmPV pvs[];
-        synchronized (this)
-        {
-            pvs = pv_list.clone();
-        }
-        return pvs;
+        return pv_list.clone();
     }
 
     /** Locate alarm tree item by path
@@ -260,16 +241,15 @@ public class AlarmServer implements Runnable
     {
         if (path == null  ||  path.isEmpty())
             path = getRootName();
-        synchronized (this)
-        {
-            return alarm_tree.getItemByPath(path);
-        }
+        return alarm_tree.getItemByPath(path);
     }
 
     /** Release all resources */
     public void close()
     {
         messenger.stop();
+        for (AlarmShard shard : shards)
+            shard.shutdown();
         rdb.close();
     }
 
@@ -300,13 +280,9 @@ public class AlarmServer implements Runnable
                 public int getActiveAlarmCount()
                 {
                     int active = 0;
-                    // Sync on access to pv_list
-                    synchronized (AlarmServer.this)
-                    {
-                        for (AlarmPV pv : pv_list)
-                            if (pv.getAlarmLogic().getAlarmState().getSeverity().isActive())
-                                ++active;
-                    }
+                    for (AlarmPV pv : pv_list)
+                        if (pv.getAlarmLogic().getAlarmState().getSeverity().isActive())
+                            ++active;
                     return active;
                 }
 
@@ -337,19 +313,9 @@ public class AlarmServer implements Runnable
         updateSeverityPVs(alarm_tree);
 
         final long delay = Preferences.getPVStartDelay();
-        // Must not sync while calling PV, because Channel Access updates
-        // might arrive while we're trying to start/stop channels,
-        // and those updates will try to lock the Alarm Server,
-        // which then results in a deadlock:
-        // a) We lock AlarmServer, then try to call CA,
-        //     which takes internal JNI locks
-        // b) CA takes internal locks, calls PV update callback, which
-        //    then tries to lock the AlarmServer when locating the PV by name
-        final AlarmPV pvs[];
-        synchronized (this)
-        {
-            pvs = pv_list.clone();
-        }
+        // PV list is replaced, not modified, when reading the configuration,
+        // so no need to lock it while calling into the control system
+        final AlarmPV pvs[] = pv_list;
         for (AlarmPV pv : pvs)
         {
             try
@@ -408,12 +374,7 @@ public class AlarmServer implements Runnable
     /** Stop PVs */
     private void stopPVs()
     {
-        // See deadlock comment in start()
-        final AlarmPV pvs[];
-        synchronized (this)
-        {
-            pvs = pv_list.clone();
-        }
+        final AlarmPV pvs[] = pv_list;
         for (AlarmPV pv : pvs)
             pv.stop();
         SeverityPVHandler.stop();
@@ -429,16 +390,16 @@ public class AlarmServer implements Runnable
         final int pv_count;
         synchronized (this)
         {
-            alarm_tree = rdb.readConfiguration();
+            final ServerTreeItem new_tree = rdb.readConfiguration();
 
             // Determine PVs
             final ArrayList<AlarmPV> tmp_pv_array = new ArrayList<AlarmPV>();
-            findPVs(alarm_tree, tmp_pv_array);
+            findPVs(new_tree, tmp_pv_array);
             // Turn into plain array
-            pv_list = tmp_pv_array.toArray(new AlarmPV[tmp_pv_array.size()]);
+            final AlarmPV new_pv_list[] = tmp_pv_array.toArray(new AlarmPV[tmp_pv_array.size()]);
             tmp_pv_array.clear();
             // Sort PVs by name
-            Arrays.sort(pv_list, new Comparator<AlarmPV>()
+            Arrays.sort(new_pv_list, new Comparator<AlarmPV>()
             {
                 @Override
                 public int compare(final AlarmPV pv1, final AlarmPV pv2)
@@ -446,11 +407,19 @@ public class AlarmServer implements Runnable
                     return pv1.getName().compareTo(pv2.getName());
                 }
             });
-            // Create hash
-            pv_map = new HashMap<String, AlarmPV>();
-            for (AlarmPV pv : pv_list)
-                pv_map.put(pv.getName(), pv);
-            pv_count = pv_list.length;
+            // Create hash, assign shards
+            final Map<String, AlarmPV> new_pv_map = new HashMap<String, AlarmPV>();
+            for (AlarmPV pv : new_pv_list)
+            {
+                new_pv_map.put(pv.getName(), pv);
+                pv.setShard(shards[Math.floorMod(pv.getID(), shards.length)]);
+            }
+            pv_count = new_pv_list.length;
+
+            // Publish the new configuration
+            alarm_tree = new_tree;
+            pv_list = new_pv_list;
+            pv_map = new_pv_map;
         }
         timer.stop();
         // LDAP results: Read 12614 PVs in 2.69 seconds, 4689.0 PVs/sec
@@ -525,12 +494,7 @@ public class AlarmServer implements Runnable
         resetNagTimer();
         final AlarmPV pv = findPV(pv_name);
         if (pv != null)
-        {
-            pv.getAlarmLogic().acknowledge(acknowledge);
-
-            // Likely changed the state, maximize up parent tree
-            pv.getParent().maximizeSeverity();
-        }
+            pv.acknowledge(acknowledge);
     }
 
     /** Locate alarm PV by name
@@ -539,10 +503,18 @@ public class AlarmServer implements Runnable
      */
     private AlarmPV findPV(final String pv_name)
     {
-        synchronized (this)
-        {
-            return pv_map.get(pv_name);
-        }
+        return pv_map.get(pv_name);
+    }
+
+    /** @param pv Alarm PV
+     *  @return Shard of the PV
+     */
+    private AlarmShard getShard(final AlarmPV pv)
+    {
+        final AlarmShard shard = pv.getShard();
+        if (shard != null)
+            return shard;
+        return shards[Math.floorMod(pv.getID(), shards.length)];
     }
 
     /** Update JMS clients and RDB
@@ -561,15 +533,9 @@ public class AlarmServer implements Runnable
             final String message,
             final String value, final Instant timestamp)
     {
-        synchronized(queuedRDBUpdates)
-        {
-            final Update u = new Update(pv, current_severity,
-                    current_message, severity, message, value, timestamp);
-            // We are only interested in the latest update of a particular PV
-            // the rest don't need to be persisted
-            queuedRDBUpdates.put(pv.getName(), u);
-            queuedUpdates.add(u);
-        }
+        // Shard only keeps the latest update of a particular PV
+        getShard(pv).addStateUpdate(new Update(pv, current_severity,
+                current_message, severity, message, value, timestamp));
     }
 
     /** Update 'global' JMS clients and RDB
@@ -584,15 +550,8 @@ public class AlarmServer implements Runnable
             final String message,
             final String value, final Instant timestamp)
     {
-        synchronized (queuedRDBGlobalUpdates)
-        {
-            final Update u = new Update(pv, severity,
-                    message, severity, message, value, timestamp);
-            // We are only interested in the latest update of a particular PV
-            // the rest don't need to be persisted
-            queuedRDBGlobalUpdates.put(pv.getName(), u);
-            queuedGlobalUpdates.add(u);
-        }
+        getShard(pv).addGlobalUpdate(new Update(pv, severity,
+                message, severity, message, value, timestamp));
     }
 
     /** Update JMS clients and RDB about 'enabled' state of PV
@@ -656,22 +615,24 @@ public class AlarmServer implements Runnable
     /** Send all queue updates to RDB as well as JMS */
     private void sendQueuedUpdates()
     {
-        // Create thread-save copy
-        Update[] updates = null;
-        Update[] rdbUpdates = null;
-        synchronized (queuedRDBUpdates)
+        // Collect updates of all shards
+        final Update[][] updates = new Update[shards.length][];
+        final Update[][] globals = new Update[shards.length][];
+        int count = 0, global_count = 0;
+        for (int i=0; i<shards.length; ++i)
         {
-            rdbUpdates = queuedRDBUpdates.values().toArray(new Update[queuedRDBUpdates.size()]);
-            queuedRDBUpdates.clear();
-            updates = queuedUpdates.toArray(new Update[queuedUpdates.size()]);
-            queuedUpdates.clear();
+            updates[i] = shards[i].drainStateUpdates();
+            count += updates[i].length;
+            globals[i] = shards[i].drainGlobalUpdates();
+            global_count += globals[i].length;
         }
 
-        if (rdbUpdates.length > 0)
+        if (count > 0)
         {
+            final Update[] all = concat(updates, count);
             try
             {
-                rdb.persistAllStates(rdbUpdates, batchSize);
+                rdb.persistAllStates(all, batchSize);
                 recoverFromRDBErrors();
             }
             catch (Exception e)
@@ -679,29 +640,14 @@ public class AlarmServer implements Runnable
                 Activator.getLogger().log(Level.SEVERE, "Error committing state update batches.", e);
                 had_RDB_error = true;
             }
+            messenger.sendStateUpdates(all);
         }
 
-        for (Update u : updates)
-        {
-            messenger.sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
-                u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
-        }
-
-        Update[] rdbGlobals = null;
-        Update[] globals = null;
-        synchronized(queuedRDBGlobalUpdates)
-        {
-            rdbGlobals = queuedRDBGlobalUpdates.values().toArray(new Update[queuedRDBGlobalUpdates.size()]);
-            queuedRDBGlobalUpdates.clear();
-            globals = queuedGlobalUpdates.toArray(new Update[queuedGlobalUpdates.size()]);
-            queuedGlobalUpdates.clear();
-        }
-
-        if (rdbGlobals.length > 0)
+        if (global_count > 0)
         {
             try
             {
-                rdb.persistGlobalUpdates(rdbGlobals,batchSize);
+                rdb.persistGlobalUpdates(concat(globals, global_count), batchSize);
                 recoverFromRDBErrors();
             }
             catch (Exception e)
@@ -711,10 +657,25 @@ public class AlarmServer implements Runnable
             }
         }
 
-        for (Update u : globals)
+        for (Update[] shard_globals : globals)
+            for (Update u : shard_globals)
+                messenger.sendGlobalUpdate(u.pv, u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+    }
+
+    /** @param parts Arrays of updates
+     *  @param count Total number of updates
+     *  @return Single array with all updates
+     */
+    private static Update[] concat(final Update[][] parts, final int count)
+    {
+        final Update[] result = new Update[count];
+        int pos = 0;
+        for (Update[] part : parts)
         {
-            messenger.sendGlobalUpdate(u.pv, u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+            System.arraycopy(part, 0, result, pos, part.length);
+            pos += part.length;
         }
+        return result;
     }
 
     /** Runnable entry point used by BatchUpdater */
@@ -24,6 +24,8 @@ public class AlarmServerPreferences
 {
     final public static String GLOBAL_ALARM_DELAY = "global_alarm_delay";
     final public static String NAG_PERIOD = "nag_period";
+    final public static String SHARDS = "shards";
+    final public static String BATCH_STATE_UPDATES = "batch_state_updates";
 
     /** @return Period for repeated 'There are .. active alarms' annunciations [seconds]
      *  @throws Exception on error in period specification
@@ -45,4 +47,22 @@ public class AlarmServerPreferences
             return 0;
         return service.getInt(Activator.ID, GLOBAL_ALARM_DELAY, 0, null);
     }
+
+    /** @return Number of shards that evaluate the alarm logic of PVs */
+    public static int getShardCount()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return 4;
+        return service.getInt(Activator.ID, SHARDS, 4, null);
+    }
+
+    /** @return <code>true</code> to send state updates in batches, not one message per PV */
+    public static boolean isBatchingStateUpdates()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return false;
+        return service.getBoolean(Activator.ID, BATCH_STATE_UPDATES, false, null);
+    }
 }
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.csstudio.alarm.beast.server.AlarmServer.Update;
+
+/** Shard of the alarm server's PVs
+ *
+ *  <p>Each {@link AlarmPV} is assigned to one shard.
+ *  The alarm logic of the PV is evaluated on the shard's thread,
+ *  so updates of one PV are handled in order
+ *  while PVs in different shards are handled in parallel.
+ *
+ *  <p>State updates of the PVs are queued in the shard.
+ *  When a PV changes again before the queued updates are sent,
+ *  the older update of that PV is replaced.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class AlarmShard
+{
+    final private int index;
+
+    final private ThreadPoolExecutor executor;
+
+    /** Latest state update for each PV, by PV name, in order of updates.
+     *  SYNC on this
+     */
+    private Map<String, Update> updates = new LinkedHashMap<>();
+
+    /** Latest global update for each PV, by PV name, in order of updates.
+     *  SYNC on this
+     */
+    private Map<String, Update> global_updates = new LinkedHashMap<>();
+
+    /** Number of updates that were replaced by a newer update.
+     *  SYNC on this
+     */
+    private long coalesced = 0;
+
+    /** @param index Index of the shard */
+    public AlarmShard(final int index)
+    {
+        this.index = index;
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                          runnable ->
+        {
+            final Thread thread = new Thread(runnable, "AlarmShard " + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** @param command Command to execute on the shard's thread */
+    public void execute(final Runnable command)
+    {
+        executor.execute(() ->
+        {
+            try
+            {
+                command.run();
+            }
+            catch (Throwable ex)
+            {
+                Activator.getLogger().log(Level.SEVERE, "Alarm shard " + index + " error", ex);
+            }
+        });
+    }
+
+    /** @param update State update to queue */
+    public synchronized void addStateUpdate(final Update update)
+    {
+        // Remove, then add to move PV to the end of the update order
+        if (updates.remove(update.pv.getName()) != null)
+            ++coalesced;
+        updates.put(update.pv.getName(), update);
+    }
+
+    /** @param update Global update to queue */
+    public synchronized void addGlobalUpdate(final Update update)
+    {
+        if (global_updates.remove(update.pv.getName()) != null)
+            ++coalesced;
+        global_updates.put(update.pv.getName(), update);
+    }
+
+    /** @return Queued state updates, clearing the queue */
+    public synchronized Update[] drainStateUpdates()
+    {
+        final Update[] result = updates.values().toArray(new Update[updates.size()]);
+        updates = new LinkedHashMap<>();
+        return result;
+    }
+
+    /** @return Queued global updates, clearing the queue */
+    public synchronized Update[] drainGlobalUpdates()
+    {
+        final Update[] result = global_updates.values().toArray(new Update[global_updates.size()]);
+        global_updates = new LinkedHashMap<>();
+        return result;
+    }
+
+    /** @return Number of updates that were replaced by a newer update of the same PV */
+    public synchronized long getCoalescedCount()
+    {
+        return coalesced;
+    }
+
+    /** @return Number of PV updates waiting to be evaluated */
+    public int getBacklog()
+    {
+        return executor.getQueue().size();
+    }
+
+    /** Wait for queued PV updates to be evaluated
+     *  @param timeout Timeout
+     *  @param unit Unit of timeout
+     *  @return <code>true</code> if all updates were evaluated
+     *  @throws InterruptedException on interruption
+     */
+    public boolean awaitIdle(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        final long end = System.nanoTime() + unit.toNanos(timeout);
+        while (executor.getQueue().size() > 0  ||  executor.getActiveCount() > 0)
+        {
+            if (System.nanoTime() >= end)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** Stop the shard's thread */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Shard " + index + ": " + getBacklog() + " pending, " + getCoalescedCount() + " coalesced updates";
+    }
+}
@@ -17,12 +17,14 @@ import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.MessageProducer;
 
+import org.csstudio.alarm.beast.JMSAlarmBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.JMSCommunicationWorkQueueThread;
 import org.csstudio.alarm.beast.Preferences;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimeoutTimer;
 import org.csstudio.alarm.beast.WorkQueue;
+import org.csstudio.alarm.beast.server.AlarmServer.Update;
 import org.csstudio.logging.JMSLogMessage;
 
 /** Communicates alarm system updates between server and clients.
@@ -35,6 +37,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     /** TYPE identifier used for talk messages */
     private static final String TYPE_TALK = "talk";
 
+    /** Maximum number of PV updates in one batched state update message */
+    private static final int MAX_BATCH_SIZE = 1000;
+
     /** Server for which we communicate */
     final private AlarmServer server;
 
@@ -53,6 +58,9 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
     /** User for messages. Updated with authenticated user */
     final private String user = System.getProperty("user.name"); //$NON-NLS-1$
 
+    /** Send state updates in batches instead of one message per PV? */
+    final private boolean batch_updates = AlarmServerPreferences.isBatchingStateUpdates();
+
     // Note on synchronization:
     //
     // Access to the producer is within the JMSCommunicationThread
@@ -300,6 +308,55 @@ public class ServerCommunicator extends JMSCommunicationWorkQueueThread
         idle_timer.reset();
     }
 
+    /** Notify clients of new alarm states.
+     *
+     *  <p>Depending on preferences, the updates are sent as
+     *  {@link JMSAlarmBatch} messages or as one message per update.
+     *  @param updates State updates
+     */
+    protected void sendStateUpdates(final Update[] updates)
+    {
+        if (! batch_updates)
+        {
+            for (Update u : updates)
+                sendStateUpdate(u.pv, u.currentSeverity, u.currentMessage,
+                                u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+            return;
+        }
+        execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    final String text = AlarmLogic.getMaintenanceMode()
+                            ? JMSAlarmMessage.TEXT_STATE_BATCH_MAINTENANCE
+                            : JMSAlarmMessage.TEXT_STATE_BATCH;
+                    for (int start=0; start<updates.length; start += MAX_BATCH_SIZE)
+                    {
+                        final int end = Math.min(updates.length, start + MAX_BATCH_SIZE);
+                        final JMSAlarmBatch batch = new JMSAlarmBatch();
+                        for (int i=start; i<end; ++i)
+                        {
+                            final Update u = updates[i];
+                            batch.add(u.pv.getName(), u.currentSeverity, u.currentMessage,
+                                      u.alarmSeverity, u.alarmMessage, u.value, u.timestamp);
+                        }
+                        final MapMessage map = createAlarmMessage(text);
+                        map.setBytes(JMSAlarmMessage.UPDATES, batch.toBytes());
+                        server_producer.send(map);
+                    }
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Cannot send state update batch", ex);
+                }
+            }
+        });
+        idle_timer.reset();
+    }
+
     /** Notify 'global' clients of new alarm state.
      *  @param pv PV that changes alarm state
      *  @param alarm_severity Alarm severity
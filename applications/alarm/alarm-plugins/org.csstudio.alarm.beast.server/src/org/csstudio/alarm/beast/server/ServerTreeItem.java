@@ -7,19 +7,34 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.server;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TreeItem;
 
 /** Node in the alarm tree as used by the server
  *
- *  <p>Tracks the alarm severity at this level in the hierarchy
+ *  <p>Tracks the alarm severity at this level in the hierarchy.
+ *
+ *  <p>Instead of locking the item and inspecting all child items
+ *  whenever one of them changes, the item counts its child items
+ *  by severity.
+ *  A child that changes its severity updates these counts,
+ *  and the severity of this item is the highest severity with a non-zero count.
+ *  Updates use atomic operations and may arrive concurrently from
+ *  several threads.
+ *
  *  @author Kay Kasemir
  */
 public class ServerTreeItem extends TreeItem
 {
     private static final long serialVersionUID = -2991781205177465014L;
 
-    protected volatile SeverityLevel severity = SeverityLevel.UNDEFINED;
+    /** Number of child items in each severity, indexed by {@link SeverityLevel#ordinal()} */
+    private final AtomicIntegerArray child_severities = new AtomicIntegerArray(SeverityLevel.values().length);
+
+    private final AtomicReference<SeverityLevel> severity = new AtomicReference<>(SeverityLevel.UNDEFINED);
 
     private final String severity_pv_name;
 
@@ -27,6 +42,38 @@ public class ServerTreeItem extends TreeItem
     {
         super(parent, name, id);
         this.severity_pv_name = severity_pv;
+        if (parent != null)
+            parent.updateChildSeverity(null, SeverityLevel.UNDEFINED);
+    }
+
+    /** @return Severity of this item */
+    public SeverityLevel getSeverity()
+    {
+        return severity.get();
+    }
+
+    /** Update severity of a child item
+     *  @param old_severity Previous severity of the child, <code>null</code> if not counted
+     *  @param new_severity New severity of the child, <code>null</code> if not counted
+     */
+    void updateChildSeverity(final SeverityLevel old_severity, final SeverityLevel new_severity)
+    {
+        // Add new before removing old severity to avoid a temporary drop in severity
+        if (new_severity != null)
+            child_severities.incrementAndGet(new_severity.ordinal());
+        if (old_severity != null)
+            child_severities.decrementAndGet(old_severity.ordinal());
+        maximizeSeverity();
+    }
+
+    /** @return Highest severity of the child items, OK if there are none */
+    private SeverityLevel getMaxChildSeverity()
+    {
+        final SeverityLevel[] levels = SeverityLevel.values();
+        for (int i=levels.length-1; i>0; --i)
+            if (child_severities.get(i) > 0)
+                return levels[i];
+        return levels[0];
     }
 
     /** Set severity of this item by maximizing over its child severities.
@@ -34,53 +81,41 @@ public class ServerTreeItem extends TreeItem
      */
     public void maximizeSeverity()
     {
-        boolean changed = false;
-
-        SeverityLevel new_severity = SeverityLevel.OK;
-
-        synchronized (this)
+        // Other threads may concurrently update the child severities.
+        // Loop until the severity of this item matches the child severities.
+        // Each successful change is passed to the parent exactly once.
+        while (true)
         {
-            final int n = getChildCount();
-            for (int i=0; i<n; ++i)
+            final SeverityLevel old_severity = severity.get();
+            final SeverityLevel new_severity = getMaxChildSeverity();
+            if (new_severity == old_severity)
+                return;
+            if (severity.compareAndSet(old_severity, new_severity))
             {
-                // Maximize severity of all child elements
-                final TreeItem child = getChild(i);
-                final SeverityLevel child_severity;
-                if (child instanceof AlarmPV)
-                {
-                    final AlarmPV pv = (AlarmPV) child;
-                    if (! pv.getAlarmLogic().isEnabled())
-                        continue;
-                    child_severity = pv.getAlarmLogic().getAlarmState().getSeverity();
-                }
-                else
-                    child_severity = ((ServerTreeItem) child).severity;
+                // Percolate changes towards root
+                final TreeItem parent = getParent();
+                if (parent instanceof ServerTreeItem)
+                    ((ServerTreeItem)parent).updateChildSeverity(old_severity, new_severity);
 
-                if (child_severity.ordinal() > new_severity.ordinal())
-                    new_severity = child_severity;
+                // If _this_ node changed its severity, update optional severity PV
+                updateSeverityPV();
             }
         }
-
-        if (new_severity != severity)
-        {
-            severity = new_severity;
-            changed = true;
-        }
-
-        // Percolate changes towards root
-        final TreeItem parent = getParent();
-        if (parent instanceof ServerTreeItem)
-            ((ServerTreeItem)parent).maximizeSeverity();
-
-        // If _this_ node changed its severity, update optional severity PV
-        if (changed)
-            updateSeverityPV();
     }
 
     /** Write to optional severity PV */
     void updateSeverityPV()
     {
-        if (severity_pv_name != null)
-            SeverityPVHandler.update(severity_pv_name, severity);
+        if (severity_pv_name == null)
+            return;
+        // Concurrent updates might write an outdated severity,
+        // so check again after the write
+        SeverityLevel written;
+        do
+        {
+            written = severity.get();
+            SeverityPVHandler.update(severity_pv_name, written);
+        }
+        while (written != severity.get());
     }
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link ItemHierarchy}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ItemHierarchyUnitTest
+{
+    @Test
+    public void testHierarchy() throws Exception
+    {
+        // Root 1 with area 2, system 3 moved into area 2 after PV 4 was added
+        final ItemHierarchy hierarchy = new ItemHierarchy();
+        hierarchy.add(1, 2, "Area", null, false);
+        hierarchy.add(2, 4, "PV1", null, true);
+        hierarchy.add(2, 5, "PV2", null, true);
+        hierarchy.add(5, 6, "Bad", null, false);
+        hierarchy.add(1, 7, "Other Area", null, false);
+        hierarchy.add(2, 8, "System", null, false);
+        hierarchy.add(8, 9, "PV3", null, true);
+        assertThat(hierarchy.size(), equalTo(7));
+
+        assertThat(hierarchy.getChildren(1).toString(), equalTo("[Component Area (2), Component Other Area (7)]"));
+        final List<ItemHierarchy.Item> area = hierarchy.getChildren(2);
+        assertThat(area.toString(), equalTo("[PV PV1 (4), PV PV2 (5), Component System (8)]"));
+        assertThat(area.get(2).isPV(), equalTo(false));
+        assertThat(hierarchy.getChildren(8).get(0).getName(), equalTo("PV3"));
+        assertThat(hierarchy.getChildren(7).isEmpty(), equalTo(true));
+        assertThat(hierarchy.getChildren(42).isEmpty(), equalTo(true));
+    }
+}
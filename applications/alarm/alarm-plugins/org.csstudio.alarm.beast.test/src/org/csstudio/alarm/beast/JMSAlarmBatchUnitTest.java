@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link JMSAlarmBatch}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class JMSAlarmBatchUnitTest
+{
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final Instant now = Instant.ofEpochSecond(1500000000L, 123456789);
+        final JMSAlarmBatch batch = new JMSAlarmBatch();
+        batch.add("PV1", SeverityLevel.MAJOR, "LOLO", SeverityLevel.MAJOR, "LOLO", "-3.14", now);
+        batch.add("PV2", SeverityLevel.OK, "NO_ALARM", SeverityLevel.MINOR_ACK, "LOW", null, now.minusSeconds(3600));
+        batch.add("PV3", SeverityLevel.UNDEFINED, "Disconnected", SeverityLevel.UNDEFINED, "Disconnected", "", now.plusMillis(10));
+        assertThat(batch.size(), equalTo(3));
+
+        final List<String> decoded = new ArrayList<>();
+        final int count = JMSAlarmBatch.decode(batch.toBytes(),
+            (name, current_severity, current_message, severity, message, value, timestamp) ->
+            {
+                decoded.add(name);
+                if (name.equals("PV1"))
+                {
+                    assertThat(current_severity, equalTo(SeverityLevel.MAJOR));
+                    assertThat(current_message, equalTo("LOLO"));
+                    assertThat(severity, equalTo(SeverityLevel.MAJOR));
+                    assertThat(message, equalTo("LOLO"));
+                    assertThat(value, equalTo("-3.14"));
+                    assertThat(timestamp, equalTo(now));
+                }
+                else if (name.equals("PV2"))
+                {
+                    assertThat(current_severity, equalTo(SeverityLevel.OK));
+                    assertThat(current_message, equalTo("NO_ALARM"));
+                    assertThat(severity, equalTo(SeverityLevel.MINOR_ACK));
+                    assertThat(message, equalTo("LOW"));
+                    assertThat(value, nullValue());
+                    assertThat(timestamp, equalTo(now.minusSeconds(3600)));
+                }
+                else
+                {
+                    assertThat(current_severity, equalTo(SeverityLevel.UNDEFINED));
+                    assertThat(message, equalTo("Disconnected"));
+                    assertThat(value, equalTo(""));
+                    assertThat(timestamp, equalTo(now.plusMillis(10)));
+                }
+            });
+        assertThat(count, equalTo(3));
+        assertThat(decoded.toString(), equalTo("[PV1, PV2, PV3]"));
+    }
+
+    @Test
+    public void testSize() throws Exception
+    {
+        // Compare with the text of per-PV messages
+        final int N = 1000;
+        final Instant now = Instant.now();
+        final JMSAlarmBatch batch = new JMSAlarmBatch();
+        int text_size = 0;
+        for (int i=0; i<N; ++i)
+        {
+            final String name = "Area:System" + (i / 100) + ":PV" + i;
+            final Instant time = now.plusMillis(i);
+            batch.add(name, SeverityLevel.MINOR, "HIGH", SeverityLevel.MAJOR, "HIHI", "42.0", time);
+            text_size += name.length() + "MINOR".length() + "HIGH".length() + "MAJOR".length() + "HIHI".length()
+                       + "42.0".length() + JMSAlarmMessage.formatTime(time).length();
+        }
+        final byte[] data = batch.toBytes();
+        System.out.println(N + " updates: " + data.length + " bytes, field text of messages: " + text_size + " bytes");
+        assertTrue(data.length < text_size);
+
+        final int[] count = new int[1];
+        JMSAlarmBatch.decode(data, (name, current_severity, current_message, severity, message, value, timestamp) -> ++count[0]);
+        assertThat(count[0], equalTo(N));
+    }
+
+    @Test
+    public void testLongText() throws Exception
+    {
+        // Value of a long string or waveform PV, more than 64k when encoded as UTF-8
+        final StringBuilder buf = new StringBuilder();
+        while (buf.length() < 60000)
+            buf.append("Wert \u00e4\u00f6\u00fc ");
+        final String value = buf.toString();
+        assertTrue(value.getBytes("UTF-8").length > 65535);
+
+        final Instant now = Instant.ofEpochSecond(1500000000L, 123456789);
+        final JMSAlarmBatch batch = new JMSAlarmBatch();
+        batch.add("PV1", SeverityLevel.MAJOR, "STATE", SeverityLevel.MAJOR, "STATE", value, now);
+        batch.add("PV2", SeverityLevel.MAJOR, "STATE", SeverityLevel.MAJOR, "STATE", value, now);
+
+        final List<String> values = new ArrayList<>();
+        final int count = JMSAlarmBatch.decode(batch.toBytes(),
+            (name, current_severity, current_message, severity, message, decoded, timestamp) -> values.add(decoded));
+        assertThat(count, equalTo(2));
+        assertThat(values.get(0), equalTo(value));
+        assertThat(values.get(1), equalTo(value));
+    }
+}
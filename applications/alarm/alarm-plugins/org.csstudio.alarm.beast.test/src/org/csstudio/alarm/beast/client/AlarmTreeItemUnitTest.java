@@ -9,6 +9,10 @@ package org.csstudio.alarm.beast.client;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -117,4 +121,90 @@ public class AlarmTreeItemUnitTest
         System.out.println("Total tree element count: " + tree.getElementCount());
         assertEquals(11, tree.getElementCount());
     }
+
+    @Test
+    public void testCounts() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final AlarmTreeItem area = new AlarmTreeItem(tree, "Area", 0);
+        final AlarmTreeItem system = new AlarmTreeItem(area, "System", 0);
+        final AlarmTreePV pv1 = new AlarmTreePV(system, "PV1", 0);
+        final AlarmTreePV pv2 = new AlarmTreePV(system, "PV2", 0);
+        final AlarmTreePV pv3 = new AlarmTreePV(area, "PV3", 0);
+
+        // Counts are maintained as items are added
+        assertEquals(6, tree.getElementCount());
+        assertEquals(3, tree.getLeafCount());
+        assertEquals(4, system.getElementCount() + pv3.getElementCount());
+        assertEquals(2, system.getLeafCount());
+        assertEquals(1, pv1.getLeafCount());
+        assertEquals(3, tree.getSeverityCount(SeverityLevel.OK));
+        assertEquals(0, tree.getActiveAlarmCount());
+
+        // .. and as PVs change severity
+        pv1.setAlarmState(SeverityLevel.MAJOR, "HIHI", SeverityLevel.MAJOR, "HIHI", "10", Instant.now());
+        pv3.setAlarmState(SeverityLevel.MINOR, "HIGH", SeverityLevel.MINOR, "HIGH", "5", Instant.now());
+        assertEquals(1, system.getSeverityCount(SeverityLevel.MAJOR));
+        assertEquals(1, system.getSeverityCount(SeverityLevel.OK));
+        assertEquals(1, tree.getSeverityCount(SeverityLevel.MAJOR));
+        assertEquals(1, tree.getSeverityCount(SeverityLevel.MINOR));
+        assertEquals(2, tree.getActiveAlarmCount());
+        assertEquals(SeverityLevel.MAJOR, tree.getSeverity());
+        assertEquals("HIHI", tree.getMessage());
+
+        pv1.setAlarmState(SeverityLevel.OK, "OK", SeverityLevel.MAJOR_ACK, "HIHI", "0", Instant.now());
+        assertEquals(1, tree.getSeverityCount(SeverityLevel.MAJOR_ACK));
+        assertEquals(0, tree.getSeverityCount(SeverityLevel.MAJOR));
+        assertEquals(1, tree.getActiveAlarmCount());
+        assertEquals(SeverityLevel.MAJOR_ACK, system.getSeverity());
+        assertEquals(SeverityLevel.MINOR, tree.getSeverity());
+        assertEquals("HIGH", tree.getMessage());
+
+        // Unchanged state of one PV does not need to update parents
+        pv2.setAlarmState(SeverityLevel.OK, "OK", SeverityLevel.OK, "OK", "0", Instant.now());
+        assertEquals(SeverityLevel.MINOR, tree.getSeverity());
+
+        // .. and as items are removed
+        system.detachFromParent();
+        assertEquals(3, tree.getElementCount());
+        assertEquals(1, tree.getLeafCount());
+        assertEquals(0, tree.getSeverityCount(SeverityLevel.MAJOR_ACK));
+        assertEquals(1, tree.getSeverityCount(SeverityLevel.MINOR));
+        assertEquals(0, tree.getSeverityCount(SeverityLevel.OK));
+    }
+
+    @Test
+    public void testSerializedCounts() throws Exception
+    {
+        final AlarmTreeRoot tree = new AlarmTreeRoot("Root", 0);
+        final AlarmTreeItem area = new AlarmTreeItem(tree, "Area", 0);
+        final AlarmTreePV pv1 = new AlarmTreePV(area, "PV1", 0);
+        new AlarmTreePV(area, "PV2", 0);
+        pv1.setAlarmState(SeverityLevel.MAJOR, "HIHI", SeverityLevel.MAJOR, "HIHI", "10", Instant.now());
+
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try
+        (
+            final ObjectOutputStream out = new ObjectOutputStream(buf);
+        )
+        {
+            out.writeObject(area);
+        }
+        final AlarmTreeItem copy;
+        try
+        (
+            final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buf.toByteArray()));
+        )
+        {
+            copy = (AlarmTreeItem) in.readObject();
+        }
+
+        // Counts of the copy match the original
+        assertEquals(3, copy.getElementCount());
+        assertEquals(2, copy.getLeafCount());
+        assertEquals(1, copy.getSeverityCount(SeverityLevel.MAJOR));
+        assertEquals(1, copy.getSeverityCount(SeverityLevel.OK));
+        assertEquals(1, copy.getActiveAlarmCount());
+        assertEquals(1, ((AlarmTreeItem) copy.getChild(0)).getActiveAlarmCount());
+    }
 }
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.alarmtable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.csstudio.alarm.beast.SeverityLevel;
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+import org.csstudio.alarm.beast.client.AlarmTreeRoot;
+import org.junit.Test;
+
+/** JUnit test of the {@link SortedAlarms}
+ *
+ *  <p>Compares the incrementally updated alarms
+ *  against a full sort.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SortedAlarmsUnitTest
+{
+    private static final SeverityLevel[] SEVERITIES =
+    {
+        SeverityLevel.MINOR, SeverityLevel.MAJOR, SeverityLevel.INVALID,
+        SeverityLevel.MINOR_ACK, SeverityLevel.MAJOR_ACK
+    };
+    private static final Instant T0 = Instant.ofEpochSecond(1500000000L);
+
+    final private AlarmTreeRoot root = new AlarmTreeRoot("Test", 0);
+    final private Random random = new Random(42);
+    private int next_id = 1;
+
+    private AlarmTreePV createPV()
+    {
+        final int id = next_id++;
+        final AlarmTreePV pv = new AlarmTreePV(root, "PV" + id, id);
+        setRandomState(pv);
+        return pv;
+    }
+
+    private void setRandomState(final AlarmTreePV pv)
+    {
+        final SeverityLevel severity = SEVERITIES[random.nextInt(SEVERITIES.length)];
+        synchronized (root)
+        {
+            pv.updateAlarmState(severity, severity.name(), severity, severity.name(),
+                                Integer.toString(random.nextInt(100)), T0.plusSeconds(random.nextInt(1000)));
+        }
+    }
+
+    private static void assertSorted(final SortedAlarms sorted, final List<AlarmTreePV> alarms,
+                                     final Comparator<AlarmTreePV> comparator)
+    {
+        final AlarmTreePV[] expected = alarms.toArray(new AlarmTreePV[alarms.size()]);
+        Arrays.sort(expected, comparator);
+        assertEquals(expected.length, sorted.size());
+        assertArrayEquals(expected, sorted.toArray());
+    }
+
+    private void checkUpdates(final Comparator<AlarmTreePV> comparator)
+    {
+        final List<AlarmTreePV> alarms = new ArrayList<>();
+        for (int i=0; i<200; ++i)
+            alarms.add(createPV());
+        final SortedAlarms sorted = new SortedAlarms(comparator);
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), null);
+        assertSorted(sorted, alarms, comparator);
+
+        for (int round=0; round<50; ++round)
+        {
+            final Set<AlarmTreePV> changed = new HashSet<>();
+            // Remove some alarms
+            for (int i=random.nextInt(5); i>0; --i)
+                alarms.remove(random.nextInt(alarms.size()));
+            // Re-position some alarms
+            for (int i=random.nextInt(20); i>0; --i)
+            {
+                final AlarmTreePV pv = alarms.get(random.nextInt(alarms.size()));
+                setRandomState(pv);
+                changed.add(pv);
+            }
+            // Add new alarms, sometimes without listing them as changed
+            for (int i=random.nextInt(10); i>0; --i)
+            {
+                final AlarmTreePV pv = createPV();
+                alarms.add(random.nextInt(alarms.size() + 1), pv);
+                if (random.nextBoolean())
+                    changed.add(pv);
+            }
+            sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), changed);
+            assertSorted(sorted, alarms, comparator);
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdates()
+    {
+        checkUpdates(AlarmComparator.getComparator(ColumnInfo.SEVERITY, false));
+        checkUpdates(AlarmComparator.getComparator(ColumnInfo.TIME, true));
+        checkUpdates(AlarmComparator.getComparator(ColumnInfo.PV, false));
+        checkUpdates(AlarmComparator.getComparator(ColumnInfo.VALUE, true));
+    }
+
+    @Test
+    public void testManyChanges()
+    {
+        // More changes than FULL_SORT_RATIO allows fall back to a full sort
+        final Comparator<AlarmTreePV> comparator = AlarmComparator.getComparator(ColumnInfo.SEVERITY, false);
+        final List<AlarmTreePV> alarms = new ArrayList<>();
+        for (int i=0; i<20; ++i)
+            alarms.add(createPV());
+        final SortedAlarms sorted = new SortedAlarms(comparator);
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), null);
+
+        final Set<AlarmTreePV> changed = new HashSet<>();
+        for (AlarmTreePV pv : alarms.subList(0, 10))
+        {
+            setRandomState(pv);
+            changed.add(pv);
+        }
+        alarms.remove(15);
+        alarms.add(createPV());
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), changed);
+        assertSorted(sorted, alarms, comparator);
+    }
+
+    @Test
+    public void testUnreportedChange()
+    {
+        // Alarm that changed state but is only reported in the next update
+        final Comparator<AlarmTreePV> comparator = AlarmComparator.getComparator(ColumnInfo.TIME, false);
+        final List<AlarmTreePV> alarms = new ArrayList<>();
+        for (int i=0; i<100; ++i)
+            alarms.add(createPV());
+        final SortedAlarms sorted = new SortedAlarms(comparator);
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), null);
+
+        for (int round=0; round<20; ++round)
+        {
+            final AlarmTreePV unreported = alarms.get(random.nextInt(alarms.size()));
+            setRandomState(unreported);
+            final AlarmTreePV pv = alarms.get(random.nextInt(alarms.size()));
+            setRandomState(pv);
+            final Set<AlarmTreePV> changed = new HashSet<>();
+            changed.add(pv);
+            sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), changed);
+            assertSorted(sorted, alarms, comparator);
+        }
+    }
+
+    @Test
+    public void testComparator()
+    {
+        final List<AlarmTreePV> alarms = new ArrayList<>();
+        for (int i=0; i<50; ++i)
+            alarms.add(createPV());
+        final SortedAlarms sorted = new SortedAlarms(AlarmComparator.getComparator(ColumnInfo.SEVERITY, false));
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), null);
+
+        final Comparator<AlarmTreePV> comparator = AlarmComparator.getComparator(ColumnInfo.PV, true);
+        sorted.setComparator(comparator);
+        assertSorted(sorted, alarms, comparator);
+
+        // Incremental update uses the new comparator
+        final AlarmTreePV pv = alarms.get(7);
+        setRandomState(pv);
+        final Set<AlarmTreePV> changed = new HashSet<>();
+        changed.add(pv);
+        sorted.update(alarms.toArray(new AlarmTreePV[alarms.size()]), changed);
+        assertSorted(sorted, alarms, comparator);
+    }
+}
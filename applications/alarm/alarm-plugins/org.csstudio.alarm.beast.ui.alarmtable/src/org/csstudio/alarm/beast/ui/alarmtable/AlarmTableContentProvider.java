@@ -7,8 +7,8 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.ui.alarmtable;
 
-import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Set;
 
 import org.csstudio.alarm.beast.client.AlarmTreePV;
 import org.eclipse.jface.viewers.ILazyContentProvider;
@@ -23,6 +23,8 @@ import org.eclipse.osgi.util.NLS;
  *  But that resulted in flicker on Linux.
  *  Now the 'input' to the table is actually null, and <code>setAlarms()</code>
  *  is used to keep track of the alarms to display.
+ *  <p>
+ *  The alarms are kept sorted, see {@link SortedAlarms}.
  *
  *  @author Kay Kasemir
  */
@@ -30,39 +32,59 @@ public class AlarmTableContentProvider implements ILazyContentProvider
 {
     private int alarm_table_row_limit = Preferences.getAlarmTableRowLimit();
     private TableViewer table_viewer;
+    /** Alarms shown in table, may be limited, with added info entry */
     private AlarmTreePV[] alarms;
-    private AlarmTreePV[] orgAlarms;
-    private Comparator<AlarmTreePV> comparator = AlarmComparator.getComparator(ColumnInfo.SEVERITY, false);
+    /** All alarms, sorted by comparator */
+    final private SortedAlarms sorted = new SortedAlarms(AlarmComparator.getComparator(ColumnInfo.SEVERITY, false));
 
     /** Update the list of alarms to display.
      *  @param alarms
      */
     public void setAlarms(final AlarmTreePV alarms[])
     {
-        this.orgAlarms = alarms;
+        setAlarms(alarms, null);
+    }
+
+    /** Update the list of alarms to display.
+     *
+     *  <p>Alarms that were already displayed and are not listed as changed
+     *  keep their position relative to each other.
+     *
+     *  @param alarms Alarms to display
+     *  @param changed Alarms that were added or changed their state since the last call,
+     *                 <code>null</code> to sort all alarms
+     */
+    public void setAlarms(final AlarmTreePV alarms[], final Set<AlarmTreePV> changed)
+    {
         if (alarms == null)
         {
             this.alarms = null;
+            sorted.clear();
             table_viewer.setItemCount(0);
+            table_viewer.refresh();
+            return;
         }
-        else if (alarms.length > alarm_table_row_limit)
+        sorted.update(alarms, changed);
+        updateTable();
+    }
+
+    /** Update table from sorted alarms */
+    private void updateTable()
+    {
+        if (sorted.size() > alarm_table_row_limit)
         { // Use only a subset of actual alarms
-            Arrays.sort(alarms, comparator);
-            this.alarms = new AlarmTreePV[alarm_table_row_limit + 1];
-            System.arraycopy(alarms, 0, this.alarms, 0, alarm_table_row_limit);
+            alarms = new AlarmTreePV[alarm_table_row_limit + 1];
+            for (int i=0; i<alarm_table_row_limit; ++i)
+                alarms[i] = sorted.get(i);
             // Add explanatory entry to end
             final AlarmTreePV info = new AlarmTreePV(null, Messages.AlarmTableRowLimitMessage, -1);
             info.setDescription(NLS.bind(Messages.AlarmTableRowLimitInfoFmt, alarm_table_row_limit));
-            this.alarms[alarm_table_row_limit] = info;
-            // Sort all but that explanatory entry
-            table_viewer.setItemCount(alarm_table_row_limit + 1);
+            alarms[alarm_table_row_limit] = info;
         }
         else
-        {    // Use alarms as received
-            this.alarms = alarms;
-            Arrays.sort(this.alarms, comparator);
-            table_viewer.setItemCount(alarms.length);
-        }
+            alarms = sorted.toArray();
+        table_viewer.setItemCount(alarms.length);
+        // Virtual table only fetches the visible rows
         table_viewer.refresh();
     }
 
@@ -74,8 +96,8 @@ public class AlarmTableContentProvider implements ILazyContentProvider
      */
     public void setNumberOfAlarmsLimit(int limit) {
         this.alarm_table_row_limit = limit;
-        if (table_viewer != null)
-            setAlarms(orgAlarms);
+        if (table_viewer != null  &&  alarms != null)
+            updateTable();
     }
 
     /** @return Alarms to be shown in table */
@@ -87,10 +109,10 @@ public class AlarmTableContentProvider implements ILazyContentProvider
     /** @param comparator Comparator that's used to sort alarms */
     public void setComparator(final Comparator<AlarmTreePV> comparator)
     {
-        this.comparator = comparator;
+        sorted.setComparator(comparator);
         // trigger refresh
-        if (table_viewer != null)
-            setAlarms(orgAlarms);
+        if (table_viewer != null  &&  alarms != null)
+            updateTable();
     }
 
     /** {@inheritDoc} */
@@ -10,6 +10,7 @@ package org.csstudio.alarm.beast.ui.alarmtable;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.WeakHashMap;
@@ -28,6 +29,7 @@ import org.csstudio.alarm.beast.ui.actions.ConfigureItemAction;
 import org.csstudio.alarm.beast.ui.actions.DisableComponentAction;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModelListener;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmIndex;
 import org.csstudio.apputil.text.RegExHelper;
 import org.csstudio.security.SecuritySupport;
 import org.csstudio.ui.util.MinSizeTableColumnLayout;
@@ -211,8 +213,18 @@ public class GUI extends Composite implements AlarmClientModelListener
     /** Should the labels with the number of alarms be displayed or not */
     private final boolean show_header;
 
-    /** GUI updates are throttled to reduce flicker */
-    final private GUIUpdateThrottle gui_update = new GUIUpdateThrottle()
+    /** PVs that changed since the last GUI update.
+     *  <code>null</code> to request a full update.
+     *  SYNC on <code>this</code>
+     */
+    private Set<AlarmTreePV> changed_pvs = null;
+
+    /** GUI updates are throttled to reduce flicker
+     *  and limit the table to a maximum update rate
+     */
+    final private GUIUpdateThrottle gui_update = new GUIUpdateThrottle(
+            org.csstudio.alarm.beast.Preferences.getGuiThrottleInitialMillis(),
+            Preferences.getUpdatePeriodMillis())
     {
         @Override
         protected void fire()
@@ -220,10 +232,24 @@ public class GUI extends Composite implements AlarmClientModelListener
             if (display.isDisposed() || model == null)
                 return;
 
-            AlarmTreePV[] rawAlarms = model.getActiveAlarms();
+            // Fetch changes and alarms together,
+            // so later changes are handled by the next update.
+            // Alarm states may still change before the listener
+            // adds them to changed_pvs, which SortedAlarms detects.
+            final Set<AlarmTreePV> changed;
+            final AlarmIndex index;
+            synchronized (GUI.this)
+            {
+                changed = changed_pvs;
+                changed_pvs = new HashSet<>();
+                // Active and acknowledged alarms from the same snapshot
+                index = model.getAlarmIndex();
+            }
+
+            AlarmTreePV[] rawAlarms = index.getActiveAlarms().toArray(new AlarmTreePV[index.getActiveAlarms().size()]);
             final AlarmTreePV[] filteredAlarms = filter(rawAlarms);
             final int rawAlarmsLength = rawAlarms.length;
-            rawAlarms = model.getAcknowledgedAlarms();
+            rawAlarms = index.getAcknowledgedAlarms().toArray(new AlarmTreePV[index.getAcknowledgedAlarms().size()]);
             final AlarmTreePV[] filteredAcknowledged = filter(rawAlarms);
             final int rawAcknowledgedAlarmsLength = rawAlarms.length;
             final AlarmTreePV[] combinedAlarms;
@@ -248,7 +274,7 @@ public class GUI extends Composite implements AlarmClientModelListener
                 // which then updates the table with setItemCount(), refresh(),
                 // as that happens to not flicker.
                 updateGUI(rawAlarmsLength,filteredAlarms,rawAcknowledgedAlarmsLength,
-                        filteredAcknowledged,combinedAlarms);
+                        filteredAcknowledged,combinedAlarms,changed);
             });
         }
     };
@@ -357,6 +383,16 @@ public class GUI extends Composite implements AlarmClientModelListener
                 }
             };
         }
+        triggerFullUpdate();
+    }
+
+    /** Request update that re-sorts all alarms */
+    private void triggerFullUpdate()
+    {
+        synchronized (this)
+        {
+            changed_pvs = null;
+        }
         gui_update.trigger();
     }
 
@@ -904,12 +940,12 @@ public class GUI extends Composite implements AlarmClientModelListener
         display.asyncExec(() -> setErrorMessage(org.csstudio.alarm.beast.ui.Messages.ServerTimeout));
     }
 
-    // For now, the table responds to any changes with a full update
+    // Configuration changes result in a full update
     // @see AlarmClientModelListener
     @Override
     public void newAlarmConfiguration(final AlarmClientModel model)
     {
-        gui_update.trigger();
+        triggerFullUpdate();
         display.asyncExec(() ->
         {
             if (model.isServerAlive())
@@ -923,6 +959,13 @@ public class GUI extends Composite implements AlarmClientModelListener
     @Override
     public void newAlarmState(final AlarmClientModel model, final AlarmTreePV pv, final boolean parent_changed)
     {
+        synchronized (this)
+        {
+            if (pv == null)
+                changed_pvs = null;
+            else if (changed_pvs != null)
+                changed_pvs.add(pv);
+        }
         gui_update.trigger();
 
         if (model.isServerAlive() && have_error_message)
@@ -960,12 +1003,13 @@ public class GUI extends Composite implements AlarmClientModelListener
 
     private void updateGUI(int numberOfRawAlarms, AlarmTreePV[] filteredAlarms,
             int numberOfRawAcknowledgedAlarms, AlarmTreePV[] filteredAcknowledgedAlarms,
-            AlarmTreePV[] combinedAlarms)
+            AlarmTreePV[] combinedAlarms, Set<AlarmTreePV> changed)
     {
         if (model == null || active_table_viewer.getTable().isDisposed()) return;
         //if GUI is currently busy, do not update anything, just trigger another update
+        //which must then handle all changes
         if (active_table_viewer.isBusy()) {
-            gui_update.trigger();
+            triggerFullUpdate();
             return;
         }
 
@@ -1006,13 +1050,13 @@ public class GUI extends Composite implements AlarmClientModelListener
         }
         if (separate_tables)
         {
-            ((AlarmTableContentProvider) active_table_viewer.getContentProvider()).setAlarms(filteredAlarms);
+            ((AlarmTableContentProvider) active_table_viewer.getContentProvider()).setAlarms(filteredAlarms, changed);
             ((AlarmTableContentProvider) acknowledged_table_viewer.getContentProvider()).setAlarms(
-                    filteredAcknowledgedAlarms);
+                    filteredAcknowledgedAlarms, changed);
         }
         else
         {
-            ((AlarmTableContentProvider) active_table_viewer.getContentProvider()).setAlarms(combinedAlarms);
+            ((AlarmTableContentProvider) active_table_viewer.getContentProvider()).setAlarms(combinedAlarms, changed);
         }
     }
 
@@ -1031,7 +1075,7 @@ public class GUI extends Composite implements AlarmClientModelListener
             this.model.removeListener(this);
         this.model = model;
         setUpModel();
-        gui_update.trigger();
+        triggerFullUpdate();
     }
 
     /**
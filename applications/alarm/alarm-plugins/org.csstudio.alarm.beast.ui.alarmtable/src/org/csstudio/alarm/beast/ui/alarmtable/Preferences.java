@@ -116,6 +116,16 @@ public class Preferences
         return pref.split(" *\\| *"); // Vertical line-separated, allowing for spaces //$NON-NLS-1$
     }
 
+    /** @return Minimum period between table updates in milliseconds */
+    public static long getUpdatePeriodMillis()
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        final double rate = service.getDouble(Activator.ID, "max_update_rate", 0.0, null);
+        if (rate > 0)
+            return Math.round(1000.0 / rate);
+        return org.csstudio.alarm.beast.Preferences.getGuiThrottleSuppressionMillis();
+    }
+
     /** @return the time format */
     public static String getTimeFormat()
     {
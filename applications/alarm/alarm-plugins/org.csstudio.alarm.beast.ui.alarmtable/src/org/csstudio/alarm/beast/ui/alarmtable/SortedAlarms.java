@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.alarmtable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+
+/** Alarms, kept sorted by a comparator
+ *
+ *  <p>When told which PVs changed, only those are re-positioned
+ *  via binary search instead of sorting all alarms again,
+ *  which matters in an alarm storm with thousands of alarms.
+ *
+ *  <p>Alarms can change their state before they are reported as changed.
+ *  If such an alarm is no longer in order, all alarms are sorted again.
+ *
+ *  <p>Not thread-safe, used on the UI thread by the {@link AlarmTableContentProvider}.
+ *
+ *  @author Kay Kasemir
+ */
+class SortedAlarms
+{
+    /** When more than 1/FULL_SORT_RATIO of the alarms need to be
+     *  re-positioned, a full sort is cheaper
+     */
+    final private static int FULL_SORT_RATIO = 4;
+
+    /** All alarms, sorted by comparator */
+    final private List<AlarmTreePV> sorted = new ArrayList<>();
+    /** Alarms in <code>sorted</code> */
+    private Set<AlarmTreePV> members = new HashSet<>();
+    private Comparator<AlarmTreePV> comparator;
+
+    /** @param comparator Comparator that's used to sort alarms */
+    public SortedAlarms(final Comparator<AlarmTreePV> comparator)
+    {
+        this.comparator = comparator;
+    }
+
+    /** @param comparator Comparator that's used to sort alarms, re-sorts all alarms */
+    public void setComparator(final Comparator<AlarmTreePV> comparator)
+    {
+        this.comparator = comparator;
+        sorted.sort(comparator);
+    }
+
+    /** Update the alarms
+     *
+     *  <p>Alarms that were already known and are not listed as changed
+     *  keep their position relative to each other.
+     *
+     *  @param alarms Current alarms
+     *  @param changed Alarms that were added or changed their state since the last call,
+     *                 <code>null</code> to sort all alarms
+     */
+    public void update(final AlarmTreePV alarms[], final Set<AlarmTreePV> changed)
+    {
+        final Set<AlarmTreePV> new_members = new HashSet<>(alarms.length);
+        Collections.addAll(new_members, alarms);
+        if (changed == null  ||  sorted.isEmpty())
+            sortAll(alarms);
+        else
+        {
+            // Determine alarms that need to be (re-)inserted
+            final List<AlarmTreePV> inserts = new ArrayList<>();
+            for (AlarmTreePV pv : alarms)
+                if (changed.contains(pv)  ||  !members.contains(pv))
+                    inserts.add(pv);
+            if (inserts.size() > alarms.length / FULL_SORT_RATIO)
+                sortAll(alarms);
+            else
+            {   // Sort key of changed alarms is no longer valid,
+                // so locate them by identity, not via binary search
+                sorted.removeIf(pv -> changed.contains(pv)  ||  !new_members.contains(pv));
+                for (AlarmTreePV pv : inserts)
+                {
+                    final int pos = Collections.binarySearch(sorted, pv, comparator);
+                    sorted.add(pos < 0 ? -pos-1 : pos, pv);
+                }
+                // Alarm that changed without being listed as changed
+                // may be out of order and mislead the binary search
+                if (! isSorted())
+                    sortAll(alarms);
+            }
+        }
+        members = new_members;
+    }
+
+    /** @return <code>true</code> if all neighbours are in order */
+    private boolean isSorted()
+    {
+        for (int i=1; i<sorted.size(); ++i)
+            if (comparator.compare(sorted.get(i-1), sorted.get(i)) > 0)
+                return false;
+        return true;
+    }
+
+    /** @param alarms Alarms to sort from scratch */
+    private void sortAll(final AlarmTreePV alarms[])
+    {
+        sorted.clear();
+        Collections.addAll(sorted, alarms);
+        sorted.sort(comparator);
+    }
+
+    /** Remove all alarms */
+    public void clear()
+    {
+        sorted.clear();
+        members.clear();
+    }
+
+    /** @return Number of alarms */
+    public int size()
+    {
+        return sorted.size();
+    }
+
+    /** @param index Index 0 .. size()-1
+     *  @return Alarm at that position in the sort order
+     */
+    public AlarmTreePV get(final int index)
+    {
+        return sorted.get(index);
+    }
+
+    /** @return Sorted alarms */
+    public AlarmTreePV[] toArray()
+    {
+        return sorted.toArray(new AlarmTreePV[sorted.size()]);
+    }
+}
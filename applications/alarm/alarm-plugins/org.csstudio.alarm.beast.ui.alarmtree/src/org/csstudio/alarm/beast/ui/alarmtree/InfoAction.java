@@ -8,6 +8,7 @@
 package org.csstudio.alarm.beast.ui.alarmtree;
 
 import org.csstudio.alarm.beast.ui.clientmodel.AlarmClientModel;
+import org.csstudio.alarm.beast.ui.clientmodel.AlarmIndex;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Shell;
@@ -38,8 +39,9 @@ public class InfoAction extends Action
         info.append("Alarm Server alive: " + model.isServerAlive() + "\n");
         info.append("'Write' allowed: " + model.isWriteAllowed() + "\n");
         info.append("PV Count: " + model.getConfigTree().getLeafCount() + "\n");
-        info.append("Active alarms: " + model.getActiveAlarms().length + "\n");
-        info.append("Acknowledged alarms: " + model.getAcknowledgedAlarms().length + "\n");
+        final AlarmIndex alarms = model.getAlarmIndex();
+        info.append("Active alarms: " + alarms.getActiveAlarms().size() + "\n");
+        info.append("Acknowledged alarms: " + alarms.getAcknowledgedAlarms().size() + "\n");
 
         MessageDialog.openInformation(shell, "Alarm System Information",
                 info.toString());
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Hierarchy of alarm tree items, read with one query
+ *
+ *  <p>Reading the alarm tree one level at a time requires a query
+ *  for each component.
+ *  This reads the complete ALARM_TREE table in one query
+ *  and then allows building the tree in memory.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ItemHierarchy
+{
+    /** Item in the hierarchy */
+    public static class Item
+    {
+        final private int id;
+        final private String name;
+        final private Instant config_time;
+        final private boolean is_pv;
+
+        Item(final int id, final String name, final Instant config_time, final boolean is_pv)
+        {
+            this.id = id;
+            this.name = name;
+            this.config_time = config_time;
+            this.is_pv = is_pv;
+        }
+
+        /** @return RDB ID */
+        public int getID()
+        {
+            return id;
+        }
+
+        /** @return Name */
+        public String getName()
+        {
+            return name;
+        }
+
+        /** @return Configuration time or <code>null</code> */
+        public Instant getConfigTime()
+        {
+            return config_time;
+        }
+
+        /** @return <code>true</code> for PV, <code>false</code> for component */
+        public boolean isPV()
+        {
+            return is_pv;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (is_pv ? "PV " : "Component ") + name + " (" + id + ")";
+        }
+    }
+
+    /** Child items by parent ID, in order of item ID */
+    final private Map<Integer, List<Item>> children = new HashMap<>();
+
+    private int count = 0;
+
+    /** Read hierarchy from RDB
+     *  @param connection RDB connection
+     *  @param sql SQL statements
+     *  @return {@link ItemHierarchy} of all configurations
+     *  @throws Exception on error
+     */
+    public static ItemHierarchy read(final Connection connection, final SQL sql) throws Exception
+    {
+        final ItemHierarchy hierarchy = new ItemHierarchy();
+        try
+        (
+            final Statement statement = connection.createStatement();
+            final ResultSet result = statement.executeQuery(sql.sel_all_items);
+        )
+        {
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (result.wasNull())
+                    throw new Exception("NULL component ID");
+                final int parent = result.getInt(2);
+                if (result.wasNull())
+                    continue; // Root of a configuration
+                final String name = result.getString(3);
+                if (result.wasNull())
+                    throw new Exception("NULL component Name");
+                final Timestamp config_time = result.getTimestamp(4);
+                // PV's ID is null for components
+                result.getInt(5);
+                final boolean is_pv = ! result.wasNull();
+                hierarchy.add(parent, id, name,
+                              config_time == null ? null : TimestampHelper.toEPICSTime(config_time),
+                              is_pv);
+            }
+        }
+        return hierarchy;
+    }
+
+    /** Add item.
+     *
+     *  <p>Items must be added in the order
+     *  in which they should appear under their parent.
+     *
+     *  @param parent RDB ID of parent
+     *  @param id RDB ID of item
+     *  @param name Name of item
+     *  @param config_time Configuration time or <code>null</code>
+     *  @param is_pv PV or component?
+     */
+    public void add(final int parent, final int id, final String name, final Instant config_time, final boolean is_pv)
+    {
+        children.computeIfAbsent(parent, p -> new ArrayList<>())
+                .add(new Item(id, name, config_time, is_pv));
+        ++count;
+    }
+
+    /** @param parent RDB ID of parent
+     *  @return Child items, may be empty
+     */
+    public List<Item> getChildren(final int parent)
+    {
+        final List<Item> items = children.get(parent);
+        if (items == null)
+            return Collections.emptyList();
+        return items;
+    }
+
+    /** @return Total number of items, excluding roots */
+    public int size()
+    {
+        return count;
+    }
+}
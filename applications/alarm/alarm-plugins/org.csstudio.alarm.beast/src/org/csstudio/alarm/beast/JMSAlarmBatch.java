@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Batch of PV state updates in one JMS message
+ *
+ *  <p>Instead of sending one MapMessage with text fields for each
+ *  PV state update, the alarm server can send a
+ *  {@link JMSAlarmMessage#TEXT_STATE_BATCH} message that carries
+ *  the updates of many PVs in its {@link JMSAlarmMessage#UPDATES}.
+ *
+ *  <p>Binary encoding:
+ *  <ul>
+ *  <li>Version byte, number of updates, base time stamp in epoch seconds
+ *  <li>For each update: PV name,
+ *      one byte with current and alarm severity,
+ *      current message, alarm message, value,
+ *      time stamp as seconds relative to base and nanoseconds
+ *  </ul>
+ *  Counts and times are written as variable-length integers.
+ *  Strings are written as their UTF-8 bytes, prefixed by the byte count,
+ *  so unlike <code>writeUTF</code> they are not limited to 64k.
+ *  Messages and values, which tend to repeat within a batch ("LOLO", "OK", ..),
+ *  are written once and then referenced by index.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class JMSAlarmBatch
+{
+    /** Encoding version */
+    final private static byte VERSION = 2;
+
+    /** Handler for decoded updates */
+    @FunctionalInterface
+    public static interface Handler
+    {
+        /** @param name PV name
+         *  @param current_severity Current severity of the PV
+         *  @param current_message Current message of the PV
+         *  @param severity Alarm severity
+         *  @param message Alarm message
+         *  @param value Value that triggered the update, may be <code>null</code>
+         *  @param timestamp Time stamp of alarm severity/status
+         */
+        public void handleUpdate(String name,
+                                 SeverityLevel current_severity, String current_message,
+                                 SeverityLevel severity, String message,
+                                 String value, Instant timestamp);
+    }
+
+    final private static SeverityLevel[] severities = SeverityLevel.values();
+
+    final private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final private DataOutputStream out = new DataOutputStream(buffer);
+
+    /** Index of strings that were already written.
+     *  Index 0 is used for <code>null</code>.
+     */
+    final private Map<String, Integer> strings = new HashMap<>();
+
+    private int count = 0;
+
+    private long base_seconds = 0;
+
+    /** Add update to batch
+     *  @param name PV name
+     *  @param current_severity Current severity of the PV
+     *  @param current_message Current message of the PV
+     *  @param severity Alarm severity
+     *  @param message Alarm message
+     *  @param value Value that triggered the update, may be <code>null</code>
+     *  @param timestamp Time stamp of alarm severity/status
+     */
+    public void add(final String name,
+                    final SeverityLevel current_severity, final String current_message,
+                    final SeverityLevel severity, final String message,
+                    final String value, final Instant timestamp)
+    {
+        if (count == 0)
+            base_seconds = timestamp.getEpochSecond();
+        try
+        {
+            writeText(out, name);
+            out.writeByte((current_severity.ordinal() << 4) | severity.ordinal());
+            writeString(current_message);
+            writeString(message);
+            writeString(value);
+            writeVarLong(zigzag(timestamp.getEpochSecond() - base_seconds));
+            writeVarLong(timestamp.getNano());
+        }
+        catch (IOException ex)
+        {   // Not expected when writing to memory
+            throw new IllegalStateException("Cannot encode update for " + name, ex);
+        }
+        ++count;
+    }
+
+    /** @return Number of updates in batch */
+    public int size()
+    {
+        return count;
+    }
+
+    /** @return Encoded batch */
+    public byte[] toBytes()
+    {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(buffer.size() + 16);
+        try
+        {
+            final DataOutputStream header = new DataOutputStream(result);
+            header.writeByte(VERSION);
+            writeVarLong(header, count);
+            header.writeLong(base_seconds);
+            header.flush();
+            buffer.writeTo(result);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException("Cannot encode batch", ex);
+        }
+        return result.toByteArray();
+    }
+
+    /** Decode batch
+     *  @param data Encoded batch
+     *  @param handler Handler that will be called for each update, in order
+     *  @return Number of updates
+     *  @throws Exception on error in received data
+     */
+    public static int decode(final byte[] data, final Handler handler) throws Exception
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        final byte version = in.readByte();
+        if (version != VERSION)
+            throw new Exception("Cannot decode alarm update batch version " + version);
+        final int count = (int) readVarLong(in);
+        final long base_seconds = in.readLong();
+        final List<String> strings = new ArrayList<>();
+        strings.add(null);
+        for (int i=0; i<count; ++i)
+        {
+            final String name = readText(in);
+            final int packed = in.readUnsignedByte();
+            final SeverityLevel current_severity = severities[packed >> 4];
+            final SeverityLevel severity = severities[packed & 0xF];
+            final String current_message = readString(in, strings);
+            final String message = readString(in, strings);
+            final String value = readString(in, strings);
+            final long seconds = base_seconds + unzigzag(readVarLong(in));
+            final int nanos = (int) readVarLong(in);
+            handler.handleUpdate(name, current_severity, current_message,
+                                 severity, message, value,
+                                 Instant.ofEpochSecond(seconds, nanos));
+        }
+        return count;
+    }
+
+    /** Write string as index of a previously written string,
+     *  or as next index followed by the new string
+     */
+    private void writeString(final String text) throws IOException
+    {
+        if (text == null)
+        {
+            writeVarLong(0);
+            return;
+        }
+        final Integer index = strings.get(text);
+        if (index != null)
+        {
+            writeVarLong(index);
+            return;
+        }
+        final int new_index = strings.size() + 1;
+        strings.put(text, new_index);
+        writeVarLong(new_index);
+        writeText(out, text);
+    }
+
+    private static String readString(final DataInputStream in, final List<String> strings) throws Exception
+    {
+        final int index = (int) readVarLong(in);
+        if (index < strings.size())
+            return strings.get(index);
+        if (index != strings.size())
+            throw new Exception("Invalid string index " + index);
+        final String text = readText(in);
+        strings.add(text);
+        return text;
+    }
+
+    /** Write text as byte count and UTF-8 bytes */
+    private static void writeText(final DataOutputStream out, final String text) throws IOException
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(final DataInputStream in) throws IOException
+    {
+        final long length = readVarLong(in);
+        if (length > in.available())
+            throw new IOException("Invalid text length " + length);
+        final byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeVarLong(final long value) throws IOException
+    {
+        writeVarLong(out, value);
+    }
+
+    /** Write non-negative number, 7 bits per byte */
+    private static void writeVarLong(final DataOutputStream out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(final DataInputStream in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0;  shift < 64;  shift += 7)
+        {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Invalid variable-length number");
+    }
+
+    /** @return Signed number mapped to non-negative number, 0, -1, 1, -2, .. to 0, 1, 2, 3, .. */
+    private static long zigzag(final long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -65,6 +65,17 @@ public class JMSAlarmMessage
      */
     final public static String TEXT_STATE_MAINTENANCE = "STATE_MAINTENANCE";
 
+    /** Value for TEXT that indicates state changes of several PVs.
+     *  UPDATES will contain the {@link JMSAlarmBatch}.
+     *  Clients that don't know this message ignore it.
+     */
+    final public static String TEXT_STATE_BATCH = "STATE_BATCH";
+
+    /** Value for TEXT that indicates state changes of several PVs while in maintenance mode
+     *  UPDATES will contain the {@link JMSAlarmBatch}.
+     */
+    final public static String TEXT_STATE_BATCH_MAINTENANCE = "STATE_BATCH_MAINTENANCE";
+
     /** Value for TEXT that indicates a configuration change.
      *  NAME will contain path to item that was added, removed,
      *  reconfigured, or null for an overall change.
@@ -106,6 +117,9 @@ public class JMSAlarmMessage
     /** Value that caused the severity/message update */
     final public static String VALUE = "VALUE";
 
+    /** Message property that holds the bytes of a {@link JMSAlarmBatch} */
+    final public static String UPDATES = "UPDATES";
+
 
     /** @param timestamp Time of alarm event
      *  @return Time stamp formatted as used in JMS alarm messages
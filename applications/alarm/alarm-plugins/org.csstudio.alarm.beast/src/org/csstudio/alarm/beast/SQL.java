@@ -30,6 +30,12 @@ public class SQL
     final public String sel_auto_actions_by_id;
     final public String sel_items_by_parent;
     final public String sel_item_by_parent_and_name;
+    final public String sel_all_items;
+    final public String sel_all_pvs;
+    final public String sel_all_guidance;
+    final public String sel_all_displays;
+    final public String sel_all_commands;
+    final public String sel_all_auto_actions;
     final public String sel_last_item_id;
     final public String insert_item;
 
@@ -134,6 +140,37 @@ public class SQL
             " LEFT JOIN " + schema_prefix + "PV p ON p.COMPONENT_ID = t.COMPONENT_ID" +
             " WHERE t.PARENT_CMPNT_ID=? AND t.NAME=?";
 
+        // Bulk queries for reading a complete configuration.
+        // Hierarchy of all items, ordered by ID like sel_items_by_parent.
+        sel_all_items =
+            //        1               2                  3       4              5
+            "SELECT t.COMPONENT_ID, t.PARENT_CMPNT_ID, t.NAME, t.CONFIG_TIME, p.COMPONENT_ID" +
+            " FROM " + schema_prefix + "ALARM_TREE t" +
+            " LEFT JOIN " + schema_prefix + "PV p ON p.COMPONENT_ID = t.COMPONENT_ID" +
+            " ORDER BY t.COMPONENT_ID";
+
+        // Columns 1-16 must match sel_items_by_parent
+        sel_all_pvs =
+            //        1               2
+            "SELECT t.COMPONENT_ID, t.CONFIG_TIME," +
+            //  3               4        5              6
+            " p.COMPONENT_ID, p.DESCR, p.ENABLED_IND, p.ANNUNCIATE_IND," +
+            //  7            8        9              10        11
+            " p.LATCH_IND, p.DELAY, p.DELAY_COUNT, p.FILTER, p.CUR_SEVERITY_ID," +
+            //  12               13             14           15          16
+            " p.CUR_STATUS_ID, p.SEVERITY_ID, p.STATUS_ID, p.PV_VALUE, p.ALARM_TIME" +
+            " FROM " + schema_prefix + "PV p" +
+            " JOIN " + schema_prefix + "ALARM_TREE t ON t.COMPONENT_ID = p.COMPONENT_ID";
+
+        sel_all_guidance =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "GUIDANCE ORDER BY COMPONENT_ID, GUIDANCE_ORDER";
+        sel_all_displays =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "DISPLAY ORDER BY COMPONENT_ID, DISPLAY_ORDER";
+        sel_all_commands =
+            "SELECT COMPONENT_ID, TITLE, DETAIL FROM " + schema_prefix + "COMMAND ORDER BY COMPONENT_ID, COMMAND_ORDER";
+        sel_all_auto_actions =
+            "SELECT COMPONENT_ID, TITLE, DETAIL, DELAY FROM " + schema_prefix + "AUTOMATED_ACTION ORDER BY COMPONENT_ID, AUTO_ACTION_ORDER";
+
         sel_last_item_id =
             "SELECT MAX(COMPONENT_ID) FROM " + schema_prefix + "ALARM_TREE";
 
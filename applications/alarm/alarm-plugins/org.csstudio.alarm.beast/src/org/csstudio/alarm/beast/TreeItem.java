@@ -11,6 +11,7 @@ import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Base for alarm tree items: Tree hierarchy, ID, name, path.
  *
@@ -52,6 +53,16 @@ public class TreeItem implements Serializable
     /** Hash code of this item */
     final private int hash_code;
 
+    /** Number of elements in sub-tree, including this item.
+     *  Updated as items are added or removed
+     */
+    final private AtomicInteger element_count = new AtomicInteger(1);
+
+    /** Number of leaves in sub-tree, including this item if it's a leaf.
+     *  Updated as items are added or removed
+     */
+    final private AtomicInteger leaf_count;
+
     /** Initialize
      *  @param parent Parent item or <code>null</code> for root
      *  @param name Name of this item
@@ -63,6 +74,7 @@ public class TreeItem implements Serializable
         this.parent = parent;
         this.name = name;
         this.id = id;
+        leaf_count = new AtomicInteger(isLeaf() ? 1 : 0);
         if (parent == null)
             path_name = AlarmTreePath.makePath(null, name);
         else
@@ -124,6 +136,50 @@ public class TreeItem implements Serializable
         return path_name;
     }
 
+    /** @return <code>true</code> if this item is a leaf of the tree.
+     *          Called from constructor, so must not depend on fields of derived classes.
+     */
+    protected boolean isLeaf()
+    {
+        return false;
+    }
+
+    /** @return Number of elements in sub-tree, including this item */
+    final public int getElementCount()
+    {
+        return element_count.get();
+    }
+
+    /** @return Number of leaves in sub-tree, including this item if it's a leaf */
+    final public int getLeafCount()
+    {
+        return leaf_count.get();
+    }
+
+    /** Update counts of this item after a sub-tree was added or removed below it.
+     *
+     *  <p>Called on the parent and all further ancestors of the sub-tree.
+     *  Derived classes can override to update additional counts.
+     *
+     *  @param subtree Item that was added or removed, with its sub-tree
+     *  @param sign <code>1</code> when added, <code>-1</code> when removed
+     */
+    protected void updateCounts(final TreeItem subtree, final int sign)
+    {
+        element_count.addAndGet(sign * subtree.getElementCount());
+        leaf_count.addAndGet(sign * subtree.getLeafCount());
+    }
+
+    /** @param subtree Item that was added or removed below the item
+     *  @param start First item to update, then up to the root
+     *  @param sign <code>1</code> when added, <code>-1</code> when removed
+     */
+    private static void updateAncestorCounts(final TreeItem subtree, final TreeItem start, final int sign)
+    {
+        for (TreeItem item = start;  item != null;  item = item.getParent())
+            item.updateCounts(subtree, sign);
+    }
+
     /** @return Number of child nodes */
     final public int getChildCount()
     {
@@ -159,6 +215,7 @@ public class TreeItem implements Serializable
     final private void addChild(final TreeItem child)
     {
         children.add(child);
+        updateAncestorCounts(child, this, 1);
     }
 
     /** Detach item from parent: Remove from parent's list of children
@@ -188,6 +245,7 @@ public class TreeItem implements Serializable
     {
         if (! children.remove(child))
             throw new Error("Corrupted tree item: " + toString());
+        updateAncestorCounts(child, this, -1);
     }
 
     /** Locate alarm tree item by path, starting at this element
@@ -18,7 +18,6 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Activator;
@@ -26,7 +25,6 @@ import org.csstudio.alarm.beast.AlarmTreePath;
 import org.csstudio.alarm.beast.Messages;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.TimestampHelper;
-import org.csstudio.apputil.time.DelayCheck;
 import org.csstudio.platform.utility.rdb.RDBUtil;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -73,7 +71,7 @@ public class AlarmConfiguration
     private HashMap<String, AlarmTreePV> pvs = new HashMap<String, AlarmTreePV>();
 
     /** Re-used statements */
-    private PreparedStatement sel_items_by_parent_statement, sel_pv_by_id_statement;
+    private PreparedStatement sel_pv_by_id_statement;
 
 
     /** Initialize
@@ -162,10 +160,9 @@ public class AlarmConfiguration
         if (auto_reconnect)
             rdb.setAutoReconnect(false);
         final AlarmTreeRoot new_config;
-        final DelayCheck monitor_update_delay = new DelayCheck(1, TimeUnit.SECONDS);
         try
         {
-            new_config = readAlarmTree(root_name, create, monitor, monitor_update_delay);
+            new_config = readAlarmTree(root_name, create, monitor);
             closeStatements();
         }
         finally
@@ -221,14 +218,13 @@ public class AlarmConfiguration
      *  @param root_name Name of root component
      *  @param create Create empty alarm tree?
      *  @param monitor Progress monitor
-     *  @param monitor_update_delay Delay for updates to monitor
      *  @return AlarmTreeRoot
      *  @throws Exception on error
      */
     @SuppressWarnings("nls")
     private AlarmTreeRoot readAlarmTree(final String root_name,
             final boolean create,
-            final IProgressMonitor monitor, final DelayCheck monitor_update_delay) throws Exception
+            final IProgressMonitor monitor) throws Exception
     {
         final Connection connection = rdb.getConnection();
         final PreparedStatement statement =
@@ -246,8 +242,8 @@ public class AlarmConfiguration
             }
             final int id = result.getInt(1);
             final AlarmTreeRoot root = createAlarmTreeRoot(id, root_name);
-            config_reader.readGuidanceDisplaysCommands(root);
-            readChildren(root, monitor, monitor_update_delay);
+            pvs.putAll(config_reader.readSubtree(root, severity_mapping, message_mapping, monitor));
+            monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, pvs.size()));
             return root;
         }
         finally
@@ -257,62 +253,6 @@ public class AlarmConfiguration
         }
     }
 
-    /** Read configuration for child elements
-     *  @param parent Parent node. Children get added to it.
-     *  @param monitor Progress monitor
-     *  @param monitor_update_delay Delay for updates to monitor
-     *  @throws Exception on error
-     */
-    private void readChildren(final AlarmTreeItem parent,
-            final IProgressMonitor monitor, final DelayCheck monitor_update_delay) throws Exception
-    {
-        if (sel_items_by_parent_statement == null)
-            sel_items_by_parent_statement =
-                rdb.getConnection().prepareStatement(sql.sel_items_by_parent);
-        sel_items_by_parent_statement.setInt(1, parent.getID());
-        final ResultSet result = sel_items_by_parent_statement.executeQuery();
-
-        final List<AlarmTreeItem> recurse_items = new ArrayList<AlarmTreeItem>();
-        while (result.next()  &&  !monitor.isCanceled())
-        {
-            final int id = result.getInt(1);
-            final String name = result.getString(17);
-            final Timestamp config_time = result.getTimestamp(2);
-            final AlarmTreeItem item;
-            // Check PV's ID. If null, this is a component, not PV
-            result.getInt(3);
-            if (result.wasNull())
-            {   // Component (area, system), not a PV
-                item = new AlarmTreeItem(parent, name, id);
-                recurse_items.add(item);
-            }
-            else
-            {
-                final AlarmTreePV pv = new AlarmTreePV(parent, name, id);
-                pvs.put(name, pv);
-                // Periodically update progress monitor
-                if (monitor_update_delay.expired())
-                {
-                    final int count = pvs.size();
-                    monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, count));
-                }
-                config_reader.configurePVfromResult(pv, result, severity_mapping, message_mapping);
-                item = pv;
-            }
-            if (config_time != null)
-                item.setConfigTime(TimestampHelper.toEPICSTime(config_time));
-            config_reader.readGuidanceDisplaysCommands(item);
-        }
-        result.close();
-
-        // Recurse to children
-        // Cannot do that inside the above while() because that would reuse
-        // the statement of the current ResultSet
-        for (AlarmTreeItem item : recurse_items)
-            readChildren(item, monitor, monitor_update_delay);
-        recurse_items.clear();
-    }
-
     /** Add a component to the model and RDB
      *  @param parent AlarmTreeRoot or ..Component under which to add the component
      *  @param name Name of the new component
@@ -954,11 +894,6 @@ public class AlarmConfiguration
     {
         try
         {
-            if (sel_items_by_parent_statement != null)
-            {
-                sel_items_by_parent_statement.close();
-                sel_items_by_parent_statement = null;
-            }
             if (sel_pv_by_id_statement != null)
             {
                 sel_pv_by_id_statement.close();
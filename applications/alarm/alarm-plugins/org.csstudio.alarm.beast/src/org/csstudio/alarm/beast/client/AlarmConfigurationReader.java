@@ -7,21 +7,31 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.client;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.alarm.beast.Activator;
 import org.csstudio.alarm.beast.AlarmTreePath;
+import org.csstudio.alarm.beast.ItemHierarchy;
+import org.csstudio.alarm.beast.Messages;
 import org.csstudio.alarm.beast.SQL;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.alarm.beast.TimestampHelper;
+import org.csstudio.apputil.time.DelayCheck;
 import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.osgi.util.NLS;
 
 /** Helper for reading alarm configuration from RDB
  *  @author Kay Kasemir
@@ -217,6 +227,170 @@ public class AlarmConfigurationReader
         item.setAutomatedActions(readAutomatedActions(id));
     }
 
+    /** Read guidance, displays and commands from one of the GDC tables
+     *  @param query Query for COMPONENT_ID, TITLE, DETAIL of all items
+     *  @return GDC entries by item ID
+     *  @throws Exception on error
+     */
+    private Map<Integer, List<GDCDataStructure>> readAllGDC(final String query) throws Exception
+    {
+        final Map<Integer, List<GDCDataStructure>> gdc = new HashMap<>();
+        try
+        (
+            final Statement statement = rdb.getConnection().createStatement();
+            final ResultSet result = statement.executeQuery(query);
+        )
+        {
+            while (result.next())
+                gdc.computeIfAbsent(result.getInt(1), id -> new ArrayList<>())
+                   .add(new GDCDataStructure(result.getString(2), result.getString(3)));
+        }
+        return gdc;
+    }
+
+    /** Read GUI info (guidance, displays, commands) for many items.
+     *
+     *  <p>Uses one query per type of GUI info
+     *  instead of queries for each item.
+     *
+     *  @param items Items to update with GUI info, by ID
+     *  @throws Exception on error
+     */
+    public void readAllGuidanceDisplaysCommands(final Map<Integer, ? extends AlarmTreeItem> items) throws Exception
+    {
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_all_guidance).entrySet())
+        {
+            final AlarmTreeItem item = items.get(entry.getKey());
+            if (item != null)
+                item.setGuidance(entry.getValue().toArray(new GDCDataStructure[entry.getValue().size()]));
+        }
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_all_displays).entrySet())
+        {
+            final AlarmTreeItem item = items.get(entry.getKey());
+            if (item != null)
+                item.setDisplays(entry.getValue().toArray(new GDCDataStructure[entry.getValue().size()]));
+        }
+        for (Map.Entry<Integer, List<GDCDataStructure>> entry : readAllGDC(sql.sel_all_commands).entrySet())
+        {
+            final AlarmTreeItem item = items.get(entry.getKey());
+            if (item != null)
+                item.setCommands(entry.getValue().toArray(new GDCDataStructure[entry.getValue().size()]));
+        }
+
+        final Map<Integer, List<AADataStructure>> actions = new HashMap<>();
+        try
+        (
+            final Statement statement = rdb.getConnection().createStatement();
+            final ResultSet result = statement.executeQuery(sql.sel_all_auto_actions);
+        )
+        {
+            while (result.next())
+            {
+                final int id = result.getInt(1);
+                if (items.containsKey(id))
+                    actions.computeIfAbsent(id, i -> new ArrayList<>())
+                           .add(new AADataStructure(result.getString(2), result.getString(3), result.getInt(4)));
+            }
+        }
+        for (Map.Entry<Integer, List<AADataStructure>> entry : actions.entrySet())
+            items.get(entry.getKey()).setAutomatedActions(entry.getValue().toArray(new AADataStructure[entry.getValue().size()]));
+    }
+
+    /** Read complete alarm tree below a root element.
+     *
+     *  <p>Reads the hierarchy, PV settings and GUI info
+     *  with a few queries for all items
+     *  instead of queries for each item,
+     *  then builds the alarm tree in memory.
+     *
+     *  <p>When cancelled, the remaining PV settings
+     *  and GUI info are not read.
+     *
+     *  @param root Root of the alarm tree, must have its RDB ID
+     *  @param severity_mapping
+     *  @param message_mapping
+     *  @param monitor Progress monitor
+     *  @return PVs in the alarm tree by name
+     *  @throws Exception on error
+     */
+    public Map<String, AlarmTreePV> readSubtree(final AlarmTreeRoot root,
+            final SeverityReader severity_mapping, final MessageReader message_mapping,
+            final IProgressMonitor monitor) throws Exception
+    {
+        final Connection connection = rdb.getConnection();
+        final ItemHierarchy hierarchy = ItemHierarchy.read(connection, sql);
+
+        // Create items, hierarchy includes other configurations
+        final Map<Integer, AlarmTreeItem> items = new HashMap<>();
+        final Map<Integer, AlarmTreePV> pvs = new HashMap<>();
+        items.put(root.getID(), root);
+        addChildren(hierarchy, root, items, pvs);
+        monitor.worked(1);
+
+        // Configure PVs
+        final DelayCheck monitor_update_delay = new DelayCheck(1, TimeUnit.SECONDS);
+        int count = 0;
+        try
+        (
+            final Statement statement = connection.createStatement();
+            final ResultSet result = statement.executeQuery(sql.sel_all_pvs);
+        )
+        {
+            while (result.next()  &&  !monitor.isCanceled())
+            {
+                final AlarmTreePV pv = pvs.get(result.getInt(1));
+                if (pv != null)
+                {
+                    configurePVfromResult(pv, result, severity_mapping, message_mapping);
+                    ++count;
+                    // Periodically update progress monitor
+                    if (monitor_update_delay.expired())
+                        monitor.subTask(NLS.bind(Messages.ReadConfigProgressFmt, count));
+                }
+            }
+        }
+        monitor.worked(1);
+
+        if (! monitor.isCanceled())
+        {
+            readAllGuidanceDisplaysCommands(items);
+            monitor.worked(1);
+        }
+
+        final Map<String, AlarmTreePV> pvs_by_name = new HashMap<>(pvs.size());
+        for (AlarmTreePV pv : pvs.values())
+            pvs_by_name.put(pv.getName(), pv);
+        return pvs_by_name;
+    }
+
+    /** Recursively create child items
+     *  @param hierarchy Item hierarchy
+     *  @param parent Parent item
+     *  @param items All items by ID, updated
+     *  @param pvs PVs by ID, updated
+     */
+    private void addChildren(final ItemHierarchy hierarchy, final AlarmTreeItem parent,
+                             final Map<Integer, AlarmTreeItem> items, final Map<Integer, AlarmTreePV> pvs)
+    {
+        for (ItemHierarchy.Item info : hierarchy.getChildren(parent.getID()))
+        {
+            final AlarmTreeItem item;
+            if (info.isPV())
+            {
+                final AlarmTreePV pv = new AlarmTreePV(parent, info.getName(), info.getID());
+                pvs.put(info.getID(), pv);
+                item = pv;
+            }
+            else
+                item = new AlarmTreeItem(parent, info.getName(), info.getID());
+            if (info.getConfigTime() != null)
+                item.setConfigTime(info.getConfigTime());
+            items.put(info.getID(), item);
+            if (! info.isPV())
+                addChildren(hierarchy, item, items, pvs);
+        }
+    }
+
     /** Read alarm tree component or PV.
      *  Does <u>not</u> initialize the GUI info nor alarm state
      *  @param name Name of item
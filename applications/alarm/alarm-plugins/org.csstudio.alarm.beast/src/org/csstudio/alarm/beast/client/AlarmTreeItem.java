@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.alarm.beast.client;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.time.Instant;
@@ -14,6 +16,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.csstudio.alarm.beast.Messages;
 import org.csstudio.alarm.beast.SeverityLevel;
@@ -46,6 +49,13 @@ public class AlarmTreeItem extends TreeItem
     /** Sub-tree elements of this item which are currently in alarm */
     final private transient List<AlarmTreeItem> alarm_children = new CopyOnWriteArrayList<>();
 
+    /** Number of PVs in this sub-tree by alarm severity,
+     *  indexed by {@link SeverityLevel#ordinal()}.
+     *  Updated as PVs change their severity and as items are added or removed.
+     *  Not serialized but re-computed when the item is read.
+     */
+    private transient AtomicIntegerArray severity_counts = new AtomicIntegerArray(SeverityLevel.values().length);
+
     // Using arrays for guidance, ..., commands to be thread-safe
 
     /** Guidance messages */
@@ -81,6 +91,81 @@ public class AlarmTreeItem extends TreeItem
     public AlarmTreeItem(final AlarmTreeItem parent, final String name, final int id)
     {
         super(parent, name, id);
+        // Leaf was added to parent before severity_counts were initialized,
+        // so count it now
+        if (isLeaf())
+            countSeverity(null, severity);
+    }
+
+    /** Re-compute severity counts after deserialization
+     *  @param in Stream from which to read this item
+     *  @throws IOException on error
+     *  @throws ClassNotFoundException on error
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        // Children have already been read
+        severity_counts = new AtomicIntegerArray(SeverityLevel.values().length);
+        if (isLeaf())
+            severity_counts.incrementAndGet(severity.ordinal());
+        for (int c=0; c<getChildCount(); ++c)
+        {
+            final TreeItem child = getChild(c);
+            if (child instanceof AlarmTreeItem)
+            {
+                final AtomicIntegerArray sub_counts = ((AlarmTreeItem) child).severity_counts;
+                for (int i=0; i<sub_counts.length(); ++i)
+                    severity_counts.addAndGet(i, sub_counts.get(i));
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void updateCounts(final TreeItem subtree, final int sign)
+    {
+        super.updateCounts(subtree, sign);
+        if (! (subtree instanceof AlarmTreeItem))
+            return;
+        final AtomicIntegerArray sub_counts = ((AlarmTreeItem) subtree).severity_counts;
+        // New item is still being constructed and will count itself
+        if (sub_counts == null)
+            return;
+        for (int i=0; i<sub_counts.length(); ++i)
+            severity_counts.addAndGet(i, sign * sub_counts.get(i));
+    }
+
+    /** Update severity counts of this item and its parents for a PV that changed severity
+     *  @param old_severity Previous severity or <code>null</code>
+     *  @param new_severity New severity
+     */
+    private void countSeverity(final SeverityLevel old_severity, final SeverityLevel new_severity)
+    {
+        for (AlarmTreeItem item = this;  item != null;  item = item.getParent())
+        {
+            item.severity_counts.incrementAndGet(new_severity.ordinal());
+            if (old_severity != null)
+                item.severity_counts.decrementAndGet(old_severity.ordinal());
+        }
+    }
+
+    /** @param level Alarm severity
+     *  @return Number of PVs in this sub-tree with that alarm severity
+     */
+    public int getSeverityCount(final SeverityLevel level)
+    {
+        return severity_counts.get(level.ordinal());
+    }
+
+    /** @return Number of PVs in this sub-tree with active, un-acknowledged alarms */
+    public int getActiveAlarmCount()
+    {
+        int count = 0;
+        for (SeverityLevel level : SeverityLevel.values())
+            if (level.isActive())
+                count += severity_counts.get(level.ordinal());
+        return count;
     }
 
     /** @return Text (multi-line) that can be used as a tool-tip to
@@ -287,9 +372,12 @@ public class AlarmTreeItem extends TreeItem
             getSeverity() == severity  &&
             getMessage().equals(message))
             return ChangeLevel.NONE;
+        final SeverityLevel old_severity = this.severity;
         this.current_severity = current_severity;
         this.severity = severity;
         this.message = message;
+        if (old_severity != severity)
+            countSeverity(old_severity, severity);
         final AlarmTreeItem parent = getParent();
         if (parent != null)
             return parent.maximizeSeverity() ? ChangeLevel.PV_AND_PARENT : ChangeLevel.PV;
@@ -325,6 +413,7 @@ public class AlarmTreeItem extends TreeItem
     /** Set severity/status of this item by maximizing over its child
      *  severities.
      *  Recursively updates parent items, so caller must have locked the root.
+     *  Parent items are only updated when this item changed.
      *
      *  @return <code>true</code> if the severity of this item or any of its parents changed after
      *          this method is executed, or <code>false</code> if the severity remained the same
@@ -337,6 +426,7 @@ public class AlarmTreeItem extends TreeItem
         SeverityLevel new_severity = SeverityLevel.OK;
         String new_message = SeverityLevel.OK.getDisplayName();
         alarm_children.clear();
+        final int old_disabled_children = disabled_children;
         disabled_children = 0;
         final int n = getChildCount();
         for (int i=0; i<n; ++i)
@@ -376,7 +466,7 @@ public class AlarmTreeItem extends TreeItem
 
         // Percolate changes towards root
         final AlarmTreeItem parent = getParent();
-        if (parent != null)
+        if (parent != null  &&  (changed  ||  disabled_children != old_disabled_children))
             return parent.maximizeSeverity() || changed;
         return changed;
     }
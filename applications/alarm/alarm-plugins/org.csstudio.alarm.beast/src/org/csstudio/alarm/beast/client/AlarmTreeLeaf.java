@@ -123,6 +123,13 @@ public class AlarmTreeLeaf extends AlarmTreeItem
         return level;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isLeaf()
+    {
+        return true;
+    }
+
     /** PV entries have no sub-entries and thus don't maximize their severity;
      *  they receive it from the control system
      */
@@ -211,23 +211,44 @@ public class AlarmTreePV extends AlarmTreeLeaf
         final boolean parent_changed;
         synchronized (root)
         {
-            synchronized (this)
-            {
-                ChangeLevel level = setAlarmState(current_severity, severity, message, timestamp);
-                if ( level != ChangeLevel.NONE || ! current_message.equals(this.current_message) )
-                {   // Alarm state or at least message changed
-                    this.current_message = current_message;
-                    this.value = value;
-                    parent_changed = level == ChangeLevel.PV_AND_PARENT;
-                }
-                else
-                    parent_changed = false;
-            }
+            parent_changed = updateAlarmState(current_severity, current_message,
+                                              severity, message, value, timestamp);
         }
         // Send events outside of lock
         root.notifyListeners(this, parent_changed);
     }
 
+    /** Update status/message/time stamp and maximize
+     *  severities of parent entries, without notifying listeners.
+     *
+     *  <p>Caller must lock the root of the tree,
+     *  which allows updating several PVs as one transaction.
+     *
+     *  @param current_severity Current severity of PV
+     *  @param current_message Current message of the PV
+     *  @param severity Alarm severity
+     *  @param message Alarm message
+     *  @param value Value that triggered the update
+     *  @param timestamp Instant for this update
+     *  @return <code>true</code> if parent entries changed
+     *  @see #setAlarmState(SeverityLevel, String, SeverityLevel, String, String, Instant)
+     */
+    public synchronized boolean updateAlarmState(final SeverityLevel current_severity,
+            final String current_message,
+            final SeverityLevel severity, final String message,
+            final String value,
+            final Instant timestamp)
+    {
+        final ChangeLevel level = setAlarmState(current_severity, severity, message, timestamp);
+        if ( level != ChangeLevel.NONE || ! current_message.equals(this.current_message) )
+        {   // Alarm state or at least message changed
+            this.current_message = current_message;
+            this.value = value;
+            return level == ChangeLevel.PV_AND_PARENT;
+        }
+        return false;
+    }
+
     /** Called either directly or recursively from parent item.
      *  @see AlarmTree#acknowledge()
      */
@@ -63,23 +63,6 @@ public class AlarmTreeRoot extends AlarmTreeItem
         // NOP
     }
 
-    /** @return Number of PVs in tree */
-    public synchronized int getLeafCount()
-    {
-        return getLeafCount(this);
-    }
-
-    /** @return Number of PVs below item (counts recursively) */
-    private int getLeafCount(final AlarmTreeItem item)
-    {
-        if (item instanceof AlarmTreeLeaf)
-            return 1;
-        int count = 0;
-        for (int i=0; i<item.getChildCount(); ++i)
-            count += getLeafCount(item.getChild(i));
-        return count;
-    }
-
     /** @param leaves List to which all leaves of this tree are added */
     public void addLeavesToList(final List<AlarmTreeLeaf> leaves)
     {
@@ -103,24 +86,6 @@ public class AlarmTreeRoot extends AlarmTreeItem
         }
     }
 
-    /** @return Number of elements (children, sub-children) in tree */
-    public synchronized int getElementCount()
-    {   // Consider root itself, then count children from here on down
-        return 1 + getElementCount(this);
-    }
-
-    /** @return Number of elements (children, sub-children) below item (counts recursively) */
-    private int getElementCount(final AlarmTreeItem item)
-    {
-        // Count direct children
-        final int child_count = item.getChildCount();
-        // Then add counts recursively
-        int total = child_count;
-        for (int i=0; i<child_count; ++i)
-            total += getElementCount(item.getChild(i));
-        return total;
-    }
-
     /** Write XML representation of alarm tree
      *  @param out Stream to which to send XML output
      *  @throws Exception on error
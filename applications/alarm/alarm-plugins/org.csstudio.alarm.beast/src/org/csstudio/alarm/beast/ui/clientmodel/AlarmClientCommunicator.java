@@ -77,6 +77,29 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
         }
     }
 
+    /** Action to update the state of several PVs */
+    private class BatchUpdateAction implements Runnable
+    {
+        final private AlarmUpdateInfo[] infos;
+
+        public BatchUpdateAction(final AlarmUpdateInfo[] infos)
+        {
+            this.infos = infos;
+        }
+
+        @Override
+        public void run()
+        {
+            model.updatePVs(infos);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Update " + infos.length + " PVs";
+        }
+    }
+
     /** Action to enable/disable a PV */
     private class EnableAction implements Runnable
     {
@@ -380,6 +403,18 @@ class AlarmClientCommunicator extends JMSCommunicationWorkQueueThread
                 action = new UpdateAction(AlarmUpdateInfo.fromMapMessage(message,date_format));
                 model.updateServerState(true);
             }
+            else if (JMSAlarmMessage.TEXT_STATE_BATCH.equals(text))
+            {
+                timeout_timer.reset();
+                action = new BatchUpdateAction(AlarmUpdateInfo.fromBatchMessage(message));
+                model.updateServerState(false);
+            }
+            else if (JMSAlarmMessage.TEXT_STATE_BATCH_MAINTENANCE.equals(text))
+            {
+                timeout_timer.reset();
+                action = new BatchUpdateAction(AlarmUpdateInfo.fromBatchMessage(message));
+                model.updateServerState(true);
+            }
             // Idle messages in absence of 'real' traffic?
             else if (JMSAlarmMessage.TEXT_IDLE.equals(text))
             {
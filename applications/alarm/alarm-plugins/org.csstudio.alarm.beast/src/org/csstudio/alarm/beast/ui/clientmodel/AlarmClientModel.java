@@ -9,6 +9,7 @@ package org.csstudio.alarm.beast.ui.clientmodel;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -118,6 +119,16 @@ public class AlarmClientModel
      */
     private Set<AlarmTreePV> acknowledged_alarms = new HashSet<AlarmTreePV>();
 
+    /** Version of active_alarms and acknowledged_alarms, incremented on change
+     *  <br><b>SYNC:</b> Access needs to synchronize on <code>this</code>
+     */
+    private long alarm_version = 0;
+
+    /** Snapshot of active_alarms and acknowledged_alarms,
+     *  <code>null</code> when it needs to be re-created after changes
+     */
+    private volatile AlarmIndex alarm_index = null;
+
     /** Listeners who registered for notifications */
     final private CopyOnWriteArrayList<AlarmClientModelListener> listeners =
         new CopyOnWriteArrayList<AlarmClientModelListener>();
@@ -374,8 +385,7 @@ public class AlarmClientModel
 
             if (config != null)
                 config.close();
-            active_alarms.clear();
-            acknowledged_alarms.clear();
+            clearAlarms();
             config = null;
             // Note config_tree stays as it was...
         }
@@ -486,13 +496,9 @@ public class AlarmClientModel
         timer.stop();
         if (Activator.getLogger().isLoggable(Level.INFO))
         {
-            final int count;
-            final int pv_count;
-            synchronized (this)
-            {
-                count = config_tree.getElementCount();
-                pv_count = config_tree.getLeafCount();
-            }
+            final AlarmTreeRoot tree = getConfigTree();
+            final int count = tree.getElementCount();
+            final int pv_count = tree.getLeafCount();
             Activator.getLogger().info(String.format(
                 "Read %d alarm tree items, %d PVs in %.2f seconds: %.1f items/sec, %.1f PVs/sec",
                 count, pv_count, timer.getSeconds(),
@@ -517,8 +523,7 @@ public class AlarmClientModel
                 if (config != null)
                     config.close();
                 config = null;
-                active_alarms.clear();
-                acknowledged_alarms.clear();
+                clearAlarms();
             }
         }
         fireNewConfig();
@@ -593,24 +598,64 @@ public class AlarmClientModel
         return config_tree;
     }
 
+    /** Get snapshot of the active and acknowledged alarms.
+     *  <p>
+     *  The snapshot is only re-created when alarms changed,
+     *  and it can be read without locking the model.
+     *  @return {@link AlarmIndex}
+     */
+    public AlarmIndex getAlarmIndex()
+    {
+        final AlarmIndex index = alarm_index;
+        if (index != null)
+            return index;
+        synchronized (this)
+        {
+            if (alarm_index == null)
+                alarm_index = new AlarmIndex(alarm_version, active_alarms, acknowledged_alarms);
+            return alarm_index;
+        }
+    }
+
+    /** Mark alarm index as changed
+     *  <br><b>SYNC:</b> Caller needs to synchronize on <code>this</code>
+     */
+    private void alarmsChanged()
+    {
+        ++alarm_version;
+        alarm_index = null;
+    }
+
+    /** Clear active and acknowledged alarms
+     *  <br><b>SYNC:</b> Caller needs to synchronize on <code>this</code>
+     */
+    private void clearAlarms()
+    {
+        active_alarms.clear();
+        acknowledged_alarms.clear();
+        alarmsChanged();
+    }
+
     /** Get the currently active alarms.
      *  <p>
      *  @return Array of active alarms. May be empty, but not <code>null</code>.
+     *  @see #getAlarmIndex()
      */
-    synchronized public AlarmTreePV[] getActiveAlarms()
+    public AlarmTreePV[] getActiveAlarms()
     {
-        final AlarmTreePV array[] = new AlarmTreePV[active_alarms.size()];
-        return active_alarms.toArray(array);
+        final List<AlarmTreePV> alarms = getAlarmIndex().getActiveAlarms();
+        return alarms.toArray(new AlarmTreePV[alarms.size()]);
     }
 
     /** Get the acknowledged alarms: Still in alarm, but ack'ed.
      *  <p>
      *  @return Array of active alarms. May be empty, but not <code>null</code>.
+     *  @see #getAlarmIndex()
      */
-    synchronized public AlarmTreePV[] getAcknowledgedAlarms()
+    public AlarmTreePV[] getAcknowledgedAlarms()
     {
-        final AlarmTreePV array[] = new AlarmTreePV[acknowledged_alarms.size()];
-        return acknowledged_alarms.toArray(array);
+        final List<AlarmTreePV> alarms = getAlarmIndex().getAcknowledgedAlarms();
+        return alarms.toArray(new AlarmTreePV[alarms.size()]);
     }
 
     /** Add a component to the model and RDB
@@ -999,6 +1044,58 @@ public class AlarmClientModel
             "Received update for unknown PV {0}", name);
     }
 
+    /** Update the state of several PVs in model as one transaction.
+     *  <p>
+     *  Called by AlarmUpdateCommunicator, i.e. from JMS thread.
+     *  All updates are applied to the alarm tree while holding the lock
+     *  of its root, then listeners are notified.
+     *
+     *  @param infos Alarm update infos
+     */
+    void updatePVs(final AlarmUpdateInfo[] infos)
+    {
+        server_alive = true;
+        final AlarmTreePV[] pvs = new AlarmTreePV[infos.length];
+        AlarmTreeRoot root = null;
+        synchronized (this)
+        {
+            if (config == null)
+                return;
+            for (int i=0; i<infos.length; ++i)
+            {
+                String name = infos[i].getNameOrPath();
+                if (AlarmTreePath.isPath(name))
+                    name = AlarmTreePath.getName(name);
+                pvs[i] = config.findPV(name);
+                if (pvs[i] == null)
+                    Activator.getLogger().log(Level.WARNING,
+                        "Received update for unknown PV {0}", name);
+                else if (root == null)
+                    root = pvs[i].getRoot();
+            }
+        }
+        if (root == null)
+            return;
+
+        final boolean[] parent_changed = new boolean[infos.length];
+        synchronized (root)
+        {
+            for (int i=0; i<infos.length; ++i)
+                if (pvs[i] != null)
+                {
+                    final AlarmUpdateInfo info = infos[i];
+                    parent_changed[i] = pvs[i].updateAlarmState(
+                            info.getCurrentSeverity(), info.getCurrentMessage(),
+                            info.getSeverity(), info.getMessage(),
+                            info.getValue(), info.getTimestamp());
+                }
+        }
+        // Send events outside of lock
+        for (int i=0; i<infos.length; ++i)
+            if (pvs[i] != null)
+                fireNewAlarmState(pvs[i], parent_changed[i]);
+    }
+
     /** Locate PV by name
      *  @param name Name of PV to locate. May be <code>null</code>.
      *  @return PV or <code>null</code> when not found
@@ -1031,8 +1128,7 @@ public class AlarmClientModel
     {
         config_tree = new AlarmTreeRoot("Pseudo", -1);
         new AlarmTreeItem(config_tree, info, 0);
-        active_alarms.clear();
-        acknowledged_alarms.clear();
+        clearAlarms();
     }
 
     /** Send debug trigger to alarm server */
@@ -1114,24 +1210,18 @@ public class AlarmClientModel
             synchronized (this)
             {
                 final SeverityLevel severity = pv.getSeverity();
+                final boolean changed;
                 if (severity.ordinal() > 0)
                 {
                     if (severity.isActive())
-                    {
-                        active_alarms.add(pv);
-                        acknowledged_alarms.remove(pv);
-                    }
+                        changed = active_alarms.add(pv) | acknowledged_alarms.remove(pv);
                     else
-                    {
-                        acknowledged_alarms.add(pv);
-                        active_alarms.remove(pv);
-                    }
+                        changed = acknowledged_alarms.add(pv) | active_alarms.remove(pv);
                 }
                 else
-                {
-                    active_alarms.remove(pv);
-                    acknowledged_alarms.remove(pv);
-                }
+                    changed = active_alarms.remove(pv) | acknowledged_alarms.remove(pv);
+                if (changed)
+                    alarmsChanged();
                 if (!notify_listeners )
                     return;
             }
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.alarm.beast.ui.clientmodel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.csstudio.alarm.beast.client.AlarmTreePV;
+
+/** Snapshot of the active and acknowledged alarms in the {@link AlarmClientModel}
+ *
+ *  <p>The index is immutable, so it can be read without locking the model.
+ *  When the alarms change, the model creates a new index with a higher version.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class AlarmIndex
+{
+    final private long version;
+    final private List<AlarmTreePV> active, acknowledged;
+
+    /** @param version Version of the alarm information
+     *  @param active Active alarms
+     *  @param acknowledged Acknowledged alarms
+     */
+    AlarmIndex(final long version, final Collection<AlarmTreePV> active, final Collection<AlarmTreePV> acknowledged)
+    {
+        this.version = version;
+        this.active = Collections.unmodifiableList(Arrays.asList(active.toArray(new AlarmTreePV[active.size()])));
+        this.acknowledged = Collections.unmodifiableList(Arrays.asList(acknowledged.toArray(new AlarmTreePV[acknowledged.size()])));
+    }
+
+    /** @return Version, incremented whenever the alarms change */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /** @return Active alarms (read-only) */
+    public List<AlarmTreePV> getActiveAlarms()
+    {
+        return active;
+    }
+
+    /** @return Acknowledged alarms: Still in alarm, but ack'ed (read-only) */
+    public List<AlarmTreePV> getAcknowledgedAlarms()
+    {
+        return acknowledged;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Alarm index " + version + ": " + active.size() + " active, " + acknowledged.size() + " acknowledged";
+    }
+}
@@ -10,11 +10,14 @@ package org.csstudio.alarm.beast.ui.clientmodel;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 import javax.jms.MapMessage;
 
 import org.csstudio.alarm.beast.Activator;
+import org.csstudio.alarm.beast.JMSAlarmBatch;
 import org.csstudio.alarm.beast.JMSAlarmMessage;
 import org.csstudio.alarm.beast.SeverityLevel;
 import org.csstudio.logging.JMSLogMessage;
@@ -74,6 +77,21 @@ public class AlarmUpdateInfo
                 severity, status, value, timestamp);
     }
 
+    /** Initialize from JMS MapMessage with batched updates
+     *  @param message Message that must contain a {@link JMSAlarmBatch}
+     *  @return {@link AlarmUpdateInfo}s
+     *  @throws Exception on error in JMS access or decoding of received data
+     */
+    public static AlarmUpdateInfo[] fromBatchMessage(final MapMessage message) throws Exception
+    {
+        final List<AlarmUpdateInfo> infos = new ArrayList<>();
+        JMSAlarmBatch.decode(message.getBytes(JMSAlarmMessage.UPDATES),
+            (name, current_severity, current_message, severity, status, value, timestamp) ->
+                infos.add(new AlarmUpdateInfo(name, current_severity, current_message,
+                                              severity, status, value, timestamp)));
+        return infos.toArray(new AlarmUpdateInfo[infos.size()]);
+    }
+
     /** Initialize from pieces
      *  @param name_or_path
      *  @param current_severity
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.data;
+
+/** Optional interface for a {@link PlotDataProvider}
+ *  that maintains a summary of its sample values.
+ *
+ *  <p>When a data provider implements this interface,
+ *  the plot uses it to determine value ranges for
+ *  auto-scaling and to draw densely packed samples
+ *  without iterating over each sample,
+ *  for example based on a {@link MinMaxPyramid}.
+ *
+ *  <p>Like <code>size()</code> and <code>get()</code>
+ *  of the {@link PlotDataProvider}, these methods are called
+ *  while holding the lock of the data provider.
+ *
+ *  @author Kay Kasemir
+ */
+public interface PlotDataSummary
+{
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Range of the finite sample values in first .. last.
+     *          Low end is {@link Double#MAX_VALUE}, high end -{@link Double#MAX_VALUE} if there are none.
+     */
+    public ValueRange getValueRange(int first, int last);
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Number of samples with finite value in first .. last
+     */
+    public int getValueCount(int first, int last);
+}
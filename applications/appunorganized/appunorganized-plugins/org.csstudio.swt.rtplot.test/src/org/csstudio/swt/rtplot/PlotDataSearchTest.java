@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.csstudio.swt.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataSearch;
+import org.csstudio.swt.rtplot.data.SimpleDataItem;
+import org.junit.Test;
+
+/** JUnit test of {@link PlotDataSearch}
+ *  @author Kay Kasemir
+ */
+public class PlotDataSearchTest
+{
+    @Test
+    public void testSearch()
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        for (int i=0; i<10; ++i)
+            data.add(new SimpleDataItem<Double>(10.0 * i, i));
+        final PlotDataSearch<Double> search = new PlotDataSearch<>();
+
+        assertThat(search.findSampleLessOrEqual(data, -1.0), equalTo(-1));
+        assertThat(search.findSampleLessOrEqual(data, 0.0), equalTo(0));
+        assertThat(search.findSampleLessOrEqual(data, 15.0), equalTo(1));
+        assertThat(search.findSampleLessOrEqual(data, 200.0), equalTo(9));
+
+        assertThat(search.findSampleGreaterOrEqual(data, -1.0), equalTo(0));
+        assertThat(search.findSampleGreaterOrEqual(data, 15.0), equalTo(2));
+        // Last sample is found when goal is just before it
+        assertThat(search.findSampleGreaterOrEqual(data, 85.0), equalTo(9));
+        assertThat(search.findSampleGreaterOrEqual(data, 90.0), equalTo(9));
+        assertThat(search.findSampleGreaterOrEqual(data, 200.0), equalTo(-1));
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.data;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/** JUnit test of {@link MinMaxPyramid}
+ *  @author Kay Kasemir
+ */
+public class MinMaxPyramidTest
+{
+    @Test
+    public void testPyramid()
+    {
+        final MinMaxPyramid pyramid = new MinMaxPyramid(3);
+        assertThat(pyramid.getCapacity(), equalTo(4));
+        pyramid.add(1.0);
+        pyramid.add(Double.NaN);
+        pyramid.add(-2.0);
+        pyramid.add(5.0);
+        // Grows
+        pyramid.add(3.0);
+        assertThat(pyramid.size(), equalTo(5));
+        assertThat(pyramid.getCapacity(), equalTo(8));
+
+        ValueRange range = pyramid.getValueRange(0, 4);
+        assertThat(range.getLow(), equalTo(-2.0));
+        assertThat(range.getHigh(), equalTo(5.0));
+        assertThat(pyramid.getCount(0, 4), equalTo(4));
+
+        range = pyramid.getValueRange(1, 1);
+        assertThat(range.getLow(), equalTo(Double.MAX_VALUE));
+        assertThat(pyramid.getCount(1, 1), equalTo(0));
+
+        // Replace value
+        pyramid.set(3, 0.0);
+        range = pyramid.getValueRange(0, 4);
+        assertThat(range.getHigh(), equalTo(3.0));
+
+        pyramid.clear();
+        assertThat(pyramid.size(), equalTo(0));
+        assertThat(pyramid.getCount(0, 4), equalTo(0));
+    }
+
+    @Test
+    public void testRandomRanges()
+    {
+        final Random random = new Random(42);
+        final double[] values = new double[1000];
+        final MinMaxPyramid pyramid = new MinMaxPyramid(10);
+        for (int i=0; i<values.length; ++i)
+        {
+            values[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextGaussian();
+            pyramid.add(values[i]);
+        }
+        for (int run=0; run<1000; ++run)
+        {
+            final int first = random.nextInt(values.length);
+            final int last = first + random.nextInt(values.length - first);
+            double low = Double.MAX_VALUE, high = -Double.MAX_VALUE;
+            int count = 0;
+            for (int i=first; i<=last; ++i)
+                if (Double.isFinite(values[i]))
+                {
+                    low = Math.min(low, values[i]);
+                    high = Math.max(high, values[i]);
+                    ++count;
+                }
+            final ValueRange range = pyramid.getValueRange(first, last);
+            assertThat(range.getLow(), equalTo(low));
+            assertThat(range.getHigh(), equalTo(high));
+            assertThat(pyramid.getCount(first, last), equalTo(count));
+        }
+    }
+}
@@ -16,13 +16,18 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.csstudio.swt.rtplot.Axis;
 
 /** {@link PlotDataProvider} based on {@link List}
+ *
+ *  <p>Maintains a {@link MinMaxPyramid} of the values.
+ *  Data must therefore only be added via {@link #add(PlotDataItem)}.
+ *
  *  @param <XTYPE> Data type used for the horizontal {@link Axis}
  *  @author Kay Kasemir
  */
-public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements PlotDataProvider<XTYPE>
+public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements PlotDataProvider<XTYPE>, PlotDataSummary
 {
     final private ReadWriteLock lock = new ReentrantReadWriteLock();
     final private List<PlotDataItem<XTYPE>> data;
+    final private MinMaxPyramid summary;
 
     /** Construct with existing data
      *  @param data
@@ -30,6 +35,9 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
     public ArrayPlotDataProvider(final List<PlotDataItem<XTYPE>> data)
     {
         this.data = data;
+        summary = new MinMaxPyramid(data.size());
+        for (PlotDataItem<XTYPE> item : data)
+            summary.add(item.getValue());
     }
 
     /** Construct with internal array */
@@ -45,6 +53,7 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
         try
         {
             data.add(item);
+            summary.add(item.getValue());
         }
         finally
         {
@@ -69,4 +78,16 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
     {
         return data.get(index);
     }
+
+    @Override
+    public ValueRange getValueRange(final int first, final int last)
+    {
+        return summary.getValueRange(first, last);
+    }
+
+    @Override
+    public int getValueCount(final int first, final int last)
+    {
+        return summary.getCount(first, last);
+    }
 }
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.data;
+
+import java.util.Arrays;
+
+/** Minimum, maximum and count of values, summarized by power-of-two buckets
+ *
+ *  <p>Segment tree over a sequence of values.
+ *  The leaves hold the individual values,
+ *  each inner node holds the minimum, maximum and count
+ *  of the finite values below it.
+ *  Updating a value and querying the summary of a
+ *  range of values are O(log n) operations.
+ *
+ *  <p>Can be used to summarize samples of a {@link PlotDataProvider}
+ *  in support of {@link PlotDataSummary}.
+ *
+ *  <p>Not thread-safe.
+ *  Caller needs to hold the write lock of the data for updates,
+ *  and at least the read lock for queries.
+ *
+ *  @author Kay Kasemir
+ */
+public class MinMaxPyramid
+{
+    /** Number of leaves, power of two */
+    private int capacity;
+
+    /** Number of values that have been added or set */
+    private int size = 0;
+
+    /** Nodes of the tree. Root at 1, children of node n at 2n, 2n+1,
+     *  leaves at capacity .. 2*capacity-1
+     */
+    private double[] min, max;
+    private int[] count;
+
+    /** @param capacity Initial capacity, will be rounded up to power of two */
+    public MinMaxPyramid(final int capacity)
+    {
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity-1)) << 1;
+        allocate();
+    }
+
+    private void allocate()
+    {
+        min = new double[2*capacity];
+        max = new double[2*capacity];
+        count = new int[2*capacity];
+        Arrays.fill(min, Double.MAX_VALUE);
+        Arrays.fill(max, -Double.MAX_VALUE);
+    }
+
+    /** @return Number of values that fit without growing the tree */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** @return Number of values, i.e. highest index set plus one */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @param value Value to add after the last value */
+    public void add(final double value)
+    {
+        set(size, value);
+    }
+
+    /** Set or replace a value
+     *
+     *  <p>Tree grows if the index is beyond the current capacity.
+     *
+     *  @param index Index of value, 0 or larger
+     *  @param value Value. Values that are not finite are not counted.
+     */
+    public void set(final int index, final double value)
+    {
+        if (index >= capacity)
+            grow(index + 1);
+        if (index >= size)
+            size = index + 1;
+        int node = capacity + index;
+        if (Double.isFinite(value))
+        {
+            min[node] = max[node] = value;
+            count[node] = 1;
+        }
+        else
+        {
+            min[node] = Double.MAX_VALUE;
+            max[node] = -Double.MAX_VALUE;
+            count[node] = 0;
+        }
+        for (node >>= 1;  node > 0;  node >>= 1)
+            update(node);
+    }
+
+    /** @param node Inner node to update from its children */
+    private void update(final int node)
+    {
+        final int left = 2*node, right = left+1;
+        min[node] = Math.min(min[left], min[right]);
+        max[node] = Math.max(max[left], max[right]);
+        count[node] = count[left] + count[right];
+    }
+
+    /** @param needed Required capacity */
+    private void grow(final int needed)
+    {
+        final int old_capacity = capacity;
+        final double[] old_min = min, old_max = max;
+        final int[] old_count = count;
+        while (capacity < needed)
+            capacity <<= 1;
+        allocate();
+        // Copy leaves, then re-compute inner nodes
+        System.arraycopy(old_min, old_capacity, min, capacity, old_capacity);
+        System.arraycopy(old_max, old_capacity, max, capacity, old_capacity);
+        System.arraycopy(old_count, old_capacity, count, capacity, old_capacity);
+        for (int node=capacity-1; node>0; --node)
+            update(node);
+    }
+
+    /** Remove all values, keeping the capacity */
+    public void clear()
+    {
+        Arrays.fill(min, Double.MAX_VALUE);
+        Arrays.fill(max, -Double.MAX_VALUE);
+        Arrays.fill(count, 0);
+        size = 0;
+    }
+
+    /** @param first Index of first value
+     *  @param last Index of last value, inclusive
+     *  @return Range of the finite values in first .. last.
+     *          Low end is {@link Double#MAX_VALUE}, high end -{@link Double#MAX_VALUE} if there are none.
+     */
+    public ValueRange getValueRange(final int first, final int last)
+    {
+        double low = Double.MAX_VALUE, high = -Double.MAX_VALUE;
+        int l = capacity + Math.max(0, first);
+        int r = capacity + Math.min(last, capacity-1) + 1;
+        while (l < r)
+        {
+            if ((l & 1) != 0)
+            {
+                low = Math.min(low, min[l]);
+                high = Math.max(high, max[l]);
+                ++l;
+            }
+            if ((r & 1) != 0)
+            {
+                --r;
+                low = Math.min(low, min[r]);
+                high = Math.max(high, max[r]);
+            }
+            l >>= 1;
+            r >>= 1;
+        }
+        return new ValueRange(low, high);
+    }
+
+    /** @param first Index of first value
+     *  @param last Index of last value, inclusive
+     *  @return Number of finite values in first .. last
+     */
+    public int getCount(final int first, final int last)
+    {
+        int result = 0;
+        int l = capacity + Math.max(0, first);
+        int r = capacity + Math.min(last, capacity-1) + 1;
+        while (l < r)
+        {
+            if ((l & 1) != 0)
+                result += count[l++];
+            if ((r & 1) != 0)
+                result += count[--r];
+            l >>= 1;
+            r >>= 1;
+        }
+        return result;
+    }
+}
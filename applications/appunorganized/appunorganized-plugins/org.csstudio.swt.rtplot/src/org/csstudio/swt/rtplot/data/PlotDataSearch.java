@@ -76,7 +76,7 @@ public class PlotDataSearch<XTYPE extends Comparable<XTYPE>>
             return mid;
         // cmp < 0, 'mid' sample is smaller than x.
         // If there is a sample beyond, use that
-        if (mid < data.size()-2)
+        if (mid < data.size()-1)
             return mid+1;
         return -1;
     }
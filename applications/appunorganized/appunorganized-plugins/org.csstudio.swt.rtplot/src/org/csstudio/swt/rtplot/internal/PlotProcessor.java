@@ -25,6 +25,7 @@ import org.csstudio.swt.rtplot.Trace;
 import org.csstudio.swt.rtplot.data.PlotDataItem;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
 import org.csstudio.swt.rtplot.data.PlotDataSearch;
+import org.csstudio.swt.rtplot.data.PlotDataSummary;
 import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.swt.rtplot.internal.util.Log10;
 import org.csstudio.swt.rtplot.undo.AddAnnotationAction;
@@ -80,6 +81,8 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
                         // If data is completely outside the x_range,
                         // we end up using just data[0]
                         // Check [start .. stop], including stop
+                        if (data instanceof PlotDataSummary)
+                            return ((PlotDataSummary) data).getValueRange(start, stop);
                         for (int i=start; i<=stop; ++i)
                         {
                             final PlotDataItem<XTYPE> item = data.get(i);
@@ -14,6 +14,9 @@ import org.csstudio.swt.rtplot.Trace;
 import org.csstudio.swt.rtplot.TraceType;
 import org.csstudio.swt.rtplot.data.PlotDataItem;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataSearch;
+import org.csstudio.swt.rtplot.data.PlotDataSummary;
+import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.swt.rtplot.internal.util.IntList;
 import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.eclipse.swt.SWT;
@@ -46,8 +49,78 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  lines with the clip region, but this is much easier to implement.
      */
     final private static int OUTSIDE = 1000;
+
+    /** Minimum number of samples in a pixel column to use the {@link PlotDataSummary} */
+    final private static int SUMMARY_THRESHOLD = 16;
     private int x_min, x_max, y_min, y_max;
 
+    /** Samples that fall into one pixel column of the screen.
+     *
+     *  <p>Tracks the first, minimum, maximum and last value
+     *  ("M4" aggregation), which is all that's needed to draw
+     *  the same lines as all the samples in the column.
+     */
+    private static class PixelColumn
+    {
+        int x = -1;
+        int count = 0;
+        double first, min, max, last;
+        int min_index, max_index;
+
+        boolean isEmpty()
+        {
+            return count <= 0;
+        }
+
+        void clear()
+        {
+            count = 0;
+        }
+
+        /** @param x Screen position
+         *  @param low Low end of sample's value range
+         *  @param high High end of sample's value range
+         */
+        void start(final int x, final double low, final double high)
+        {
+            this.x = x;
+            first = min = low;
+            last = max = high;
+            min_index = max_index = 0;
+            count = 1;
+        }
+
+        /** @param x Screen position
+         *  @param low Low end of sample's value range
+         *  @param high High end of sample's value range
+         *  @return <code>true</code> if added, <code>false</code> if sample is in different column
+         */
+        boolean add(final int x, final double low, final double high)
+        {
+            if (count <= 0  ||  x != this.x)
+                return false;
+            if (low < min)
+            {
+                min = low;
+                min_index = count;
+            }
+            if (high > max)
+            {
+                max = high;
+                max_index = count;
+            }
+            last = high;
+            ++count;
+            return true;
+        }
+
+        /** @return Did the minimum occur before the maximum? */
+        boolean isMinFirst()
+        {
+            return min_index <= max_index;
+        }
+    }
+
     final private int clipX(final double x)
     {
         if (x < x_min)
@@ -95,19 +168,33 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
         gc.setAdvanced(true);
         gc.setAntialias(SWT.ON);
 
-        // TODO Optimize drawing
-        //
-        // Determine first sample to draw via PlotDataSearch.findSampleLessOrEqual(),
-        // then end drawing when reaching right end of area.
-        //
-        // Loop only once, performing drawMinMax, drawStdDev, drawValueStaircase in one loop
-        //
-        // For now, main point is that this happens in non-UI thread,
-        // so the slower the better to test UI responsiveness.
+        // Only draw the samples in the visible x range,
+        // reducing them to at most a few points per pixel column
         final PlotDataProvider<XTYPE> data = trace.getData();
         data.getLock().lock();
         try
         {
+            final int N = data.size();
+            if (N <= 0)
+                return;
+            // Start at sample just before the left edge,
+            // end with the one just beyond the right edge
+            XTYPE low = x_transform.inverse(bounds.x);
+            XTYPE high = x_transform.inverse(bounds.x + bounds.width);
+            if (low.compareTo(high) > 0)
+            {
+                final XTYPE swap = low;
+                low = high;
+                high = swap;
+            }
+            final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
+            int start = search.findSampleLessOrEqual(data, low);
+            if (start < 0)
+                start = 0;
+            int stop = search.findSampleGreaterOrEqual(data, high);
+            if (stop < 0)
+                stop = N-1;
+
             final TraceType type = trace.getType();
             switch (type)
             {
@@ -115,37 +202,37 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
                 break;
             case AREA:
                 gc.setAlpha(alpha);
-                drawMinMaxArea(gc, x_transform, y_axis, data);
+                drawMinMaxArea(gc, x_transform, y_axis, data, start, stop);
                 gc.setAlpha(255);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             case AREA_DIRECT:
                 gc.setAlpha(alpha);
-                drawMinMaxArea(gc, x_transform, y_axis, data);
+                drawMinMaxArea(gc, x_transform, y_axis, data, start, stop);
                 gc.setAlpha(255);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             case LINES:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 gc.setAlpha(alpha);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 gc.setAlpha(255);
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             case LINES_DIRECT:
-                drawMinMaxLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawMinMaxLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 gc.setAlpha(alpha);
-                drawStdDevLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawStdDevLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 gc.setAlpha(255);
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             case SINGLE_LINE:
-                drawValueStaircase(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueStaircase(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             case SINGLE_LINE_DIRECT:
-                drawValueLines(gc, x_transform, y_axis, data, trace.getWidth());
+                drawValueLines(gc, x_transform, y_axis, data, start, stop, trace.getWidth());
                 break;
             }
 
@@ -159,17 +246,17 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
             case DIAMONDS:
             case XMARKS:
             case TRIANGLES:
-                drawPoints(gc, x_transform, y_axis, data, point_type, trace.getPointSize());
+                drawPoints(gc, x_transform, y_axis, data, start, stop, point_type, trace.getPointSize());
                 break;
             }
         }
         finally
         {
             data.getLock().unlock();
+            gc.setLineWidth(old_width);
+            gc.setBackground(old_bg);
+            gc.setForeground(old_color);
         }
-        gc.setLineWidth(old_width);
-        gc.setBackground(old_bg);
-        gc.setForeground(old_color);
     }
 
     /** Draw values of data as staircase line
@@ -177,42 +264,41 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      *  @param line_width
      */
     final private void drawValueStaircase(final GC gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop, final int line_width)
     {
         final IntList value_poly = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
-        int last_x = -1, last_y = -1;
+        final PixelColumn column = new PixelColumn();
+        final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
         gc.setLineWidth(line_width);
-        for (int i=0; i<N; ++i)
+        for (int i=start; i<=stop; ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
             final double value = item.getValue();
-            if (value_poly.size() > 0  && x != last_x)
+            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
+            if (! Double.isNaN(value)  &&  column.add(x, value, value))
+                continue;
+            addValues(value_poly, column, y_axis);
+            final int size = value_poly.size();
+            if (size > 0  &&  value_poly.get(size-2) != x)
             {   // Staircase from last 'y'..
                 value_poly.add(x);
-                value_poly.add(last_y);
-                last_x = x;
+                value_poly.add(value_poly.get(size-1));
             }
             if (Double.isNaN(value))
-            {
                 flushPolyLine(gc, value_poly, line_width);
-                last_x = last_y = -1;
-            }
             else
             {
-                final int y = clipY(y_axis.getScreenCoord(value));
-                if (last_x == x  &&  last_y == y)
-                    continue;
-                value_poly.add(x);
-                value_poly.add(y);
-                last_y = y;
+                column.start(x, value, value);
+                i = addColumnSummary(data, search, x_transform, column, i, stop);
             }
         }
+        addValues(value_poly, column, y_axis);
         flushPolyLine(gc, value_poly, line_width);
     }
 
@@ -221,145 +307,303 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      *  @param line_width
      */
     final private void drawValueLines(final GC gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop, final int line_width)
     {
         final IntList value_poly = new IntList(INITIAL_ARRAY_SIZE);
-        final int N = data.size();
+        final PixelColumn column = new PixelColumn();
+        final PlotDataSearch<XTYPE> search = new PlotDataSearch<>();
         gc.setLineWidth(line_width);
-        int last_x = -1, last_y = -1;
-        for (int i=0; i<N; ++i)
+        for (int i=start; i<=stop; ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
-            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
             final double value = item.getValue();
             if (Double.isNaN(value))
             {
+                addValues(value_poly, column, y_axis);
                 flushPolyLine(gc, value_poly, line_width);
-                last_x = last_y = -1;
-            }
-            else
-            {
-                final int y = clipY(y_axis.getScreenCoord(value));
-                if (x == last_x  &&  y == last_y)
-                    continue;
-                value_poly.add(x);
-                value_poly.add(y);
-                last_x = x;
-                last_y = y;
+                continue;
             }
+            final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
+            if (column.add(x, value, value))
+                continue;
+            addValues(value_poly, column, y_axis);
+            column.start(x, value, value);
+            i = addColumnSummary(data, search, x_transform, column, i, stop);
         }
+        addValues(value_poly, column, y_axis);
         flushPolyLine(gc, value_poly, line_width);
     }
 
+    /** Use the {@link PlotDataSummary} for the remaining samples in a pixel column
+     *
+     *  <p>When many samples fall into the same pixel column,
+     *  determine their min/max from the summary of the data
+     *  instead of iterating over each sample.
+     *  Only used when all samples are finite, since
+     *  a NaN sample needs to break the line.
+     *
+     *  @param data Data
+     *  @param search Search helper
+     *  @param x_transform Horizontal axis
+     *  @param column Column that was just started with sample <code>i</code>
+     *  @param i Index of sample that started the column
+     *  @param stop Index of last sample to draw
+     *  @return Index of last sample that has been added to the column
+     */
+    final private int addColumnSummary(final PlotDataProvider<XTYPE> data, final PlotDataSearch<XTYPE> search,
+            final ScreenTransform<XTYPE> x_transform, final PixelColumn column, final int i, final int stop)
+    {
+        if (! (data instanceof PlotDataSummary)  ||  stop - i < SUMMARY_THRESHOLD)
+            return i;
+        // Last sample that's still in this column
+        final int end = Math.min(stop, search.findSampleLessOrEqual(data, x_transform.inverse(column.x + 0.5)));
+        if (end - i < SUMMARY_THRESHOLD)
+            return i;
+        final PlotDataSummary summary = (PlotDataSummary) data;
+        if (summary.getValueCount(i+1, end) != end - i)
+            return i;
+        final ValueRange range = summary.getValueRange(i+1, end);
+        final double min = range.getLow(), max = range.getHigh();
+        // Add min and max in the order they occur,
+        // as if each sample had been added to the column
+        if (findFirst(summary, i+1, end, min, true) <= findFirst(summary, i+1, end, max, false))
+        {
+            column.add(column.x, min, min);
+            column.add(column.x, max, max);
+        }
+        else
+        {
+            column.add(column.x, max, max);
+            column.add(column.x, min, min);
+        }
+        final double last = data.get(end).getValue();
+        column.add(column.x, last, last);
+        return end;
+    }
+
+    /** Locate first occurrence of a minimum or maximum
+     *
+     *  <p>Binary search for the shortest range first .. index
+     *  that reaches the value, using O(log n) summary queries.
+     *
+     *  @param summary Data summary
+     *  @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @param value Minimum or maximum of the samples in first .. last
+     *  @param is_min Is the value the minimum or the maximum?
+     *  @return Index of first sample with that value
+     */
+    final private int findFirst(final PlotDataSummary summary, final int first, int last,
+                                final double value, final boolean is_min)
+    {
+        int low = first;
+        while (low < last)
+        {
+            final int mid = (low + last) >>> 1;
+            final ValueRange range = summary.getValueRange(first, mid);
+            if (is_min ? range.getLow() <= value : range.getHigh() >= value)
+                last = mid;
+            else
+                low = mid + 1;
+        }
+        return low;
+    }
+
+    /** Add first, min, max, last value of a column to poly line
+     *  @param poly Poly line
+     *  @param column Column, will be cleared
+     *  @param y_axis Value axis
+     */
+    final private void addValues(final IntList poly, final PixelColumn column, final YAxisImpl<XTYPE> y_axis)
+    {
+        if (column.isEmpty())
+            return;
+        addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.first)));
+        if (column.isMinFirst())
+        {
+            addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.min)));
+            addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.max)));
+        }
+        else
+        {
+            addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.max)));
+            addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.min)));
+        }
+        addPoint(poly, column.x, clipY(y_axis.getScreenCoord(column.last)));
+        column.clear();
+    }
+
+    /** @param poly Poly line
+     *  @param x Screen coordinate of point to add
+     *  @param y .. unless it duplicates the last point
+     */
+    final private static void addPoint(final IntList poly, final int x, final int y)
+    {
+        final int size = poly.size();
+        if (size > 0  &&  poly.get(size-2) == x  &&  poly.get(size-1) == y)
+            return;
+        poly.add(x);
+        poly.add(y);
+    }
+
     /** Draw min/max outline
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      */
     final private void drawMinMaxArea(final GC gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop)
     {
         final IntList pos = new IntList(INITIAL_ARRAY_SIZE);
         final IntList min = new IntList(INITIAL_ARRAY_SIZE);
         final IntList max = new IntList(INITIAL_ARRAY_SIZE);
+        final PixelColumn column = new PixelColumn();
 
-        final int N = data.size();
-        for (int i = 0;  i < N;  ++i)
+        for (int i = start;  i <= stop;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double ymin = item.getMin();
             double ymax = item.getMax();
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
+            {
+                addRange(pos, min, max, column, y_axis);
                 flushPolyFill(gc, pos, min, max);
+            }
             else
             {
-                final int x1 = clipX(x_transform.transform(item.getPosition()));
-                final int y1min = clipY(y_axis.getScreenCoord(ymin));
-                final int y1max = clipY(y_axis.getScreenCoord(ymax));
-                pos.add(x1);
-                min.add(y1min);
-                max.add(y1max);
+                final int x1 = clipX(Math.round(x_transform.transform(item.getPosition())));
+                if (column.add(x1, ymin, ymax))
+                    continue;
+                addRange(pos, min, max, column, y_axis);
+                column.start(x1, ymin, ymax);
             }
         }
+        addRange(pos, min, max, column, y_axis);
         flushPolyFill(gc, pos, min, max);
     }
 
+    /** Add min, max range of a column
+     *  @param pos Horizontal screen positions
+     *  @param min Minimum 'y' values in screen coords
+     *  @param max .. maximum
+     *  @param column Column, will be cleared
+     *  @param y_axis Value axis
+     */
+    final private void addRange(final IntList pos, final IntList min, final IntList max,
+                                final PixelColumn column, final YAxisImpl<XTYPE> y_axis)
+    {
+        if (column.isEmpty())
+            return;
+        pos.add(column.x);
+        min.add(clipY(y_axis.getScreenCoord(column.min)));
+        max.add(clipY(y_axis.getScreenCoord(column.max)));
+        column.clear();
+    }
+
     /** Draw min/max outline
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      */
     final private void drawMinMaxLines(final GC gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop, final int line_width)
     {
         final IntList min = new IntList(INITIAL_ARRAY_SIZE);
         final IntList max = new IntList(INITIAL_ARRAY_SIZE);
+        final PixelColumn column = new PixelColumn();
 
-        final int N = data.size();
-        for (int i = 0;  i < N;  ++i)
+        for (int i = start;  i <= stop;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double ymin = item.getMin();
             double ymax = item.getMax();
             if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
             {
+                addRangeLines(min, max, column, y_axis);
                 flushPolyLine(gc, min, line_width);
                 flushPolyLine(gc, max, line_width);
             }
             else
             {
-                final int x1 = clipX(x_transform.transform(item.getPosition()));
-                final int y1min = clipY(y_axis.getScreenCoord(ymin));
-                final int y1max = clipY(y_axis.getScreenCoord(ymax));
-                min.add(x1);   min.add(y1min);
-                max.add(x1);   max.add(y1max);
+                final int x1 = clipX(Math.round(x_transform.transform(item.getPosition())));
+                if (column.add(x1, ymin, ymax))
+                    continue;
+                addRangeLines(min, max, column, y_axis);
+                column.start(x1, ymin, ymax);
             }
         }
+        addRangeLines(min, max, column, y_axis);
         flushPolyLine(gc, min, line_width);
         flushPolyLine(gc, max, line_width);
     }
 
+    /** Add min, max range of a column to poly lines
+     *  @param lower Poly line for minimum
+     *  @param upper Poly line for maximum
+     *  @param column Column, will be cleared
+     *  @param y_axis Value axis
+     */
+    final private void addRangeLines(final IntList lower, final IntList upper,
+                                     final PixelColumn column, final YAxisImpl<XTYPE> y_axis)
+    {
+        if (column.isEmpty())
+            return;
+        lower.add(column.x);  lower.add(clipY(y_axis.getScreenCoord(column.min)));
+        upper.add(column.x);  upper.add(clipY(y_axis.getScreenCoord(column.max)));
+        column.clear();
+    }
+
     /** Draw std. deviation outline
      *  @param gc GC
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      *  @param line_width
      */
     final private void drawStdDevLines(final GC gc, final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, final int line_width)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop, final int line_width)
     {
         final IntList lower_poly = new IntList(INITIAL_ARRAY_SIZE);
         final IntList upper_poly = new IntList(INITIAL_ARRAY_SIZE);
+        final PixelColumn column = new PixelColumn();
 
-        final int N = data.size();
-        for (int i = 0;  i < N;  ++i)
+        for (int i = start;  i <= stop;  ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             double value = item.getValue();
             double dev = item.getStdDev();
             if (Double.isNaN(value) ||  ! (dev > 0))
             {
+                addRangeLines(lower_poly, upper_poly, column, y_axis);
                 flushPolyLine(gc, lower_poly, line_width);
                 flushPolyLine(gc, upper_poly, line_width);
             }
             else
             {
-                final int x = clipX(x_transform.transform(item.getPosition()));
-                final int low_y = clipY(y_axis.getScreenCoord(value - dev));
-                final int upp_y = clipY(y_axis.getScreenCoord(value + dev));
-                lower_poly.add(x);  lower_poly.add(low_y);
-                upper_poly.add(x);  upper_poly.add(upp_y);
+                final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
+                if (column.add(x, value - dev, value + dev))
+                    continue;
+                addRangeLines(lower_poly, upper_poly, column, y_axis);
+                column.start(x, value - dev, value + dev);
             }
         }
+        addRangeLines(lower_poly, upper_poly, column, y_axis);
         flushPolyLine(gc, lower_poly, line_width);
         flushPolyLine(gc, upper_poly, line_width);
     }
@@ -383,16 +627,18 @@ public class TracePainter<XTYPE extends Comparable<XTYPE>>
      *  @param x_transform Horizontal axis
      *  @param y_axis Value axis
      *  @param data Data
+     *  @param start Index of first sample to draw
+     *  @param stop Index of last sample to draw
      *  @param point_type
      *  @param size
      */
     final private void drawPoints(final GC gc,
             final ScreenTransform<XTYPE> x_transform, final YAxisImpl<XTYPE> y_axis,
-            final PlotDataProvider<XTYPE> data, PointType point_type, final int size)
+            final PlotDataProvider<XTYPE> data, final int start, final int stop,
+            final PointType point_type, final int size)
     {
-        final int N = data.size();
         int last_x = -1, last_y = -1;
-        for (int i=0; i<N; ++i)
+        for (int i=start; i<=stop; ++i)
         {
             final PlotDataItem<XTYPE> item = data.get(i);
             final int x = clipX(Math.round(x_transform.transform(item.getPosition())));
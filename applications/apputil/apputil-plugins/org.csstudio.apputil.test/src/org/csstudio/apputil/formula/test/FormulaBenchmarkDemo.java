@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula.test;
+
+import org.csstudio.apputil.formula.Formula;
+import org.csstudio.apputil.formula.VariableNode;
+import org.csstudio.apputil.time.BenchmarkTimer;
+import org.junit.Test;
+
+/** Benchmark of interpreted vs. compiled formula
+ *
+ *  <p>Evaluates formulas for each type of node
+ *  many times, first to warm up the JIT, then timed.
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FormulaBenchmarkDemo
+{
+    private static final int RUNS = 5000000;
+
+    private final VariableNode v[] = new VariableNode[]
+    {
+        new VariableNode("x"),
+        new VariableNode("y")
+    };
+
+    /** Result of each benchmark, kept so the loop isn't optimized away */
+    private volatile double sum;
+
+    /** @param formula Formula to evaluate
+     *  @return Evaluations per second
+     */
+    private double benchmark(final Formula formula)
+    {
+        double sum = 0.0;
+        final BenchmarkTimer timer = new BenchmarkTimer();
+        for (int i=0; i<RUNS; ++i)
+        {
+            v[0].setValue(i);
+            sum += formula.eval();
+        }
+        timer.stop();
+        this.sum = sum;
+        return RUNS / timer.getSeconds();
+    }
+
+    @Test
+    public void testSpeed() throws Exception
+    {
+        final String formulas[] = new String[]
+        {
+            "x + y", "x - y", "x * y", "x / y", "x ^ 2",
+            "x < y", "x <= y", "x > y", "x >= y", "x == y", "x != y",
+            "x & y", "x | y", "!x", "x > y ? (2*x) : y",
+            "sqrt(x)", "atan2(x, y)", "min(x, y, 3)", "max(x, y, 3)", "rnd(x)",
+            "x > 10 ? (sqrt(x) * 2 + y) : min(x, y) / 2 - abs(x - y)"
+        };
+        v[1].setValue(42.0);
+        System.out.println(String.format("%-55s %15s %15s", "Formula", "Interpreted/s", "Compiled/s"));
+        for (String expression : formulas)
+        {
+            final Formula interpreted = new Formula(expression, v);
+            final Formula compiled = new Formula(expression, v);
+            compiled.compile();
+            // Warm up
+            benchmark(interpreted);
+            benchmark(compiled);
+            System.out.println(String.format("%-55s %15.0f %15.0f",
+                               expression, benchmark(interpreted), benchmark(compiled)));
+        }
+    }
+}
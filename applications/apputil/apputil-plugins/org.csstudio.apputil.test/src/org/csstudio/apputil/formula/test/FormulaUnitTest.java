@@ -271,4 +271,43 @@ public class FormulaUnitTest extends TestCase
         vars[0].setValue(4);
         assertEquals(1.0, f.eval(), epsilon);
     }
+
+    @Test
+    public void testCompiled() throws Exception
+    {
+        final VariableNode v[] = new VariableNode[]
+        {
+            new VariableNode("x"),
+            new VariableNode("y")
+        };
+        final String formulas[] = new String[]
+        {
+            "x + y", "x - y", "x * y", "x / y", "x ^ 2",
+            "x < y", "x <= y", "x > y", "x >= y", "x == y", "x != y",
+            "x & y", "x | y", "!x", "x ? (2*x) : y",
+            "sqrt(x)", "atan2(x, y)", "round(x)", "-x",
+            "min(x, y, 3)", "max(x, y, 3)", "2*PI + E"
+        };
+        final double values[] = new double[] { -2.5, 0.0, 1.0, 3.0, 4.5, Double.NaN };
+        for (String expression : formulas)
+        {
+            final Formula interpreted = new Formula(expression, v);
+            final Formula compiled = new Formula(expression, v);
+            compiled.compile();
+            assertTrue(compiled.isCompiled());
+            for (double x : values)
+                for (double y : values)
+                {
+                    v[0].setValue(x);
+                    v[1].setValue(y);
+                    assertEquals(expression + " for x=" + x + ", y=" + y,
+                                 interpreted.eval(), compiled.eval(), 0.0);
+                }
+        }
+
+        final Formula f = new Formula("rnd(10.0)");
+        f.compile();
+        final double rnd = f.eval();
+        assertTrue(rnd >= 0.0  &&  rnd < 10.0);
+    }
 }
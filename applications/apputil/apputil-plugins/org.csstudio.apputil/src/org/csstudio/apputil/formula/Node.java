@@ -7,9 +7,14 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 /** A node used to build a formula.
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public interface Node
 {
     /** Evaluate the node, i.e. compute its value.
@@ -18,6 +23,23 @@ public interface Node
      */
     public double eval();
 
+    /** Obtain method handle that evaluates the node.
+     *  <p>
+     *  Nodes combine the method handles of their sub-nodes,
+     *  so that a formula can be evaluated without
+     *  calling <code>eval()</code> on each node.
+     *  The default implementation simply calls <code>eval()</code>.
+     *
+     *  @return {@link MethodHandle} of type <code>()double</code>
+     *  @throws Exception on error
+     */
+    default public MethodHandle toMethodHandle() throws Exception
+    {
+        return MethodHandles.publicLookup()
+                            .findVirtual(Node.class, "eval", MethodType.methodType(double.class))
+                            .bindTo(this);
+    }
+
     /** Check if this node has given node as a subnode
      *  @return <code>true</code> if given node was found under this one.
      */
@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
 /** Named Variable.
  *  @author Kay Kasemir
  */
@@ -56,6 +59,16 @@ public class VariableNode implements Node
         return value;
     }
 
+    /** {@inheritDoc} */
+    @SuppressWarnings("nls")
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        // Reads the current value, so setValue() affects compiled formulas
+        return MethodHandles.lookup().findGetter(VariableNode.class, "value", double.class)
+                                     .bindTo(this);
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -7,6 +7,10 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 import org.csstudio.apputil.formula.Node;
 
 /** Abstract base for binary nodes.
@@ -23,6 +27,31 @@ abstract class AbstractBinaryNode implements Node
         this.right = right;
     }
 
+    /** @param a Value of left sub-node
+     *  @param b Value of right sub-node
+     *  @return Value of this node
+     */
+    abstract protected double eval(double a, double b);
+
+    @Override
+    public double eval()
+    {
+        return eval(left.eval(), right.eval());
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("nls")
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        final MethodHandle op = MethodHandles.lookup().findVirtual(AbstractBinaryNode.class, "eval",
+                MethodType.methodType(double.class, double.class, double.class)).bindTo(this);
+        // Evaluates left, then right sub-node
+        return MethodHandles.collectArguments(
+                   MethodHandles.collectArguments(op, 1, right.toMethodHandle()),
+                   0, left.toMethodHandle());
+    }
+
     /** {@inheritDoc} */
     @Override
     final public boolean hasSubnode(final Node node)
@@ -7,6 +7,10 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 import org.csstudio.apputil.formula.Node;
 
 /** Abstract base for unary nodes.
@@ -21,6 +25,27 @@ abstract class AbstractUnaryNode implements Node
         this.n = n;
     }
 
+    /** @param a Value of sub-node
+     *  @return Value of this node
+     */
+    abstract protected double eval(double a);
+
+    @Override
+    public double eval()
+    {
+        return eval(n.eval());
+    }
+
+    /** {@inheritDoc} */
+    @SuppressWarnings("nls")
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        final MethodHandle op = MethodHandles.lookup().findVirtual(AbstractUnaryNode.class, "eval",
+                MethodType.methodType(double.class, double.class)).bindTo(this);
+        return MethodHandles.collectArguments(op, 0, n.toMethodHandle());
+    }
+
     /** {@inheritDoc} */
     @Override
     final public boolean hasSubnode(final Node node)
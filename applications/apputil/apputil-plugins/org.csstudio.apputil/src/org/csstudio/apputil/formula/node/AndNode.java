@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
 import org.csstudio.apputil.formula.Node;
 
 /** One computational node.
@@ -25,6 +28,22 @@ public class AndNode extends AbstractBinaryNode
         return (left.eval() != 0.0   &&   right.eval() != 0.0) ? 1.0 : 0.0;
     }
 
+    @Override
+    protected double eval(final double a, final double b)
+    {
+        return (a != 0.0   &&   b != 0.0) ? 1.0 : 0.0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        // Only evaluate right side when left is true
+        return MethodHandles.guardWithTest(NodeHandles.isTrue(left),
+                MethodHandles.guardWithTest(NodeHandles.isTrue(right), NodeHandles.TRUE, NodeHandles.FALSE),
+                NodeHandles.FALSE);
+    }
+
    @SuppressWarnings("nls")
     @Override
     public String toString()
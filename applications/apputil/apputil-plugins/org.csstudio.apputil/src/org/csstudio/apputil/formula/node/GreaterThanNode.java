@@ -20,10 +20,8 @@ public class GreaterThanNode extends AbstractBinaryNode
     }
 
     @Override
-    public double eval()
+    protected double eval(final double a, final double b)
     {
-        final double a = left.eval();
-        final double b = right.eval();
         return (a > b) ? 1.0 : 0.0;
     }
 
@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
 import org.csstudio.apputil.formula.Node;
 
 /** One computational node.
@@ -31,6 +34,14 @@ public class IfNode implements Node
         return (cond.eval() != 0) ? yes.eval() : no.eval();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        return MethodHandles.guardWithTest(NodeHandles.isTrue(cond),
+                                           yes.toMethodHandle(), no.toMethodHandle());
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
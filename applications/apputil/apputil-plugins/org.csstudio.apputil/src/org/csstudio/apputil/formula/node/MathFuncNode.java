@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
 import org.csstudio.apputil.formula.Node;
@@ -19,7 +22,12 @@ public class MathFuncNode implements Node
 {
     final private String function;
     final private Node args[];
-    final private Method method;
+
+    /** Handle for the java.lang.Math method, adapted to
+     *  take and return <code>double</code>,
+     *  so it can be invoked without boxing the arguments
+     */
+    final private MethodHandle method;
 
     /** Construct node for math function.
      *
@@ -35,31 +43,47 @@ public class MathFuncNode implements Node
         Class argcls[] = new Class[args.length];
         for (int i = 0; i < args.length; i++)
             argcls[i] = double.class;
-        method = Math.class.getDeclaredMethod(function, argcls);
+        final Method math = Math.class.getDeclaredMethod(function, argcls);
+        // Convert result of for example long round(double) into double
+        method = MethodHandles.publicLookup().unreflect(math)
+                              .asType(MethodType.methodType(double.class, argcls));
     }
 
     @Override
     public double eval()
     {
-        final Object arglist[] = new Object[args.length];
-        for (int i = 0; i < args.length; i++)
-        {
-            arglist[i] = new Double(args[i].eval());
-        }
-
         try
         {
-            Object result = method.invoke(null, arglist );
-            if (result instanceof Double)
-                return ((Double) result).doubleValue();
+            switch (args.length)
+            {
+            case 1:
+                return (double) method.invokeExact(args[0].eval());
+            case 2:
+                return (double) method.invokeExact(args[0].eval(), args[1].eval());
+            default:
+                final Object arglist[] = new Object[args.length];
+                for (int i = 0; i < args.length; i++)
+                    arglist[i] = args[i].eval();
+                return (Double) method.invokeWithArguments(arglist);
+            }
         }
-        catch (Exception e)
+        catch (Throwable ex)
         {
-            e.printStackTrace();
+            ex.printStackTrace();
         }
         return 0.0;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        MethodHandle result = method;
+        for (int i = args.length-1; i >= 0; --i)
+            result = MethodHandles.collectArguments(result, i, args[i].toMethodHandle());
+        return result;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
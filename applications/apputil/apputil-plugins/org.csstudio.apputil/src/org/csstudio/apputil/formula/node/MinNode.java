@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.lang.invoke.MethodHandle;
+
 import org.csstudio.apputil.formula.Node;
 
 /** One computational node.
@@ -34,6 +36,14 @@ public class MinNode implements Node
         return result;
     }
 
+    /** {@inheritDoc} */
+    @SuppressWarnings("nls")
+    @Override
+    public MethodHandle toMethodHandle() throws Exception
+    {
+        return NodeHandles.reduce("min", args);
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula.node;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.csstudio.apputil.formula.Node;
+
+/** Helpers for combining the method handles of nodes
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class NodeHandles
+{
+    /** Method handle that returns 1.0 */
+    final static MethodHandle TRUE = MethodHandles.constant(double.class, 1.0);
+
+    /** Method handle that returns 0.0 */
+    final static MethodHandle FALSE = MethodHandles.constant(double.class, 0.0);
+
+    /** @param value Value
+     *  @return <code>true</code> for any non-zero value
+     */
+    private static boolean isTrue(final double value)
+    {
+        return value != 0.0;
+    }
+
+    /** @param node Node
+     *  @return Method handle <code>()boolean</code> that checks if the node evaluates to non-zero
+     *  @throws Exception on error
+     */
+    static MethodHandle isTrue(final Node node) throws Exception
+    {
+        final MethodHandle is_true = MethodHandles.lookup().findStatic(NodeHandles.class, "isTrue",
+                MethodType.methodType(boolean.class, double.class));
+        return MethodHandles.collectArguments(is_true, 0, node.toMethodHandle());
+    }
+
+    /** @param a Value
+     *  @param b Value
+     *  @return Smaller value, <code>a</code> unless <code>b</code> is smaller
+     */
+    private static double min(final double a, final double b)
+    {
+        return b < a ? b : a;
+    }
+
+    /** @param a Value
+     *  @param b Value
+     *  @return Larger value, <code>a</code> unless <code>b</code> is larger
+     */
+    private static double max(final double a, final double b)
+    {
+        return b > a ? b : a;
+    }
+
+    /** @param function "min" or "max"
+     *  @param args Nodes
+     *  @return Method handle <code>()double</code> that returns the min resp. max of the args
+     *  @throws Exception on error
+     */
+    static MethodHandle reduce(final String function, final Node args[]) throws Exception
+    {
+        final MethodHandle op = MethodHandles.lookup().findStatic(NodeHandles.class, function,
+                MethodType.methodType(double.class, double.class, double.class));
+        MethodHandle result = args[0].toMethodHandle();
+        for (int i=1; i<args.length; ++i)
+            result = MethodHandles.collectArguments(
+                         MethodHandles.collectArguments(op, 1, args[i].toMethodHandle()),
+                         0, result);
+        return result;
+    }
+}
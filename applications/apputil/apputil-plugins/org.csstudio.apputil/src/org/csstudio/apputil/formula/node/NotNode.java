@@ -20,9 +20,8 @@ public class NotNode extends AbstractUnaryNode
     }
 
     @Override
-    public double eval()
+    protected double eval(final double a)
     {
-        final double a = n.eval();
         return (a != 0) ? 0.0 : 1.0;
     }
 
@@ -16,8 +16,11 @@ import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.csstudio.archive.config.ArchiveConfig;
 import org.csstudio.archive.config.ChannelConfig;
@@ -599,6 +602,84 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         return chan_arr;
     }
 
+    /** {@inheritDoc}
+     *
+     *  <p>Reads the groups with their enabling channel in one query,
+     *  then all channels of the engine including their last sample time
+     *  in another query,
+     *  instead of querying each group, enabling channel and channel.
+     */
+    @Override
+    public void readChannels(final EngineConfig engine, final boolean skip_last,
+                             final GroupHandler handler) throws Exception
+    {
+        final int engine_id = ((RDBEngineConfig) engine).getId();
+        final Connection connection = rdb.getConnection();
+
+        // Groups by ID
+        final Map<Integer, RDBGroupConfig> groups = new HashMap<>();
+        try
+        (
+            final PreparedStatement statement =
+                connection.prepareStatement(sql.chan_grp_sel_with_enabling_channel_by_eng_id);
+        )
+        {
+            statement.setInt(1, engine_id);
+            try
+            (
+                final ResultSet result = statement.executeQuery();
+            )
+            {
+                while (result.next())
+                {   // grp_id, name, enabling channel name
+                    final RDBGroupConfig group = new RDBGroupConfig(result.getInt(1),
+                            result.getString(2), result.getString(3));
+                    groups.put(group.getId(), group);
+                }
+            }
+        }
+
+        // Channels of each group
+        final Map<Integer, List<ChannelConfig>> group_channels = new HashMap<>();
+        try
+        (
+            final PreparedStatement statement = connection.prepareStatement(skip_last
+                    ? sql.channel_sel_by_eng_id
+                    : sql.channel_sel_with_last_sample_time_by_eng_id);
+        )
+        {
+            statement.setInt(1, engine_id);
+            statement.setFetchSize(1000);
+            try
+            (
+                final ResultSet result = statement.executeQuery();
+            )
+            {
+                while (result.next())
+                {   // grp_id, channel_id, name, smpl_mode_id, smpl_val, smpl_per [, last sample time]
+                    final SampleMode sample_mode =
+                        getSampleMode(result.getInt(4), result.getDouble(5), result.getDouble(6));
+                    final Instant last_sample_time = skip_last ? null : getLastSampleTime(result.getTimestamp(7));
+                    group_channels.computeIfAbsent(result.getInt(1), id -> new ArrayList<>())
+                                  .add(new RDBChannelConfig(result.getInt(2), result.getString(3),
+                                                            sample_mode, last_sample_time));
+                }
+            }
+        }
+
+        // Pass groups sorted by name, channels sorted by name as in getGroups(), getChannels()
+        final GroupConfig[] grp_arr = groups.values().toArray(new GroupConfig[groups.size()]);
+        Arrays.sort(grp_arr, Comparator.comparing(GroupConfig::getName));
+        for (GroupConfig group : grp_arr)
+        {
+            final List<ChannelConfig> channels = group_channels.getOrDefault(((RDBGroupConfig) group).getId(),
+                                                                             Collections.emptyList());
+            final ChannelConfig[] chan_arr = channels.toArray(new ChannelConfig[channels.size()]);
+            Arrays.sort(chan_arr, Comparator.comparing(ChannelConfig::getName));
+            handler.handleGroup(group, chan_arr);
+        }
+    }
+
     /** @param channel_id Channel ID in RDB
      *  @return Name of channel
      *  @throws Exception on error
@@ -639,25 +720,30 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         )
         {
             if (result.next())
-            {
-                final Timestamp stamp = result.getTimestamp(1);
-                if (stamp == null)
-                    return null;
-
-                if (rdb.getDialect() != Dialect.Oracle)
-                {
-                    // For Oracle, the time stamp is indeed the last time.
-                    // For others, it's only the seconds, not the nanoseconds.
-                    // Since this time stamp is only used to avoid going back in time,
-                    // add a second to assert that we are _after_ the last sample
-                    stamp.setTime(stamp.getTime() + 1000);
-                }
-                return TimestampHelper.fromSQLTimestamp(stamp);
-            }
+                return getLastSampleTime(result.getTimestamp(1));
         }
         return null;
     }
 
+    /** @param stamp Time stamp of last sample read from RDB, may be <code>null</code>
+     *  @return Time stamp or <code>null</code> if not in archive, yet
+     */
+    private Instant getLastSampleTime(final Timestamp stamp)
+    {
+        if (stamp == null)
+            return null;
+
+        if (rdb.getDialect() != Dialect.Oracle)
+        {
+            // For Oracle, the time stamp is indeed the last time.
+            // For others, it's only the seconds, not the nanoseconds.
+            // Since this time stamp is only used to avoid going back in time,
+            // add a second to assert that we are _after_ the last sample
+            stamp.setTime(stamp.getTime() + 1000);
+        }
+        return TimestampHelper.fromSQLTimestamp(stamp);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close()
@@ -26,6 +26,7 @@ public class SQL
 
     // 'chan_grp' table
     final public String chan_grp_sel_by_eng_id;
+    final public String chan_grp_sel_with_enabling_channel_by_eng_id;
     final public String chan_grp_delete_by_engine_id;
     final public String chan_grp_insert;
     final public String chan_grp_next_id;
@@ -34,6 +35,8 @@ public class SQL
 
     // 'channel' table
     final public String channel_sel_by_group_id;
+    final public String channel_sel_by_eng_id;
+    final public String channel_sel_with_last_sample_time_by_eng_id;
     final public String channel_sel_by_id;
     final public String channel_sel_by_name;
     final public String channel_clear_grp_for_engine;
@@ -67,6 +70,10 @@ public class SQL
 
         // 'chan_grp' table
         chan_grp_sel_by_eng_id = "SELECT grp_id, name, enabling_chan_id FROM " + schema + "chan_grp WHERE eng_id=? ORDER BY name";
+        chan_grp_sel_with_enabling_channel_by_eng_id =
+            "SELECT g.grp_id, g.name, c.name FROM " + schema + "chan_grp g " +
+            "LEFT JOIN " + schema + "channel c ON g.enabling_chan_id = c.channel_id " +
+            "WHERE g.eng_id=? ORDER BY g.name";
         chan_grp_delete_by_engine_id = "DELETE FROM " + schema + "chan_grp WHERE eng_id=?";
         chan_grp_insert = "INSERT INTO " + schema + "chan_grp (grp_id, name, eng_id, enabling_chan_id) VALUES (?,?,?,null)";
         chan_grp_next_id = "SELECT MAX(grp_id) FROM " + schema + "chan_grp";
@@ -77,6 +84,19 @@ public class SQL
 
         // 'channel' table
         channel_sel_by_group_id = "SELECT channel_id, name, smpl_mode_id, smpl_val, smpl_per FROM " + schema + "channel WHERE grp_id=? ORDER BY name";
+        channel_sel_by_eng_id =
+            "SELECT c.grp_id, c.channel_id, c.name, c.smpl_mode_id, c.smpl_val, c.smpl_per FROM " + schema + "channel c " +
+            "JOIN " + schema + "chan_grp g ON c.grp_id = g.grp_id " +
+            "WHERE g.eng_id=? ORDER BY c.grp_id, c.name";
+        // Sub-query for the last sample time of each channel
+        // uses the sample table's index on channel_id and time,
+        // avoiding a scan of all samples of the engine
+        channel_sel_with_last_sample_time_by_eng_id =
+            "SELECT c.grp_id, c.channel_id, c.name, c.smpl_mode_id, c.smpl_val, c.smpl_per, " +
+            "(SELECT MAX(s.smpl_time) FROM " + schema + "sample s WHERE s.channel_id = c.channel_id) " +
+            "FROM " + schema + "channel c " +
+            "JOIN " + schema + "chan_grp g ON c.grp_id = g.grp_id " +
+            "WHERE g.eng_id=? ORDER BY c.grp_id, c.name";
         channel_sel_by_id = "SELECT name FROM " + schema + "channel WHERE channel_id=?";
         channel_sel_by_name = "SELECT channel_id FROM " + schema + "channel WHERE name=?";
         channel_clear_grp_for_engine =
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.config.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.apputil.test.TestProperties;
+import org.csstudio.archive.config.ArchiveConfig;
+import org.csstudio.archive.config.ChannelConfig;
+import org.csstudio.archive.config.EngineConfig;
+import org.csstudio.archive.config.GroupConfig;
+import org.csstudio.archive.config.rdb.RDBArchiveConfig;
+import org.junit.Test;
+
+/** Benchmark of reading an engine configuration
+ *
+ *  <p>Compares the time for reading each group and channel
+ *  with the bulk {@link ArchiveConfig#readChannels}.
+ *  Run against a database with a large engine configuration
+ *  to see the difference in engine startup time.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class RDBArchiveConfigLoadDemo
+{
+    /** @return Description of each channel, read by group */
+    private List<String> readByGroup(final ArchiveConfig config, final EngineConfig engine) throws Exception
+    {
+        final List<String> channels = new ArrayList<>();
+        for (GroupConfig group : config.getGroups(engine))
+            for (ChannelConfig channel : config.getChannels(group, false))
+                channels.add(group.getName() + " (" + group.getEnablingChannel() + ") - " +
+                             channel.getName() + " " + channel.getSampleMode() + " " + channel.getLastSampleTime());
+        return channels;
+    }
+
+    /** @return Description of each channel, read in bulk */
+    private List<String> readBulk(final ArchiveConfig config, final EngineConfig engine) throws Exception
+    {
+        final List<String> channels = new ArrayList<>();
+        config.readChannels(engine, false, (group, group_channels) ->
+        {
+            for (ChannelConfig channel : group_channels)
+                channels.add(group.getName() + " (" + group.getEnablingChannel() + ") - " +
+                             channel.getName() + " " + channel.getSampleMode() + " " + channel.getLastSampleTime());
+        });
+        return channels;
+    }
+
+    @Test
+    public void testLoadTime() throws Exception
+    {
+        final TestProperties settings = new TestProperties();
+        final String url = settings.getString("archive_rdb_url");
+        final String user = settings.getString("archive_rdb_user");
+        final String password = settings.getString("archive_rdb_password");
+        final String schema = settings.getString("archive_rdb_schema");
+        final String engine_name = settings.getString("archive_config");
+        if (url == null  ||  user == null  ||  password == null  ||  engine_name == null)
+        {
+            System.out.println("Skipping test, no archive_rdb_url, user, password");
+            return;
+        }
+
+        final ArchiveConfig config = new RDBArchiveConfig(url, user, password, schema);
+        try
+        {
+            final EngineConfig engine = config.findEngine(engine_name);
+
+            long start = System.currentTimeMillis();
+            final List<String> by_group = readByGroup(config, engine);
+            final long by_group_ms = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            final List<String> bulk = readBulk(config, engine);
+            final long bulk_ms = System.currentTimeMillis() - start;
+
+            System.out.println(engine_name + ": " + by_group.size() + " channels");
+            System.out.println("By group: " + by_group_ms + " ms");
+            System.out.println("Bulk    : " + bulk_ms + " ms");
+            assertEquals(by_group, bulk);
+        }
+        finally
+        {
+            config.close();
+        }
+    }
+}
@@ -13,6 +13,18 @@ package org.csstudio.archive.config;
  */
 public interface ArchiveConfig
 {
+    /** Receives the groups and channels of an engine
+     *  @see ArchiveConfig#readChannels(EngineConfig, boolean, GroupHandler)
+     */
+    public interface GroupHandler
+    {
+        /** @param group Group of the engine
+         *  @param channels Channels of that group
+         *  @throws Exception on error
+         */
+        public void handleGroup(GroupConfig group, ChannelConfig[] channels) throws Exception;
+    }
+
     /** List names of all engines
      *  @return Array of {@link EngineConfig}
      *  @throws Exception on error, e.g. RDB access problem
@@ -41,6 +53,25 @@ public interface ArchiveConfig
      */
     public ChannelConfig[] getChannels(GroupConfig group, boolean skip_last) throws Exception;
 
+    /** Read all groups and channels of an engine
+     *
+     *  <p>The default implementation calls {@link #getGroups(EngineConfig)}
+     *  and {@link #getChannels(GroupConfig, boolean)} for each group.
+     *  Implementations may read the complete configuration
+     *  with a few requests instead.
+     *
+     *  @param engine Engine for which to read groups and channels
+     *  @param skip_last Skip reading last sample time
+     *  @param handler Invoked for each group with its channels
+     *  @throws Exception on error, e.g. RDB access problem
+     */
+    default public void readChannels(final EngineConfig engine, final boolean skip_last,
+                                     final GroupHandler handler) throws Exception
+    {
+        for (GroupConfig group : getGroups(engine))
+            handler.handleGroup(group, getChannels(group, skip_last));
+    }
+
     /** Must be called when configuration is no longer used to release resources */
     public void close();
 }
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** Benchmark of synchronized vs. lock-free {@link SampleBuffer}.
+ *  <p>
+ *  One thread adds samples as fast as possible,
+ *  the other removes them like the <code>WriteThread</code>,
+ *  either one by one or in batches.
+ *  Overruns are expected, the interesting number is how many
+ *  samples the adding thread manages to place in the buffer.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SampleBufferDemo
+{
+    private static final long RUNTIME = 10 * 1000l;
+
+    private static final int CAPACITY = 1000;
+
+    private static final int BATCH = 500;
+
+    private void benchmark(final String title, final SampleBuffer buffer, final boolean batched) throws Exception
+    {
+        final VType value = TestHelper.newValue(3.14);
+        final long start = System.currentTimeMillis();
+        final long run = start + RUNTIME;
+        final Thread producer = new Thread(() ->
+        {
+            while (run > System.currentTimeMillis())
+                for (int i=0; i<1000; ++i)
+                    buffer.add(value);
+        }, "Producer");
+        producer.start();
+
+        final List<VType> batch = new ArrayList<>(BATCH);
+        long removed = 0;
+        while (producer.isAlive())
+        {
+            if (batched)
+            {
+                removed += buffer.drainTo(batch, BATCH);
+                batch.clear();
+            }
+            else
+                while (buffer.remove() != null)
+                    ++removed;
+        }
+        final long end = System.currentTimeMillis();
+        final double secs = (end - start) / 1000.0;
+        final long added = removed + buffer.getQueueSize() + buffer.getBufferStats().getOverruns();
+        System.out.format(
+                "%-20s: %12d added, %12d removed in %.2f sec = %12.1f adds/sec\n",
+                title, added, removed, secs, added / secs);
+    }
+
+    @Test
+    public void testSynchronized() throws Exception
+    {
+        benchmark("Synchronized", new SampleBuffer("Demo", null, CAPACITY, false), false);
+    }
+
+    @Test
+    public void testSynchronizedBatch() throws Exception
+    {
+        benchmark("Synchronized, batch", new SampleBuffer("Demo", null, CAPACITY, false), true);
+    }
+
+    @Test
+    public void testLockFree() throws Exception
+    {
+        benchmark("Lock-free", new SampleBuffer("Demo", null, CAPACITY, true), false);
+    }
+
+    @Test
+    public void testLockFreeBatch() throws Exception
+    {
+        benchmark("Lock-free, batch", new SampleBuffer("Demo", null, CAPACITY, true), true);
+    }
+}
@@ -8,6 +8,10 @@
 package org.csstudio.archive.engine.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.csstudio.archive.vtype.VTypeHelper;
 import org.diirt.vtype.VType;
@@ -53,6 +57,34 @@ public class SampleBufferUnitTest
         assertEquals(1.0, VTypeHelper.toDouble(value), 0.01);
     }
 
+    /** Check overrun and batch removal of lock-free buffer */
+    @Test
+    public void testLockFree()
+    {
+        final SampleBuffer buffer = new SampleBuffer("Demo", null, 10, true);
+        for (int i=0; i<buffer.getCapacity(); ++i)
+            buffer.add(TestHelper.newValue(i));
+        assertEquals(10, buffer.getQueueSize());
+        assertEquals(0, buffer.getBufferStats().getOverruns());
+
+        // Cause overruns, dropping values 0 and 1
+        buffer.add(TestHelper.newValue(10));
+        buffer.add(TestHelper.newValue(11));
+        assertEquals(10, buffer.getQueueSize());
+        assertEquals(2, buffer.getBufferStats().getOverruns());
+
+        // Remove in batches, oldest first
+        final List<VType> batch = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(batch, 4));
+        assertEquals(2.0, VTypeHelper.toDouble(batch.get(0)), 0.01);
+        assertEquals(5.0, VTypeHelper.toDouble(batch.get(3)), 0.01);
+        batch.clear();
+        assertEquals(6, buffer.drainTo(batch, 100));
+        assertEquals(11.0, VTypeHelper.toDouble(batch.get(5)), 0.01);
+        assertEquals(0, buffer.getQueueSize());
+        assertNull(buffer.remove());
+    }
+
     final private static long TEST_RUNS = 1000L;
 
     class FillThread extends Thread
@@ -101,4 +133,40 @@ public class SampleBufferUnitTest
             Thread.sleep(50);
         }
     }
+
+    /** Producer overruns a small lock-free buffer while consumer drains it.
+     *  Every sample must be either received or counted as overrun,
+     *  and received samples must be in order.
+     */
+    @Test(timeout=15000)
+    public void testLockFreeOverrunAccounting() throws Exception
+    {
+        final SampleBuffer buffer = new SampleBuffer("Demo", null, 5, true);
+        final int total = 200000;
+        final Thread producer = new Thread(() ->
+        {
+            for (int i=1; i<=total; ++i)
+                buffer.add(TestHelper.newValue(i));
+        });
+        producer.start();
+
+        final List<VType> batch = new ArrayList<>();
+        int received = 0;
+        double last = 0.0;
+        while (producer.isAlive()  ||  buffer.getQueueSize() > 0)
+        {
+            buffer.drainTo(batch, 3);
+            for (VType sample : batch)
+            {
+                final double value = VTypeHelper.toDouble(sample);
+                assertEquals(true, value > last);
+                last = value;
+            }
+            received += batch.size();
+            batch.clear();
+        }
+        producer.join();
+        received += buffer.drainTo(batch, total);
+        assertEquals(total, received + buffer.getBufferStats().getOverruns());
+    }
 }
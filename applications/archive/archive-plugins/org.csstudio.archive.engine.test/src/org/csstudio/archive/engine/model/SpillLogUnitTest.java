@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.csstudio.archive.engine.model.SpillLog.SpilledSample;
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVNumberArray;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link SpillLog}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SpillLogUnitTest
+{
+    private static File createDirectory() throws Exception
+    {
+        final File dir = Files.createTempDirectory("spill").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /** Write and read samples of all types */
+    @Test
+    public void testTypes() throws Exception
+    {
+        final SpillLog spill = new SpillLog(createDirectory(), 100*1024*1024);
+        assertTrue(spill.isEmpty());
+        assertNull(spill.getOldestTime());
+
+        final Instant now = Instant.now();
+        final VType[] values = new VType[]
+        {
+            new ArchiveVNumber(now, AlarmSeverity.NONE, "OK", TestHelper.display, 3.14),
+            new ArchiveVNumber(now.plusSeconds(1), AlarmSeverity.MINOR, "LOW", TestHelper.display, 42L),
+            new ArchiveVNumberArray(now.plusSeconds(2), AlarmSeverity.NONE, "OK", TestHelper.display, 1.0, 2.0, 3.0),
+            new ArchiveVEnum(now.plusSeconds(3), AlarmSeverity.MAJOR, "STATE", Arrays.asList("Off", "On"), 1),
+            new ArchiveVString(now.plusSeconds(4), AlarmSeverity.NONE, "", "Text")
+        };
+        for (VType value : values)
+            assertTrue(spill.append("test", null, value));
+        assertEquals(values.length, spill.getSampleCount());
+        assertEquals(now, spill.getOldestTime());
+
+        final List<SpilledSample> samples = new ArrayList<>();
+        assertEquals(values.length, spill.read(samples, 100));
+        for (int i=0; i<values.length; ++i)
+        {
+            assertEquals("test", samples.get(i).channel);
+            assertNull(samples.get(i).retention);
+            assertEquals(VTypeHelper.toString(values[i]), VTypeHelper.toString(samples.get(i).value));
+        }
+        spill.commit();
+        assertTrue(spill.isEmpty());
+        assertEquals(0, spill.getByteCount());
+        spill.close();
+    }
+
+    /** Rollback, commit and recovery of samples across segments */
+    @Test
+    public void testSegments() throws Exception
+    {
+        final File dir = createDirectory();
+        SpillLog spill = new SpillLog(dir, 100*1024*1024);
+        // Each array sample is about 80k, so this uses several segments
+        final double[] data = new double[10000];
+        final Instant start = Instant.now();
+        final int total = 1000;
+        for (int i=0; i<total; ++i)
+        {
+            data[0] = i;
+            assertTrue(spill.append("array", "short", new ArchiveVNumberArray(start.plusMillis(i), AlarmSeverity.NONE, "OK", TestHelper.display, data)));
+        }
+        assertEquals(total, spill.getSampleCount());
+        assertTrue(dir.listFiles().length > 1);
+
+        // Read some, roll back, read again
+        final List<SpilledSample> samples = new ArrayList<>();
+        assertEquals(10, spill.read(samples, 10));
+        spill.rollback();
+        samples.clear();
+        assertEquals(10, spill.read(samples, 10));
+        assertEquals(0.0, VTypeHelper.toDouble(samples.get(0).value), 0.1);
+        assertEquals("short", samples.get(0).retention);
+        spill.commit();
+        assertEquals(total - 10, spill.getSampleCount());
+        assertEquals(start.plusMillis(10), spill.getOldestTime());
+        spill.close();
+
+        // Re-open, recovering remaining samples
+        spill = new SpillLog(dir, 100*1024*1024);
+        assertEquals(total - 10, spill.getSampleCount());
+        int expected = 10;
+        samples.clear();
+        while (spill.read(samples, 50) > 0)
+        {
+            for (SpilledSample sample : samples)
+                assertEquals(expected++, VTypeHelper.toDouble(sample.value), 0.1);
+            samples.clear();
+            spill.commit();
+        }
+        assertEquals(total, expected);
+        assertTrue(spill.isEmpty());
+        assertEquals(0, dir.listFiles().length);
+        spill.close();
+    }
+
+    /** Samples are not added when log is full */
+    @Test
+    public void testFull() throws Exception
+    {
+        final SpillLog spill = new SpillLog(createDirectory(), SpillLog.SEGMENT_SIZE);
+        assertFalse(spill.isFull());
+        final double[] data = new double[100000];
+        int added = 0;
+        while (spill.append("array", null, new ArchiveVNumberArray(Instant.now(), AlarmSeverity.NONE, "OK", TestHelper.display, data)))
+            ++added;
+        assertTrue(added > 0);
+        assertEquals(added, spill.getSampleCount());
+        assertTrue(spill.isFull());
+        // Sample was not added, but also not dropped
+        assertEquals(0, spill.getDroppedCount());
+
+        // Replaying samples makes room
+        final List<SpilledSample> samples = new ArrayList<>();
+        while (spill.read(samples, 10) > 0)
+            spill.commit();
+        assertTrue(spill.isEmpty());
+        assertFalse(spill.isFull());
+        spill.close();
+    }
+
+    /** Log that's smaller than one segment */
+    @Test
+    public void testSingleSegment() throws Exception
+    {
+        final SpillLog spill = new SpillLog(createDirectory(), 1024*1024);
+        assertFalse(spill.isFull());
+        assertTrue(spill.append("test", null, new ArchiveVNumber(Instant.now(), AlarmSeverity.NONE, "OK", TestHelper.display, 3.14)));
+        assertFalse(spill.isFull());
+        assertEquals(1, spill.getSampleCount());
+        spill.close();
+    }
+
+    /** Track which channels have samples in the log */
+    @Test
+    public void testBacklog() throws Exception
+    {
+        final SpillLog spill = new SpillLog(createDirectory(), 100*1024*1024);
+        final Instant now = Instant.now();
+        assertFalse(spill.hasBacklog("a"));
+        spill.append("a", null, new ArchiveVNumber(now, AlarmSeverity.NONE, "OK", TestHelper.display, 1.0));
+        spill.append("b", null, new ArchiveVNumber(now, AlarmSeverity.NONE, "OK", TestHelper.display, 2.0));
+        spill.append("a", null, new ArchiveVNumber(now.plusSeconds(1), AlarmSeverity.NONE, "OK", TestHelper.display, 3.0));
+        assertTrue(spill.hasBacklog("a"));
+        assertTrue(spill.hasBacklog("b"));
+
+        // Rolled back samples are still in the log
+        final List<SpilledSample> samples = new ArrayList<>();
+        assertEquals(2, spill.read(samples, 2));
+        spill.rollback();
+        assertTrue(spill.hasBacklog("b"));
+
+        samples.clear();
+        assertEquals(2, spill.read(samples, 2));
+        spill.commit();
+        assertTrue(spill.hasBacklog("a"));
+        assertFalse(spill.hasBacklog("b"));
+
+        samples.clear();
+        assertEquals(1, spill.read(samples, 2));
+        spill.commit();
+        assertFalse(spill.hasBacklog("a"));
+        spill.close();
+    }
+}
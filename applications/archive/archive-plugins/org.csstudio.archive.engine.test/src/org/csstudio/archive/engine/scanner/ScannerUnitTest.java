@@ -147,8 +147,9 @@ public class ScannerUnitTest
     }
 
     /** Ask the scanner to perform the delay */
+    /** Run scanner with a single-worker scan scheduler */
     @Test
-    public void testScannerRun() throws InterruptedException
+    public void testScanSchedulerRun() throws InterruptedException
     {
         System.out.println("Scanning 3 times");
 
@@ -156,36 +157,16 @@ public class ScannerUnitTest
         final ScanItem item = new ScanItem("Item");
         scanner.add(item, fast_period);
 
-        while (item.scans < 3)
-        {
-            System.out.println("scan...");
-            scanner.scanOnce();
-        }
-        assertTrue(item.scans >= 3);
-
-        System.out.format("Idle: %.2f %%\n", scanner.getIdlePercentage());
-    }
-
-    /** Run scanner inside a scan thread */
-    @Test
-    public void testScanThread() throws InterruptedException
-    {
-        System.out.println("Scanning 3 times");
-
-        final Scanner scanner = new Scanner();
-        final ScanItem item = new ScanItem("Item");
-        scanner.add(item, fast_period);
-
-        final ScanThread thread = new ScanThread(scanner);
-        thread.start();
+        final ScanScheduler scheduler = new ScanScheduler(scanner, 1);
+        scheduler.start();
         BenchmarkTimer timer = new BenchmarkTimer();
         while (item.scans < 3)
         {
             Thread.sleep(100);
         }
         timer.stop();
-        thread.stop();
-        thread.join();
+        scheduler.stop();
+        scheduler.join();
         System.out.format("Elapsed: %.2f secs\n", timer.getSeconds());
         assertTrue(item.scans >= 3);
         // Should take about 3 seconds...
@@ -196,6 +177,111 @@ public class ScannerUnitTest
         Thread.sleep(2000);
         assertEquals("Unexpected scans", 0, item.scans);
 
-        System.out.format("Idle: %.2f %%\n", scanner.getIdlePercentage());
+        System.out.format("Idle: %.2f %%\n", scheduler.getIdlePercentage());
+    }
+
+    /** Run scanner with the scan scheduler */
+    @Test
+    public void testScanScheduler() throws InterruptedException
+    {
+        final Scanner scanner = new Scanner();
+        final ScanItem fast = new ScanItem("Fast");
+        final ScanItem slow = new ScanItem("Slow");
+        // Slow scan list blocks its worker for a while,
+        // which must not delay the fast scan list
+        final Runnable blocking = () ->
+        {
+            try
+            {
+                Thread.sleep(800);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+        };
+        scanner.add(fast, 0.2);
+        scanner.add(slow, 1.0);
+        scanner.add(blocking, 1.0);
+
+        final ScanScheduler scheduler = new ScanScheduler(scanner, 2);
+        scheduler.start();
+        Thread.sleep(3100);
+        scheduler.stop();
+        scheduler.join();
+
+        System.out.format("Fast: %d, slow: %d scans\n", fast.scans, slow.scans);
+        assertTrue(fast.scans >= 14  &&  fast.scans <= 16);
+        assertTrue(slow.scans >= 2  &&  slow.scans <= 3);
+
+        final ScanList fast_list = scanner.get(0);
+        assertEquals(0.2, fast_list.getPeriod(), 0.01);
+        assertEquals(fast.scans, fast_list.getScanCount());
+        assertEquals(0, fast_list.getOverruns());
+        System.out.println("Lateness: " + fast_list.getLateness());
+        System.out.println("Jitter  : " + fast_list.getJitter());
+        assertTrue(fast_list.getLateness().getMax() < 100);
+
+        // No more scans once stopped
+        final int scans = fast.scans;
+        Thread.sleep(500);
+        assertEquals(scans, fast.scans);
+    }
+
+    /** Wait for scans to complete
+     *  @param scheduler Scheduler
+     *  @param item Item that's scanned
+     *  @param scans Expected number of scans
+     */
+    private static void awaitScans(final ScanScheduler scheduler, final ScanItem item, final int scans) throws InterruptedException
+    {
+        for (int i=0;  i<100  &&  (item.scans < scans  ||  scheduler.getActiveCount() > 0);  ++i)
+            Thread.sleep(10);
+        // Allow list to be queued for the wheel
+        Thread.sleep(50);
+    }
+
+    /** Scan list that's due exactly one revolution of the wheel,
+     *  5.12 seconds, after it's placed back into the wheel
+     */
+    @Test
+    public void testWheelRevolution() throws InterruptedException
+    {
+        final Scanner scanner = new Scanner();
+        final ScanItem item = new ScanItem("Item");
+        scanner.add(item, 5.0);
+        final ScanList list = scanner.get(0);
+        final long period = Math.round(list.getPeriod() * 1000);
+
+        // Advance the wheel 'by hand', 10 ms ticks, 512 slots
+        final ScanScheduler scheduler = new ScanScheduler(scanner, 1);
+        scheduler.init();
+        final long start = list.getNextDueTime() - period;
+        final int first_tick = (int) (period / 10);
+        for (int tick=1; tick<first_tick; ++tick)
+            scheduler.advance();
+        awaitScans(scheduler, item, 0);
+        assertEquals(0, item.scans);
+        scheduler.advance();
+        awaitScans(scheduler, item, 1);
+        assertEquals(1, item.scans);
+
+        // When placed back into the wheel on the next tick,
+        // list is due 5.12 seconds after that tick
+        final int next_tick = first_tick + 1 + 512;
+        list.schedule(start + next_tick * 10 - period);
+        scheduler.advance();
+        awaitScans(scheduler, item, 1);
+        assertEquals("Scanned one revolution early", 1, item.scans);
+        for (int tick=first_tick+2; tick<next_tick; ++tick)
+            scheduler.advance();
+        awaitScans(scheduler, item, 1);
+        assertEquals(1, item.scans);
+        scheduler.advance();
+        awaitScans(scheduler, item, 2);
+        assertEquals(2, item.scans);
+
+        scheduler.stop();
+        scheduler.join();
     }
 }
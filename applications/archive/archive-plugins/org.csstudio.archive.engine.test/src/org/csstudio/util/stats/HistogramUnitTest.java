@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.util.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/** JUnit test of {@link Histogram}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class HistogramUnitTest
+{
+    @Test
+    public void testHistogram()
+    {
+        final Histogram histogram = new Histogram();
+        assertEquals("-", histogram.toString());
+
+        histogram.update(0);
+        histogram.update(1);
+        histogram.update(7);
+        histogram.update(10);
+        histogram.update(99999);
+        System.out.println(histogram);
+        assertEquals("<=1ms: 2, <=10ms: 2, >5000ms: 1", histogram.toString());
+        assertEquals(5, histogram.getTotal());
+        assertEquals(99999, histogram.getMax());
+        assertEquals(2, histogram.getCount(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotal());
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -32,6 +32,8 @@ public class Messages
     final public static String HTTP_GroupCount = "Groups";
     final public static String HTTP_Host = "HTTP Server";
     final public static String HTTP_Idletime = "Idle Time";
+    final public static String HTTP_Jitter = "Jitter";
+    final public static String HTTP_Lateness = "Lateness";
     final public static String HTTP_InternalState = "Internal State";
     final public static String HTTP_CurrentValue = "Current Value";
     final public static String HTTP_LastArchivedValue = "Last Archived Value";
@@ -46,6 +48,13 @@ public class Messages
     final public static String HTTP_QueueOverruns = "Overruns";
     final public static String HTTP_ReceivedValues = "Received Values";
     final public static String HTTP_StartTime = "Start Time";
+    final public static String HTTP_ScanCount = "Scans";
+    final public static String HTTP_ScanList = "Scan";
+    final public static String HTTP_ScanLists = "Scan Lists";
+    final public static String HTTP_ScanPeriod = "Scan Period";
+    final public static String HTTP_SpillAge = "Spill Backlog Age";
+    final public static String HTTP_SpillReplayRate = "Spill Replay Rate";
+    final public static String HTTP_SpillSize = "Spill Size";
     final public static String HTTP_State = "State";
     final public static String HTTP_Status = "Status";
     final public static String HTTP_Total = "Total";
@@ -56,5 +65,7 @@ public class Messages
     final public static String HTTP_WriteDuration = "Write Duration";
     final public static String HTTP_WriteError = "Write Error";
     final public static String HTTP_WritePeriod = "Write Period";
+    final public static String HTTP_WriteShard = "Write Shard";
+    final public static String HTTP_WriteShards = "Write Shards";
     final public static String HTTP_WriteState = "Write State";
 }
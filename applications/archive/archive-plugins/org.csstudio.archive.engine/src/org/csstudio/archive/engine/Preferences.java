@@ -58,5 +58,49 @@ public class Preferences
         return prefs.getDouble(Activator.ID, "buffer_reserve", buffer_reserve, null);
     }
 
+    public static int getWriteShards()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int write_shards = 1;
+        if (prefs == null)
+            return write_shards;
+        return prefs.getInt(Activator.ID, "write_shards", write_shards, null);
+    }
+
+    public static String getSpillDirectory()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final String spill_directory = "";
+        if (prefs == null)
+            return spill_directory;
+        return prefs.getString(Activator.ID, "spill_directory", spill_directory, null).trim();
+    }
+
+    public static long getSpillSizeMB()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final long spill_size = 1024;
+        if (prefs == null)
+            return spill_size;
+        return prefs.getLong(Activator.ID, "spill_size", spill_size, null);
+    }
+
+    public static int getScanThreads()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final int scan_threads = 2;
+        if (prefs == null)
+            return scan_threads;
+        return prefs.getInt(Activator.ID, "scan_threads", scan_threads, null);
+    }
+
+    public static boolean isLockFreeBuffer()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final boolean lock_free = false;
+        if (prefs == null)
+            return lock_free;
+        return prefs.getBoolean(Activator.ID, "lock_free_buffer", lock_free, null);
+    }
 
 }
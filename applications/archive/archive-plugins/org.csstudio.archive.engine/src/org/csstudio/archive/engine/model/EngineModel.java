@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,11 +17,11 @@ import java.util.Map;
 import org.csstudio.archive.config.ArchiveConfig;
 import org.csstudio.archive.config.ChannelConfig;
 import org.csstudio.archive.config.EngineConfig;
-import org.csstudio.archive.config.GroupConfig;
 import org.csstudio.archive.config.SampleMode;
 import org.csstudio.archive.engine.Activator;
 import org.csstudio.archive.engine.Preferences;
-import org.csstudio.archive.engine.scanner.ScanThread;
+import org.csstudio.archive.engine.scanner.ScanList;
+import org.csstudio.archive.engine.scanner.ScanScheduler;
 import org.csstudio.archive.engine.scanner.Scanner;
 import org.csstudio.archive.vtype.ArchiveVString;
 import org.csstudio.archive.vtype.TimestampHelper;
@@ -40,8 +41,10 @@ public class EngineModel
     /** Name of this model */
     private String name = "Archive Engine";  //$NON-NLS-1$
 
-    /** Thread that writes to the <code>archive</code> */
-    final private WriteThread writer;
+    /** Threads that write to the <code>archive</code>,
+     *  each handling a subset ('shard') of the channels
+     */
+    final private WriteThread[] writers;
 
     /** All the channels.
      *  <p>
@@ -64,8 +67,8 @@ public class EngineModel
     /** Scanner for scanned channels */
     final Scanner scanner = new Scanner();
 
-    /** Thread that runs the scanner */
-    final ScanThread scan_thread = new ScanThread(scanner);
+    /** Scheduler that runs the scanner */
+    final ScanScheduler scan_scheduler = new ScanScheduler(scanner, Preferences.getScanThreads());
 
     /** Engine states */
     public enum State
@@ -103,10 +106,30 @@ public class EngineModel
     /** Samples with time stamps this far ahead of the local time are ignored */
     final private static long ignored_future = Preferences.getIgnoredFutureSecs();
 
+    /** Use lock-free sample buffers? */
+    final private static boolean lock_free_buffer = Preferences.isLockFreeBuffer();
+
+    /** Number of write threads */
+    final private static int write_shards = Preferences.getWriteShards();
+
+    /** Directory for spill logs, empty to disable */
+    final private static String spill_directory = Preferences.getSpillDirectory();
+
+    /** Maximum size of all spill logs in bytes */
+    final private static long spill_size = Preferences.getSpillSizeMB() * 1024L * 1024L;
+
     /** Construct model that writes to archive */
+    @SuppressWarnings("nls")
     public EngineModel()
     {
-        writer = new WriteThread();
+        if (write_shards <= 1)
+            writers = new WriteThread[] { new WriteThread() };
+        else
+        {
+            writers = new WriteThread[write_shards];
+            for (int i=0; i<write_shards; ++i)
+                writers[i] = new WriteThread("WriteThread " + (i+1));
+        }
     }
 
     /** @return Name (description) */
@@ -121,6 +144,12 @@ public class EngineModel
         return ignored_future;
     }
 
+    /** @return <code>true</code> if sample buffers should be lock-free */
+    public static boolean useLockFreeBuffers()
+    {
+        return lock_free_buffer;
+    }
+
     /** @return Write period in seconds */
     public int getWritePeriod()
     {
@@ -299,7 +328,7 @@ public class EngineModel
             channels.add(channel);
             channel_by_name.put(channel.getName(), channel);
         }
-        writer.addChannel(channel);
+        getWriteShard(name).addChannel(channel);
 
         // Connect new or old channel to group
         channel.addGroup(group);
@@ -313,7 +342,18 @@ public class EngineModel
     {
         start_time = Instant.now();
         state = State.RUNNING;
-        writer.start(write_period, batch_size);
+        // Stagger the write threads over the write period
+        for (int i=0; i<writers.length; ++i)
+        {
+            if (isSpillEnabled())
+            {
+                final File dir = writers.length > 1
+                    ? new File(spill_directory, Integer.toString(i+1))
+                    : new File(spill_directory);
+                writers[i].setSpillLog(new SpillLog(dir, spill_size / writers.length));
+            }
+            writers[i].start(write_period, batch_size, i * (double)write_period / writers.length);
+        }
         for (ArchiveGroup group : groups)
         {
             group.start();
@@ -323,31 +363,140 @@ public class EngineModel
             if (state == State.SHUTDOWN_REQUESTED)
                 break;
         }
-        scan_thread.start();
+        scan_scheduler.start();
+    }
+
+    /** @return Number of write threads */
+    public int getWriteShardCount()
+    {
+        return writers.length;
+    }
+
+    /** @param i Write thread index, 0 ... <code>getWriteShardCount()-1</code>
+     *  @return Write thread
+     */
+    public WriteThread getWriteShard(final int i)
+    {
+        return writers[i];
+    }
+
+    /** @param channel_name Name of a channel
+     *  @return Write thread that handles the channel
+     */
+    private WriteThread getWriteShard(final String channel_name)
+    {
+        return writers[Math.floorMod(channel_name.hashCode(), writers.length)];
     }
 
     /** @return Timestamp of end of last write run */
     public Instant getLastWriteTime()
     {
-        return writer.getLastWriteTime();
+        Instant last = null;
+        for (WriteThread writer : writers)
+        {
+            final Instant time = writer.getLastWriteTime();
+            if (time != null  &&  (last == null  ||  time.isAfter(last)))
+                last = time;
+        }
+        return last;
     }
 
-    /** @return Average number of values per write run */
+    /** @return Average number of values per write run, summed over all write threads */
     public double getWriteCount()
     {
-        return writer.getWriteCount();
+        double count = 0.0;
+        for (WriteThread writer : writers)
+            count += writer.getWriteCount();
+        return count;
     }
 
-    /** @return  Average duration of write run in seconds */
+    /** @return Average duration of write run in seconds, maximum of all write threads */
     public double getWriteDuration()
     {
-        return writer.getWriteDuration();
+        double duration = 0.0;
+        for (WriteThread writer : writers)
+            duration = Math.max(duration, writer.getWriteDuration());
+        return duration;
+    }
+
+    /** @return <code>true</code> if samples are spilled to disk while writer is in error */
+    public boolean isSpillEnabled()
+    {
+        return !spill_directory.isEmpty();
     }
 
-    /** @see Scanner#getIdlePercentage() */
+    /** @return Number of samples in spill logs */
+    public long getSpillSampleCount()
+    {
+        long count = 0;
+        for (WriteThread writer : writers)
+            if (writer.getSpillLog() != null)
+                count += writer.getSpillLog().getSampleCount();
+        return count;
+    }
+
+    /** @return Bytes used by samples in spill logs */
+    public long getSpillByteCount()
+    {
+        long count = 0;
+        for (WriteThread writer : writers)
+            if (writer.getSpillLog() != null)
+                count += writer.getSpillLog().getByteCount();
+        return count;
+    }
+
+    /** @return Number of samples dropped because spill logs were full */
+    public long getSpillDroppedCount()
+    {
+        long count = 0;
+        for (WriteThread writer : writers)
+            if (writer.getSpillLog() != null)
+                count += writer.getSpillLog().getDroppedCount();
+        return count;
+    }
+
+    /** @return Time stamp of oldest sample in spill logs or <code>null</code> */
+    public Instant getSpillOldestTime()
+    {
+        Instant oldest = null;
+        for (WriteThread writer : writers)
+        {
+            if (writer.getSpillLog() == null)
+                continue;
+            final Instant time = writer.getSpillLog().getOldestTime();
+            if (time != null  &&  (oldest == null  ||  time.isBefore(oldest)))
+                oldest = time;
+        }
+        return oldest;
+    }
+
+    /** @return Average number of samples per second replayed from spill logs */
+    public double getSpillReplayRate()
+    {
+        double rate = 0.0;
+        for (WriteThread writer : writers)
+            rate += writer.getReplayRate();
+        return rate;
+    }
+
+    /** @see ScanScheduler#getIdlePercentage() */
     public double getIdlePercentage()
     {
-        return scanner.getIdlePercentage();
+        return scan_scheduler.getIdlePercentage();
+    }
+
+    /** @return Number of scan lists, i.e. distinct scan periods */
+    public int getScanListCount()
+    {
+        return (int) scanner.size();
+    }
+
+    /** @param index 0 ... getScanListCount()-1
+     *  @return Scan list with statistics
+     */
+    public ScanList getScanList(final int index)
+    {
+        return scanner.get(index);
     }
 
     /** Ask the model to stop.
@@ -374,8 +523,9 @@ public class EngineModel
     /** Reset engine statistics */
     public void reset()
     {
-        writer.reset();
-        scanner.reset();
+        for (WriteThread writer : writers)
+            writer.reset();
+        scan_scheduler.reset();
         synchronized (this)
         {
             for (ArchiveChannel channel : channels)
@@ -390,16 +540,33 @@ public class EngineModel
         state = State.STOPPING;
         Activator.getLogger().info("Stopping scanner");
         // Stop scanning
-        scan_thread.stop();
+        scan_scheduler.stop();
         // Assert that scanning has stopped before we add 'off' events
-        scan_thread.join();
+        scan_scheduler.join();
         // Disconnect from network
         Activator.getLogger().info("Stopping archive groups");
         for (ArchiveGroup group : groups)
             group.stop();
         // Flush all values out
         Activator.getLogger().info("Stopping writer");
-        writer.shutdown();
+        // Shut all write threads down, passing the first error up
+        Exception error = null;
+        for (WriteThread writer : writers)
+        {
+            try
+            {
+                writer.shutdown();
+            }
+            catch (Exception ex)
+            {
+                if (error == null)
+                    error = ex;
+                else
+                    error.addSuppressed(ex);
+            }
+        }
+        if (error != null)
+            throw error;
         // Update state
         state = State.IDLE;
         start_time = null;
@@ -424,13 +591,11 @@ public class EngineModel
             throw new Exception("Engine running on port " + port +
                 " while configuration requires " + engine.getURL().toString());
 
-        // Get groups
-        final GroupConfig[] engine_groups = config.getGroups(engine);
-        for (GroupConfig group_config : engine_groups)
+        // Get groups and their channels
+        config.readChannels(engine, skip_last, (group_config, channel_configs) ->
         {
             final ArchiveGroup group = addGroup(group_config.getName());
             // Add channels to group
-            final ChannelConfig[] channel_configs = config.getChannels(group_config, skip_last);
             for (ChannelConfig channel_config : channel_configs)
             {
                 Enablement enablement = Enablement.Passive;
@@ -441,7 +606,7 @@ public class EngineModel
                 addChannel(channel_config.getName(), channel_config.getRetention(), group, enablement,
                            mode, channel_config.getLastSampleTime());
             }
-        }
+        });
     }
 
     /** Remove all channels and groups. */
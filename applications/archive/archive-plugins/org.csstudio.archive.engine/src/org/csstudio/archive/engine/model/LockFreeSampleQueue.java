@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.diirt.vtype.VType;
+
+/** Ring buffer for samples that the write thread can drain without locking.
+ *  <p>
+ *  Like the {@link org.csstudio.apputil.ringbuffer.RingBuffer},
+ *  adding to a full queue drops the oldest sample.
+ *  <p>
+ *  Positions are ever-increasing <code>long</code> counters,
+ *  the slot is <code>position % capacity</code>.
+ *  The consumer claims the oldest sample by advancing <code>head</code>
+ *  via compare-and-set.
+ *  When the queue is full, the producer drops the oldest sample
+ *  by advancing <code>head</code> the same way, so an overrun is
+ *  counted exactly once: Either the consumer or the producer
+ *  wins the race for a given position.
+ *  <p>
+ *  Slots of removed samples are cleared by the producer
+ *  when it adds the next sample, so the queue does not
+ *  hold on to samples that have already been written.
+ *  The consumer cannot clear a slot after claiming it,
+ *  because the producer might already have placed a new sample in there.
+ *  The producer only clears slots below <code>head</code>,
+ *  which the consumer can no longer claim.
+ *  <p>
+ *  Meant for one producer (the channel's PV updates) and one consumer
+ *  (the write thread).
+ *  Channel start/stop or group enablement may occasionally add samples
+ *  from other threads, so callers of {@link #add(VType)} must
+ *  serialize producers, for example by synchronizing on this queue.
+ *  That lock is never needed by the consumer.
+ *
+ *  @author Kay Kasemir
+ */
+class LockFreeSampleQueue
+{
+    /** Sample slots */
+    final private AtomicReferenceArray<VType> slots;
+
+    /** Capacity, i.e. number of slots */
+    final private int capacity;
+
+    /** Position of oldest sample.
+     *  Advanced by consumer when removing,
+     *  and by producer when dropping the oldest sample.
+     */
+    final private AtomicLong head = new AtomicLong();
+
+    /** Position where next sample will be added.
+     *  Only advanced by producer.
+     */
+    final private AtomicLong tail = new AtomicLong();
+
+    /** Position below which the slots have been cleared.
+     *  Only accessed by producer.
+     */
+    private long cleared = 0;
+
+    /** @param capacity Maximum number of samples in queue */
+    LockFreeSampleQueue(final int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity " + capacity); //$NON-NLS-1$
+        this.capacity = capacity;
+        slots = new AtomicReferenceArray<VType>(capacity);
+    }
+
+    /** @return Maximum queue size */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** @return Current number of samples in queue */
+    int size()
+    {
+        // Read head first: Size can then only be over-estimated,
+        // which is clamped to the capacity
+        final long h = head.get();
+        final long size = tail.get() - h;
+        if (size <= 0)
+            return 0;
+        if (size >= capacity)
+            return capacity;
+        return (int) size;
+    }
+
+    /** @return <code>true</code> if queue is full */
+    boolean isFull()
+    {
+        return size() >= capacity;
+    }
+
+    /** Add sample, dropping the oldest sample when full
+     *  <p>
+     *  Caller must serialize producers.
+     *  @param value Value to add
+     *  @return <code>true</code> if an older sample was dropped
+     */
+    boolean add(final VType value)
+    {
+        final long t = tail.get();
+        boolean overrun = false;
+        final long h = head.get();
+        if (t - h >= capacity)
+        {   // Full: Drop oldest sample unless consumer just removed it
+            overrun = head.compareAndSet(h, h+1);
+        }
+        // Clear slots of removed or dropped samples,
+        // skipping those that have since been re-used
+        final long removed = head.get();
+        for (long pos = Math.max(cleared, t - capacity + 1);  pos < removed;  ++pos)
+            slots.set((int) (pos % capacity), null);
+        cleared = removed;
+        slots.set((int) (t % capacity), value);
+        // Publish the sample
+        tail.lazySet(t + 1);
+        return overrun;
+    }
+
+    /** @return Oldest sample or <code>null</code> if empty */
+    VType remove()
+    {
+        while (true)
+        {
+            final long h = head.get();
+            if (h >= tail.get())
+                return null;
+            final VType value = slots.get((int) (h % capacity));
+            // If producer dropped this sample, or already replaced it
+            // with a newer one, 'head' moved on and we try again
+            if (head.compareAndSet(h, h+1))
+                return value;
+        }
+    }
+
+    /** Remove samples, oldest first
+     *  @param list List to which samples are added
+     *  @param max Maximum number of samples to remove
+     *  @return Number of samples that were added to the list
+     */
+    int drainTo(final List<VType> list, final int max)
+    {
+        int count = 0;
+        while (count < max)
+        {
+            final VType value = remove();
+            if (value == null)
+                break;
+            list.add(value);
+            ++count;
+        }
+        return count;
+    }
+}
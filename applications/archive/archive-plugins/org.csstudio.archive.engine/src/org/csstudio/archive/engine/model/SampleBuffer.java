@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.archive.engine.model;
 
+import java.util.List;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.ringbuffer.RingBuffer;
@@ -18,6 +19,11 @@ import org.diirt.vtype.VType;
  *  Assumes that one thread adds samples, while a different
  *  thread removes them.
  *  When the queue size is reached, older samples get dropped.
+ *  <p>
+ *  By default, the samples are kept in a {@link RingBuffer}
+ *  that is locked by both the adding and the removing thread.
+ *  In 'lock free' mode, a {@link LockFreeSampleQueue} is used
+ *  so that the write thread never blocks the channel's PV updates.
  *
  *  @author Kay Kasemir
  */
@@ -34,9 +40,16 @@ public class SampleBuffer
      */
     final private String retention;
 
-    /** The actual samples in a thread-save queue. */
+    /** The actual samples in a thread-save queue,
+     *  or <code>null</code> when using the <code>queue</code>
+     */
     final private RingBuffer<VType> samples;
 
+    /** Lock-free sample queue,
+     *  or <code>null</code> when using the <code>samples</code>
+     */
+    final private LockFreeSampleQueue queue;
+
     /** Statistics */
     final private BufferStats stats = new BufferStats();
 
@@ -62,10 +75,28 @@ public class SampleBuffer
     /** Create sample buffer of given capacity
      * @param retention Sample retention policy (for archive); may be null if default/not supported*/
     SampleBuffer(final String channel_name, String retention, final int capacity)
+    {
+        this(channel_name, retention, capacity, EngineModel.useLockFreeBuffers());
+    }
+
+    /** Create sample buffer of given capacity
+     *  @param retention Sample retention policy (for archive); may be null if default/not supported
+     *  @param lock_free Use lock-free queue instead of synchronized ring buffer?
+     */
+    SampleBuffer(final String channel_name, String retention, final int capacity, final boolean lock_free)
     {
         this.channel_name = channel_name;
         this.retention = retention;
-        samples = new RingBuffer<VType>(capacity);
+        if (lock_free)
+        {
+            samples = null;
+            queue = new LockFreeSampleQueue(capacity);
+        }
+        else
+        {
+            samples = new RingBuffer<VType>(capacity);
+            queue = null;
+        }
     }
 
     /** @return channel name of this buffer */
@@ -80,9 +111,17 @@ public class SampleBuffer
         return retention;
     }
 
+    /** @return <code>true</code> if using the lock-free queue */
+    public boolean isLockFree()
+    {
+        return queue != null;
+    }
+
     /** @return Queue capacity, i.e. maximum queue size. */
     public int getCapacity()
     {
+        if (queue != null)
+            return queue.getCapacity();
         synchronized (samples)
         {
             return samples.getCapacity();
@@ -92,6 +131,8 @@ public class SampleBuffer
     /** @return Current queue size, i.e. number of samples in the queue. */
     public int getQueueSize()
     {
+        if (queue != null)
+            return queue.size();
         synchronized (samples)
         {
             return samples.size();
@@ -111,36 +152,80 @@ public class SampleBuffer
     }
 
     /** Add a sample to the queue, maybe dropping older samples */
-    @SuppressWarnings("nls")
     void add(final VType value)
     {
+        if (queue != null)
+        {   // Queue serializes producers and reports the actual drop,
+            // so overruns are counted exactly even while the write thread
+            // is removing samples
+            synchronized (queue)
+            {
+                trackOverruns(queue.add(value));
+            }
+            return;
+        }
         synchronized (samples)
         {
-            if (samples.isFull())
-            {   // Note start of overruns, then drop older sample
-                if (start_of_overruns == null)
-                    start_of_overruns = Integer.valueOf(stats.getOverruns());
-                stats.addOverrun();
-            }
-            else if (start_of_overruns != null)
-            {   // Ending a string of overruns. Maybe log it.
-                final int overruns = stats.getOverruns() - start_of_overruns;
-                overrun_msg.log(channel_name + ": " + overruns + " overruns");
-                start_of_overruns = null;
-            }
+            final boolean overrun = samples.isFull();
             samples.add(value);
+            trackOverruns(overrun);
+        }
+    }
+
+    /** Update overrun statistics
+     *  <p>
+     *  Caller must hold lock for adding samples
+     *  @param overrun Was an older sample dropped to add the latest one?
+     */
+    @SuppressWarnings("nls")
+    private void trackOverruns(final boolean overrun)
+    {
+        if (overrun)
+        {   // Note start of overruns
+            if (start_of_overruns == null)
+                start_of_overruns = Integer.valueOf(stats.getOverruns());
+            stats.addOverrun();
+        }
+        else if (start_of_overruns != null)
+        {   // Ending a string of overruns. Maybe log it.
+            final int overruns = stats.getOverruns() - start_of_overruns;
+            overrun_msg.log(channel_name + ": " + overruns + " overruns");
+            start_of_overruns = null;
         }
     }
 
     /** @return latest sample in queue or <code>null</code> if empty */
     VType remove()
     {
+        if (queue != null)
+            return queue.remove();
         synchronized (samples)
         {
             return samples.remove();
         }
     }
 
+    /** Remove several samples
+     *  @param list List to which samples are added, oldest sample first
+     *  @param max Maximum number of samples to remove
+     *  @return Number of samples that were added to the list
+     */
+    int drainTo(final List<VType> list, final int max)
+    {
+        if (queue != null)
+            return queue.drainTo(list, max);
+        int count = 0;
+        synchronized (samples)
+        {
+            while (count < max  &&  !samples.isEmpty())
+            {
+                list.add(samples.remove());
+                ++count;
+            }
+        }
+        return count;
+    }
+
     /** Update stats with current values */
     void updateStats()
     {
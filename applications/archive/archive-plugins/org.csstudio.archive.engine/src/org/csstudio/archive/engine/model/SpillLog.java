@@ -0,0 +1,717 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.csstudio.archive.engine.Activator;
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVNumberArray;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.util.array.ListNumber;
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Disk-backed, append-only log of samples that could not be written.
+ *  <p>
+ *  While the archive writer is in error, the {@link WriteThread}
+ *  moves samples from the {@link SampleBuffer}s into this log
+ *  instead of letting them overrun.
+ *  After the writer recovers, the log is replayed, oldest sample first.
+ *  <p>
+ *  The log is a sequence of memory-mapped segment files
+ *  in a spill directory.
+ *  Each record is
+ *  <pre>
+ *  int    length of the following data
+ *  String channel name
+ *  String retention, may be empty
+ *  long   epoch seconds
+ *  int    nanoseconds
+ *  byte   severity
+ *  String status
+ *  byte   value type, followed by value and meta data
+ *  </pre>
+ *  The length is written last, so a record that was only partially
+ *  written before a crash reads as the end of the segment.
+ *  When a record has been replayed, its length is negated.
+ *  Segments left over from a previous run are replayed,
+ *  skipping records that had already been replayed.
+ *  <p>
+ *  Samples are read in batches, which need to be committed once
+ *  written to the archive, or rolled back to re-read them.
+ *  Samples are read in the order they were added, so as long as
+ *  a channel's samples are added in time order, they are replayed
+ *  in time order.
+ *  The log tracks which channels have samples waiting to be replayed,
+ *  so that newer samples of such a channel can be held back.
+ *  <p>
+ *  Not thread-safe except for the statistics, meant to be used by one {@link WriteThread}.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SpillLog
+{
+    /** Size of one segment file */
+    final static int SEGMENT_SIZE = 16*1024*1024;
+
+    /** Value types in a record */
+    final private static byte TYPE_DOUBLE = 1,
+                              TYPE_LONG = 2,
+                              TYPE_ARRAY = 3,
+                              TYPE_ENUM = 4,
+                              TYPE_STRING = 5;
+
+    /** Sample read from the log */
+    static class SpilledSample
+    {
+        final String channel;
+        final String retention;
+        final VType value;
+
+        SpilledSample(final String channel, final String retention, final VType value)
+        {
+            this.channel = channel;
+            this.retention = retention;
+            this.value = value;
+        }
+    }
+
+    /** Directory for segment files */
+    final private File directory;
+
+    /** Maximum number of segment files */
+    final private int max_segments;
+
+    /** Sequence number of oldest segment, the one being read */
+    private long read_seq;
+
+    /** Sequence number of newest segment, the one being written */
+    private long write_seq;
+
+    /** Mapped segment that is read, or <code>null</code> */
+    private MappedByteBuffer read_segment = null;
+
+    /** Position in read_segment up to which records have been read */
+    private int read_pos = 0;
+
+    /** Position in read_segment up to which records have been committed */
+    private int commit_pos = 0;
+
+    /** Number of samples that have been read but not committed */
+    private int read_samples = 0;
+
+    /** Bytes that have been read but not committed */
+    private long read_bytes = 0;
+
+    /** Mapped segment that is written, or <code>null</code> */
+    private MappedByteBuffer write_segment = null;
+
+    /** Buffer for encoding one record */
+    private ByteBuffer record = ByteBuffer.allocate(1024);
+
+    /** Number of samples in the log */
+    private volatile long samples = 0;
+
+    /** Bytes used by samples in the log */
+    private volatile long bytes = 0;
+
+    /** Number of samples that were dropped because they are too large for a segment */
+    private volatile long dropped = 0;
+
+    /** Was a sample rejected because the log is full? Reset when a segment is deleted */
+    private boolean full = false;
+
+    /** Number of samples in the log per channel */
+    final private Map<String, Integer> backlog = new HashMap<>();
+
+    /** Channels of the samples that have been read but not committed */
+    final private List<String> read_channels = new ArrayList<>();
+
+    /** Time stamp of oldest sample in the log, or <code>null</code> */
+    private volatile Instant oldest = null;
+
+    /** Open spill log, recovering segments from previous run
+     *  @param directory Directory for segment files, created if necessary
+     *  @param max_bytes Maximum size of all segment files
+     *  @throws Exception on error
+     */
+    public SpillLog(final File directory, final long max_bytes) throws Exception
+    {
+        this.directory = directory;
+        this.max_segments = (int) Math.max(1, max_bytes / SEGMENT_SIZE);
+        if (! directory.isDirectory()  &&  ! directory.mkdirs())
+            throw new Exception("Cannot create spill directory " + directory);
+
+        // Locate existing segments
+        final File[] files = directory.listFiles((dir, name) -> name.startsWith("spill_")  &&  name.endsWith(".log"));
+        final long[] seqs = new long[files == null ? 0 : files.length];
+        for (int i=0; i<seqs.length; ++i)
+        {
+            final String name = files[i].getName();
+            seqs[i] = Long.parseLong(name.substring(6, name.length() - 4));
+        }
+        Arrays.sort(seqs);
+        if (seqs.length > 0)
+        {
+            read_seq = seqs[0];
+            write_seq = seqs[seqs.length-1];
+            // Count recovered samples, assuming consecutive sequence numbers
+            for (long seq : seqs)
+            {
+                final MappedByteBuffer segment = map(seq);
+                int pos = 0;
+                while (hasRecord(segment, pos))
+                {
+                    final int length = segment.getInt(pos);
+                    if (length > 0)
+                    {
+                        bytes += length + 4;
+                        ++samples;
+                        backlog.merge(peekChannel(segment, pos), 1, Integer::sum);
+                    }
+                    pos += Math.abs(length) + 4;
+                }
+            }
+            // Continue to write in a new segment
+            ++write_seq;
+            if (samples > 0)
+            {
+                Activator.getLogger().log(Level.INFO, "Spill log {0} has {1} samples from previous run",
+                                          new Object[] { directory, samples });
+                read_segment = map(read_seq);
+                read_pos = commit_pos = skipReplayed(read_segment, 0);
+                oldest = peekTime(read_segment, read_pos);
+            }
+            else
+            {   // Nothing to recover, start over
+                for (long seq : seqs)
+                    deleteSegment(seq);
+                read_seq = write_seq;
+            }
+        }
+        else
+            read_seq = write_seq = 0;
+    }
+
+    /** @return Spill directory */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /** @return Number of samples in the log */
+    public long getSampleCount()
+    {
+        return samples;
+    }
+
+    /** @return Number of bytes used by samples in the log */
+    public long getByteCount()
+    {
+        return bytes;
+    }
+
+    /** @return Number of samples that were dropped because they are too large for the log */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    /** @return Time stamp of oldest sample in the log, or <code>null</code> if empty */
+    public Instant getOldestTime()
+    {
+        return oldest;
+    }
+
+    /** @return <code>true</code> if there are no samples to replay */
+    public boolean isEmpty()
+    {
+        return samples <= read_samples;
+    }
+
+    /** @param channel Channel name
+     *  @return <code>true</code> if the log holds samples of that channel
+     *          that have not been replayed
+     */
+    boolean hasBacklog(final String channel)
+    {
+        return backlog.containsKey(channel);
+    }
+
+    /** @return <code>true</code> if the log is full, samples would not be added */
+    public boolean isFull()
+    {
+        return full  ||
+               ((write_segment == null  ||  write_segment.remaining() < 4096)  &&
+                getSegmentCount() >= max_segments);
+    }
+
+    /** @return Number of segment files */
+    private long getSegmentCount()
+    {
+        // Segments read_seq .. write_seq-1 exist,
+        // write_seq only once it has been mapped
+        return write_seq - read_seq + (write_segment == null ? 0 : 1);
+    }
+
+    /** @param seq Segment sequence number
+     *  @return File for that segment
+     */
+    private File getFile(final long seq)
+    {
+        return new File(directory, String.format("spill_%012d.log", seq));
+    }
+
+    /** @param seq Segment sequence number
+     *  @return Mapped segment file, created if necessary
+     */
+    private MappedByteBuffer map(final long seq) throws Exception
+    {
+        try
+        (
+            final RandomAccessFile file = new RandomAccessFile(getFile(seq), "rw");
+            final FileChannel channel = file.getChannel();
+        )
+        {   // Mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /** @param segment Segment
+     *  @param pos Position in segment
+     *  @return <code>true</code> if there's a complete, maybe replayed record at that position
+     */
+    private static boolean hasRecord(final ByteBuffer segment, final int pos)
+    {
+        return pos <= SEGMENT_SIZE - 4  &&  segment.getInt(pos) != 0;
+    }
+
+    /** @param segment Segment
+     *  @param pos Position in segment
+     *  @return Position of next record that has not been replayed, or end of records
+     */
+    private static int skipReplayed(final ByteBuffer segment, int pos)
+    {
+        int length;
+        while (pos <= SEGMENT_SIZE - 4  &&  (length = segment.getInt(pos)) < 0)
+            pos += 4 - length;
+        return pos;
+    }
+
+    /** Add sample to log
+     *
+     *  <p>A sample that is too large for a segment is dropped.
+     *
+     *  @param channel Channel name
+     *  @param retention Retention, may be <code>null</code>
+     *  @param value Sample
+     *  @return <code>false</code> if sample was not added because the log is full
+     *  @throws Exception on error
+     */
+    public boolean append(final String channel, final String retention, final VType value) throws Exception
+    {
+        encode(channel, retention, value);
+        final int length = record.position();
+        if (length + 4 > SEGMENT_SIZE)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot spill {0} sample of {1} bytes",
+                                      new Object[] { channel, length });
+            ++dropped;
+            return true;
+        }
+        // Need (another) segment?
+        if (write_segment == null  ||  write_segment.remaining() < length + 4)
+        {
+            if (getSegmentCount() >= max_segments)
+            {
+                full = true;
+                return false;
+            }
+            if (write_segment != null)
+                ++write_seq;
+            write_segment = map(write_seq);
+        }
+        // Write data, then length to 'publish' the record
+        final int pos = write_segment.position();
+        record.flip();
+        write_segment.position(pos + 4);
+        write_segment.put(record);
+        write_segment.putInt(pos, length);
+        bytes += length + 4;
+        backlog.merge(channel, 1, Integer::sum);
+        if (samples++ <= 0)
+            oldest = VTypeHelper.getTimestamp(value);
+        return true;
+    }
+
+    /** Read samples from the log
+     *  <p>
+     *  Reads at most to the end of the current segment.
+     *  @param list List to which samples are added, oldest first
+     *  @param max Maximum number of samples to read
+     *  @return Number of samples that were read
+     *  @throws Exception on error
+     *  @see #commit()
+     *  @see #rollback()
+     */
+    int read(final List<SpilledSample> list, final int max) throws Exception
+    {
+        if (isEmpty())
+            return 0;
+        advance();
+        int count = 0;
+        read_pos = skipReplayed(read_segment, read_pos);
+        while (count < max  &&  hasRecord(read_segment, read_pos))
+        {
+            final int length = read_segment.getInt(read_pos);
+            if (length < 0)
+            {   // Already replayed in previous run
+                read_pos += 4 - length;
+                continue;
+            }
+            final SpilledSample sample = decode(read_segment, read_pos + 4);
+            list.add(sample);
+            read_channels.add(sample.channel);
+            read_pos += length + 4;
+            read_bytes += length + 4;
+            ++count;
+        }
+        read_samples += count;
+        return count;
+    }
+
+    /** Remove the samples that have been read from the log
+     *  @throws Exception on error
+     */
+    void commit() throws Exception
+    {
+        // Mark records as replayed
+        while (commit_pos < read_pos)
+        {
+            final int length = read_segment.getInt(commit_pos);
+            if (length > 0)
+                read_segment.putInt(commit_pos, -length);
+            commit_pos += Math.abs(length) + 4;
+        }
+        samples -= read_samples;
+        bytes -= read_bytes;
+        read_samples = 0;
+        read_bytes = 0;
+        for (String channel : read_channels)
+            backlog.computeIfPresent(channel, (name, count) -> count > 1 ? count - 1 : null);
+        read_channels.clear();
+        if (samples <= 0)
+        {   // Read all that was written, start over with a new segment
+            for (long seq = read_seq; seq <= write_seq; ++seq)
+                deleteSegment(seq);
+            ++write_seq;
+            read_seq = write_seq;
+            read_segment = write_segment = null;
+            read_pos = commit_pos = 0;
+            oldest = null;
+            backlog.clear();
+        }
+        else
+        {
+            advance();
+            oldest = peekTime(read_segment, skipReplayed(read_segment, read_pos));
+        }
+    }
+
+    /** Map the read segment, moving on to the next segment
+     *  when all records of the current one have been committed
+     *  @throws Exception on error
+     */
+    private void advance() throws Exception
+    {
+        if (read_segment == null)
+            read_segment = read_seq == write_seq  &&  write_segment != null ? write_segment : map(read_seq);
+        while (true)
+        {
+            if (read_pos == commit_pos)
+                read_pos = commit_pos = skipReplayed(read_segment, read_pos);
+            if (read_seq >= write_seq  ||  read_pos != commit_pos  ||
+                hasRecord(read_segment, read_pos))
+                break;
+            deleteSegment(read_seq);
+            ++read_seq;
+            read_segment = read_seq == write_seq  &&  write_segment != null ? write_segment : map(read_seq);
+            read_pos = commit_pos = 0;
+        }
+    }
+
+    /** Undo the reads since the last commit */
+    void rollback()
+    {
+        read_pos = commit_pos;
+        read_samples = 0;
+        read_bytes = 0;
+        read_channels.clear();
+    }
+
+    /** Close the log, keeping remaining samples for the next run */
+    public void close()
+    {
+        read_segment = null;
+        write_segment = null;
+    }
+
+    /** @param seq Sequence number of segment to delete */
+    private void deleteSegment(final long seq)
+    {
+        full = false;
+        final File file = getFile(seq);
+        if (file.exists()  &&  ! file.delete())
+            Activator.getLogger().log(Level.WARNING, "Cannot delete spill segment {0}", file);
+    }
+
+    /** @param segment Segment
+     *  @param pos Position of record
+     *  @return Time stamp of record or <code>null</code>
+     */
+    private static Instant peekTime(final ByteBuffer segment, final int pos)
+    {
+        if (! hasRecord(segment, pos))
+            return null;
+        final ByteBuffer buf = segment.duplicate();
+        buf.position(pos + 4);
+        // Skip channel name and retention
+        for (int i=0; i<2; ++i)
+        {
+            final int length = buf.getInt();
+            buf.position(buf.position() + length);
+        }
+        final long secs = buf.getLong();
+        return Instant.ofEpochSecond(secs, buf.getInt());
+    }
+
+    /** @param segment Segment
+     *  @param pos Position of record
+     *  @return Channel name of record
+     */
+    private static String peekChannel(final ByteBuffer segment, final int pos)
+    {
+        final ByteBuffer buf = segment.duplicate();
+        buf.position(pos + 4);
+        return getString(buf);
+    }
+
+    /** @param size Number of bytes needed in record buffer */
+    private void ensureCapacity(final int size)
+    {
+        if (record.remaining() >= size)
+            return;
+        final ByteBuffer bigger = ByteBuffer.allocate(Math.max(2*record.capacity(), record.position() + size));
+        record.flip();
+        bigger.put(record);
+        record = bigger;
+    }
+
+    private void putString(final String text)
+    {
+        final byte[] data = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + data.length);
+        record.putInt(data.length);
+        record.put(data);
+    }
+
+    private static String getString(final ByteBuffer buf)
+    {
+        final byte[] data = new byte[buf.getInt()];
+        buf.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private void putDouble(final Double number)
+    {
+        ensureCapacity(8);
+        record.putDouble(number == null ? Double.NaN : number.doubleValue());
+    }
+
+    private void putDisplay(final Display display)
+    {
+        putDouble(display.getLowerDisplayLimit());
+        putDouble(display.getLowerAlarmLimit());
+        putDouble(display.getLowerWarningLimit());
+        putString(display.getUnits());
+        final NumberFormat format = display.getFormat();
+        ensureCapacity(4);
+        record.putInt(format == null ? 0 : format.getMaximumFractionDigits());
+        putDouble(display.getUpperWarningLimit());
+        putDouble(display.getUpperAlarmLimit());
+        putDouble(display.getUpperDisplayLimit());
+        putDouble(display.getLowerCtrlLimit());
+        putDouble(display.getUpperCtrlLimit());
+    }
+
+    private static Display getDisplay(final ByteBuffer buf)
+    {
+        final double lower_disp = buf.getDouble();
+        final double lower_alarm = buf.getDouble();
+        final double lower_warn = buf.getDouble();
+        final String units = getString(buf);
+        final int precision = buf.getInt();
+        final double upper_warn = buf.getDouble();
+        final double upper_alarm = buf.getDouble();
+        final double upper_disp = buf.getDouble();
+        final double lower_ctrl = buf.getDouble();
+        final double upper_ctrl = buf.getDouble();
+        return ValueFactory.newDisplay(lower_disp, lower_alarm, lower_warn, units,
+                                       NumberFormats.format(precision),
+                                       upper_warn, upper_alarm, upper_disp, lower_ctrl, upper_ctrl);
+    }
+
+    /** Encode sample into <code>record</code> */
+    private void encode(final String channel, final String retention, final VType value)
+    {
+        record.clear();
+        putString(channel);
+        putString(retention);
+        final Instant time = VTypeHelper.getTimestamp(value);
+        ensureCapacity(13);
+        record.putLong(time.getEpochSecond());
+        record.putInt(time.getNano());
+        record.put((byte) VTypeHelper.getSeverity(value).ordinal());
+        putString(VTypeHelper.getMessage(value));
+        ensureCapacity(1);
+        if (value instanceof VNumber)
+        {
+            final Number number = ((VNumber) value).getValue();
+            if (number instanceof Double  ||  number instanceof Float)
+            {
+                record.put(TYPE_DOUBLE);
+                putDouble(number.doubleValue());
+            }
+            else
+            {
+                record.put(TYPE_LONG);
+                ensureCapacity(8);
+                record.putLong(number.longValue());
+            }
+            putDisplay((Display) value);
+        }
+        else if (value instanceof VNumberArray)
+        {
+            record.put(TYPE_ARRAY);
+            final ListNumber data = ((VNumberArray) value).getData();
+            final int N = data.size();
+            ensureCapacity(4 + 8*N);
+            record.putInt(N);
+            for (int i=0; i<N; ++i)
+                record.putDouble(data.getDouble(i));
+            putDisplay((Display) value);
+        }
+        else if (value instanceof VEnum)
+        {
+            record.put(TYPE_ENUM);
+            final VEnum enumerated = (VEnum) value;
+            final List<String> labels = enumerated.getLabels();
+            ensureCapacity(8);
+            record.putInt(enumerated.getIndex());
+            record.putInt(labels.size());
+            for (String label : labels)
+                putString(label);
+        }
+        else
+        {   // Like RDBArchiveWriter, handle other types as strings
+            record.put(TYPE_STRING);
+            putString(value instanceof VString ? ((VString) value).getValue() : value.toString());
+        }
+    }
+
+    /** @param segment Segment
+     *  @param pos Start of record data
+     *  @return Decoded sample
+     *  @throws Exception on error
+     */
+    private static SpilledSample decode(final ByteBuffer segment, final int pos) throws Exception
+    {
+        final ByteBuffer buf = segment.duplicate();
+        buf.position(pos);
+        final String channel = getString(buf);
+        String retention = getString(buf);
+        if (retention.isEmpty())
+            retention = null;
+        final long secs = buf.getLong();
+        final Instant time = Instant.ofEpochSecond(secs, buf.getInt());
+        final AlarmSeverity severity = AlarmSeverity.values()[buf.get()];
+        final String status = getString(buf);
+        final byte type = buf.get();
+        final VType value;
+        switch (type)
+        {
+        case TYPE_DOUBLE:
+        {
+            final double number = buf.getDouble();
+            value = new ArchiveVNumber(time, severity, status, getDisplay(buf), number);
+            break;
+        }
+        case TYPE_LONG:
+        {
+            final long number = buf.getLong();
+            value = new ArchiveVNumber(time, severity, status, getDisplay(buf), number);
+            break;
+        }
+        case TYPE_ARRAY:
+        {
+            final double[] data = new double[buf.getInt()];
+            buf.asDoubleBuffer().get(data);
+            buf.position(buf.position() + 8*data.length);
+            value = new ArchiveVNumberArray(time, severity, status, getDisplay(buf), data);
+            break;
+        }
+        case TYPE_ENUM:
+        {
+            final int index = buf.getInt();
+            final int N = buf.getInt();
+            final List<String> labels = new ArrayList<>(N);
+            for (int i=0; i<N; ++i)
+                labels.add(getString(buf));
+            value = new ArchiveVEnum(time, severity, status, labels, index);
+            break;
+        }
+        case TYPE_STRING:
+            value = new ArchiveVString(time, severity, status, getString(buf));
+            break;
+        default:
+            throw new Exception("Spill log record for " + channel + " has unknown type " + type);
+        }
+        return new SpilledSample(channel, retention, value);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("Spill log %s: %d samples, %d bytes, %d dropped",
+                             directory, samples, bytes, dropped);
+    }
+}
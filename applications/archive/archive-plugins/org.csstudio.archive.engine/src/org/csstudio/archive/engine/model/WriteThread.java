@@ -9,10 +9,16 @@ package org.csstudio.archive.engine.model;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
 import org.csstudio.archive.engine.Activator;
+import org.csstudio.archive.engine.model.SpillLog.SpilledSample;
 import org.csstudio.archive.writer.ArchiveWriter;
 import org.csstudio.archive.writer.ArchiveWriterFactory;
 import org.csstudio.archive.writer.WriteChannel;
@@ -26,9 +32,22 @@ import org.diirt.vtype.VType;
  *  and tries to reconnect to the database and write again until successful.
  *  Since the Oracle batch mechanism doesn't tell us what exactly failed
  *  in a batch, all the samples that were part of the batch might
- *  be lost.
+ *  be lost, unless there is a spill log.
  *  The channels that add samples to the sample buffer supposedly notice
  *  the error condition and add a special indicator once we recover.
+ *  <p>
+ *  The engine may use several write threads ('shards'),
+ *  each with its own writer and its own subset of sample buffers.
+ *  The sample buffer error state is set while any of them has errors.
+ *  <p>
+ *  With an optional {@link SpillLog}, samples are moved from the
+ *  sample buffers to disk while in error, and replayed once the
+ *  writer recovers.
+ *  This includes the samples of a failed flush, some of which
+ *  may then be written twice.
+ *  While a channel has samples in the spill log, its new samples
+ *  are added to the spill log as well, so they are written in order.
+ *  When the spill log is full, samples remain in the sample buffers.
  *
  *  @author Kay Kasemir
  */
@@ -37,6 +56,12 @@ public class WriteThread implements Runnable
     /** Minimum write period [seconds] */
     private static final double MIN_WRITE_PERIOD = 5.0;
 
+    /** Number of write threads that are currently in error */
+    private static final AtomicInteger threads_in_error = new AtomicInteger();
+
+    /** Name of this thread */
+    final private String name;
+
     /** Server to which this thread writes. */
     private ArchiveWriter writer;
 
@@ -55,6 +80,12 @@ public class WriteThread implements Runnable
     /** Delay between write runs. */
     private long millisec_delay = 5000;
 
+    /** Delay before first write run */
+    private long millisec_initial_delay = 0;
+
+    /** Is this thread in error, i.e. counted in <code>threads_in_error</code>? */
+    private boolean in_error = false;
+
     /** Number of values to place into one batch */
     private int batch_size = 500;
 
@@ -67,9 +98,66 @@ public class WriteThread implements Runnable
     /** Average duration of write run */
     private Average write_time = new Average();
 
+    /** Log for samples that cannot be written, or <code>null</code> */
+    private SpillLog spill = null;
+
+    /** Average number of samples per second replayed from spill log */
+    private Average replay_rate = new Average();
+
+    /** Samples that were removed from a sample buffer
+     *  but could not be written or added to the full spill log.
+     *  They are newer than the samples in the spill log
+     *  and older than those still in the sample buffer.
+     */
+    final private Map<SampleBuffer, List<VType>> held = new HashMap<>();
+
     /** Thread the executes this.run() */
     private Thread thread;
 
+    /** Create write thread */
+    @SuppressWarnings("nls")
+    public WriteThread()
+    {
+        this("WriteThread");
+    }
+
+    /** Create write thread
+     *  @param name Name of the thread, used to identify a write shard
+     */
+    public WriteThread(final String name)
+    {
+        this.name = name;
+    }
+
+    /** @return Name of this thread */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** @return Number of sample buffers written by this thread */
+    public int getBufferCount()
+    {
+        synchronized (buffers)
+        {
+            return buffers.size();
+        }
+    }
+
+    /** @param spill Log for samples that cannot be written while in error.
+     *               Must be set before the thread is started.
+     */
+    void setSpillLog(final SpillLog spill)
+    {
+        this.spill = spill;
+    }
+
+    /** @return Log for samples that cannot be written, or <code>null</code> */
+    public SpillLog getSpillLog()
+    {
+        return spill;
+    }
+
     /** Add a channel's buffer that this thread reads */
     public void addChannel(final ArchiveChannel channel)
     {
@@ -79,15 +167,29 @@ public class WriteThread implements Runnable
     /** Add a sample buffer that this thread reads */
     void addSampleBuffer(final SampleBuffer buffer)
     {
-        buffers.add(buffer);
+        synchronized (buffers)
+        {
+            buffers.add(buffer);
+        }
     }
 
     /** Start the write thread.
      *  @param write_period Period between writes in seconds
      *  @param batch_size Number of values to batch
      */
-    @SuppressWarnings("nls")
     public void start(double write_period, int batch_size)
+    {
+        start(write_period, batch_size, 0.0);
+    }
+
+    /** Start the write thread.
+     *  @param write_period Period between writes in seconds
+     *  @param batch_size Number of values to batch
+     *  @param initial_delay Delay in seconds before the first write,
+     *                       used to stagger the writes of several threads
+     */
+    @SuppressWarnings("nls")
+    public void start(double write_period, int batch_size, final double initial_delay)
     {
         if (write_period < MIN_WRITE_PERIOD)
         {
@@ -96,8 +198,9 @@ public class WriteThread implements Runnable
             write_period = MIN_WRITE_PERIOD;
         }
         millisec_delay = (int)(1000.0 * write_period);
+        millisec_initial_delay = (long)(1000.0 * initial_delay);
         this.batch_size = batch_size;
-        thread = new Thread(this, "WriteThread");
+        thread = new Thread(this, name);
         thread.start();
     }
 
@@ -106,6 +209,7 @@ public class WriteThread implements Runnable
     {
         write_count.reset();
         write_time.reset();
+        replay_rate.reset();
     }
 
     /** Ask the write thread to stop ASAP. */
@@ -136,6 +240,12 @@ public class WriteThread implements Runnable
         return write_time.get();
     }
 
+    /** @return Average number of samples per second replayed from spill log */
+    public double getReplayRate()
+    {
+        return replay_rate.get();
+    }
+
     /** 'Main loop' of the write thread.
      *  <p>
      *  Writes all values out, then waits.
@@ -153,10 +263,24 @@ public class WriteThread implements Runnable
     @SuppressWarnings("nls")
     public void run()
     {
-        Activator.getLogger().info("WriteThread starts");
+        Activator.getLogger().info(name + " starts");
         final BenchmarkTimer timer = new BenchmarkTimer();
         boolean write_error = false;
         do_run = true;
+        if (millisec_initial_delay > 0)
+        {
+            synchronized (wait_block)
+            {
+                try
+                {
+                    wait_block.wait(millisec_initial_delay);
+                }
+                catch (InterruptedException ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Interrupted wait", ex);
+                }
+            }
+        }
         while (do_run)
         {
             long delay;
@@ -179,7 +303,12 @@ public class WriteThread implements Runnable
                 timer.start();
                 // In case of a network problem, we can hang in here
                 // for a long time...
-                final long written = write();
+                long written = 0;
+                // Replay older, spilled samples first,
+                // but leave time to write the current samples
+                if (spill != null  &&  !spill.isEmpty())
+                    written += replay(millisec_delay / 2);
+                written += write();
                 timer.stop();
                 last_write_stamp = Instant.now();
                 write_count.update(written);
@@ -189,12 +318,14 @@ public class WriteThread implements Runnable
             }
             catch (Exception ex)
             {   // Error in write() or the preceding reconnect()...
-                Activator.getLogger().log(Level.WARNING, "Error, will try to reconnect", ex);
+                Activator.getLogger().log(Level.WARNING, name + " error, will try to reconnect", ex);
                 // Use max. delay
                 delay = millisec_delay;
                 write_error = true;
+                if (spill != null)
+                    spillBuffers();
             }
-            SampleBuffer.setErrorState(write_error);
+            updateErrorState(write_error);
             // See if there's any time left to wait,
             // or if we already used all that time in the last 'write'
             if (delay > 0)
@@ -212,7 +343,24 @@ public class WriteThread implements Runnable
                 }
             }
         }
-        Activator.getLogger().info("WriteThread exists");
+        updateErrorState(false);
+        Activator.getLogger().info(name + " exists");
+    }
+
+    /** Update the sample buffer error state
+     *  @param write_error Did this thread encounter an error?
+     */
+    private void updateErrorState(final boolean write_error)
+    {
+        if (write_error != in_error)
+        {
+            in_error = write_error;
+            if (write_error)
+                threads_in_error.incrementAndGet();
+            else
+                threads_in_error.decrementAndGet();
+        }
+        SampleBuffer.setErrorState(threads_in_error.get() > 0);
     }
 
     /** Stop the write thread, performing a final write. */
@@ -228,8 +376,16 @@ public class WriteThread implements Runnable
         {
             write();
         }
+        catch (Exception ex)
+        {   // Preserve what's left for the next run
+            if (spill != null)
+                spillBuffers();
+            throw ex;
+        }
         finally
         {
+            if (spill != null)
+                spill.close();
             if (writer != null)
             {
                 writer.close();
@@ -239,39 +395,170 @@ public class WriteThread implements Runnable
     }
 
     /** Write right now until all sample buffers are empty
+     *  <p>
+     *  With a spill log, samples that have been removed from a sample buffer
+     *  but not successfully flushed are held on error so they can be spilled.
      *  @return number of samples written
      */
     private long write() throws Exception
     {
         int total_count = 0;
         int count = 0;
-        for (SampleBuffer buffer : buffers)
+        final List<VType> batch = new ArrayList<VType>(batch_size);
+        final SampleBuffer[] safe_buffers;
+        synchronized (buffers)
+        {
+            safe_buffers = buffers.toArray(new SampleBuffer[buffers.size()]);
+        }
+        // Samples added to the writer since the last flush, by buffer
+        final Map<SampleBuffer, List<VType>> unflushed = new LinkedHashMap<>();
+        try
         {
-            // Update max buffer length etc. before we start to remove samples
-            buffer.updateStats();
-            // Write samples for one channel
-            final String name = buffer.getChannelName();
-            final String retention = buffer.getArchiveDataRetention();
-            final WriteChannel channel = writer.getChannel(name, retention);
-            VType sample = buffer.remove();
-            while (sample != null)
-            {   // Write one value
-                writer.addSample(channel, sample);
-                // Note: count across different sample buffers!
-                ++count;
-                if (count > batch_size)
+            for (SampleBuffer buffer : safe_buffers)
+            {
+                // Update max buffer length etc. before we start to remove samples
+                buffer.updateStats();
+                // Write samples for one channel
+                final String name = buffer.getChannelName();
+                final String retention = buffer.getArchiveDataRetention();
+                if (spill != null  &&  spill.hasBacklog(name))
+                {   // Queue behind the older samples that still need to be replayed
+                    spillBuffer(buffer);
+                    continue;
+                }
+                final WriteChannel channel = writer.getChannel(name, retention);
+                // Start with samples held back while the spill log was full
+                // or because an earlier write failed
+                final List<VType> kept = held.remove(buffer);
+                if (kept != null)
+                    batch.addAll(kept);
+                final List<VType> pending = new ArrayList<>();
+                unflushed.put(buffer, pending);
+                // Remove samples in batches, locking the buffer (if at all)
+                // once per batch instead of once per sample
+                while (! batch.isEmpty()  ||  buffer.drainTo(batch, batch_size) > 0)
                 {
-                    total_count += count;
-                    count = 0;
-                    writer.flush();
+                    pending.addAll(batch);
+                    for (int i=0; i<batch.size(); ++i)
+                    {   // Write one value
+                        writer.addSample(channel, batch.get(i));
+                        // Note: count across different sample buffers!
+                        ++count;
+                        if (count > batch_size)
+                        {
+                            total_count += count;
+                            count = 0;
+                            writer.flush();
+                            // Only the rest of this batch remains to be flushed
+                            unflushed.clear();
+                            pending.subList(0, pending.size() - (batch.size() - 1 - i)).clear();
+                            unflushed.put(buffer, pending);
+                        }
+                    }
+                    batch.clear();
                 }
-                // next
-                sample = buffer.remove();
             }
+            // Flush remaining samples (less than batch_size)
+            writer.flush();
+        }
+        catch (Exception ex)
+        {   // Keep samples that were not written for the spill log,
+            // ahead of those still in the sample buffers
+            if (spill != null)
+                for (Map.Entry<SampleBuffer, List<VType>> entry : unflushed.entrySet())
+                    if (! entry.getValue().isEmpty())
+                        held.put(entry.getKey(), entry.getValue());
+            throw ex;
         }
-        // Flush remaining samples (less than batch_size)
-        writer.flush();
         total_count += count;
         return total_count;
     }
+
+    /** Replay samples from the spill log
+     *  <p>
+     *  Samples are replayed in the order they were spilled,
+     *  which is time order for each channel.
+     *  Each batch is only removed from the spill log once it has been written.
+     *  @param millisec_budget Time in milliseconds after which replay stops,
+     *                         so that the current samples can be written
+     *  @return number of samples written
+     */
+    private long replay(final long millisec_budget) throws Exception
+    {
+        final long start = System.currentTimeMillis();
+        final long end = start + millisec_budget;
+        final List<SpilledSample> batch = new ArrayList<SpilledSample>(batch_size);
+        long total_count = 0;
+        try
+        {
+            while (System.currentTimeMillis() < end  &&  spill.read(batch, batch_size) > 0)
+            {
+                for (SpilledSample sample : batch)
+                    writer.addSample(writer.getChannel(sample.channel, sample.retention), sample.value);
+                writer.flush();
+                spill.commit();
+                total_count += batch.size();
+                batch.clear();
+            }
+        }
+        catch (Exception ex)
+        {   // Keep samples of failed batch in spill log
+            spill.rollback();
+            throw ex;
+        }
+        final long millis = System.currentTimeMillis() - start;
+        if (total_count > 0  &&  millis > 0)
+            replay_rate.update(total_count * 1000.0 / millis);
+        return total_count;
+    }
+
+    /** Move all samples from the sample buffers into the spill log */
+    @SuppressWarnings("nls")
+    private void spillBuffers()
+    {
+        final SampleBuffer[] safe_buffers;
+        synchronized (buffers)
+        {
+            safe_buffers = buffers.toArray(new SampleBuffer[buffers.size()]);
+        }
+        try
+        {
+            for (SampleBuffer buffer : safe_buffers)
+            {
+                buffer.updateStats();
+                // Once full, leave samples in buffer, where they may overrun
+                if (! spillBuffer(buffer))
+                    break;
+            }
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, name + " cannot spill samples", ex);
+        }
+    }
+
+    /** Move samples of one sample buffer into the spill log
+     *  @param buffer Sample buffer
+     *  @return <code>false</code> if the spill log is full
+     *  @throws Exception on error
+     */
+    private boolean spillBuffer(final SampleBuffer buffer) throws Exception
+    {
+        final String name = buffer.getChannelName();
+        final String retention = buffer.getArchiveDataRetention();
+        List<VType> samples = held.remove(buffer);
+        if (samples == null)
+            samples = new ArrayList<VType>(batch_size);
+        while (! samples.isEmpty()  ||  buffer.drainTo(samples, batch_size) > 0)
+        {
+            for (int i=0; i<samples.size(); ++i)
+                if (! spill.append(name, retention, samples.get(i)))
+                {   // Keep the remaining samples for the next attempt
+                    held.put(buffer, new ArrayList<VType>(samples.subList(i, samples.size())));
+                    return false;
+                }
+            samples.clear();
+        }
+        return true;
+    }
 }
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.logging.Level;
 
 import org.csstudio.archive.engine.Activator;
+import org.csstudio.util.stats.Histogram;
 
 /** A Scan list scans a list of channels at a given rate.
  *  <p>
@@ -29,6 +30,21 @@ public class ScanList implements Scheduleable
 
     private long next_due_time = System.currentTimeMillis();
 
+    /** Start time of the last scan, 0 if none */
+    private long last_start = 0;
+
+    /** Time from due time to start of scan */
+    final private Histogram lateness = new Histogram();
+
+    /** Deviation of the time between scans from the period */
+    final private Histogram jitter = new Histogram();
+
+    /** Number of scans */
+    private volatile long scans = 0;
+
+    /** Number of scans that were skipped because the list was behind */
+    private volatile long overruns = 0;
+
     /** Construct scan list.
      *  @param scan_period Scan period in seconds
      */
@@ -61,6 +77,15 @@ public class ScanList implements Scheduleable
         return next_due_time;
     }
 
+    /** Schedule the first scan one period from the given time
+     *  @param time Time in system milliseconds
+     */
+    void schedule(final long time)
+    {
+        next_due_time = time + scan_period_millis;
+        last_start = 0;
+    }
+
     /** Add an item to the scan list */
     void add(final Runnable item)
     {
@@ -90,10 +115,19 @@ public class ScanList implements Scheduleable
     /** Scan all items on this scan list.
      *  Doesn't care if they're due or not,
      *  that's up to the code that invokes this.
+     *
+     *  <p>The next due time is computed from the previous one,
+     *  so the scans don't drift.
+     *  When the scan list falls behind by more than a period,
+     *  the missed scans are skipped and counted as overruns.
      */
     void scanItems()
     {
         final long start = System.currentTimeMillis();
+        lateness.update(Math.max(0, start - next_due_time));
+        if (last_start > 0)
+            jitter.update(Math.abs(start - last_start - scan_period_millis));
+        last_start = start;
         // Scan all items
         for (Runnable item : items)
         {
@@ -106,9 +140,52 @@ public class ScanList implements Scheduleable
                 Activator.getLogger().log(Level.SEVERE, toString() + " scan error", ex);
             }
         }
-        // Determine next due time relative to start,
-        // swallowing the time used to scan the items.
-        next_due_time = start + scan_period_millis;
+        ++scans;
+        // Determine next due time relative to the previous due time,
+        // skipping scans that are already past due
+        final long now = System.currentTimeMillis();
+        next_due_time += scan_period_millis;
+        if (next_due_time <= now  &&  scan_period_millis > 0)
+        {
+            final long missed = (now - next_due_time) / scan_period_millis + 1;
+            overruns += missed;
+            next_due_time += missed * scan_period_millis;
+        }
+        else if (next_due_time <= now)
+            next_due_time = now;
+    }
+
+    /** @return Histogram of the time from due time to start of scan */
+    public Histogram getLateness()
+    {
+        return lateness;
+    }
+
+    /** @return Histogram of the deviation of the time between scans from the period */
+    public Histogram getJitter()
+    {
+        return jitter;
+    }
+
+    /** @return Number of scans */
+    public long getScanCount()
+    {
+        return scans;
+    }
+
+    /** @return Number of scans that were skipped because the list was behind */
+    public long getOverruns()
+    {
+        return overruns;
+    }
+
+    /** Reset statistics */
+    public void reset()
+    {
+        lateness.reset();
+        jitter.reset();
+        scans = 0;
+        overruns = 0;
     }
 
     @Override
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.scanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.csstudio.archive.engine.Activator;
+import org.csstudio.util.stats.Average;
+
+/** Runs the scan lists of a {@link Scanner} on a pool of worker threads
+ *
+ *  <p>A timing wheel thread advances in ticks.
+ *  Scan lists are placed into the slot of the wheel for their due time.
+ *  When the wheel reaches that slot, due scan lists are handed
+ *  to the worker pool.
+ *  Once scanned, a scan list is placed back into the wheel
+ *  for its next due time.
+ *  A slow scan list thus delays only itself,
+ *  and each scan list runs on at most one worker at a time.
+ *
+ *  <p>Scan lists must be configured before the scheduler is started.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ScanScheduler implements Runnable
+{
+    /** Duration of a tick of the wheel in millis */
+    final private static long TICK_MILLIS = 10;
+
+    /** Number of slots in the wheel */
+    final private static int SLOTS = 512;
+
+    /** Millis between updates of the idle percentage */
+    final private static long IDLE_UPDATE_MILLIS = 1000;
+
+    /** Scan list in the wheel */
+    private static class Entry
+    {
+        final ScanList list;
+
+        /** Remaining revolutions of the wheel before the list is due */
+        long rounds;
+
+        Entry(final ScanList list)
+        {
+            this.list = list;
+        }
+    }
+
+    final private Scanner scanner;
+
+    final private int workers;
+
+    /** Slots of the wheel, only accessed by the wheel thread */
+    final private List<Entry>[] wheel = createSlots(SLOTS);
+
+    /** Scan lists that were scanned, to be placed back into the wheel */
+    final private Queue<Entry> rescheduled = new ConcurrentLinkedQueue<>();
+
+    /** Number of scan lists currently scanned by workers */
+    final private AtomicInteger active = new AtomicInteger();
+
+    /** Nanoseconds spent scanning since last idle update */
+    final private AtomicLong busy_nanos = new AtomicLong();
+
+    /** Average idle time of the workers in percent. */
+    final private Average idle_percentage = new Average();
+
+    /** Wheel thread */
+    private Thread thread;
+
+    /** Worker pool */
+    private ExecutorService pool;
+
+    /** Flag, set <code>false</code> to cause thread to exit */
+    private volatile boolean do_run;
+
+    /** Time of tick 0 in system millis */
+    private long wheel_start;
+
+    /** Current tick */
+    private long tick;
+
+    /** @param scanner Scanner with the scan lists to run
+     *  @param workers Number of worker threads
+     */
+    public ScanScheduler(final Scanner scanner, final int workers)
+    {
+        this.scanner = scanner;
+        this.workers = Math.max(1, workers);
+        for (int i=0; i<SLOTS; ++i)
+            wheel[i] = new ArrayList<>();
+    }
+
+    /** @param size Number of slots
+     *  @return Array for the slots of the wheel
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T>[] createSlots(final int size)
+    {
+        return (List<T>[]) new List<?>[size];
+    }
+
+    /** Start the scheduler */
+    public void start()
+    {
+        init();
+        do_run = true;
+        thread = new Thread(this, "ScanScheduler");
+        thread.start();
+    }
+
+    /** Prepare the worker pool and place all scan lists into the wheel
+     *  without starting the wheel thread.
+     *  Called by <code>start()</code>, or by tests that then {@link #advance()} the wheel.
+     */
+    void init()
+    {
+        final AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, runnable ->
+            new Thread(runnable, "ScanWorker " + count.incrementAndGet()));
+        for (List<Entry> slot : wheel)
+            slot.clear();
+        rescheduled.clear();
+        wheel_start = System.currentTimeMillis();
+        tick = 0;
+        for (int i=0; i<scanner.size(); ++i)
+        {
+            final ScanList list = scanner.get(i);
+            list.schedule(wheel_start);
+            insert(new Entry(list));
+        }
+    }
+
+    /** Stop the scheduler
+     *  @see #join()
+     */
+    public void stop()
+    {
+        do_run = false;
+    }
+
+    /** Wait for scheduler and the scans in progress to finish */
+    public void join()
+    {
+        if (do_run)
+            throw new Error("ScanScheduler still running");
+        try
+        {
+            if (thread != null)
+                thread.join();
+            pool.shutdown();
+            if (! pool.awaitTermination(30, TimeUnit.SECONDS))
+                Activator.getLogger().log(Level.WARNING, "Scans did not complete");
+        }
+        catch (InterruptedException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Scan Scheduler join attempt", ex);
+        }
+    }
+
+    /** Place scan list into the wheel for its next due time.
+     *  Only called by the wheel thread, or before it starts,
+     *  after the slot of the current tick has been processed.
+     */
+    private void insert(final Entry entry)
+    {
+        final long wheel_time = wheel_start + tick * TICK_MILLIS;
+        final long delay = Math.max(1, (entry.list.getNextDueTime() - wheel_time + TICK_MILLIS - 1) / TICK_MILLIS);
+        entry.rounds = (delay - 1) / SLOTS;
+        wheel[(int) ((tick + delay) % SLOTS)].add(entry);
+    }
+
+    @Override
+    public void run()
+    {
+        Activator.getLogger().info("Scan Scheduler runs");
+        long last_idle_update = System.nanoTime();
+        while (do_run)
+        {
+            // Wait for next tick, relative to start to avoid drift
+            final long delay = wheel_start + (tick + 1) * TICK_MILLIS - System.currentTimeMillis();
+            if (delay > 0)
+            {
+                try
+                {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Scan Scheduler interrupted", ex);
+                    break;
+                }
+            }
+            advance();
+
+            // Update idle percentage
+            final long now = System.nanoTime();
+            if (now - last_idle_update >= IDLE_UPDATE_MILLIS * 1000000L)
+            {
+                final double busy = busy_nanos.getAndSet(0) / (double) (workers * (now - last_idle_update));
+                idle_percentage.update(Math.max(0.0, 100.0 * (1.0 - busy)));
+                last_idle_update = now;
+            }
+        }
+        Activator.getLogger().info("Scan Scheduler ends");
+    }
+
+    /** Advance the wheel by one tick
+     *  <p>
+     *  Submits the scan lists that are due in the new slot,
+     *  then places scanned lists back into the wheel.
+     *  A list that is due a multiple of {@link #SLOTS} ticks from now
+     *  belongs into the current slot, so that slot
+     *  must already be processed when the list is inserted.
+     */
+    void advance()
+    {
+        ++tick;
+
+        // Submit due lists
+        final List<Entry> slot = wheel[(int) (tick % SLOTS)];
+        for (int i=slot.size()-1; i>=0; --i)
+        {
+            final Entry entry = slot.get(i);
+            if (entry.rounds > 0)
+                --entry.rounds;
+            else
+            {
+                slot.remove(i);
+                submit(entry);
+            }
+        }
+
+        // Place scanned lists back into the wheel
+        Entry entry;
+        while ((entry = rescheduled.poll()) != null)
+            insert(entry);
+    }
+
+    /** Scan list on worker thread, then reschedule */
+    private void submit(final Entry entry)
+    {
+        pool.execute(() ->
+        {
+            active.incrementAndGet();
+            final long start = System.nanoTime();
+            try
+            {
+                entry.list.scanItems();
+            }
+            finally
+            {
+                busy_nanos.addAndGet(System.nanoTime() - start);
+                active.decrementAndGet();
+                rescheduled.add(entry);
+            }
+        });
+    }
+
+    /** @return Number of scan lists currently scanned */
+    public int getActiveCount()
+    {
+        return active.get();
+    }
+
+    /** Average idle time of the worker threads in percent.
+     *  <p>
+     *  100 means: Nothing to do, always waiting.<br>
+     *   50 means: workers busy about half the time<br>
+     *    0 means: Busy all the time, probably missing scans<br>
+     */
+    public double getIdlePercentage()
+    {
+        return idle_percentage.get();
+    }
+
+    /** Reset statistics */
+    public void reset()
+    {
+        idle_percentage.reset();
+        scanner.reset();
+    }
+}
@@ -8,15 +8,11 @@
 package org.csstudio.archive.engine.scanner;
 
 import java.util.ArrayList;
-import java.util.logging.Level;
-
-import org.csstudio.archive.engine.Activator;
-import org.csstudio.util.stats.Average;
 
 /** Helper for scanning something.
  *  <p>
  *  Places runnable items on scan lists,
- *  determines how long to wait to the scan next.
+ *  which are then run by the {@link ScanScheduler}.
  *  @author Kay Kasemir
  */
 public class Scanner implements Scheduleable
@@ -24,12 +20,6 @@ public class Scanner implements Scheduleable
     /** Granularity in seconds for the supported lists. */
     final private static double GRANULARITY = 0.1;
 
-    /** Default idle delay */
-    final private static long DEFAULT_IDLE_DELAY = 500;
-
-    /** Time to wait in system millis when nothing to do */
-    final private long idle_delay;
-
     /** All the single-period scan lists.
      *  <p>
      *  Note that we don't keep empty lists around,
@@ -40,23 +30,6 @@ public class Scanner implements Scheduleable
     /** Next due time in system millis */
     private long next_due_time;
 
-    /** Average idle time in percent. */
-    final private Average idle_percentage = new Average();
-
-    /** Construct scanner
-     *  @param idle_delay Time to wait in system millis when nothing to do
-     */
-    public Scanner(final long idle_delay)
-    {
-        this.idle_delay = idle_delay;
-    }
-
-    /** Construct scanner with default idle delay */
-    public Scanner()
-    {
-        this(DEFAULT_IDLE_DELAY);
-    }
-
     /** Add an item to the scanner, placing it on a suitable scan list.
      *  @param item Item to scan
      *  @param period Scan period in seconds
@@ -159,56 +132,10 @@ public class Scanner implements Scheduleable
             next_due_time = Math.min(list.getNextDueTime(), next_due_time);
     }
 
-    /** Average idle time in percent.
-     *  <p>
-     *  100 means: Nothing to do, always waiting.<br>
-     *   50 means: using about half the allocated time for the scan<br>
-     *    0 means: Busy all the time, actually missing scans<br>
-     */
-    public double getIdlePercentage()
-    {
-        return idle_percentage.get();
-    }
-
     /** Reset statistics */
     public void reset()
     {
-        idle_percentage.reset();
-    }
-
-    /** Perform one scan: Wait for the next scan, perform it. */
-    public void scanOnce()
-    {
-        try
-        {
-            if (isDueAtAll())
-            {
-                final long delay = getNextDueTime() - System.currentTimeMillis();
-                if (delay > idle_delay)
-                {   // Nothing due within idle time
-                    idle_percentage.update(100.0);
-                    Thread.sleep(idle_delay);
-                    return;
-                }
-                if (delay > 0)
-                {   // Need to wait a little, then run scan
-                    idle_percentage.update(delay*100.0/idle_delay);
-                    Thread.sleep(delay);
-                    scanDueScanLists();
-                    return;
-                }
-                // High noon
-                idle_percentage.update(0.0);
-                scanDueScanLists();
-                return;
-            }
-            // Nothing to do, ever. Just wait.
-            idle_percentage.update(100.0);
-            Thread.sleep(idle_delay);
-        }
-        catch (InterruptedException ex)
-        {
-            Activator.getLogger().log(Level.WARNING, "Scanner interrupted", ex); //$NON-NLS-1$
-        }
+        for (ScanList list : lists)
+            list.reset();
     }
 }
@@ -13,10 +13,13 @@ import java.time.Instant;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.csstudio.apputil.time.PeriodFormat;
 import org.csstudio.archive.engine.Messages;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.SampleBuffer;
+import org.csstudio.archive.engine.model.WriteThread;
+import org.csstudio.archive.engine.scanner.ScanList;
 import org.csstudio.archive.engine.server.AbstractMainResponse;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.diirt.util.time.TimeDuration;
@@ -124,11 +127,65 @@ public class HTMLMainResponse extends AbstractMainResponse
             Messages.HTTP_WriteDuration,
             String.format("%.1f sec", model.getWriteDuration())
         });
+        final int shards = model.getWriteShardCount();
+        if (shards > 1)
+        {
+            for (int i=0; i<shards; ++i)
+            {
+                final WriteThread shard = model.getWriteShard(i);
+                html.tableLine(new String[]
+                {
+                    shard.getName(),
+                    String.format("%d channels, %d samples, %.1f sec",
+                                  shard.getBufferCount(),
+                                  (int)shard.getWriteCount(),
+                                  shard.getWriteDuration())
+                });
+            }
+        }
+        if (model.isSpillEnabled())
+        {
+            final long dropped = model.getSpillDroppedCount();
+            html.tableLine(new String[]
+            {
+                Messages.HTTP_SpillSize,
+                String.format("%d samples, %.1f MB", model.getSpillSampleCount(), model.getSpillByteCount() / MB)
+                + (dropped > 0 ? HTMLWriter.makeRedText(", " + dropped + " dropped") : "")
+            });
+            html.tableLine(new String[]
+            {
+                Messages.HTTP_SpillReplayRate,
+                String.format("%.1f samples/sec", model.getSpillReplayRate())
+            });
+            final Instant oldest = model.getSpillOldestTime();
+            html.tableLine(new String[]
+            {
+                Messages.HTTP_SpillAge,
+                oldest == null
+                ? "-"
+                : PeriodFormat.formatSeconds(TimeDuration.toSecondsDouble(Duration.between(oldest, Instant.now())))
+            });
+        }
         html.tableLine(new String[]
         {
             Messages.HTTP_Idletime,
             String.format("%.1f %%", model.getIdlePercentage())
         });
+        for (int i=0; i<model.getScanListCount(); ++i)
+        {
+            final ScanList list = model.getScanList(i);
+            final long overruns = list.getOverruns();
+            html.tableLine(new String[]
+            {
+                Messages.HTTP_ScanList + " " + list.getPeriod() + " sec",
+                String.format("%d channels, %d scans", list.size(), list.getScanCount())
+                + (overruns > 0 ? HTMLWriter.makeRedText(", " + overruns + " " + Messages.HTTP_QueueOverruns) : "")
+                + "<br>" + Messages.HTTP_Lateness + ": " + StringEscapeUtils.escapeHtml4(list.getLateness().toString())
+                + " (max. " + list.getLateness().getMax() + " ms)"
+                + "<br>" + Messages.HTTP_Jitter + ": " + StringEscapeUtils.escapeHtml4(list.getJitter().toString())
+                + " (max. " + list.getJitter().getMax() + " ms)"
+            });
+        }
 
         final Runtime runtime = Runtime.getRuntime();
         final double used_mem = runtime.totalMemory() / MB;
@@ -17,6 +17,8 @@ import org.csstudio.apputil.time.PeriodFormat;
 import org.csstudio.archive.engine.Messages;
 import org.csstudio.archive.engine.model.EngineModel;
 import org.csstudio.archive.engine.model.SampleBuffer;
+import org.csstudio.archive.engine.model.WriteThread;
+import org.csstudio.archive.engine.scanner.ScanList;
 import org.csstudio.archive.engine.server.AbstractMainResponse;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.diirt.util.time.TimeDuration;
@@ -76,8 +78,47 @@ public class JSONMainResponse extends AbstractMainResponse
         json.writeObjectEntry(Messages.HTTP_WriteCount, model.getWriteCount());
         json.writeObjectEntry(Messages.HTTP_WriteDuration, model.getWriteDuration());
 
+
+        final JSONList shards = new JSONList();
+        for (int i=0; i<model.getWriteShardCount(); ++i)
+        {
+            final WriteThread shard = model.getWriteShard(i);
+            final JSONObject JSONshard = new JSONObject();
+            JSONshard.writeObjectEntry(Messages.HTTP_WriteShard, shard.getName());
+            JSONshard.writeObjectEntry(Messages.HTTP_ChannelCount, shard.getBufferCount());
+            JSONshard.writeObjectEntry(Messages.HTTP_WriteCount, shard.getWriteCount());
+            JSONshard.writeObjectEntry(Messages.HTTP_WriteDuration, shard.getWriteDuration());
+            shards.addObjectToList(JSONshard);
+        }
+        json.writeObjectEntry(Messages.HTTP_WriteShards, shards);
+
+        if (model.isSpillEnabled())
+        {
+            json.writeObjectEntry(Messages.HTTP_SpillSize, model.getSpillSampleCount());
+            json.writeObjectEntry(Messages.HTTP_SpillReplayRate, model.getSpillReplayRate());
+            final Instant oldest = model.getSpillOldestTime();
+            json.writeObjectEntry(Messages.HTTP_SpillAge, oldest == null
+                                  ? 0.0
+                                  : TimeDuration.toSecondsDouble(Duration.between(oldest, Instant.now())));
+        }
+
         json.writeObjectEntry(Messages.HTTP_Idletime, model.getIdlePercentage());
 
+        final JSONList scan_lists = new JSONList();
+        for (int i=0; i<model.getScanListCount(); ++i)
+        {
+            final ScanList list = model.getScanList(i);
+            final JSONObject JSONlist = new JSONObject();
+            JSONlist.writeObjectEntry(Messages.HTTP_ScanPeriod, list.getPeriod());
+            JSONlist.writeObjectEntry(Messages.HTTP_ChannelCount, list.size());
+            JSONlist.writeObjectEntry(Messages.HTTP_ScanCount, list.getScanCount());
+            JSONlist.writeObjectEntry(Messages.HTTP_QueueOverruns, list.getOverruns());
+            JSONlist.writeObjectEntry(Messages.HTTP_Lateness, list.getLateness().toString());
+            JSONlist.writeObjectEntry(Messages.HTTP_Jitter, list.getJitter().toString());
+            scan_lists.addObjectToList(JSONlist);
+        }
+        json.writeObjectEntry(Messages.HTTP_ScanLists, scan_lists);
+
         final Runtime runtime = Runtime.getRuntime();
         final double used_mem = runtime.totalMemory() / MB;
         final double max_mem = runtime.maxMemory() / MB;
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.util.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Histogram of durations in milliseconds
+ *
+ *  <p>Counts durations in buckets of increasing size,
+ *  1, 2, 5, 10, 20, 50, ... ms.
+ *  Safe to update and read from different threads.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class Histogram
+{
+    /** Upper limits of the buckets, last bucket holds everything above */
+    private static final long[] LIMITS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(LIMITS.length + 1);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /** @param millis Duration to add to histogram */
+    public void update(final long millis)
+    {
+        int i = 0;
+        while (i < LIMITS.length  &&  millis > LIMITS[i])
+            ++i;
+        counts.incrementAndGet(i);
+        max.accumulateAndGet(millis, Math::max);
+    }
+
+    /** Reset to 0 */
+    public void reset()
+    {
+        for (int i=0; i<counts.length(); ++i)
+            counts.set(i, 0);
+        max.set(0);
+    }
+
+    /** @return Number of buckets */
+    public int getBucketCount()
+    {
+        return counts.length();
+    }
+
+    /** @param bucket Bucket index
+     *  @return Number of durations in bucket
+     */
+    public long getCount(final int bucket)
+    {
+        return counts.get(bucket);
+    }
+
+    /** @param bucket Bucket index
+     *  @return Label of bucket, "&lt;=10ms" or "&gt;5000ms"
+     */
+    public String getLabel(final int bucket)
+    {
+        if (bucket < LIMITS.length)
+            return "<=" + LIMITS[bucket] + "ms";
+        return ">" + LIMITS[LIMITS.length-1] + "ms";
+    }
+
+    /** @return Number of durations in all buckets */
+    public long getTotal()
+    {
+        long total = 0;
+        for (int i=0; i<counts.length(); ++i)
+            total += counts.get(i);
+        return total;
+    }
+
+    /** @return Longest duration */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /** @return Non-empty buckets, "&lt;=1ms: 42, &lt;=2ms: 3" */
+    @Override
+    public String toString()
+    {
+        final StringBuilder buf = new StringBuilder();
+        for (int i=0; i<counts.length(); ++i)
+        {
+            final long count = counts.get(i);
+            if (count <= 0)
+                continue;
+            if (buf.length() > 0)
+                buf.append(", ");
+            buf.append(getLabel(i)).append(": ").append(count);
+        }
+        if (buf.length() <= 0)
+            return "-";
+        return buf.toString();
+    }
+}
@@ -233,19 +233,44 @@ public class InfluxDBQueries
         return where_clauses;
     }
 
-    private static String getGroupByTimeClause(final Instant starttime, final Instant endtime, final long count)
+    /** @param starttime Start time
+     *  @param endtime End time
+     *  @param count Desired number of bins
+     *  @return Duration of bins, rounded up to whole microseconds, so that there are at most <code>count</code> bins
+     */
+    public static Duration getBinInterval(final Instant starttime, final Instant endtime, final long count)
+    {
+        final long micros = InfluxDBUtil.toMicro(Duration.between(starttime, endtime)).longValue();
+        return Duration.ofNanos(Math.max(1, (micros + count - 1) / count) * 1000);
+    }
+
+    /** Get clause for grouping by time bins
+     *
+     *  <p>InfluxDB aligns bins to multiples of the interval since epoch.
+     *  The clause includes an offset so that bins are aligned to <code>origin</code>.
+     *
+     *  @param origin Start of a bin
+     *  @param interval Duration of a bin
+     *  @return "time(interval, offset) fill(none)"
+     */
+    public static String getGroupByTimeClause(final Instant origin, final Duration interval)
     {
-        //TODO: rounding/truncation problem?
+        final long interval_us = InfluxDBUtil.toMicro(interval).longValue();
+        final long origin_us = origin.getEpochSecond() * 1000000L + origin.getNano() / 1000;
         StringBuilder ret = new StringBuilder();
-        ret.append("time(");
-        ret.append(InfluxDBUtil.toMicro(
-                Duration.between(starttime, endtime).dividedBy(count)).toString());
+        ret.append("time(").append(interval_us).append("u, ")
+           .append(Math.floorMod(origin_us, interval_us)).append('u');
         //Fill options: fill(none) is best, because empty time intervals (a.k.a. buckets) are automatically excluded.
         //There is no need to try to sample data with metadata, because metadata exists independently of sample data.
-        ret.append("u) fill(none)");
+        ret.append(") fill(none)");
         return ret.toString();
     }
 
+    private static String getGroupByTimeClause(final Instant starttime, final Instant endtime, final long count)
+    {
+        return getGroupByTimeClause(starttime, getBinInterval(starttime, endtime, count));
+    }
+
     public static String get_channel_points(final String select_what, final String from_what,
             final Instant starttime, final Instant endtime, String where_what, String group_by_what,
             final Long limit)
@@ -370,13 +395,32 @@ public class InfluxDBQueries
 
     public void chunk_get_channel_sample_stats(final int chunkSize, final String channel_name, final Instant starttime,
             final Instant endtime, Long limit, boolean stdDev, Consumer<QueryResult> consumer) throws Exception
+    {
+        chunk_get_channel_sample_stats(chunkSize, channel_name, starttime, endtime,
+                starttime, getBinInterval(starttime, endtime, limit), stdDev, consumer);
+    }
+
+    /** Get statistics for time bins
+     *  @param chunkSize Chunk size
+     *  @param channel_name Channel name
+     *  @param starttime Start of time range to query
+     *  @param endtime End of time range to query
+     *  @param bin_origin Start of a bin, which may be outside the time range
+     *  @param bin_interval Duration of a bin
+     *  @param stdDev Include standard deviation?
+     *  @param consumer Consumer for chunks of statistics
+     *  @throws Exception on error
+     */
+    public void chunk_get_channel_sample_stats(final int chunkSize, final String channel_name, final Instant starttime,
+            final Instant endtime, final Instant bin_origin, final Duration bin_interval,
+            boolean stdDev, Consumer<QueryResult> consumer) throws Exception
     {
         StringBuilder select_what = new StringBuilder("MEAN(*),MAX(*),MIN(*),COUNT(*)");
         if (stdDev)
             select_what.append(",STDDEV(*)");
         makeChunkQuery(chunkSize, consumer, influxdb,
                 get_channel_points(select_what.toString(), getFromClause(channel_name, true), starttime, endtime, "status != 'NaN'",
-                        getGroupByTimeClause(starttime, endtime, limit), null),
+                        getGroupByTimeClause(bin_origin, bin_interval), null),
                 dbnames.getDataDBName(channel_name));
     }
 
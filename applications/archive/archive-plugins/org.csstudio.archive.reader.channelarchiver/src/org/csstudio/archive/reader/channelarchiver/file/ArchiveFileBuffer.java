@@ -17,22 +17,59 @@ import java.time.Instant;
 /**
  * Implements ByteBuffer-like relative get methods for getting binary data
  * from a file. Created for use with ArchiveFileReader and associated classes.
- * @author Amanda Carpenter
  *
+ * <p>By default, the file is read into a heap buffer.
+ * In 'mapped' mode, the buffer reads directly from a memory-mapped file,
+ * avoiding the copy into the heap buffer and the re-reads when
+ * changing the offset.
+ *
+ * @author Amanda Carpenter
+ * @author Kay Kasemir - Memory-mapped mode
  */
 public class ArchiveFileBuffer implements AutoCloseable
 {
+    /** Empty buffer used in mapped mode until a file is set */
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /** Use memory-mapped file? */
+    private final boolean mapped;
+
     // XXX: what size? Bigger means less fetching, but too big means memory runs out;
-    private final ByteBuffer buffer = ByteBuffer.allocate(65536);
+    /** Heap buffer, or region of mapped file */
+    private ByteBuffer buffer;
     private FileChannel fileChannel;
     private File file = null;
 
+    /** Mapped file, only used in mapped mode */
+    private MappedArchiveFile mappedFile = null;
+
+    /** File offset of mapped region in <code>buffer</code>, only used in mapped mode */
+    private long bufferStart = 0;
+
     public ArchiveFileBuffer()
     {
+        this(false);
+    }
+
+    /** @param mapped Use memory-mapped file? */
+    public ArchiveFileBuffer(final boolean mapped)
+    {
+        this.mapped = mapped;
+        buffer = mapped ? EMPTY : ByteBuffer.allocate(65536);
     }
 
     public ArchiveFileBuffer(final File file) throws IOException
     {
+        this(file, false);
+    }
+
+    /** @param file File to read
+     *  @param mapped Use memory-mapped file?
+     *  @throws IOException on error
+     */
+    public ArchiveFileBuffer(final File file, final boolean mapped) throws IOException
+    {
+        this(mapped);
         setFile(file);
     }
 
@@ -42,6 +79,17 @@ public class ArchiveFileBuffer implements AutoCloseable
      */
     public void setFile(final File file) throws IOException
     {
+        if (mapped)
+        {   // Re-map when the file grew, for example because an archive engine added data
+            if (! file.equals(this.file)  ||  mappedFile == null  ||  mappedFile.size() != file.length())
+            {
+                this.file = file;
+                mappedFile = MappedArchiveFile.get(file);
+                buffer = EMPTY;
+            }
+            selectRegion(0);
+            return;
+        }
         if (! file.equals(this.file))
         {
             this.file = file;
@@ -56,10 +104,32 @@ public class ArchiveFileBuffer implements AutoCloseable
         return file;
     }
 
+    /** Set mapped region and position for a file offset
+     *  @param offset File offset
+     */
+    private void selectRegion(final long offset)
+    {
+        final int index = mappedFile.getRegionIndex(offset);
+        final long start = mappedFile.getRegionStart(index);
+        if (buffer == EMPTY  ||  start != bufferStart)
+        {
+            buffer = mappedFile.getRegion(index);
+            bufferStart = start;
+        }
+        buffer.position((int) (offset - start));
+    }
+
     public void prepareGet(int numBytes) throws IOException
     {
         if (buffer.remaining() < numBytes)
         {
+            if (mapped)
+            {
+                selectRegion(offset());
+                if (buffer.remaining() < numBytes)
+                    throw new IOException("Cannot read " + numBytes + " bytes at end of " + file);
+                return;
+            }
             buffer.compact();
             fileChannel.read(buffer);
             buffer.limit(buffer.position()); //use limit to mark extent of read
@@ -69,6 +139,21 @@ public class ArchiveFileBuffer implements AutoCloseable
 
     public void get(byte dst []) throws IOException
     {
+        if (mapped  &&  dst.length > buffer.remaining())
+        {   // Copy across mapped regions
+            int pos = 0;
+            while (pos < dst.length)
+            {
+                if (! buffer.hasRemaining())
+                    selectRegion(offset());
+                final int len = Math.min(dst.length - pos, buffer.remaining());
+                if (len <= 0)
+                    throw new IOException("Cannot read " + dst.length + " bytes at end of " + file);
+                buffer.get(dst, pos, len);
+                pos += len;
+            }
+            return;
+        }
         prepareGet(dst.length);
         buffer.get(dst);
     }
@@ -99,7 +184,9 @@ public class ArchiveFileBuffer implements AutoCloseable
 
     public byte get() throws IOException
     {
-        if (!buffer.hasRemaining())
+        if (mapped)
+            prepareGet(1);
+        else if (!buffer.hasRemaining())
         {
             buffer.clear();
             buffer.limit(fileChannel.read(buffer));
@@ -116,6 +203,14 @@ public class ArchiveFileBuffer implements AutoCloseable
 
     public void skip(int numBytes) throws IOException
     {
+        if (mapped)
+        {
+            final long offset = offset() + numBytes;
+            if (offset < 0  ||  offset > mappedFile.size())
+                throw new IOException("Cannot skip " + numBytes + " bytes beyond end of " + file);
+            selectRegion(offset);
+            return;
+        }
         int numAlready = buffer.remaining();
         while (numBytes > numAlready)
         {
@@ -130,6 +225,12 @@ public class ArchiveFileBuffer implements AutoCloseable
 
     public void offset(long offset) throws IOException
     {
+        if (mapped)
+        {
+            if (offset >= 0  &&  offset <= mappedFile.size())
+                selectRegion(offset);
+            return;
+        }
          if (offset < 0 || offset > fileChannel.size())
         {
             //throw new RuntimeException("Offset is invalid.") ?
@@ -160,6 +261,8 @@ public class ArchiveFileBuffer implements AutoCloseable
 
     long offset() throws IOException
     {
+        if (mapped)
+            return bufferStart + buffer.position();
         return fileChannel.position() - buffer.limit() + buffer.position();
     }
 
@@ -171,6 +274,13 @@ public class ArchiveFileBuffer implements AutoCloseable
     @Override
     public void close() throws IOException
     {
+        if (mapped)
+        {   // Mapping is released by GC when no longer used
+            mappedFile = null;
+            buffer = EMPTY;
+            bufferStart = 0;
+            return;
+        }
         if (fileChannel != null)
         {
             fileChannel.close();
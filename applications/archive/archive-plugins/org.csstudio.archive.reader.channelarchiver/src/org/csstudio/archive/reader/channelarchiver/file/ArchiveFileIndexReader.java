@@ -16,7 +16,9 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 import org.csstudio.archive.reader.UnknownChannelException;
@@ -25,14 +27,41 @@ import org.csstudio.archive.reader.channelarchiver.file.RTreeNode.RTreeNodeWithI
 /**
  * Helper class for reading ChannelArchiver index files (both master index files
  * and sub-archive index files).
+ *
+ * <p>RTree nodes and data block lists are cached once read.
+ * Cached nodes are immutable, so the index can be searched
+ * by concurrent readers, only reading from the file is serialized.
+ * {@link #open(File, boolean)} provides an index reader that is shared
+ * by all readers of the same index file.
+ *
  * @author Amanda Carpenter
+ * @author Kay Kasemir - Node cache, shared readers
  */
 public class ArchiveFileIndexReader implements AutoCloseable
 {
+    /** Maximum number of cached RTree nodes and data block lists */
+    private static final int CACHE_SIZE = 10000;
+
+    /** Shared index readers by canonical index file */
+    private static final Map<File, ArchiveFileIndexReader> shared = new HashMap<>();
+
+    /** Key in <code>shared</code>, <code>null</code> if not shared */
+    private File sharedKey = null;
+
+    /** Number of users of a shared reader, guarded by <code>shared</code> */
+    private int references = 0;
+
+    /** Buffer for reading the index file. Lock for all reads */
     private final ArchiveFileBuffer buffer;
     private final File indexParent;
     private final HashMap<String, TreeAnchor> anchors;
 
+    /** Cache of RTree nodes by offset, guarded by <code>buffer</code> */
+    private final Map<Long, RTreeNode> nodes = createCache();
+
+    /** Cache of data block lists by offset, guarded by <code>buffer</code> */
+    private final Map<Long, List<DataFileEntry>> datablocks = createCache();
+
     /** Anchor of an RTree
      *
      */
@@ -57,14 +86,99 @@ public class ArchiveFileIndexReader implements AutoCloseable
         }
     }
 
+    /** @return Map that keeps the most recently accessed {@link #CACHE_SIZE} entries */
+    private static <T> Map<Long, T> createCache()
+    {
+        return new LinkedHashMap<Long, T>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, T> eldest)
+            {
+                return size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /** Obtain shared index reader
+     *
+     *  <p>Must be released via {@link #release()}
+     *
+     *  @param indexFile Index file
+     *  @param mapped Use memory-mapped file when creating a new reader?
+     *  @return {@link ArchiveFileIndexReader} shared by all users of the index file
+     *  @throws IOException on error
+     */
+    public static ArchiveFileIndexReader open(final File indexFile, final boolean mapped) throws IOException
+    {
+        final File key = indexFile.getCanonicalFile();
+        synchronized (shared)
+        {
+            ArchiveFileIndexReader reader = shared.get(key);
+            if (reader == null)
+            {
+                reader = new ArchiveFileIndexReader(indexFile, mapped);
+                reader.sharedKey = key;
+                shared.put(key, reader);
+            }
+            ++reader.references;
+            return reader;
+        }
+    }
+
+    /** Release a reader obtained via {@link #open(File, boolean)}
+     *
+     *  <p>Closes the reader when it is no longer used
+     *  @throws IOException on error
+     */
+    public void release() throws IOException
+    {
+        synchronized (shared)
+        {
+            if (--references > 0)
+                return;
+            shared.remove(sharedKey);
+        }
+        close();
+    }
+
     public ArchiveFileIndexReader(final File indexFile) throws IOException
     {
-        buffer = new ArchiveFileBuffer(indexFile);
+        this(indexFile, false);
+    }
+
+    /** @param indexFile Index file
+     *  @param mapped Use memory-mapped file?
+     *  @throws IOException on error
+     */
+    public ArchiveFileIndexReader(final File indexFile, final boolean mapped) throws IOException
+    {
+        buffer = new ArchiveFileBuffer(indexFile, mapped);
         indexParent = indexFile.getParentFile();
         anchors = getAnchors();
         logger.fine(() -> "Opened " + indexFile + ", " + anchors.size() + " channels");
     }
 
+    /** @param offset Offset of RTree node
+     *  @param M Number of records per node
+     *  @return Cached or newly read {@link RTreeNode}
+     *  @throws Exception on error
+     */
+    private RTreeNode getNode(final long offset, final int M) throws Exception
+    {
+        synchronized (buffer)
+        {
+            RTreeNode node = nodes.get(offset);
+            if (node == null)
+            {
+                node = new RTreeNode(buffer, offset, M);
+                nodes.put(offset, node);
+            }
+            return node;
+        }
+    }
+
     private Queue<Long> readHashTable() throws IOException
     {
         buffer.offset(4);
@@ -160,11 +274,11 @@ public class ArchiveFileIndexReader implements AutoCloseable
                 {
                     if (node.parent == 0)
                         return entries;
-                    final RTreeNode parent = new RTreeNode(buffer, node.parent, node.getM());
+                    final RTreeNode parent = getNode(node.parent, node.getM());
                     index = parent.findRecordForChild(node.offset) + 1;
                     if (index < node.getM()  &&   ! parent.records[index].isEmpty())
                     {   // From the _next_ parent record, descent into first child
-                        node = new RTreeNode(buffer, parent.records[index].child, node.getM());
+                        node = getNode(parent.records[index].child, node.getM());
                         index = 0;
                         break;
                     }
@@ -173,7 +287,7 @@ public class ArchiveFileIndexReader implements AutoCloseable
                 }
                 // Keep descending via leftmost child to leaf
                 while (! node.isLeaf)
-                    node = new RTreeNode(buffer, node.records[index].child, node.getM());
+                    node = getNode(node.records[index].child, node.getM());
             }
         }
 
@@ -194,7 +308,7 @@ public class ArchiveFileIndexReader implements AutoCloseable
      */
     public RTreeNodeWithIndex searchRTreeNodes(final long root, final int numRecords, final Instant time) throws Exception
     {
-        RTreeNode node = new RTreeNode(buffer, root, numRecords);
+        RTreeNode node = getNode(root, numRecords);
         while (true)
         {
             // System.out.println(node);
@@ -214,7 +328,7 @@ public class ArchiveFileIndexReader implements AutoCloseable
                 i = 0;
             if (node.isLeaf)
                 return new RTreeNodeWithIndex(node, i);
-            node = new RTreeNode(buffer, child, numRecords);
+            node = getNode(child, numRecords);
         }
     }
 
@@ -228,7 +342,21 @@ public class ArchiveFileIndexReader implements AutoCloseable
      *             all datablocks associated with the RTree record which contains the given offset
      * @throws IOException
      */
-    private List<DataFileEntry> readDatablocks(long offset) throws IOException
+    private List<DataFileEntry> readDatablocks(final long offset) throws IOException
+    {
+        synchronized (buffer)
+        {
+            List<DataFileEntry> ret = datablocks.get(offset);
+            if (ret == null)
+            {
+                ret = Collections.unmodifiableList(readDatablockChain(offset));
+                datablocks.put(offset, ret);
+            }
+            return ret;
+        }
+    }
+
+    private List<DataFileEntry> readDatablockChain(long offset) throws IOException
     {
         //Datablocks (RTree entries) are stored as follows:
         // long next_ID - offset of next datablock
@@ -253,7 +381,12 @@ public class ArchiveFileIndexReader implements AutoCloseable
     @Override
     public void close() throws IOException
     {
-        buffer.close();
+        synchronized (buffer)
+        {
+            nodes.clear();
+            datablocks.clear();
+            buffer.close();
+        }
     }
 
     public java.util.Set<String> getChannelNames()
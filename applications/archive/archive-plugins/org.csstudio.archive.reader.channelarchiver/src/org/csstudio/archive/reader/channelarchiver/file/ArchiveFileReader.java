@@ -30,16 +30,31 @@ public class ArchiveFileReader implements ArchiveReader
     public static final Logger logger = Logger.getLogger(ArchiveFileReader.class.getName());
 
     private final String index_name;
+    private final boolean mapped;
     private final ArchiveFileIndexReader indexReader;
 
-    /** Construct an ArchiveFileReader.
+    /** Construct an ArchiveFileReader that uses memory-mapped files.
      *  @param index Path to  Channel Archiver index file
      *  @throws IOException
      */
     public ArchiveFileReader(final String index) throws IOException
+    {
+        this(index, true);
+    }
+
+    /** Construct an ArchiveFileReader.
+     *
+     *  <p>The index is shared with other readers for the same index file.
+     *
+     *  @param index Path to  Channel Archiver index file
+     *  @param mapped Use memory-mapped files, or read into heap buffers?
+     *  @throws IOException
+     */
+    public ArchiveFileReader(final String index, final boolean mapped) throws IOException
     {
         index_name = index;
-        indexReader = new ArchiveFileIndexReader(new File(index));
+        this.mapped = mapped;
+        indexReader = ArchiveFileIndexReader.open(new File(index), mapped);
     }
 
     @Override
@@ -94,7 +109,7 @@ public class ArchiveFileReader implements ArchiveReader
             throws UnknownChannelException, Exception
     {
         final List<DataFileEntry> entries = indexReader.getEntries(name, start, end);
-        return new ArchiveFileSampleReader(start, end, entries);
+        return new ArchiveFileSampleReader(start, end, entries, mapped);
     }
 
     @Override
@@ -116,7 +131,7 @@ public class ArchiveFileReader implements ArchiveReader
     {
         try
         {
-            indexReader.close();
+            indexReader.release();
         }
         catch (Exception ex)
         {
@@ -44,7 +44,7 @@ public class ArchiveFileSampleReader implements ValueIterator
      */
     private final Queue<DataFileEntry> entries;
 
-    private final ArchiveFileBuffer buffer = new ArchiveFileBuffer();
+    private final ArchiveFileBuffer buffer;
 
     private DataHeader header;
 
@@ -57,6 +57,19 @@ public class ArchiveFileSampleReader implements ValueIterator
     public ArchiveFileSampleReader(final Instant iteratorStart, final Instant iteratorStop,
                                    final List<DataFileEntry> entries) throws Exception
     {
+        this(iteratorStart, iteratorStop, entries, false);
+    }
+
+    /** @param iteratorStart Start time
+     *  @param iteratorStop End time
+     *  @param entries Data blocks to read
+     *  @param mapped Use memory-mapped data files?
+     *  @throws Exception on error
+     */
+    public ArchiveFileSampleReader(final Instant iteratorStart, final Instant iteratorStop,
+                                   final List<DataFileEntry> entries, final boolean mapped) throws Exception
+    {
+        buffer = new ArchiveFileBuffer(mapped);
         this.iteratorStop = iteratorStop;
 
         this.entries = new ArrayDeque<>(entries);
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.channelarchiver.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Memory-mapped Channel Archiver index or data file
+ *
+ *  <p>Files are mapped in regions of up to 1GB,
+ *  since a {@link MappedByteBuffer} is limited to 2GB.
+ *  Regions overlap by 64k, so that
+ *  reads of up to that size can always be served from one region.
+ *
+ *  <p>The mapping of a file is shared by all {@link ArchiveFileBuffer}s
+ *  that read the file.
+ *  It is released by the garbage collector once no buffer uses it.
+ *
+ *  @author Kay Kasemir
+ */
+class MappedArchiveFile
+{
+    /** Maximum size of a mapped region */
+    static long region_size = 1L << 30;
+
+    /** Overlap of mapped regions */
+    static long overlap = 1L << 16;
+
+    /** Mapped files by canonical file name */
+    private static final Map<File, WeakReference<MappedArchiveFile>> files = new HashMap<>();
+
+    /** Size of the file at the time it was mapped */
+    private final long size;
+
+    /** Offset between start of mapped regions */
+    private final long step;
+
+    /** Mapped regions */
+    private final MappedByteBuffer[] regions;
+
+    /** Change the size of mapped regions, meant for tests
+     *  @param size Maximum size of a mapped region
+     *  @param overlap Overlap of mapped regions
+     */
+    static void setRegionSize(final long size, final long overlap)
+    {
+        synchronized (files)
+        {
+            MappedArchiveFile.region_size = size;
+            MappedArchiveFile.overlap = overlap;
+            files.clear();
+        }
+    }
+
+    /** @param file File to map
+     *  @return {@link MappedArchiveFile}
+     *  @throws IOException on error
+     */
+    static MappedArchiveFile get(final File file) throws IOException
+    {
+        final File key = file.getCanonicalFile();
+        synchronized (files)
+        {
+            final WeakReference<MappedArchiveFile> ref = files.get(key);
+            MappedArchiveFile mapped = ref == null ? null : ref.get();
+            // Re-map when the file changed, for example because an archive engine added data
+            if (mapped == null  ||  mapped.size != key.length())
+            {
+                files.values().removeIf(r -> r.get() == null);
+                mapped = new MappedArchiveFile(key);
+                files.put(key, new WeakReference<>(mapped));
+            }
+            return mapped;
+        }
+    }
+
+    private MappedArchiveFile(final File file) throws IOException
+    {
+        try
+        (
+            final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        )
+        {
+            size = channel.size();
+            step = region_size - overlap;
+            final int count = size <= region_size ? 1 : (int) ((size - overlap + step - 1) / step);
+            regions = new MappedByteBuffer[count];
+            for (int i=0; i<count; ++i)
+            {
+                final long start = i * step;
+                regions[i] = channel.map(MapMode.READ_ONLY, start, Math.min(region_size, size - start));
+            }
+        }
+    }
+
+    /** @return Size of the file */
+    long size()
+    {
+        return size;
+    }
+
+    /** @param offset File offset
+     *  @return Index of the region to use for reading at that offset
+     */
+    int getRegionIndex(final long offset)
+    {
+        return (int) Math.min(offset / step, regions.length - 1);
+    }
+
+    /** @param index Region index
+     *  @return File offset of the start of that region
+     */
+    long getRegionStart(final int index)
+    {
+        return index * step;
+    }
+
+    /** @param index Region index
+     *  @return Buffer for reading the region, with its own position
+     */
+    ByteBuffer getRegion(final int index)
+    {
+        return regions[index].duplicate();
+    }
+}
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.channelarchiver.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArchiveFileBuffer} in heap and mapped mode
+ *
+ *  <p>Generates a Channel Archiver index and data file
+ *  and reads them with small mapped regions,
+ *  so that reads cross region boundaries.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveFileBufferUnitTest
+{
+    private static final String CHANNEL = "Test:Channel";
+    private static final int BLOCKS = 5;
+    private static final int SAMPLES = 100;
+    /** Size of a DBR_TIME_DOUBLE sample */
+    private static final int SAMPLE_SIZE = 24;
+    private static final int HEADER_SIZE = 152;
+    private static final int CTRL_INFO = 8;
+    private static final int M = 8;
+    private static final Instant T0 = Instant.ofEpochSecond(1500000000L);
+
+    private static File dir, index, data;
+    private static long[] block_offsets = new long[BLOCKS];
+
+    @BeforeClass
+    public static void setup() throws Exception
+    {
+        MappedArchiveFile.setRegionSize(1024, 64);
+        dir = Files.createTempDirectory("archive").toFile();
+        data = new File(dir, "20170714");
+        index = new File(dir, "index");
+        writeData();
+        writeIndex();
+    }
+
+    @AfterClass
+    public static void cleanup()
+    {
+        MappedArchiveFile.setRegionSize(1L << 30, 1L << 16);
+        data.delete();
+        index.delete();
+        dir.delete();
+    }
+
+    private static Instant getTime(final int sample)
+    {
+        return T0.plusSeconds(sample);
+    }
+
+    private static void putTime(final ByteBuffer buf, final Instant time)
+    {
+        buf.putInt((int) (time.getEpochSecond() - ArchiveFileTime.EPICS_OFFSET));
+        buf.putInt(time.getNano());
+    }
+
+    private static void putString(final ByteBuffer buf, final String text, final int size)
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        buf.put(bytes);
+        for (int i=bytes.length; i<size; ++i)
+            buf.put((byte) 0);
+    }
+
+    private static void write(final File file, final ByteBuffer buf) throws IOException
+    {
+        try
+        (
+            final FileOutputStream out = new FileOutputStream(file);
+        )
+        {
+            out.write(buf.array(), 0, buf.position());
+        }
+    }
+
+    /** Data file with control info and blocks of DBR_TIME_DOUBLE samples */
+    private static void writeData() throws IOException
+    {
+        final int block_size = HEADER_SIZE + SAMPLES * SAMPLE_SIZE;
+        final ByteBuffer buf = ByteBuffer.allocate(100 + BLOCKS * block_size);
+        // Numeric control info
+        buf.position(CTRL_INFO);
+        buf.putShort((short) 40);
+        buf.putShort((short) 1);
+        buf.putFloat(10.0f);
+        buf.putFloat(0.0f);
+        buf.putFloat(2.0f);
+        buf.putFloat(1.0f);
+        buf.putFloat(8.0f);
+        buf.putFloat(9.0f);
+        buf.putInt(2);
+        putString(buf, "V", 8);
+
+        int sample = 0;
+        for (int b=0; b<BLOCKS; ++b)
+        {
+            block_offsets[b] = 100 + b * block_size;
+            buf.position((int) block_offsets[b]);
+            buf.putInt(0);
+            buf.putInt(b < BLOCKS-1 ? (int) block_offsets[b] + block_size : 0);
+            buf.putInt(0);
+            buf.putInt(0);
+            buf.putInt(SAMPLES);
+            buf.putInt(CTRL_INFO);
+            // buff_size - buff_free - header matches the size check in DataHeader
+            buf.putInt(block_size);
+            buf.putInt(SAMPLES * (SAMPLE_SIZE - 16));
+            buf.putShort((short) ArchiveFileSampleReader.DbrType.DBR_TIME_DOUBLE.typeCode);
+            buf.putShort((short) 1);
+            buf.position(buf.position() + 20);
+            putTime(buf, getTime((b+1) * SAMPLES));
+            buf.position(buf.position() + 48);
+            putString(buf, b < BLOCKS-1 ? data.getName() : "", 40);
+            for (int i=0; i<SAMPLES; ++i)
+            {
+                buf.putShort((short) 0);
+                buf.putShort((short) 0);
+                putTime(buf, getTime(sample));
+                buf.putInt(0);
+                buf.putDouble(sample * 0.5);
+                ++sample;
+            }
+        }
+        write(data, buf);
+    }
+
+    /** Index with one channel, one RTree leaf node that lists the data blocks */
+    private static void writeIndex() throws IOException
+    {
+        final ByteBuffer buf = ByteBuffer.allocate(8000);
+        // Hash table with one entry
+        buf.putInt(0);
+        buf.putInt(16);
+        buf.putInt(2);
+        buf.position(16);
+        buf.putInt(1000);
+        // Spread items over the file to cross mapped regions
+        final int anchor = 2040, node = 3000, datablocks = 5000;
+        buf.position(1000);
+        buf.putInt(0);
+        buf.putInt(anchor);
+        buf.putShort((short) CHANNEL.length());
+        buf.putShort((short) 0);
+        putString(buf, CHANNEL, CHANNEL.length());
+
+        buf.position(anchor);
+        buf.putInt(node);
+        buf.putInt(M);
+
+        buf.position(node);
+        buf.put((byte) 1);
+        buf.putInt(0);
+        for (int b=0; b<M; ++b)
+        {
+            if (b < BLOCKS)
+            {
+                putTime(buf, getTime(b * SAMPLES));
+                putTime(buf, getTime((b+1) * SAMPLES - 1));
+                buf.putInt(datablocks + 100*b);
+            }
+            else
+            {   // Empty record
+                putTime(buf, Instant.ofEpochSecond(ArchiveFileTime.EPICS_OFFSET));
+                putTime(buf, Instant.ofEpochSecond(ArchiveFileTime.EPICS_OFFSET));
+                buf.putInt(0);
+            }
+        }
+
+        for (int b=0; b<BLOCKS; ++b)
+        {
+            buf.position(datablocks + 100*b);
+            buf.putInt(0);
+            buf.putInt((int) block_offsets[b]);
+            buf.putShort((short) data.getName().length());
+            putString(buf, data.getName(), data.getName().length());
+        }
+        write(index, buf);
+    }
+
+    private static List<VType> read(final boolean mapped, final Instant start, final Instant end) throws Exception
+    {
+        final List<VType> result = new ArrayList<>();
+        try
+        (
+            final ArchiveFileIndexReader index_reader = new ArchiveFileIndexReader(index, mapped);
+        )
+        {
+            final ValueIterator values = new ArchiveFileSampleReader(start, end,
+                                                 index_reader.getEntries(CHANNEL, start, end), mapped);
+            while (values.hasNext())
+                result.add(values.next());
+            values.close();
+        }
+        return result;
+    }
+
+    @Test
+    public void testMappedVsHeap() throws Exception
+    {
+        final Instant start = getTime(150), end = getTime(BLOCKS * SAMPLES);
+        final List<VType> heap = read(false, start, end);
+        final List<VType> mapped = read(true, start, end);
+        assertEquals(BLOCKS * SAMPLES - 150, heap.size());
+        assertEquals(heap.size(), mapped.size());
+        for (int i=0; i<heap.size(); ++i)
+        {
+            assertEquals(VTypeHelper.toString(heap.get(i)), VTypeHelper.toString(mapped.get(i)));
+            assertEquals(getTime(150 + i), VTypeHelper.getTimestamp(mapped.get(i)));
+            assertEquals((150 + i) * 0.5, VTypeHelper.toDouble(mapped.get(i)), 0.0);
+        }
+    }
+
+    @Test
+    public void testBytesAcrossRegions() throws Exception
+    {
+        // Compare every offset of the data file, reading more than the region overlap
+        final byte[] heap_bytes = new byte[200], mapped_bytes = new byte[200];
+        try
+        (
+            final ArchiveFileBuffer heap = new ArchiveFileBuffer(data, false);
+            final ArchiveFileBuffer mapped = new ArchiveFileBuffer(data, true);
+        )
+        {
+            for (long offset = 0;  offset + heap_bytes.length + 8 <= data.length();  offset += 37)
+            {
+                heap.offset(offset);
+                mapped.offset(offset);
+                heap.get(heap_bytes);
+                mapped.get(mapped_bytes);
+                for (int i=0; i<heap_bytes.length; ++i)
+                    assertEquals("Offset " + (offset + i), heap_bytes[i], mapped_bytes[i]);
+                assertEquals(heap.getDouble(), mapped.getDouble(), 0.0);
+                assertEquals(heap.offset(), mapped.offset());
+            }
+        }
+    }
+
+    @Test
+    public void testSkipBeyondEnd() throws Exception
+    {
+        try
+        (
+            final ArchiveFileBuffer mapped = new ArchiveFileBuffer(data, true);
+        )
+        {
+            mapped.offset(data.length() - 10);
+            mapped.skip(10);
+            assertEquals(data.length(), mapped.offset());
+            try
+            {
+                mapped.skip(1);
+                fail("Skipped beyond end of file");
+            }
+            catch (IOException ex)
+            {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testGrowingFile() throws Exception
+    {
+        final File file = new File(dir, "growing");
+        final ByteBuffer buf = ByteBuffer.allocate(4000);
+        buf.putInt(1);
+        write(file, buf);
+        try
+        (
+            final ArchiveFileBuffer mapped = new ArchiveFileBuffer(file, true);
+        )
+        {
+            assertEquals(1, mapped.getInt());
+
+            // Append data
+            buf.position(3000);
+            buf.putInt(42);
+            buf.position(buf.capacity());
+            write(file, buf);
+
+            mapped.setFile(file);
+            mapped.offset(3000);
+            assertEquals(42, mapped.getInt());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
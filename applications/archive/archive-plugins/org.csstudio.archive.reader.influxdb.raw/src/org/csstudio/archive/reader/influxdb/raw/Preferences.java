@@ -26,6 +26,8 @@ public class Preferences
     // final public static String STORED_PROCEDURE = "use_stored_procedure";
     // final public static String STARTTIME_FUNCTION = "use_starttime_function";
     final public static String USE_STD_DEV = "use_std_dev";
+    final public static String SHARD_HOURS = "shard_hours";
+    final public static String QUERY_THREADS = "query_threads";
 
     public static int getChunkSize()
     {
@@ -67,4 +69,24 @@ public class Preferences
             return use_std_dev;
         return prefs.getBoolean(Activator.ID, USE_STD_DEV, use_std_dev, null);
     }
+
+    /** @return Duration of the time range shards that are queried in parallel, in hours */
+    public static double getShardHours()
+    {
+        double shard_hours = 24.0;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return shard_hours;
+        return prefs.getDouble(Activator.ID, SHARD_HOURS, shard_hours, null);
+    }
+
+    /** @return Number of threads for running queries, which is also the number of shards queried in parallel */
+    public static int getQueryThreads()
+    {
+        int query_threads = 4;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return query_threads;
+        return Math.max(1, prefs.getInt(Activator.ID, QUERY_THREADS, query_threads, null));
+    }
 }
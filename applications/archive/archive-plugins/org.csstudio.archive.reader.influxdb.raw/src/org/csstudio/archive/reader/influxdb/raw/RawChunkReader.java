@@ -66,6 +66,9 @@ public class RawChunkReader extends AbstractInfluxDBValueLookup
     /** Decode samples into Vtype **/
     private final AbstractInfluxDBValueDecoder decoder;
 
+    /** Set when closed, chunks that still arrive are then dropped */
+    private volatile boolean closed = false;
+
     protected RawChunkReader(final BlockingQueue<QueryResult> sample_queue, final Instant last_sample_time,
             final int timeout_secs, final AbstractInfluxDBValueDecoder.Factory decoder_factory)
     {
@@ -84,6 +87,34 @@ public class RawChunkReader extends AbstractInfluxDBValueLookup
         this.decoder = decoder_factory.create(this);
     }
 
+    /** @param chunk Chunk of sample results, dropped when the reader has been closed */
+    public void addSamples(final QueryResult chunk)
+    {
+        sample_queue.add(chunk);
+        if (closed)
+            sample_queue.clear();
+    }
+
+    /** @return <code>true</code> if reader has been closed */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /** Close the reader
+     *
+     *  <p>Drops the samples that have been received.
+     *  A query that is still running cannot be cancelled,
+     *  but its remaining chunks are dropped as they arrive.
+     */
+    public void close()
+    {
+        closed = true;
+        sample_queue.clear();
+        next_sample_series.clear();
+        next_sample_values.clear();
+    }
+
     public VType decodeSampleValue() throws Exception {
         return decoder.decodeSampleValue();
     }
@@ -143,7 +174,7 @@ public class RawChunkReader extends AbstractInfluxDBValueLookup
     public boolean step() throws Exception
     {
         // if the current sample is the same time as or after the end time stamp, we are done
-        if (!cur_sample_time.isBefore(last_sample_time))
+        if (closed  ||  !cur_sample_time.isBefore(last_sample_time))
         {
             return false;
         }
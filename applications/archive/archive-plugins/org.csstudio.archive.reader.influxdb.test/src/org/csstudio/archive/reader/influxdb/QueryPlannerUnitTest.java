@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.csstudio.archive.influxdb.InfluxDBQueries;
+import org.junit.Test;
+
+/** JUnit test of the {@link QueryPlanner}, no InfluxDB required
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class QueryPlannerUnitTest
+{
+    final private Instant start = Instant.ofEpochSecond(1500000000);
+
+    @Test
+    public void testShards()
+    {
+        // 10 hours in 4 hour shards: 3 shards of equal duration
+        List<Instant> boundaries = QueryPlanner.planShards(start, start.plus(Duration.ofHours(10)), Duration.ofHours(4), 100);
+        System.out.println(boundaries);
+        assertThat(boundaries.size(), equalTo(4));
+        assertThat(boundaries.get(0), equalTo(start));
+        assertThat(boundaries.get(1), equalTo(start.plus(Duration.ofMinutes(200))));
+        assertThat(boundaries.get(3), equalTo(start.plus(Duration.ofHours(10))));
+
+        // Shards exclude the next boundary, except for the last shard
+        assertThat(QueryPlanner.getShardEnd(boundaries, 0), equalTo(boundaries.get(1).minusNanos(1)));
+        assertThat(QueryPlanner.getShardEnd(boundaries, 2), equalTo(boundaries.get(3)));
+
+        // Short range, or no shard duration: Just one shard
+        boundaries = QueryPlanner.planShards(start, start.plus(Duration.ofHours(1)), Duration.ofHours(4), 100);
+        assertThat(boundaries.size(), equalTo(2));
+        boundaries = QueryPlanner.planShards(start, start.plus(Duration.ofHours(100)), Duration.ZERO, 100);
+        assertThat(boundaries.size(), equalTo(2));
+    }
+
+    @Test
+    public void testBinShards()
+    {
+        // 1000 bins over 10 hours in 4 hour shards
+        final Instant end = start.plus(Duration.ofHours(10));
+        final Duration bin = InfluxDBQueries.getBinInterval(start, end, 1000);
+        assertThat(bin, equalTo(Duration.ofSeconds(36)));
+
+        final List<Instant> boundaries = QueryPlanner.planBinShards(start, end, bin, Duration.ofHours(4), 100);
+        System.out.println(boundaries);
+        assertThat(boundaries.size(), equalTo(4));
+        // Shards hold 400 bins each, the last one the remaining 200
+        assertThat(boundaries.get(1), equalTo(start.plus(bin.multipliedBy(400))));
+        assertThat(boundaries.get(2), equalTo(start.plus(bin.multipliedBy(800))));
+        assertThat(boundaries.get(3), equalTo(end));
+
+        // Bins are never shorter than a microsecond
+        assertThat(InfluxDBQueries.getBinInterval(start, start.plusNanos(10), 1000), equalTo(Duration.ofNanos(1000)));
+    }
+
+    @Test
+    public void testLongRange()
+    {
+        // 10 years in 1 day shards would be about 3650 shards,
+        // limited to 16 shards of about 228 days
+        final Instant end = start.plus(Duration.ofDays(3650));
+        List<Instant> boundaries = QueryPlanner.planShards(start, end, Duration.ofDays(1), 16);
+        assertThat(boundaries.size(), equalTo(17));
+        assertThat(boundaries.get(1), equalTo(start.plus(Duration.ofDays(3650).dividedBy(16))));
+        assertThat(boundaries.get(16), equalTo(end));
+
+        // Same for bins, with shards still on bin boundaries
+        final Duration bin = InfluxDBQueries.getBinInterval(start, end, 10000);
+        boundaries = QueryPlanner.planBinShards(start, end, bin, Duration.ofDays(1), 16);
+        System.out.println(boundaries);
+        assertThat(boundaries.size(), equalTo(17));
+        // 10000 bins, 625 per shard
+        for (int i=1; i<16; ++i)
+            assertThat(boundaries.get(i), equalTo(start.plus(bin.multipliedBy(625 * i))));
+        assertThat(boundaries.get(16), equalTo(end));
+    }
+
+    @Test
+    public void testBinAlignment()
+    {
+        // Origin that's not a multiple of the bin since epoch
+        final Instant origin = Instant.ofEpochSecond(1500000007, 123000);
+        final Duration bin = Duration.ofSeconds(10);
+
+        // Group by time() uses an offset so that bins start at the origin
+        assertThat(InfluxDBQueries.getGroupByTimeClause(origin, bin), equalTo("time(10000000u, 7000123u) fill(none)"));
+
+        assertThat(QueryPlanner.getBinStart(origin, bin, origin), equalTo(origin));
+        assertThat(QueryPlanner.getBinStart(origin, bin, origin.plusSeconds(9)), equalTo(origin));
+        assertThat(QueryPlanner.getBinStart(origin, bin, origin.plusSeconds(10)), equalTo(origin.plusSeconds(10)));
+        assertThat(QueryPlanner.getBinStart(origin, bin, origin.plusSeconds(25)), equalTo(origin.plusSeconds(20)));
+    }
+}
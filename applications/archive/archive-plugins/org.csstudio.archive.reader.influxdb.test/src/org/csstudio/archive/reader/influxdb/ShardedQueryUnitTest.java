@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.influxdb.dto.QueryResult;
+import org.junit.Test;
+
+/** JUnit test of the {@link ShardedQuery}, no InfluxDB required
+ *  @author Kay Kasemir
+ */
+public class ShardedQueryUnitTest
+{
+    final private Instant start = Instant.ofEpochSecond(1500000000);
+
+    @Test
+    public void testClose() throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        final List<Instant> boundaries = QueryPlanner.planShards(start, start.plus(Duration.ofHours(4)), Duration.ofHours(1), 100);
+        assertThat(boundaries.size(), equalTo(5));
+
+        // Shards return readers whose queries never deliver data,
+        // the second shard takes a while to start
+        // and ignores the cancellation
+        final List<ChunkReader> readers = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch first_started = new CountDownLatch(1);
+        final CountDownLatch slow_shard = new CountDownLatch(1);
+        final ShardedQuery query = new ShardedQuery(pool, 2, boundaries, (shard_start, shard_end) ->
+        {
+            // Like a query that's not interrupted by cancel(true)
+            while (! shard_start.equals(start)  &&  slow_shard.getCount() > 0)
+            {
+                try
+                {
+                    slow_shard.await();
+                }
+                catch (InterruptedException ex)
+                {
+                    // Ignore
+                }
+            }
+            final ChunkReader reader = new ChunkReader(new LinkedBlockingQueue<>(), shard_end,
+                                                       new LinkedBlockingQueue<>(), shard_end,
+                                                       1, new ArchiveDecoder.Factory());
+            readers.add(reader);
+            first_started.countDown();
+            return reader;
+        });
+        assertTrue(first_started.await(10, TimeUnit.SECONDS));
+        // Allow first shard to complete
+        Thread.sleep(100);
+
+        // Closing the query closes the reader of the started shard
+        query.close();
+        assertThat(readers.size(), equalTo(1));
+        assertTrue(readers.get(0).isClosed());
+        readers.get(0).addSamples(new QueryResult());
+        assertThat(readers.get(0).step(), equalTo(false));
+
+        // Shard that completes after the query was closed is also closed
+        slow_shard.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertThat(readers.size(), equalTo(2));
+        assertTrue(readers.get(1).isClosed());
+    }
+}
@@ -56,6 +56,22 @@ public class ChunkReader extends RawChunkReader
         this.next_meta = null;
     }
 
+    /** @param chunk Chunk of metadata results, dropped when the reader has been closed */
+    public void addMetadata(final QueryResult chunk)
+    {
+        metadata_queue.add(chunk);
+        if (isClosed())
+            metadata_queue.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+        metadata_queue.clear();
+        next_metadata.clear();
+    }
+
     @Override
     public VType decodeSampleValue() throws Exception
     {
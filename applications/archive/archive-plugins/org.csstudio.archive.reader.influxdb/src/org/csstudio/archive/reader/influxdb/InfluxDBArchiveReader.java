@@ -12,6 +12,8 @@ package org.csstudio.archive.reader.influxdb;
 //import java.sql.ResultSet;
 //import java.sql.Statement;
 import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 
 import org.csstudio.archive.influxdb.InfluxDBArchivePreferences;
@@ -26,6 +28,7 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.UnknownChannelException;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.reader.influxdb.raw.ConnectionCache;
+import org.csstudio.archive.reader.influxdb.raw.Preferences;
 import org.influxdb.InfluxDB;
 import org.influxdb.dto.QueryResult;
 
@@ -49,6 +52,9 @@ public class InfluxDBArchiveReader implements ArchiveReader
 
     final static private DBNameMap dbnames = new DefaultDBNameMap();
 
+    /** Thread pool for the shards of queries, shared by all readers */
+    private static ExecutorService query_pool = null;
+
     ///** Map of status IDs to Status strings */
     // don't need this for influx, just store the status strings as tags
     //final private HashMap<Integer, String> stati;
@@ -119,6 +125,19 @@ public class InfluxDBArchiveReader implements ArchiveReader
         return timeout;
     }
 
+    /** @return Thread pool for the shards of queries */
+    static synchronized ExecutorService getQueryPool()
+    {
+        if (query_pool == null)
+            query_pool = Executors.newFixedThreadPool(Preferences.getQueryThreads(), runnable ->
+            {
+                final Thread thread = new Thread(runnable, "InfluxDB Query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return query_pool;
+    }
+
     //    /** @param status_id Numeric status ID
     //     *  @return Status string for ID
     //     */
@@ -1,10 +1,13 @@
 package org.csstudio.archive.reader.influxdb;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.function.Consumer;
 
+import org.csstudio.archive.influxdb.InfluxDBQueries;
 import org.csstudio.archive.influxdb.InfluxDBResults;
 import org.csstudio.archive.reader.influxdb.raw.AbstractInfluxDBValueIterator;
 import org.csstudio.archive.reader.influxdb.raw.Preferences;
@@ -13,26 +16,23 @@ import org.influxdb.dto.QueryResult;
 
 /**
  * Iterator for optimized (downsampled/aggregated) values.
+ *
+ * <p>Statistics are computed by the server for time bins
+ * that divide the time range into the requested number of bins.
+ * The time range is split into shards on bin boundaries,
+ * which are queried concurrently and read in order.
+ *
  * @author Amanda Carpenter ("optimized")
  * @author Megan Grodowitz (SampleIterator (influxdb))
  */
 public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
 {
-    /** Queue of result chunks of the sample query */
-    final BlockingQueue<QueryResult> sample_queue = new LinkedBlockingQueue<>();
-
-    /** Queue of result chunks of the metadata query */
-    final BlockingQueue<QueryResult> metadata_queue = new LinkedBlockingQueue<>();
-
     /** 'Current' value that <code>next()</code> will return,
      *  or <code>null</code>
      */
     private VType next_value = null;
 
-    private final ChunkReader samples;
-
-    final private int sample_chunk_size;
-    final private int metadata_chunk_size;
+    private final ShardedQuery samples;
 
     /** Initialize
      *  @param reader InfluxDBArchiveReader
@@ -46,26 +46,13 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
             final Instant end, final long count) throws Exception
     {
         super(reader, channel_name);
-        Instant sample_endtime, sample_starttime, metadata_endtime, metadata_starttime;
-        // QueryResult results = null;
-
-        sample_chunk_size = Preferences.getChunkSize();
-        metadata_chunk_size = Preferences.getChunkSize();
-
-        //Get the timestamp of the last sample at or before the indicated start time.
-        sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, null, start, 1L));
+        final Instant sample_starttime = SampleIterator.getSampleStartTime(reader, channel_name, start, end);
+        //No samples before the end time. We are done
         if (sample_starttime == null)
         {
-            //No samples at or before start, find oldest sample in range
-            sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_channel_samples(channel_name, start, end, 1L));
-
-            //No samples before the end time. We are done
-            if (sample_starttime == null)
-            {
-                samples = null;
-                close();
-                return;
-            }
+            samples = null;
+            close();
+            return;
         }
 
         //TODO: More efficient to get total sample count for whole time range, then
@@ -77,47 +64,67 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
         final boolean isEnoughValues = InfluxDBResults.getValueCount(interval_results) >= count ||
                 InfluxDBResults.getValueSum(interval_results) >= count*2;
 
-        //Find the last timestamp of the metadata before the end time
-        metadata_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, end, 1L));
-        //Get the timestamp of the last metadata at or before the sample start time.
-        metadata_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, sample_starttime, 1L));
-
-        final Consumer<QueryResult> sample_consumer = (result) -> sample_queue.add(result);
-        final Consumer<QueryResult> meta_consumer = (result) -> metadata_queue.add(result);
-
-        reader.getQueries().chunk_get_channel_metadata(metadata_chunk_size, channel_name, metadata_starttime,
-                end, null, meta_consumer);
-
+        final List<Instant> boundaries;
+        final ShardedQuery.Shard shard;
         if (isEnoughValues)
         {
             final boolean stdDev = Preferences.getUseStdDev();
-
-            sample_endtime = InfluxDBResults.getTimestamp(interval_results);
-
-            reader.getQueries().chunk_get_channel_sample_stats(sample_chunk_size, channel_name, sample_starttime,
-                    end, count, stdDev, sample_consumer);
-
-            samples = new AggregatedChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime,
-                    reader.getTimeout(), new ArchiveStatisticsDecoder.Factory(stdDev));
+            // InfluxDB bins have microsecond resolution
+            final Instant origin = sample_starttime.truncatedTo(ChronoUnit.MICROS);
+            final Duration bin = InfluxDBQueries.getBinInterval(origin, end, count);
+            boundaries = QueryPlanner.planBinShards(origin, end, bin, SampleIterator.getShardDuration(),
+                                                   SampleIterator.getMaxShards());
+            shard = (shard_start, shard_end) ->
+                startStatisticsShard(reader, channel_name, origin, bin, stdDev, shard_start, shard_end);
         }
         else
         {
-            sample_endtime = InfluxDBResults.getTimestamp(
-                    reader.getQueries().get_newest_channel_samples(channel_name, sample_starttime, end, 1L));
-
-            reader.getQueries().chunk_get_channel_samples(sample_chunk_size, channel_name, sample_starttime,
-                    end, null, sample_consumer);
-
-            samples = new ChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime,
-                    reader.getTimeout(), new ArchiveDecoder.Factory());
+            boundaries = SampleIterator.planShards(sample_starttime, start, end);
+            shard = (shard_start, shard_end) -> SampleIterator.startRawShard(reader, channel_name, shard_start, shard_end);
         }
+        samples = new ShardedQuery(InfluxDBArchiveReader.getQueryPool(), Preferences.getQueryThreads(), boundaries, shard);
 
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = samples.next();
+        if (next_value == null)
             close();
     }
 
+    /** Start queries for the statistics of a shard
+     *  @param reader InfluxDBArchiveReader
+     *  @param channel_name ID of channel
+     *  @param origin Start of the first bin
+     *  @param bin Duration of a bin
+     *  @param stdDev Include standard deviation?
+     *  @param start Start of the shard, a bin boundary
+     *  @param end Last time included in the shard
+     *  @return {@link ChunkReader} for the shard, <code>null</code> if there are no samples
+     *  @throws Exception on error
+     */
+    private static ChunkReader startStatisticsShard(final InfluxDBArchiveReader reader,
+            final String channel_name, final Instant origin, final Duration bin, final boolean stdDev,
+            final Instant start, final Instant end) throws Exception
+    {
+        final int chunk_size = Preferences.getChunkSize();
+
+        //The last bin of the shard is the one that holds the last sample of the shard
+        final Instant last_sample = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, start, end, 1L));
+        if (last_sample == null)
+            return null;
+        final Instant sample_endtime = QueryPlanner.getBinStart(origin, bin, last_sample);
+
+        //Find the last timestamp of the metadata before the end time
+        final Instant metadata_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, end, 1L));
+        //Get the timestamp of the last metadata at or before the start time.
+        final Instant metadata_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, start, 1L));
+
+        final BlockingQueue<QueryResult> sample_queue = new LinkedBlockingQueue<>();
+        final BlockingQueue<QueryResult> metadata_queue = new LinkedBlockingQueue<>();
+        final ChunkReader samples = new AggregatedChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime,
+                reader.getTimeout(), new ArchiveStatisticsDecoder.Factory(stdDev));
+        reader.getQueries().chunk_get_channel_metadata(chunk_size, channel_name, metadata_starttime, end, null, samples::addMetadata);
+        reader.getQueries().chunk_get_channel_sample_stats(chunk_size, channel_name, start, end, origin, bin, stdDev, samples::addSamples);
+        return samples;
+    }
 
     /** {@inheritDoc} */
     @Override
@@ -140,9 +147,8 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
         final VType result = next_value;
 
         // ... and prepare next value
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = samples.next();
+        if (next_value == null)
             close();
 
         return result;
@@ -155,6 +161,8 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
     public void close()
     {
         super.close();
+        if (samples != null)
+            samples.close();
         next_value = null;
     }
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Plans the shards for querying a time range
+ *
+ *  <p>A large time range is split into shards
+ *  that can be queried in parallel.
+ *  Shard <code>i</code> covers the time from boundary <code>i</code>
+ *  up to but excluding boundary <code>i+1</code>,
+ *  while the last shard includes the end time.
+ *
+ *  <p>The number of shards is limited, so a request for
+ *  a very long time range results in longer shards
+ *  instead of thousands of small queries.
+ *
+ *  @author Kay Kasemir
+ */
+public class QueryPlanner
+{
+    /** @param start Start time
+     *  @param end End time
+     *  @param shard_duration Desired duration of a shard
+     *  @param max_shards Maximum number of shards, using longer shards when necessary
+     *  @return Boundaries of shards of about equal duration, starting with <code>start</code>, ending with <code>end</code>
+     */
+    public static List<Instant> planShards(final Instant start, final Instant end, final Duration shard_duration,
+                                           final int max_shards)
+    {
+        final Duration range = Duration.between(start, end);
+        final List<Instant> boundaries = new ArrayList<>();
+        boundaries.add(start);
+        if (! range.isNegative()  &&  shard_duration.toNanos() > 0)
+        {
+            final long shards = Math.min(Math.max(1, max_shards),
+                                         (range.toNanos() + shard_duration.toNanos() - 1) / shard_duration.toNanos());
+            for (long i=1; i<shards; ++i)
+                boundaries.add(start.plus(range.multipliedBy(i).dividedBy(shards)));
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+    /** Plan shards for statistics in time bins
+     *
+     *  <p>Shard boundaries are placed on bin boundaries,
+     *  so that each bin is computed within one shard.
+     *
+     *  @param origin Start time, also start of first bin
+     *  @param end End time
+     *  @param bin Duration of a bin
+     *  @param shard_duration Desired duration of a shard
+     *  @param max_shards Maximum number of shards, using more bins per shard when necessary
+     *  @return Boundaries of shards, starting with <code>origin</code>, ending with <code>end</code>
+     */
+    public static List<Instant> planBinShards(final Instant origin, final Instant end, final Duration bin,
+                                              final Duration shard_duration, final int max_shards)
+    {
+        final long bin_nanos = Math.max(1, bin.toNanos());
+        final long bins = Math.max(1, (Duration.between(origin, end).toNanos() + bin_nanos - 1) / bin_nanos);
+        final long shards = Math.max(1, max_shards);
+        final long bins_per_shard = Math.max(Math.max(1, shard_duration.toNanos() / bin_nanos),
+                                             (bins + shards - 1) / shards);
+        final Duration step = bin.multipliedBy(bins_per_shard);
+        final List<Instant> boundaries = new ArrayList<>();
+        boundaries.add(origin);
+        Instant boundary = origin.plus(step);
+        while (boundary.isBefore(end))
+        {
+            boundaries.add(boundary);
+            boundary = boundary.plus(step);
+        }
+        boundaries.add(end);
+        return boundaries;
+    }
+
+    /** @param boundaries Shard boundaries
+     *  @param shard Shard index, 0 .. boundaries.size()-2
+     *  @return Last time included in the shard
+     */
+    public static Instant getShardEnd(final List<Instant> boundaries, final int shard)
+    {
+        final Instant end = boundaries.get(shard + 1);
+        if (shard + 2 >= boundaries.size())
+            return end;
+        return end.minusNanos(1);
+    }
+
+    /** @param origin Start of a bin
+     *  @param bin Duration of a bin, whole microseconds
+     *  @param time Some time
+     *  @return Start of the bin that contains the time, as used by InfluxDB with microsecond resolution
+     */
+    public static Instant getBinStart(final Instant origin, final Duration bin, final Instant time)
+    {
+        final long bin_us = bin.toNanos() / 1000;
+        final long origin_us = origin.getEpochSecond() * 1000000L + origin.getNano() / 1000;
+        final long time_us = time.getEpochSecond() * 1000000L + time.getNano() / 1000;
+        final long offset = Math.floorMod(origin_us, bin_us);
+        final long start_us = Math.floorDiv(time_us - offset, bin_us) * bin_us + offset;
+        return Instant.ofEpochSecond(Math.floorDiv(start_us, 1000000L), Math.floorMod(start_us, 1000000L) * 1000);
+    }
+}
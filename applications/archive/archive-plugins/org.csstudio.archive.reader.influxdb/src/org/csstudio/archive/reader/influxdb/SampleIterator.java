@@ -7,10 +7,11 @@
  ******************************************************************************/
 package org.csstudio.archive.reader.influxdb;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.function.Consumer;
 
 import org.csstudio.archive.influxdb.InfluxDBResults;
 import org.csstudio.archive.reader.influxdb.raw.AbstractInfluxDBValueIterator;
@@ -19,26 +20,25 @@ import org.diirt.vtype.VType;
 import org.influxdb.dto.QueryResult;
 
 /** Value Iterator that reads from the SAMPLE table.
+ *
+ *  <p>The time range is split into shards,
+ *  see {@link QueryPlanner},
+ *  which are queried concurrently and read in order.
+ *
  *  @author Kay Kasemir
  *  @author Megan Grodowitz (InfluxDB)
  */
 public class SampleIterator extends AbstractInfluxDBValueIterator
 {
-    /** Queue of result chunks of the sample query */
-    final BlockingQueue<QueryResult> sample_queue = new LinkedBlockingQueue<>();
-
-    /** Queue of result chunks of the metadata query */
-    final BlockingQueue<QueryResult> metadata_queue = new LinkedBlockingQueue<>();
+    /** Maximum number of shards per query thread */
+    final private static int SHARDS_PER_THREAD = 4;
 
     /** 'Current' value that <code>next()</code> will return,
      *  or <code>null</code>
      */
     private VType next_value = null;
 
-    private final ChunkReader samples;
-
-    final private int sample_chunk_size;
-    final private int metadata_chunk_size;
+    private final ShardedQuery samples;
 
     /** Initialize
      *  @param reader InfluxDBArchiveReader
@@ -52,61 +52,105 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
             final Instant end) throws Exception
     {
         super(reader, channel_name);
-        Instant sample_endtime, sample_starttime, metadata_endtime, metadata_starttime;
-        // QueryResult results = null;
-
-        sample_chunk_size = Preferences.getChunkSize();
-        metadata_chunk_size = Preferences.getChunkSize();
-
-        //Get the timestamp of the last sample at or before the indicated start time.
-        sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, null, start, 1L));
+        final Instant sample_starttime = getSampleStartTime(reader, channel_name, start, end);
+        //No samples before the end time. We are done
         if (sample_starttime == null)
         {
-            //No samples at or before start, find oldest sample in range
-            sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_channel_samples(channel_name, start, end, 1L));
-
-            //No samples before the end time. We are done
-            if (sample_starttime == null)
-            {
-                samples = null;
-                close();
-                return;
-            }
+            samples = null;
+            close();
+            return;
         }
 
-        //Get the timestamp of the last sample in the range.
-        sample_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, sample_starttime, end, 1L));
+        final List<Instant> boundaries = planShards(sample_starttime, start, end);
+        samples = new ShardedQuery(InfluxDBArchiveReader.getQueryPool(), Preferences.getQueryThreads(), boundaries,
+                (shard_start, shard_end) -> startRawShard(reader, channel_name, shard_start, shard_end));
 
-        //Find the last timestamp of the metadata before the end time
-        metadata_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, end, 1L));
-        //Get the timestamp of the last metadata at or before the sample start time.
-        metadata_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, sample_starttime, 1L));
-
-        reader.getQueries().chunk_get_channel_samples(sample_chunk_size, channel_name, sample_starttime, end, null,
-                new Consumer<QueryResult>() {
-            @Override
-            public void accept(QueryResult result) {
-                sample_queue.add(result);
-                //Activator.getLogger().log(Level.FINE, () -> "Got chunk of sample vals size " + InfluxDBResults.getValueCount(result) + " for total size: " + sample_queue.size());
-                sample_queue.add(result);
-            }});
-
-        reader.getQueries().chunk_get_channel_metadata(metadata_chunk_size, channel_name, metadata_starttime, end, null,
-                new Consumer<QueryResult>() {
-            @Override
-            public void accept(QueryResult result) {
-                metadata_queue.add(result);
-            }});
-
-        samples = new ChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime, reader.getTimeout(),
-                new ArchiveDecoder.Factory());
-
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = samples.next();
+        if (next_value == null)
             close();
     }
 
+    /** @param reader InfluxDBArchiveReader
+     *  @param channel_name ID of channel
+     *  @param start Start time
+     *  @param end End time
+     *  @return Time of the last sample at or before the start time, else the first sample in the range,
+     *          <code>null</code> if there are no samples
+     *  @throws Exception on error
+     */
+    static Instant getSampleStartTime(final InfluxDBArchiveReader reader,
+            final String channel_name, final Instant start, final Instant end) throws Exception
+    {
+        //Get the timestamp of the last sample at or before the indicated start time.
+        final Instant sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, null, start, 1L));
+        if (sample_starttime != null)
+            return sample_starttime;
+        //No samples at or before start, find oldest sample in range
+        return InfluxDBResults.getTimestamp(reader.getQueries().get_channel_samples(channel_name, start, end, 1L));
+    }
+
+    /** @return Duration of a shard, <code>Duration.ZERO</code> to not split the time range */
+    static Duration getShardDuration()
+    {
+        return Duration.ofMillis(Math.round(Preferences.getShardHours() * 60 * 60 * 1000));
+    }
+
+    /** @return Maximum number of shards for one query */
+    static int getMaxShards()
+    {
+        return SHARDS_PER_THREAD * Preferences.getQueryThreads();
+    }
+
+    /** Plan shards for raw samples
+     *
+     *  <p>The first shard begins with the sample at or before the start time,
+     *  which may be long before the start time,
+     *  while the shards are otherwise planned for the requested time range.
+     *
+     *  @param sample_starttime Time of first sample
+     *  @param start Start time
+     *  @param end End time
+     *  @return Shard boundaries
+     */
+    static List<Instant> planShards(final Instant sample_starttime, final Instant start, final Instant end)
+    {
+        final List<Instant> boundaries = QueryPlanner.planShards(
+                sample_starttime.isAfter(start) ? sample_starttime : start, end, getShardDuration(), getMaxShards());
+        boundaries.set(0, sample_starttime);
+        return boundaries;
+    }
+
+    /** Start queries for the raw samples of a shard
+     *  @param reader InfluxDBArchiveReader
+     *  @param channel_name ID of channel
+     *  @param start Start of the shard
+     *  @param end Last time included in the shard
+     *  @return {@link ChunkReader} for the shard, <code>null</code> if there are no samples
+     *  @throws Exception on error
+     */
+    static ChunkReader startRawShard(final InfluxDBArchiveReader reader,
+            final String channel_name, final Instant start, final Instant end) throws Exception
+    {
+        final int chunk_size = Preferences.getChunkSize();
+
+        //Get the timestamp of the last sample in the shard.
+        final Instant sample_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, start, end, 1L));
+        if (sample_endtime == null)
+            return null;
+
+        //Find the last timestamp of the metadata before the end time
+        final Instant metadata_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, end, 1L));
+        //Get the timestamp of the last metadata at or before the start time.
+        final Instant metadata_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, start, 1L));
+
+        final BlockingQueue<QueryResult> sample_queue = new LinkedBlockingQueue<>();
+        final BlockingQueue<QueryResult> metadata_queue = new LinkedBlockingQueue<>();
+        final ChunkReader samples = new ChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime,
+                reader.getTimeout(), new ArchiveDecoder.Factory());
+        reader.getQueries().chunk_get_channel_samples(chunk_size, channel_name, start, end, null, samples::addSamples);
+        reader.getQueries().chunk_get_channel_metadata(chunk_size, channel_name, metadata_starttime, end, null, samples::addMetadata);
+        return samples;
+    }
 
     /** {@inheritDoc} */
     @Override
@@ -129,9 +173,8 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
         final VType result = next_value;
 
         // ... and prepare next value
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = samples.next();
+        if (next_value == null)
             close();
 
         return result;
@@ -144,6 +187,8 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
     public void close()
     {
         super.close();
+        if (samples != null)
+            samples.close();
         next_value = null;
     }
 }
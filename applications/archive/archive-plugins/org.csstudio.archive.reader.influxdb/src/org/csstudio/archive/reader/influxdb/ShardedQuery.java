@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.diirt.vtype.VType;
+
+/** Reads the samples of a sharded query in order
+ *
+ *  <p>Each shard is started on a thread pool.
+ *  Up to a maximum number of shards are started ahead
+ *  of the one that is currently read,
+ *  so their queries run concurrently while the
+ *  samples of the current shard are decoded.
+ *
+ *  <p>When closed, the {@link ChunkReader}s of all started shards are closed,
+ *  including those whose queries are still running.
+ *
+ *  @author Kay Kasemir
+ */
+class ShardedQuery
+{
+    /** Starts the query for one shard */
+    @FunctionalInterface
+    interface Shard
+    {
+        /** @param start Start of the shard
+         *  @param end Last time included in the shard
+         *  @return {@link ChunkReader} for the samples of the shard, <code>null</code> if shard has no samples
+         *  @throws Exception on error
+         */
+        ChunkReader start(Instant start, Instant end) throws Exception;
+    }
+
+    final private ExecutorService pool;
+    final private int parallel;
+    final private List<Instant> boundaries;
+    final private Shard shard;
+
+    /** Index of next shard to start */
+    private int next_shard = 0;
+
+    /** Shards that have been started, oldest first */
+    final private Deque<Future<ChunkReader>> pending = new ArrayDeque<>();
+
+    /** Shard that is currently read, or <code>null</code> */
+    private ChunkReader samples = null;
+
+    /** Readers of started shards that have not been read to the end.
+     *  SYNC on this
+     */
+    final private Set<ChunkReader> readers = new HashSet<>();
+
+    /** Set when closed. SYNC on this */
+    private boolean closed = false;
+
+    /** @param pool Thread pool for starting shards
+     *  @param parallel Maximum number of shards started ahead
+     *  @param boundaries Shard boundaries, see {@link QueryPlanner}
+     *  @param shard Starts the query for one shard
+     */
+    ShardedQuery(final ExecutorService pool, final int parallel,
+                 final List<Instant> boundaries, final Shard shard)
+    {
+        this.pool = pool;
+        this.parallel = Math.max(1, parallel);
+        this.boundaries = boundaries;
+        this.shard = shard;
+        startShards();
+    }
+
+    private void startShards()
+    {
+        while (pending.size() < parallel  &&  next_shard < boundaries.size() - 1)
+        {
+            final Instant start = boundaries.get(next_shard);
+            final Instant end = QueryPlanner.getShardEnd(boundaries, next_shard);
+            ++next_shard;
+            pending.add(pool.submit(() -> track(shard.start(start, end))));
+        }
+    }
+
+    /** @param reader Reader of a started shard, may be <code>null</code>
+     *  @return Reader, <code>null</code> if query has already been closed
+     */
+    private ChunkReader track(final ChunkReader reader)
+    {
+        if (reader == null)
+            return null;
+        synchronized (this)
+        {
+            if (! closed)
+            {
+                readers.add(reader);
+                return reader;
+            }
+        }
+        reader.close();
+        return null;
+    }
+
+    /** @return Next sample, <code>null</code> when all shards have been read
+     *  @throws Exception on error
+     */
+    VType next() throws Exception
+    {
+        while (true)
+        {
+            if (samples != null)
+            {
+                if (samples.step())
+                {
+                    final VType value = samples.decodeSampleValue();
+                    if (value != null)
+                        return value;
+                }
+                synchronized (this)
+                {
+                    readers.remove(samples);
+                }
+                samples = null;
+            }
+            // Move to next shard
+            final Future<ChunkReader> started = pending.poll();
+            if (started == null)
+                return null;
+            try
+            {
+                samples = started.get();
+            }
+            catch (ExecutionException ex)
+            {
+                close();
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
+            }
+            startShards();
+        }
+    }
+
+    /** Cancel shards that have not been read,
+     *  close the readers of shards that are running
+     */
+    void close()
+    {
+        for (Future<ChunkReader> started : pending)
+            started.cancel(true);
+        pending.clear();
+        next_shard = boundaries.size();
+        samples = null;
+        final ChunkReader[] running;
+        synchronized (this)
+        {
+            closed = true;
+            running = readers.toArray(new ChunkReader[readers.size()]);
+            readers.clear();
+        }
+        for (ChunkReader reader : running)
+            reader.close();
+    }
+}
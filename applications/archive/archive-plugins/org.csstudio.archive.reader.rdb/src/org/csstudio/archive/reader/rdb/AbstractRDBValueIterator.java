@@ -7,22 +7,27 @@
  ******************************************************************************/
 package org.csstudio.archive.reader.rdb;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
+import java.nio.ByteBuffer;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.ArchiveVEnum;
 import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.ArchiveVNumberArray;
 import org.csstudio.archive.vtype.ArchiveVString;
 import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.diirt.util.text.NumberFormats;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
@@ -42,7 +47,7 @@ abstract public class AbstractRDBValueIterator  implements ValueIterator
     protected Display display = null;
     protected List<String> labels = null;
 
-    /** SELECT ... for the array samples. */
+    /** SELECT ... for the array elements of a range of samples. */
     private PreparedStatement sel_array_samples = null;
 
     /** Before version 3.1.0, we would look for array
@@ -193,18 +198,25 @@ abstract public class AbstractRDBValueIterator  implements ValueIterator
             if (labels != null)
                 return new ArchiveVEnum(time, severity, status, labels, (int) dbl0);
             // Double data.
-            if (handle_array)
+            if (handle_array  &&  reader.useArrayBlob())
             {   // Get array elements - if any.
-                final double data[] = reader.useArrayBlob()
-                    ? readBlobArrayElements(dbl0, result)
-                    : readArrayElements(time, dbl0, severity);
+                final double data[] = readBlobArrayElements(dbl0, result);
                 if (data.length == 1)
                     return new ArchiveVNumber(time, severity, status, display, data[0]);
                 else
                     return new ArchiveVNumberArray(time, severity, status, display, data);
             }
-            else
-                return new ArchiveVNumber(time, severity, status, display, dbl0);
+            final VType value = new ArchiveVNumber(time, severity, status, display, dbl0);
+            if (handle_array)
+            {   // Check array_val table for this one sample.
+                // Iterators that read many samples should rather
+                // call readArrayElements() for a list of samples
+                final List<VType> samples = new ArrayList<>(1);
+                samples.add(value);
+                readArrayElements(samples);
+                return samples.get(0);
+            }
+            return value;
         }
 
         // Try integer
@@ -221,6 +233,49 @@ abstract public class AbstractRDBValueIterator  implements ValueIterator
         return new ArchiveVString(time, severity, status, txt);
     }
 
+    /** Decode sample from SQL result into a block
+     *
+     *  <p>Scalar 'double' samples are added to the columns
+     *  of the block without creating a {@link VType}.
+     *
+     *  @param result ResultSet that must contain contain time, severity, ..., value
+     *  @param handle_array Try to read array elements, or only a scalar value?
+     *  @param block Block for scalar 'double' samples
+     *  @return <code>null</code> if sample was added to the block,
+     *          otherwise the decoded sample
+     *  @throws Exception on error, including cancellation
+     */
+    protected VType decodeSampleTableValue(final ResultSet result, final boolean handle_array,
+                                           final ArchiveSampleBlock block) throws Exception
+    {
+        if (labels == null  &&  (! handle_array  ||  (reader.useArrayBlob()  &&  isScalarBlob(result))))
+        {
+            final double dbl0 = result.getDouble(5);
+            if (! result.wasNull())
+            {
+                final java.sql.Timestamp stamp = result.getTimestamp(1);
+                if (!reader.isOracle())
+                    stamp.setNanos(result.getInt(7));
+                final String status = reader.getStatus(result.getInt(3));
+                final AlarmSeverity severity = filterSeverity(reader.getSeverity(result.getInt(2)), status);
+                if (block.add(ArchiveSampleBlock.toEpochNanos(TimestampHelper.fromSQLTimestamp(stamp)),
+                              severity, status, dbl0))
+                    return null;
+            }
+        }
+        return decodeSampleTableValue(result, handle_array);
+    }
+
+    /** @param result ResultSet for the sample table with blob
+     *  @return <code>true</code> if sample is a scalar, not an array
+     *  @throws Exception on error
+     */
+    private boolean isScalarBlob(final ResultSet result) throws Exception
+    {
+        final String datatype = result.getString(reader.isOracle() ? 7 : 8);
+        return datatype == null  ||  " ".equals(datatype);
+    }
+
     /** @param severity Original severity
      *  @param status Status text
      *  @return If the status indicates that there is no actual value,
@@ -240,61 +295,126 @@ abstract public class AbstractRDBValueIterator  implements ValueIterator
         return severity;
     }
 
-    /** Given the time and first element of the  sample, see if there
-     *  are more array elements.
-     *  @param stamp Time stamp of the sample
-     *  @param dbl0 Value of the first (maybe only) array element
-     *  @param severity Severity of the sample
-     *  @return Array with given element and maybe more.
+    /** @param sample Sample
+     *  @return <code>true</code> if sample is a 'double' that might have more array elements
+     */
+    private static boolean isArrayCandidate(final VType sample)
+    {
+        return sample instanceof ArchiveVNumber  &&
+               ((ArchiveVNumber) sample).getValue() instanceof Double;
+    }
+
+    /** Add array elements from the original array_val table
+     *
+     *  <p>Reads the array elements for all samples in one query,
+     *  then replaces 'double' samples that have array elements
+     *  by array samples.
+     *
+     *  @param samples Samples decoded without array elements, ordered by time.
+     *                 Samples that turn out to be arrays are replaced.
      *  @throws Exception on error, including 'cancel'
      */
-    private double[] readArrayElements(final Instant stamp,
-            final double dbl0,
-            final AlarmSeverity severity) throws Exception
+    protected void readArrayElements(final List<VType> samples) throws Exception
     {
         // For performance reasons, only look for array data until we hit a scalar sample.
-        if (is_an_array==false)
-            return new double [] { dbl0 };
+        if (is_an_array == false)
+            return;
+
+        // Time range of samples that might be arrays
+        Instant start = null, end = null;
+        for (VType sample : samples)
+            if (isArrayCandidate(sample))
+            {
+                end = VTypeHelper.getTimestamp(sample);
+                if (start == null)
+                    start = end;
+            }
+        if (start == null)
+            return;
 
-        // See if there are more array elements
         if (sel_array_samples == null)
         {   // Lazy initialization
             sel_array_samples = reader.getConnection().prepareStatement(
-                    reader.getSQL().sample_sel_array_vals);
+                    reader.getSQL().sample_sel_array_vals_by_id_start_end);
+            sel_array_samples.setFetchSize(Preferences.getFetchSize());
         }
         sel_array_samples.setInt(1, channel_id);
-        sel_array_samples.setTimestamp(2, TimestampHelper.toSQLTimestamp(stamp));
-        // MySQL keeps nanoseconds in designated column, not TIMESTAMP
-        if (! reader.isOracle())
-            sel_array_samples.setInt(3, stamp.getNano());
+        if (reader.isOracle())
+        {
+            sel_array_samples.setTimestamp(2, TimestampHelper.toSQLTimestamp(start));
+            sel_array_samples.setTimestamp(3, TimestampHelper.toSQLTimestamp(end));
+        }
+        else
+        {   // MySQL keeps nanoseconds in designated column, not TIMESTAMP,
+            // so use full seconds for the range and match nanoseconds below
+            sel_array_samples.setTimestamp(2, TimestampHelper.toSQLTimestamp(Instant.ofEpochSecond(start.getEpochSecond())));
+            sel_array_samples.setTimestamp(3, TimestampHelper.toSQLTimestamp(Instant.ofEpochSecond(end.getEpochSecond() + 1)));
+        }
 
-        // Assemble array of unknown size in ArrayList ....
-        final ArrayList<Double> vals = new ArrayList<Double>();
+        // Collect elements 1, 2, ... by time stamp, leaving room for element 0
+        final Map<Instant, double[]> arrays = new HashMap<>();
         reader.addForCancellation(sel_array_samples);
         try
-        {
+        (
             final ResultSet res = sel_array_samples.executeQuery();
-            vals.add(new Double(dbl0));
+        )
+        {
+            final int value_column = reader.isOracle() ? 2 : 3;
+            Instant time = null;
+            double[] elements = new double[100];
+            int count = 0;
             while (res.next())
-                vals.add(res.getDouble(1));
-            res.close();
+            {
+                final Timestamp stamp = res.getTimestamp(1);
+                if (! reader.isOracle())
+                    stamp.setNanos(res.getInt(2));
+                final Instant element_time = TimestampHelper.fromSQLTimestamp(stamp);
+                if (! element_time.equals(time))
+                {
+                    if (time != null)
+                        arrays.put(time, Arrays.copyOf(elements, count));
+                    time = element_time;
+                    count = 1;
+                }
+                if (count >= elements.length)
+                    elements = Arrays.copyOf(elements, count * 2);
+                elements[count++] = res.getDouble(value_column);
+            }
+            if (time != null)
+                arrays.put(time, Arrays.copyOf(elements, count));
         }
         finally
         {
             reader.removeFromCancellation(sel_array_samples);
         }
-        // Convert to plain double array
-        final int N = vals.size();
-        final double ret[] = new double[N];
-        for (int i = 0; i < N; i++)
-            ret[i] = vals.get(i).doubleValue();
-        // Check if it's in fact just a scalar, and a valid one
-        if (N == 1  &&  severity != AlarmSeverity.UNDEFINED)
+
+        // Replace samples that have array elements
+        boolean found_scalar = false;
+        final int N = samples.size();
+        for (int i=0; i<N; ++i)
+        {
+            final VType sample = samples.get(i);
+            if (! isArrayCandidate(sample))
+                continue;
+            final ArchiveVNumber number = (ArchiveVNumber) sample;
+            final double[] elements = arrays.get(number.getTimestamp());
+            if (elements == null)
+            {   // Check if it's in fact just a scalar, and a valid one
+                if (number.getAlarmSeverity() != AlarmSeverity.UNDEFINED)
+                    found_scalar = true;
+                continue;
+            }
+            // Copy, since samples with the same time stamp share the elements
+            final double[] data = elements.clone();
+            data[0] = number.getValue().doubleValue();
+            samples.set(i, new ArchiveVNumberArray(number.getTimestamp(), number.getAlarmSeverity(),
+                                                   number.getAlarmName(), display, data));
+        }
+        if (found_scalar)
         {   // Found a perfect non-array sample:
             // Assume that the data is scalar, skip the array check from now on
             is_an_array = false;
         }
-        return ret;
     }
 
     /** See if there are array elements.
@@ -317,15 +437,13 @@ abstract public class AbstractRDBValueIterator  implements ValueIterator
 
         // Decode BLOB
         final byte[] bytes = result.getBytes(reader.isOracle() ? 8 : 9);
-        final ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
-        final DataInputStream data = new DataInputStream(stream);
         if ("d".equals(datatype))
-        {    // Read Double typed array elements
-            final int nelm = data.readInt();
+        {    // Read Double typed array elements,
+             // big-endian as written by DataOutputStream
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            final int nelm = buffer.getInt();
             final double[] array = new double[nelm];
-            for (int i = 0; i < nelm; i++)
-                array[i] = data.readDouble();
-            data.close();
+            buffer.asDoubleBuffer().get(array);
             return array;
         }
         // TODO Decode 'l' Long and 'i' Integer?
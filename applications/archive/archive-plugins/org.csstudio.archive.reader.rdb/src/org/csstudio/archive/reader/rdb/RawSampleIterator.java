@@ -11,7 +11,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
 import org.diirt.vtype.VType;
@@ -30,10 +34,14 @@ public class RawSampleIterator extends AbstractRDBValueIterator
 
     private boolean concurrency = false;
 
-    /** 'Current' value that <code>next()</code> will return,
-     *  or <code>null</code>
+    /** Number of samples decoded at once */
+    final private int window_size = Math.max(1, Preferences.getFetchSize());
+
+    /** Decoded samples that <code>next()</code> will return,
+     *  empty at end
      */
-    private VType value = null;
+    final private ArrayDeque<VType> samples = new ArrayDeque<>();
+
     /** Initialize
      *  @param reader RDBArchiveReader
      *  @param channel_id ID of channel
@@ -56,7 +64,7 @@ public class RawSampleIterator extends AbstractRDBValueIterator
             if (! RDBArchiveReader.isCancellation(ex))
                 throw ex;
             // Else: Not a real error; return empty iterator
-            value = null;
+            samples.clear();
         }
     }
     /** Initialize
@@ -74,7 +82,7 @@ public class RawSampleIterator extends AbstractRDBValueIterator
     }
 
     /** Get the samples: <code>result_set</code> will have the samples,
-     *  <code>value</code> will contain the first sample
+     *  <code>samples</code> will contain the first window of samples
      *  @param start Start time
      *  @param end End time
      *  @throws Exception on error, including cancellation
@@ -157,17 +165,129 @@ public class RawSampleIterator extends AbstractRDBValueIterator
         sel_samples.setTimestamp(2, start_stamp);
         sel_samples.setTimestamp(3, end_stamp);
         result_set = sel_samples.executeQuery();
-        // Get first sample
-        if (result_set.next())
-            value = decodeSampleTableValue(result_set, true);
-        // else leave value null to indicate end of samples
+        // Get first samples
+        // or leave samples empty to indicate end of samples
+        readWindow();
+    }
+
+    /** Decode the next window of samples from <code>result_set</code>.
+     *  <p>
+     *  For the old array_val table, the array elements of all
+     *  samples in the window are then read in one query,
+     *  instead of one query per sample.
+     *  @throws Exception on error, including cancellation
+     */
+    private void readWindow() throws Exception
+    {
+        final boolean use_blob = reader.useArrayBlob();
+        final List<VType> window = new ArrayList<>(window_size);
+        while (window.size() < window_size  &&  result_set.next())
+            window.add(decodeSampleTableValue(result_set, use_blob));
+        if (! use_blob)
+            readArrayElements(window);
+        samples.addAll(window);
+    }
+
+    /** {@inheritDoc}
+     *
+     *  <p>Scalar 'double' samples are decoded from the
+     *  <code>result_set</code> directly into the block.
+     *  Enumerated samples and samples that need to be checked
+     *  for array elements are decoded window by window as in
+     *  {@link #next()}.
+     *
+     */
+    @Override
+    @SuppressWarnings("nls")
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        // This should not happen...
+        if (result_set == null)
+            throw new Exception("RawSampleIterator.nextBatch(" + channel_id + ") called after end");
+
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(max, display);
+        try
+        {
+            readBlock(block);
+            // Keep one sample to indicate that there are more
+            if (samples.isEmpty()  &&  result_set != null)
+            {
+                if (result_set.next())
+                {
+                    final boolean use_blob = reader.useArrayBlob();
+                    final List<VType> next = new ArrayList<>(1);
+                    next.add(decodeSampleTableValue(result_set, use_blob));
+                    if (! use_blob)
+                        readArrayElements(next);
+                    samples.addAll(next);
+                }
+                else
+                    close();
+            }
+        }
+        catch (Exception ex)
+        {
+            close();
+            if (! RDBArchiveReader.isCancellation(ex))
+                throw ex;
+            // Else: Not a real error; return what we have
+        }
+        return block;
+    }
+
+    /** Add samples to block
+     *
+     *  <p>Stops when the block is full, or a sample
+     *  does not fit the block and remains in <code>samples</code>,
+     *  or at the end of the <code>result_set</code>.
+     *
+     *  @param block Block to fill
+     *  @throws Exception on error, including cancellation
+     */
+    private void readBlock(final ArchiveSampleBlock block) throws Exception
+    {
+        final boolean use_blob = reader.useArrayBlob();
+        while (! block.isFull())
+        {
+            // Samples that were already decoded
+            while (! samples.isEmpty())
+            {
+                if (! block.add(samples.peek()))
+                    return;
+                samples.poll();
+                if (block.isFull())
+                    return;
+            }
+            if (labels != null  ||  (! use_blob  &&  is_an_array))
+            {   // Decode window as VType to handle enums and check for array elements
+                readWindow();
+                if (samples.isEmpty())
+                {
+                    close();
+                    return;
+                }
+                continue;
+            }
+            // Decode scalars directly into block
+            if (! result_set.next())
+            {
+                close();
+                return;
+            }
+            final VType value = decodeSampleTableValue(result_set, use_blob, block);
+            if (value != null  &&  ! block.add(value))
+            {
+                samples.add(value);
+                return;
+            }
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean hasNext()
     {
-        return value != null;
+        return ! samples.isEmpty();
     }
 
     /** {@inheritDoc} */
@@ -180,14 +300,16 @@ public class RawSampleIterator extends AbstractRDBValueIterator
             throw new Exception("RawSampleIterator.next(" + channel_id + ") called after end");
 
         // Remember value to return...
-        final VType result = value;
-        // ... and prepare next value
+        final VType result = samples.poll();
+        // ... and prepare next values
         try
         {
-            if (result_set.next())
-                value = decodeSampleTableValue(result_set, true);
-            else
-                close();
+            if (samples.isEmpty())
+            {
+                readWindow();
+                if (samples.isEmpty())
+                    close();
+            }
         }
         catch (Exception ex)
         {
@@ -206,7 +328,7 @@ public class RawSampleIterator extends AbstractRDBValueIterator
     public void close()
     {
         super.close();
-        value = null;
+        samples.clear();
         if (result_set != null)
         {
             try
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.ArchiveCache;
+import org.csstudio.archive.reader.SampleBlockIterator;
+import org.csstudio.archive.reader.SampleBlockValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.ValueIteratorBlockAdapter;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVType;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArchiveCache}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCacheUnitTest
+{
+    final private Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+
+    /** Time ranges fetched from the 'archive' */
+    final private List<String> fetched = new ArrayList<>();
+
+    /** 'Archive' with samples at 1, 2, 3, ... 100 seconds */
+    private SampleBlockIterator fetch(final Instant start, final Instant end)
+    {
+        fetched.add(start.getEpochSecond() + " .. " + end.getEpochSecond());
+        final List<VType> values = new ArrayList<>();
+        for (int i=1; i<=100; ++i)
+        {
+            final Instant time = Instant.ofEpochSecond(i);
+            // Last sample at or before start, then samples up to end
+            if (time.isAfter(end))
+                break;
+            if (! time.isAfter(start))
+                values.clear();
+            values.add(new ArchiveVNumber(time, AlarmSeverity.NONE, ArchiveVType.STATUS_OK, display, i));
+        }
+        return new ValueIteratorBlockAdapter(new DemoDataIterator(values.toArray(new VType[values.size()])), 7);
+    }
+
+    /** @return Seconds of samples in the cache for the time range */
+    private String read(final ArchiveCache cache, final String key, final double start, final double end) throws Exception
+    {
+        final ValueIterator values = new SampleBlockValueIterator(
+            cache.getBlocks(key, Instant.ofEpochMilli((long) (start*1000)), Instant.ofEpochMilli((long) (end*1000)), this::fetch));
+        final StringBuilder buf = new StringBuilder();
+        while (values.hasNext())
+        {
+            if (buf.length() > 0)
+                buf.append(", ");
+            buf.append(VTypeHelper.getTimestamp(values.next()).getEpochSecond());
+        }
+        values.close();
+        return buf.toString();
+    }
+
+    @Test
+    public void testCache() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(1024*1024, Duration.ofMinutes(5));
+
+        // Miss, including the sample before the start time
+        assertThat(read(cache, "a", 10.5, 20), equalTo("10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20"));
+        assertThat(fetched.size(), equalTo(1));
+        assertThat(cache.getMisses(), equalTo(1L));
+
+        // Hit
+        assertThat(read(cache, "a", 12.5, 15), equalTo("12, 13, 14, 15"));
+        assertThat(read(cache, "a", 13, 15), equalTo("13, 14, 15"));
+        assertThat(fetched.size(), equalTo(1));
+        assertThat(cache.getHits(), equalTo(2L));
+
+        // Only fetch the missing time ranges
+        assertThat(read(cache, "a", 5, 25), equalTo("5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25"));
+        assertThat(fetched.toString(), equalTo("[10 .. 20, 5 .. 10, 20 .. 25]"));
+        assertThat(cache.getPartialHits(), equalTo(1L));
+
+        // Segments have been merged
+        assertThat(read(cache, "a", 4.5, 25), equalTo("4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25"));
+        assertThat(fetched.size(), equalTo(4));
+        assertThat(read(cache, "a", 7, 24.5), equalTo("7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24"));
+        assertThat(fetched.size(), equalTo(4));
+        System.out.println(cache);
+
+        // Other key is not cached
+        assertThat(read(cache, "b", 7, 9), equalTo("7, 8, 9"));
+        assertThat(fetched.size(), equalTo(5));
+        assertThat(cache.getEntryCount(), equalTo(2));
+    }
+
+    @Test
+    public void testRecentSamples() throws Exception
+    {
+        // Samples within a long holdoff are not cached
+        final ArchiveCache cache = new ArchiveCache(1024*1024, Duration.between(Instant.ofEpochSecond(50), Instant.now()));
+        assertThat(read(cache, "a", 40, 60), equalTo("40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60"));
+        assertThat(read(cache, "a", 40, 60), equalTo("40, 41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60"));
+        assertThat(fetched.size(), equalTo(2));
+        assertThat(fetched.get(1), equalTo("50 .. 60"));
+    }
+
+    @Test
+    public void testEviction() throws Exception
+    {
+        // Memory for about two channels
+        final ArchiveCache cache = new ArchiveCache(700, Duration.ofMinutes(5));
+        read(cache, "a", 1, 10);
+        read(cache, "b", 1, 10);
+        read(cache, "c", 1, 10);
+        assertThat(cache.getEntryCount(), equalTo(2));
+        assertThat(cache.getEvictions(), equalTo(1L));
+
+        // "b" is cached, "a" needs to be fetched again, which evicts "c"
+        read(cache, "b", 1, 10);
+        assertThat(fetched.size(), equalTo(3));
+        read(cache, "a", 1, 10);
+        assertThat(fetched.size(), equalTo(4));
+        assertThat(cache.getEvictions(), equalTo(2L));
+        read(cache, "b", 1, 10);
+        assertThat(fetched.size(), equalTo(4));
+        System.out.println(cache);
+    }
+}
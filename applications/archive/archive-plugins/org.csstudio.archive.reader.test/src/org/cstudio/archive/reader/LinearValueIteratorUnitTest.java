@@ -16,6 +16,7 @@ import java.time.Instant;
 
 import org.csstudio.archive.reader.LinearValueIterator;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.ArchiveVString;
 import org.csstudio.archive.vtype.VTypeHelper;
@@ -314,4 +315,31 @@ public class LinearValueIteratorUnitTest
         linear.close();
     }
 
+
+    /** Batches match the individual values */
+    @Test
+    public void testBatches() throws Exception
+    {
+        final VType[] data = new VType[3000];
+        for (int i=0; i<data.length; ++i)
+            data[i] = testValue(1 + i * 3, Math.sin(i * 0.1));
+
+        final ValueIterator linear = new LinearValueIterator(new DemoDataIterator(data), TimeDuration.ofSeconds(10));
+        final ValueIterator batched = new LinearValueIterator(new DemoDataIterator(data), TimeDuration.ofSeconds(10));
+        int count = 0;
+        while (batched.hasNext())
+        {
+            final ArchiveSampleBlock batch = batched.nextBatch(100);
+            for (int i=0; i<batch.size(); ++i)
+            {
+                assertThat(linear.hasNext(), equalTo(true));
+                assertThat(batch.get(i), equalTo(linear.next()));
+                ++count;
+            }
+        }
+        assertThat(linear.hasNext(), equalTo(false));
+        assertThat(count, equalTo(900));
+        linear.close();
+        batched.close();
+    }
 }
@@ -12,6 +12,7 @@ import static org.junit.Assert.assertThat;
 
 import org.csstudio.archive.reader.MergingValueIterator;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.DefaultVTypeFormat;
 import org.csstudio.archive.vtype.VTypeFormat;
 import org.diirt.vtype.VType;
@@ -51,4 +52,28 @@ public class MergingValueIteratorUnitTest
         assertThat(iter1.isOpen(), equalTo(false));
         assertThat(iter2.isOpen(), equalTo(false));
     }
+
+    /** Merge in batches */
+    @Test
+    public void testMergingBatches() throws Exception
+    {
+        final ValueIterator merge = new MergingValueIterator(DemoDataIterator.forStrings("A"), DemoDataIterator.forStrings("B", 5));
+        final StringBuilder result = new StringBuilder();
+        final VTypeFormat format = new DefaultVTypeFormat();
+        int batches = 0;
+        while (merge.hasNext())
+        {
+            final ArchiveSampleBlock batch = merge.nextBatch(8);
+            ++batches;
+            for (int i=0; i<batch.size(); ++i)
+            {
+                if (result.length() > 0)
+                    result.append(", ");
+                format.format(batch.get(i), result);
+            }
+        }
+        merge.close();
+        assertThat(batches, equalTo(3));
+        assertThat(result.toString(), equalTo("A 1, A 2, A 3, A 4, A 5, A 6, B 1, A 7, B 2, A 8, B 3, A 9, B 4, A 10, B 5, B 6, B 7, B 8, B 9, B 10"));
+    }
 }
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.csstudio.archive.reader.PrefetchValueIterator;
+import org.csstudio.archive.reader.SpreadsheetIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVType;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/** JUnit test of the {@link PrefetchValueIterator}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PrefetchValueIteratorUnitTest
+{
+    private static final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterClass
+    public static void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    private VType[] createValues(final int count, final int offset)
+    {
+        final VType[] values = new VType[count];
+        for (int i=0; i<count; ++i)
+            values[i] = new ArchiveVNumber(Instant.ofEpochSecond(1 + 2*i + offset), AlarmSeverity.NONE, ArchiveVType.STATUS_OK,
+                                           ValueFactory.displayNone(), i);
+        return values;
+    }
+
+    @Test
+    public void testValues() throws Exception
+    {
+        final VType[] values = createValues(25, 0);
+        final DemoDataIterator iter = new DemoDataIterator(values);
+        final ValueIterator samples = new PrefetchValueIterator(iter, pool, 7);
+        int i = 0;
+        while (samples.hasNext())
+            assertThat(samples.next(), equalTo(values[i++]));
+        assertThat(i, equalTo(values.length));
+        samples.close();
+        assertThat(iter.isOpen(), equalTo(false));
+
+        // Batches that don't align with the prefetched batches
+        final ValueIterator batches = new PrefetchValueIterator(new DemoDataIterator(values), pool, 7);
+        i = 0;
+        while (batches.hasNext())
+        {
+            final ArchiveSampleBlock batch = batches.nextBatch(5);
+            for (int b=0; b<batch.size(); ++b)
+                assertThat(batch.get(b), equalTo(values[i++]));
+        }
+        assertThat(i, equalTo(values.length));
+        batches.close();
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        final DemoDataIterator iter = new DemoDataIterator(new VType[0]);
+        final ValueIterator samples = new PrefetchValueIterator(iter, pool);
+        assertThat(samples.hasNext(), equalTo(false));
+        samples.close();
+        assertThat(iter.isOpen(), equalTo(false));
+    }
+
+    @Test
+    public void testSpreadsheet() throws Exception
+    {
+        // Two channels with interleaved time stamps
+        final VType[] a = createValues(3000, 0);
+        final VType[] b = createValues(3000, 1);
+        final SpreadsheetIterator sheet = new SpreadsheetIterator(
+            new PrefetchValueIterator(new DemoDataIterator(a), pool),
+            new PrefetchValueIterator(new DemoDataIterator(b), pool));
+        int lines = 0;
+        while (sheet.hasNext())
+        {
+            final VType[] line = sheet.next();
+            assertThat(line[0], equalTo(a[lines / 2]));
+            if (lines > 0)
+                assertThat(line[1], equalTo(b[(lines-1) / 2]));
+            ++lines;
+        }
+        assertThat(lines, equalTo(a.length + b.length));
+        sheet.close();
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+
+import org.csstudio.archive.reader.SampleBlockIterator;
+import org.csstudio.archive.reader.SampleBlockValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.ValueIteratorBlockAdapter;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVType;
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link SampleBlockIterator} adapters
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class SampleBlockIteratorUnitTest
+{
+    @Test
+    public void testBlocks() throws Exception
+    {
+        final Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+        final Display other = ValueFactory.newDisplay(0.0, 1.0, 2.0, "mA", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+        final VType[] values = new VType[25];
+        for (int i=0; i<values.length; ++i)
+            values[i] = new ArchiveVNumber(Instant.ofEpochSecond(i+1), AlarmSeverity.NONE, ArchiveVType.STATUS_OK,
+                                           i < 15 ? display : other, i);
+
+        // Blocks of up to 10.
+        // In the second block, numbers with the other display are kept as objects,
+        // the third block holds those in columns
+        final DemoDataIterator iter = new DemoDataIterator(values);
+        final SampleBlockIterator blocks = new ValueIteratorBlockAdapter(iter, 10);
+        final int[] sizes = new int[] { 10, 10, 5 };
+        int i = 0;
+        for (int size : sizes)
+        {
+            assertThat(blocks.hasNext(), equalTo(true));
+            final ArchiveSampleBlock block = blocks.next();
+            System.out.println(block);
+            assertThat(block.size(), equalTo(size));
+            for (int b=0; b<size; ++b)
+            {
+                assertThat(block.isNumeric(b), equalTo(i < 15  ||  i >= 20));
+                assertThat(block.get(b), equalTo(values[i++]));
+            }
+        }
+        assertThat(blocks.hasNext(), equalTo(false));
+        blocks.close();
+        assertThat(iter.isOpen(), equalTo(false));
+
+        // Back to values
+        final DemoDataIterator iter2 = new DemoDataIterator(values);
+        final ValueIterator samples = new SampleBlockValueIterator(new ValueIteratorBlockAdapter(iter2, 7));
+        i = 0;
+        while (samples.hasNext())
+            assertThat(samples.next(), equalTo(values[i++]));
+        assertThat(i, equalTo(values.length));
+        samples.close();
+        assertThat(iter2.isOpen(), equalTo(false));
+
+        // Batches from blocks
+        final ValueIterator batches = new SampleBlockValueIterator(new ValueIteratorBlockAdapter(new DemoDataIterator(values), 7));
+        i = 0;
+        while (batches.hasNext())
+        {
+            final ArchiveSampleBlock batch = batches.nextBatch(5);
+            for (int b=0; b<batch.size(); ++b)
+                assertThat(batch.get(b), equalTo(values[i++]));
+        }
+        assertThat(i, equalTo(values.length));
+        batches.close();
+    }
+}
@@ -10,6 +10,8 @@ package org.cstudio.archive.reader;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.time.Instant;
+
 import org.csstudio.archive.reader.SpreadsheetIterator;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.DefaultVTypeFormat;
@@ -44,6 +46,35 @@ public class SpreadsheetIteratorUnitTest
         assertThat(result, equalTo("A 1,null,A 2,null,A 3,null,A 4,null,A 5,null,A 6,B 1,A 7,B 2,A 8,B 3,A 9,B 4,A 10,B 5,A 10,B 6,A 10,B 7,A 10,B 8,A 10,B 9,A 10,B 10"));
     }
 
+    /** Read spreadsheet lines in batches */
+    @Test
+    public void testSpreadsheetBatches() throws Exception
+    {
+        final SpreadsheetIterator sheet = new SpreadsheetIterator(
+                new ValueIterator[] { DemoDataIterator.forStrings("A"), DemoDataIterator.forStrings("B", 5) });
+        final Instant[] times = new Instant[4];
+        final VType[][] lines = new VType[4][];
+        final StringBuilder result = new StringBuilder();
+        final VTypeFormat format = new DefaultVTypeFormat();
+        int count = 0, batch;
+        while ((batch = sheet.nextBatch(times, lines)) > 0)
+        {
+            for (int l=0; l<batch; ++l)
+            {
+                assertThat(times[l], equalTo(Instant.ofEpochSecond(++count)));
+                for (VType value : lines[l])
+                {
+                    if (result.length() > 0)
+                        result.append(",");
+                    format.format(value, result);
+                }
+            }
+        }
+        sheet.close();
+        assertThat(count, equalTo(15));
+        assertThat(result.toString(), equalTo("A 1,null,A 2,null,A 3,null,A 4,null,A 5,null,A 6,B 1,A 7,B 2,A 8,B 3,A 9,B 4,A 10,B 5,A 10,B 6,A 10,B 7,A 10,B 8,A 10,B 9,A 10,B 10"));
+    }
+
     private String runSheetTest(final int time_lag) throws Exception
     {
         System.out.println("SpreadsheetIterator");
@@ -0,0 +1,570 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+
+/** Cache for blocks of archived samples
+ *
+ *  <p>For each channel and resolution, the cache holds segments,
+ *  i.e. time ranges for which all samples have been read.
+ *  A request is served from the cached segments,
+ *  fetching only the gaps between them from the archive.
+ *  Samples read for the gaps are then added to the cache,
+ *  merging them with adjacent segments.
+ *
+ *  <p>Like the archive readers, the samples returned for a time range
+ *  start with the last sample at or before the start time.
+ *
+ *  <p>The memory used by the cache is limited.
+ *  When exceeded, the least recently used channels are removed.
+ *  Samples close to 'now' are not cached, since the archive engine
+ *  may still add samples for that time range.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveCache
+{
+    /** Fetches samples from the archive */
+    @FunctionalInterface
+    public interface Fetcher
+    {
+        /** @param start Start time
+         *  @param end End time
+         *  @return {@link SampleBlockIterator} for the samples
+         *  @throws Exception on error
+         */
+        public SampleBlockIterator fetch(Instant start, Instant end) throws Exception;
+    }
+
+    /** Time range for which all samples are cached */
+    private static class Segment
+    {
+        final Instant start, end;
+        final List<ArchiveSampleBlock> blocks;
+        final long bytes;
+
+        Segment(final Instant start, final Instant end, final List<ArchiveSampleBlock> blocks)
+        {
+            this.start = start;
+            this.end = end;
+            this.blocks = blocks;
+            long bytes = 0;
+            for (ArchiveSampleBlock block : blocks)
+                bytes += estimateBytes(block);
+            this.bytes = bytes;
+        }
+    }
+
+    /** Cached segments of one channel and resolution */
+    private static class Entry
+    {
+        /** Segments sorted by time, not overlapping */
+        final List<Segment> segments = new ArrayList<>();
+        long bytes = 0;
+    }
+
+    private static ArchiveCache instance = null;
+
+    final private long max_bytes;
+
+    final private Duration holdoff;
+
+    /** Entries by key, least recently used first.
+     *  Entries, their segments and <code>bytes</code> are
+     *  synchronized on <code>this</code>.
+     */
+    final private Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Estimated memory used by all entries */
+    private long bytes = 0;
+
+    final private AtomicLong hits = new AtomicLong(), partial_hits = new AtomicLong(),
+                             misses = new AtomicLong(), evictions = new AtomicLong();
+
+    /** @return Shared cache, <code>null</code> when disabled in preferences */
+    public static synchronized ArchiveCache getInstance()
+    {
+        if (instance == null)
+        {
+            final int size_mb = Preferences.getCacheSizeMB();
+            if (size_mb <= 0)
+                return null;
+            instance = new ArchiveCache(size_mb * 1024L * 1024L,
+                                        Duration.ofSeconds(Preferences.getCacheHoldoffSecs()));
+        }
+        return instance;
+    }
+
+    /** @param max_bytes Maximum memory to use for samples
+     *  @param holdoff Samples newer than this time before 'now' are not cached
+     */
+    public ArchiveCache(final long max_bytes, final Duration holdoff)
+    {
+        this.max_bytes = max_bytes;
+        this.holdoff = holdoff;
+    }
+
+    /** @param url Archive URL
+     *  @param key Key of the sub-archive
+     *  @param name Channel name
+     *  @param resolution "raw" or some description of the optimization
+     *  @return Key for the channel in the cache
+     */
+    public static String getKey(final String url, final int key, final String name, final String resolution)
+    {
+        return url + "|" + key + "|" + name + "|" + resolution;
+    }
+
+    /** Get samples, using cached samples where possible
+     *  @param key Key for the channel in the cache
+     *  @param start Start time
+     *  @param end End time
+     *  @param fetcher Fetches samples from the archive
+     *  @return {@link SampleBlockIterator} for the samples
+     *  @throws Exception on error
+     */
+    public SampleBlockIterator getBlocks(final String key, final Instant start, final Instant end,
+                                         final Fetcher fetcher) throws Exception
+    {
+        final Instant cache_limit = Instant.now().minus(holdoff);
+        final List<Piece> pieces = new ArrayList<>();
+        int cached = 0;
+        synchronized (this)
+        {
+            final Entry entry = entries.get(key);
+            Instant time = start;
+            if (entry != null)
+                for (Segment segment : entry.segments)
+                {
+                    if (segment.end.isBefore(time))
+                        continue;
+                    if (segment.start.isAfter(end))
+                        break;
+                    if (segment.start.isAfter(time))
+                    {
+                        pieces.add(new GapPiece(key, time, segment.start, pieces.isEmpty(), fetcher, cache_limit));
+                        time = segment.start;
+                    }
+                    final Instant piece_end = segment.end.isBefore(end) ? segment.end : end;
+                    pieces.add(new CachedPiece(segment, time, piece_end, pieces.isEmpty()));
+                    ++cached;
+                    time = piece_end;
+                    if (! time.isBefore(end))
+                        break;
+                }
+            if (pieces.isEmpty()  ||  time.isBefore(end))
+                pieces.add(new GapPiece(key, time, end, pieces.isEmpty(), fetcher, cache_limit));
+        }
+
+        if (cached == 0)
+            misses.incrementAndGet();
+        else if (cached == pieces.size())
+            hits.incrementAndGet();
+        else
+            partial_hits.incrementAndGet();
+        Logger.getLogger(getClass().getName()).log(Level.FINE, "{0} from {1} to {2}: {3} of {4} pieces cached",
+                                                   new Object[] { key, start, end, cached, pieces.size() });
+        return new CacheIterator(pieces);
+    }
+
+    /** Add segment to the cache
+     *  @param key Key for the channel in the cache
+     *  @param segment Segment to add
+     *  @param needs_previous Does the segment depend on a cached segment that ends at its start?
+     */
+    private synchronized void add(final String key, Segment segment, final boolean needs_previous)
+    {
+        if (segment.bytes > max_bytes / 2)
+            return;
+        final Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        final List<Segment> segments = entry.segments;
+        int i = 0;
+        while (i < segments.size()  &&  segments.get(i).end.isBefore(segment.start))
+            ++i;
+        // A segment that's read as the continuation of a previous segment
+        // lacks the sample at or before its start time,
+        // so it's useless when that previous segment has been removed
+        if (needs_previous  &&
+            (i >= segments.size()  ||  segments.get(i).start.isAfter(segment.start)))
+            return;
+        // Merge with overlapping or adjacent segments
+        while (i < segments.size()  &&  ! segments.get(i).start.isAfter(segment.end))
+        {
+            final Segment other = segments.remove(i);
+            entry.bytes -= other.bytes;
+            bytes -= other.bytes;
+            segment = other.start.isAfter(segment.start)
+                    ? merge(segment, other)
+                    : merge(other, segment);
+        }
+        segments.add(i, segment);
+        entry.bytes += segment.bytes;
+        bytes += segment.bytes;
+
+        // Remove least recently used entries
+        final Iterator<Entry> lru = entries.values().iterator();
+        while (bytes > max_bytes  &&  lru.hasNext())
+        {
+            final Entry old = lru.next();
+            if (old == entry)
+                continue;
+            lru.remove();
+            bytes -= old.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** @param first Segment that starts first
+     *  @param second Segment that starts within or right after the first segment
+     *  @return Segment that covers both
+     */
+    private static Segment merge(final Segment first, final Segment second)
+    {
+        if (! second.end.isAfter(first.end))
+            return first;
+        final List<ArchiveSampleBlock> blocks = new ArrayList<>(first.blocks);
+        final long after = ArchiveSampleBlock.toEpochNanos(first.end);
+        for (ArchiveSampleBlock block : second.blocks)
+        {
+            final ArchiveSampleBlock part = slice(block, upperBound(block, after), block.size());
+            if (part != null)
+                blocks.add(part);
+        }
+        return new Segment(first.start, second.end, blocks);
+    }
+
+    /** @param block Block of samples
+     *  @param nanos Time in epoch nanoseconds
+     *  @return Number of samples in block at or before the time
+     */
+    private static int upperBound(final ArchiveSampleBlock block, final long nanos)
+    {
+        int low = 0, high = block.size();
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (block.getEpochNanos(mid) <= nanos)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** @param block Block of samples
+     *  @param from Index of first sample
+     *  @param to Index after last sample
+     *  @return Block with samples from .. to, which may be the original block, or <code>null</code> if empty
+     */
+    private static ArchiveSampleBlock slice(final ArchiveSampleBlock block, final int from, final int to)
+    {
+        if (from >= to)
+            return null;
+        if (from == 0  &&  to == block.size()  &&  block.isFull())
+            return block;
+        final ArchiveSampleBlock copy = new ArchiveSampleBlock(to - from);
+        for (int i=from; i<to; ++i)
+            copy.add(block, i);
+        return copy;
+    }
+
+    /** @param block Block of samples
+     *  @return Estimated memory used by the block
+     */
+    private static long estimateBytes(final ArchiveSampleBlock block)
+    {
+        // Time, value, severity, status columns
+        long bytes = 64 + block.capacity() * (8 + 8 + 1 + 2);
+        // Samples that are kept as objects
+        for (int i=0; i<block.size(); ++i)
+            if (! block.isNumeric(i))
+                bytes += 100;
+        return bytes;
+    }
+
+    /** Part of a request, either cached or fetched from the archive */
+    private static abstract class Piece
+    {
+        final Instant start, end;
+
+        /** Is this the first piece of the request?
+         *  The first piece includes the last sample at or before its start,
+         *  while other pieces contain samples after the start.
+         */
+        final boolean first;
+
+        Piece(final Instant start, final Instant end, final boolean first)
+        {
+            this.start = start;
+            this.end = end;
+            this.first = first;
+        }
+
+        /** @return Next block, <code>null</code> when done
+         *  @throws Exception on error
+         */
+        abstract ArchiveSampleBlock nextBlock() throws Exception;
+
+        void close()
+        {
+            // NOP
+        }
+    }
+
+    /** Piece served from a cached segment */
+    private static class CachedPiece extends Piece
+    {
+        final private List<ArchiveSampleBlock> blocks;
+        final private long end_nanos;
+        private int block_index = 0, sample_index = 0;
+
+        CachedPiece(final Segment segment, final Instant start, final Instant end, final boolean first)
+        {
+            super(start, end, first);
+            blocks = segment.blocks;
+            end_nanos = ArchiveSampleBlock.toEpochNanos(end);
+            final long start_nanos = ArchiveSampleBlock.toEpochNanos(start);
+            if (first)
+            {   // Locate last sample at or before start, if there is one
+                for (int b=0; b<blocks.size(); ++b)
+                {
+                    final int n = upperBound(blocks.get(b), start_nanos);
+                    if (n > 0)
+                    {
+                        block_index = b;
+                        sample_index = n - 1;
+                    }
+                    if (n < blocks.get(b).size())
+                        break;
+                }
+            }
+            else
+            {   // Locate first sample after start
+                for (block_index=0; block_index<blocks.size(); ++block_index)
+                {
+                    sample_index = upperBound(blocks.get(block_index), start_nanos);
+                    if (sample_index < blocks.get(block_index).size())
+                        break;
+                }
+            }
+        }
+
+        @Override
+        ArchiveSampleBlock nextBlock()
+        {
+            while (block_index < blocks.size())
+            {
+                final ArchiveSampleBlock block = blocks.get(block_index);
+                final int to = upperBound(block, end_nanos);
+                final ArchiveSampleBlock part = slice(block, sample_index, to);
+                if (to < block.size())
+                    block_index = blocks.size();
+                else
+                    ++block_index;
+                sample_index = 0;
+                if (part != null)
+                    return part;
+            }
+            return null;
+        }
+    }
+
+    /** Piece fetched from the archive, then added to the cache */
+    private class GapPiece extends Piece
+    {
+        final private String key;
+        final private Fetcher fetcher;
+        final private long start_nanos, end_nanos;
+
+        /** End of samples to cache */
+        final private Instant cache_end;
+        final private long cache_end_nanos;
+
+        private SampleBlockIterator fetched = null;
+
+        /** Samples to cache, <code>null</code> when not caching */
+        private List<ArchiveSampleBlock> recorded;
+        private long recorded_bytes = 0;
+
+        GapPiece(final String key, final Instant start, final Instant end, final boolean first,
+                 final Fetcher fetcher, final Instant cache_limit)
+        {
+            super(start, end, first);
+            this.key = key;
+            this.fetcher = fetcher;
+            start_nanos = ArchiveSampleBlock.toEpochNanos(start);
+            end_nanos = ArchiveSampleBlock.toEpochNanos(end);
+            cache_end = end.isBefore(cache_limit) ? end : cache_limit;
+            cache_end_nanos = ArchiveSampleBlock.toEpochNanos(cache_end);
+            recorded = start.isBefore(cache_end) ? new ArrayList<>() : null;
+        }
+
+        @Override
+        ArchiveSampleBlock nextBlock() throws Exception
+        {
+            if (fetched == null)
+                fetched = fetcher.fetch(start, end);
+            while (fetched.hasNext())
+            {
+                final ArchiveSampleBlock block = fetched.next();
+                final ArchiveSampleBlock part = slice(block, first ? 0 : upperBound(block, start_nanos),
+                                                      upperBound(block, end_nanos));
+                if (part == null)
+                    continue;
+                if (recorded != null)
+                {
+                    final ArchiveSampleBlock cached = slice(part, 0, upperBound(part, cache_end_nanos));
+                    if (cached != null)
+                    {
+                        recorded.add(cached);
+                        recorded_bytes += estimateBytes(cached);
+                        if (recorded_bytes > max_bytes / 2)
+                            recorded = null;
+                    }
+                }
+                return part;
+            }
+            // Completely fetched, add to cache
+            if (recorded != null)
+            {
+                add(key, new Segment(start, cache_end, recorded), !first);
+                recorded = null;
+            }
+            return null;
+        }
+
+        @Override
+        void close()
+        {
+            recorded = null;
+            if (fetched != null)
+                fetched.close();
+        }
+    }
+
+    /** Iterates over the pieces of a request */
+    private static class CacheIterator implements SampleBlockIterator
+    {
+        final private List<Piece> pieces;
+        private int index = 0;
+        private ArchiveSampleBlock next = null;
+
+        CacheIterator(final List<Piece> pieces) throws Exception
+        {
+            this.pieces = pieces;
+            try
+            {
+                fetchNext();
+            }
+            catch (Exception ex)
+            {
+                close();
+                throw ex;
+            }
+        }
+
+        private void fetchNext() throws Exception
+        {
+            next = null;
+            while (index < pieces.size())
+            {
+                next = pieces.get(index).nextBlock();
+                if (next != null)
+                    return;
+                pieces.get(index).close();
+                ++index;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public ArchiveSampleBlock next() throws Exception
+        {
+            final ArchiveSampleBlock result = next;
+            fetchNext();
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+            next = null;
+            for (; index < pieces.size(); ++index)
+                pieces.get(index).close();
+        }
+    }
+
+    /** @return Number of requests served from the cache */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of requests that were partially served from the cache */
+    public long getPartialHits()
+    {
+        return partial_hits.get();
+    }
+
+    /** @return Number of requests that had to be fetched from the archive */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /** @return Number of channels that were removed from the cache to limit memory usage */
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /** @return Estimated memory used by cached samples */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    /** @return Number of cached channels */
+    public synchronized int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    /** Remove all cached samples */
+    public synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ArchiveCache: " + getEntryCount() + " channels, " + getBytes()/1024 + " kB, " +
+               getHits() + " hits, " + getPartialHits() + " partial hits, " +
+               getMisses() + " misses, " + getEvictions() + " evictions";
+    }
+}
@@ -165,6 +165,46 @@ public interface ArchiveReader extends Closeable
     public ValueIterator getOptimizedValues(int key, String name,
         Instant start, Instant end, int count) throws UnknownChannelException, Exception;
 
+    /** Read original, raw samples from the archive in blocks
+     *
+     *  <p>Default implementation adapts {@link #getRawValues}.
+     *  Readers that can decode samples directly into
+     *  blocks should override.
+     *
+     *  @param key Key of the archive to use for retrieval.
+     *  @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @return {@link SampleBlockIterator} for the 'raw' samples in the archive
+     *  @throws UnknownChannelException when channel is not known
+     *  @throws Exception on error
+     */
+    public default SampleBlockIterator getRawBlocks(final int key, final String name,
+            final Instant start, final Instant end) throws UnknownChannelException, Exception
+    {
+        return new ValueIteratorBlockAdapter(getRawValues(key, name, start, end));
+    }
+
+    /** Read optimized samples from the archive in blocks
+     *
+     *  <p>Default implementation adapts {@link #getOptimizedValues}.
+     *
+     *  @param key Key of the archive to use for retrieval.
+     *  @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Hint for number of values
+     *  @return {@link SampleBlockIterator} for the optimized samples
+     *  @throws UnknownChannelException when channel is not known
+     *  @throws Exception on error
+     *  @see #getOptimizedValues(int, String, Instant, Instant, int)
+     */
+    public default SampleBlockIterator getOptimizedBlocks(final int key, final String name,
+            final Instant start, final Instant end, final int count) throws UnknownChannelException, Exception
+    {
+        return new ValueIteratorBlockAdapter(getOptimizedValues(key, name, start, end, count));
+    }
+
     /** Cancel an ongoing archive query.
      *  It's up to the implementation to support this for all queries,
      *  or only 'getSamples', or not at all.
@@ -92,11 +92,29 @@ public class ArchiveRepository
     }
 
     /** Create archive reader for URL
+     *
+     *  <p>When enabled in the preferences, the reader
+     *  uses the shared {@link ArchiveCache}.
+     *
      *  @param url Archive URL
      *  @return ArchiveReader for given URL
      *  @throws Exception on error (no suitable reader, or internal error)
      */
     public ArchiveReader getArchiveReader(final String url) throws Exception
+    {
+        final ArchiveReader reader = getUncachedArchiveReader(url);
+        final ArchiveCache cache = ArchiveCache.getInstance();
+        if (cache == null)
+            return reader;
+        return new CachingArchiveReader(reader, cache);
+    }
+
+    /** Create archive reader for URL that does not use the cache
+     *  @param url Archive URL
+     *  @return ArchiveReader for given URL
+     *  @throws Exception on error (no suitable reader, or internal error)
+     */
+    public ArchiveReader getUncachedArchiveReader(final String url) throws Exception
     {
         // Determine prefix
         final int delim = url.indexOf(':');
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/** {@link ArchiveReader} that uses an {@link ArchiveCache}
+ *
+ *  <p>Samples are read via the cache,
+ *  which only fetches samples from the base reader
+ *  that are not already cached.
+ *
+ *  <p>Optimized samples are cached by the duration of
+ *  their time bins, so requests with the same bin size,
+ *  for example while scrolling a plot, share cached samples.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class CachingArchiveReader implements ArchiveReader
+{
+    final private ArchiveReader base;
+    final private ArchiveCache cache;
+
+    /** @param base Reader that fetches samples from the archive
+     *  @param cache Cache to use
+     */
+    public CachingArchiveReader(final ArchiveReader base, final ArchiveCache cache)
+    {
+        this.base = base;
+        this.cache = cache;
+    }
+
+    /** @return Reader that fetches samples from the archive */
+    public ArchiveReader getBaseReader()
+    {
+        return base;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getServerName()
+    {
+        return base.getServerName();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getURL()
+    {
+        return base.getURL();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDescription()
+    {
+        return base.getDescription();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getVersion()
+    {
+        return base.getVersion();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveInfo[] getArchiveInfos()
+    {
+        return base.getArchiveInfos();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByPattern(final int key, final String glob_pattern) throws Exception
+    {
+        return base.getNamesByPattern(key, glob_pattern);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByRegExp(final int key, final String reg_exp) throws Exception
+    {
+        return base.getNamesByRegExp(key, reg_exp);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getRawValues(final int key, final String name,
+            final Instant start, final Instant end) throws UnknownChannelException, Exception
+    {
+        return new SampleBlockValueIterator(getRawBlocks(key, name, start, end));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getOptimizedValues(final int key, final String name,
+            final Instant start, final Instant end, final int count) throws UnknownChannelException, Exception
+    {
+        return new SampleBlockValueIterator(getOptimizedBlocks(key, name, start, end, count));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SampleBlockIterator getRawBlocks(final int key, final String name,
+            final Instant start, final Instant end) throws UnknownChannelException, Exception
+    {
+        return cache.getBlocks(ArchiveCache.getKey(getURL(), key, name, "raw"), start, end,
+                               (gap_start, gap_end) -> base.getRawBlocks(key, name, gap_start, gap_end));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SampleBlockIterator getOptimizedBlocks(final int key, final String name,
+            final Instant start, final Instant end, final int count) throws UnknownChannelException, Exception
+    {
+        final long range = Duration.between(start, end).toNanos();
+        if (count <= 1  ||  range <= 0)
+            return base.getOptimizedBlocks(key, name, start, end, count);
+        final long bin = Math.max(1, range / count);
+        // Request the same bin size for gaps
+        return cache.getBlocks(ArchiveCache.getKey(getURL(), key, name, "bin " + bin + " ns"), start, end,
+                               (gap_start, gap_end) ->
+                               {
+                                   final long gap = Duration.between(gap_start, gap_end).toNanos();
+                                   final int gap_count = (int) Math.min(count, Math.max(2, (gap + bin - 1) / bin));
+                                   return base.getOptimizedBlocks(key, name, gap_start, gap_end, gap_count);
+                               });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancel()
+    {
+        base.cancel();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        base.close();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void enableConcurrency(final boolean concurrency)
+    {
+        base.enableConcurrency(concurrency);
+    }
+}
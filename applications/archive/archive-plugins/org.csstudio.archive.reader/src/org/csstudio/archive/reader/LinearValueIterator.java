@@ -10,11 +10,11 @@ package org.csstudio.archive.reader;
 import java.time.Duration;
 import java.time.Instant;
 
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.ArchiveVStatistics;
 import org.csstudio.archive.vtype.StatisticsAccumulator;
 import org.csstudio.archive.vtype.TimestampHelper;
 import org.csstudio.archive.vtype.VTypeHelper;
-import org.diirt.util.time.TimeDuration;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
 import org.diirt.vtype.VType;
@@ -46,20 +46,19 @@ import org.diirt.vtype.VType;
  *  But if the last sample before the interpolation point is UNDEFINED,
  *  so will be the interpolation point.
  *
+ *  <p>The base iterator is read in batches.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class LinearValueIterator implements ValueIterator
 {
-    /** Base iterator */
-    final private ValueIterator base;
+    /** Base iterator, positioned on the last sample read */
+    final private ValueIteratorCursor base;
 
     /** Interpolation interval */
     final private Duration interval;
 
-    /** Last value read from the base iterator */
-    private VType base_value;
-
     /** The next value to return */
     private VType next;
 
@@ -70,9 +69,8 @@ public class LinearValueIterator implements ValueIterator
      */
     public LinearValueIterator(final ValueIterator base, final Duration interval) throws Exception
     {
-        this.base = base;
+        this.base = new ValueIteratorCursor(base);
         this.interval = interval;
-        base_value = base.hasNext() ? base.next() : null;
         next = determineNextValue();
     }
 
@@ -92,6 +90,16 @@ public class LinearValueIterator implements ValueIterator
         return result;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(max);
+        while (next != null  &&  (block.add(next)  ||  block.addObject(next)))
+            next = determineNextValue();
+        return block;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close()
@@ -106,25 +114,28 @@ public class LinearValueIterator implements ValueIterator
      */
     private VType determineNextValue() throws Exception
     {
-        if (base_value == null)
+        if (! base.isValid())
             return null;
 
         // Have one, initial value
+        ArchiveSampleBlock block = base.getBlock();
+        int index = base.getIndex();
         final StatisticsAccumulator accumulator = new StatisticsAccumulator();
-        Instant t0, t1 = VTypeHelper.getTimestamp(base_value);
-        double v0, v1 = VTypeHelper.toDouble(base_value);
-        AlarmSeverity severity = VTypeHelper.getSeverity(base_value);
+        long t0, t1 = block.getEpochNanos(index);
+        double v0, v1 = block.getDouble(index);
+        AlarmSeverity severity = block.getSeverity(index);
         accumulator.add(v1);
 
         // Most severe alarm
         AlarmSeverity max_severity = severity;
-        String max_status = VTypeHelper.getMessage(base_value);
+        String max_status = block.getStatus(index);
 
         // Track the last undefined sample
         VType last_undefined = null;
 
         // Look for values until end of current interpolation bin
-        final Instant end_of_bin = TimestampHelper.roundUp(t1, interval);
+        final Instant end_of_bin = TimestampHelper.roundUp(block.getTimestamp(index), interval);
+        final long end_of_bin_nanos = ArchiveSampleBlock.toEpochNanos(end_of_bin);
         do
         {
             // Track previous value
@@ -133,33 +144,35 @@ public class LinearValueIterator implements ValueIterator
 
             // Note most recent undefined sample
             if (severity == AlarmSeverity.UNDEFINED)
-                last_undefined = base_value;
+                last_undefined = block.get(index);
             else
                 last_undefined = null;
 
             // Reached end of input data?
-            if (!base.hasNext())
+            if (! base.hasMore())
             {
-                final VType last_value = base_value;
-                base_value = null;
+                final VType last_value = block.get(index);
+                base.next();
                 return last_value;
             }
 
             // Get next value
-            base_value = base.next();
-            t1 = VTypeHelper.getTimestamp(base_value);
-            v1 = VTypeHelper.toDouble(base_value);
+            base.next();
+            block = base.getBlock();
+            index = base.getIndex();
+            t1 = block.getEpochNanos(index);
+            v1 = block.getDouble(index);
             // 'Maximize' the severity and track the most
             // recent status message for that severity level
-            severity = VTypeHelper.getSeverity(base_value);
+            severity = block.getSeverity(index);
             if (severity.compareTo(max_severity) >= 0)
             {
                 max_severity = severity;
-                max_status = VTypeHelper.getMessage(base_value);
+                max_status = block.getStatus(index);
             }
             accumulator.add(v1);
         }
-        while (t1.compareTo(end_of_bin) < 0);
+        while (t1 < end_of_bin_nanos);
 
         if (last_undefined != null)
             return VTypeHelper.transformTimestamp(last_undefined, end_of_bin);
@@ -168,27 +181,35 @@ public class LinearValueIterator implements ValueIterator
         {   // Found at least one value in this bin
             // t0, v0 are before, t1, v1 at-or-after end_of_bin
             // Linear interpolation between t0,v0 and t1,v1 onto end_of_bin time
-            final double dT = TimeDuration.toSecondsDouble(Duration.between(t0, t1));
+            final double dT = (t1 - t0) / 1e9;
             final double interpol;
             if (dT > 0)
             {
-                final double secs = TimeDuration.toSecondsDouble(Duration.between(t0, end_of_bin));
+                final double secs = (end_of_bin_nanos - t0) / 1e9;
                 interpol = v0 + (v1 - v0) * (secs / dT);
             }
             else
                 interpol = (v0 + v1)/2; // Use average?
 
-            if (! (base_value instanceof Display))
-            {   // Cannot be packaged as ArchiveVStatistics since there's no Display info,
-                // so pass the base value with 'interpolated' time stamp.
-                // This typically coincides with interpol == NaN:
-                // base_value == String -> v1 == NaN -> interpol == NaN,
-                // and ArchiveVStatistics would be useless anyway.
-                return VTypeHelper.transformTimestamp(base_value, end_of_bin);
-            }
+            // Numbers in the block share its display
+            final Display display;
+            if (block.isNumeric(index))
+                display = block.getDisplay();
             else
-                return new ArchiveVStatistics(end_of_bin, max_severity, max_status, (Display) base_value,
-                        interpol, accumulator.getMin(), accumulator.getMax(), accumulator.getStdDev(), accumulator.getNSamples());
+            {
+                final VType base_value = block.get(index);
+                if (! (base_value instanceof Display))
+                {   // Cannot be packaged as ArchiveVStatistics since there's no Display info,
+                    // so pass the base value with 'interpolated' time stamp.
+                    // This typically coincides with interpol == NaN:
+                    // base_value == String -> v1 == NaN -> interpol == NaN,
+                    // and ArchiveVStatistics would be useless anyway.
+                    return VTypeHelper.transformTimestamp(base_value, end_of_bin);
+                }
+                display = (Display) base_value;
+            }
+            return new ArchiveVStatistics(end_of_bin, max_severity, max_status, display,
+                    interpol, accumulator.getMin(), accumulator.getMax(), accumulator.getStdDev(), accumulator.getNSamples());
         }
 
         // Have nothing in this bin
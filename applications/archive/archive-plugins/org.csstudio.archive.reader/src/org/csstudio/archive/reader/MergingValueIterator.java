@@ -7,23 +7,21 @@
  ******************************************************************************/
 package org.csstudio.archive.reader;
 
-import java.time.Instant;
-
-import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.diirt.vtype.VType;
 
 /** Merge values from several <code>ValueIterator</code> based on time stamps
+ *
+ *  <p>Reads the base iterators in batches.
+ *  {@link #nextBatch(int)} merges them without creating
+ *  a {@link VType} for each sample.
+ *
  *  @author Kay Kasemir
  */
 public class MergingValueIterator implements ValueIterator
 {
-    /** The iterators for the individual channels. */
-    final private ValueIterator iters[];
-
-    /** The 'current' values of each <code>iter</code>. */
-    private VType raw_data[];
-
-    private VType value;
+    /** Position in the individual channels. */
+    final private ValueIteratorCursor cursors[];
 
     /** Constructor.
      *  @param iters The 'base' iterators.
@@ -31,67 +29,74 @@ public class MergingValueIterator implements ValueIterator
      */
     public MergingValueIterator(final ValueIterator... iters) throws Exception
     {
-        this.iters = iters;
-
-        // Get first sample from each base iterator
-        raw_data = new VType[iters.length];
+        // Get first samples from each base iterator
+        cursors = new ValueIteratorCursor[iters.length];
         for (int i=0; i<iters.length; ++i)
-            raw_data[i] = iters[i].hasNext() ? iters[i].next() :  null;
-        fetchNext();
+            cursors[i] = new ValueIteratorCursor(iters[i]);
     }
 
-    /** Determine the next value, i.e. the oldest sample from the base iterators
-     *  @throws Exception on error
-     */
-    private void fetchNext() throws Exception
+    /** @return Index of the cursor with the oldest sample, -1 if no channel has any data */
+    private int findOldest()
     {
-        // Find oldest time stamp
-        Instant time = null;
         int index = -1;
-        for (int i=0; i<raw_data.length; ++i)
+        long time = 0;
+        for (int i=0; i<cursors.length; ++i)
         {
-            if (raw_data[i] == null)
+            if (! cursors[i].isValid())
                 continue;
-            final Instant sample_time = VTypeHelper.getTimestamp(raw_data[i]);
-            if (time == null  ||  sample_time.compareTo(time) < 0)
+            final long sample_time = cursors[i].getEpochNanos();
+            if (index < 0  ||  sample_time < time)
             {
                 time = sample_time;
                 index = i;
             }
         }
-        if (time == null)
-        {   // No channel left with any data.
-            raw_data = null;
-            value = null;
-            return;
-        }
-        value = raw_data[index];
-        raw_data[index] = iters[index].hasNext() ? iters[index].next() :  null;
+        return index;
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean hasNext()
     {
-        return raw_data != null;
+        for (ValueIteratorCursor cursor : cursors)
+            if (cursor.isValid())
+                return true;
+        return false;
     }
 
     /** {@inheritDoc} */
     @Override
     public VType next() throws Exception
     {
-        if (! hasNext())
+        final int index = findOldest();
+        if (index < 0)
             throw new IllegalStateException();
-        final VType result = value;
-        fetchNext();
+        final VType result = cursors[index].get();
+        cursors[index].next();
         return result;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(max);
+        int index;
+        while ((index = findOldest()) >= 0)
+        {
+            final ValueIteratorCursor cursor = cursors[index];
+            if (! block.add(cursor.getBlock(), cursor.getIndex()))
+                break;
+            cursor.next();
+        }
+        return block;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close()
     {
-        for (ValueIterator iter : iters)
-            iter.close();
+        for (ValueIteratorCursor cursor : cursors)
+            cursor.close();
     }
 }
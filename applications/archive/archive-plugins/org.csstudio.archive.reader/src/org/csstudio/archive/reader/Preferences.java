@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.IPreferencesService;
+
+/** Access to preferences for the archive reader.
+ *
+ *  <p>See preferences.ini for explanation of settings.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class Preferences
+{
+    final public static String ID = "org.csstudio.archive.reader";
+    final public static String CACHE_SIZE_MB = "cache_size_mb";
+    final public static String CACHE_HOLDOFF_SECS = "cache_holdoff_secs";
+
+    /** @return Size of the {@link ArchiveCache} in megabytes, 0 to disable */
+    public static int getCacheSizeMB()
+    {
+        int size = 64;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return size;
+        return prefs.getInt(ID, CACHE_SIZE_MB, size, null);
+    }
+
+    /** @return Seconds before 'now' for which samples are not cached */
+    public static int getCacheHoldoffSecs()
+    {
+        int secs = 300;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return secs;
+        return prefs.getInt(ID, CACHE_HOLDOFF_SECS, secs, null);
+    }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+import org.diirt.vtype.VType;
+
+/** {@link ValueIterator} that reads the next batch of samples in the background
+ *
+ *  <p>While the samples of the current batch are consumed,
+ *  the following batch is fetched from the base iterator
+ *  on a thread pool.
+ *  When several channels are read, for example by a {@link SpreadsheetIterator},
+ *  this allows the archive data for all channels to be fetched in parallel.
+ *
+ *  <p>At most one batch is read ahead,
+ *  so memory usage does not depend on the time range.
+ *
+ *  @author Kay Kasemir
+ */
+public class PrefetchValueIterator implements ValueIterator
+{
+    final private ValueIterator base;
+
+    final private ExecutorService pool;
+
+    final private int batch_size;
+
+    /** Next batch, being fetched in background. <code>null</code> when base is done */
+    private Future<ArchiveSampleBlock> pending = null;
+
+    /** Current batch, <code>null</code> when done */
+    private ArchiveSampleBlock block = null;
+
+    /** Index of next sample in <code>block</code> */
+    private int index = 0;
+
+    /** @param base Base iterator
+     *  @param pool Thread pool for reading the base iterator
+     *  @param batch_size Number of samples to read ahead
+     *  @throws Exception on error in archive access
+     */
+    public PrefetchValueIterator(final ValueIterator base, final ExecutorService pool,
+                                 final int batch_size) throws Exception
+    {
+        this.base = base;
+        this.pool = pool;
+        this.batch_size = batch_size;
+        prefetch();
+        fetchBlock();
+    }
+
+    /** @param base Base iterator
+     *  @param pool Thread pool for reading the base iterator
+     *  @throws Exception on error in archive access
+     */
+    public PrefetchValueIterator(final ValueIterator base, final ExecutorService pool) throws Exception
+    {
+        this(base, pool, SampleBlockIterator.BLOCK_SIZE);
+    }
+
+    /** Start reading the next batch from the base iterator */
+    private void prefetch()
+    {
+        pending = pool.submit(() ->
+        {
+            if (base.hasNext())
+                return base.nextBatch(batch_size);
+            return null;
+        });
+    }
+
+    /** Wait for the pending batch, start reading the following one
+     *  @throws Exception on error in archive access
+     */
+    private void fetchBlock() throws Exception
+    {
+        index = 0;
+        block = null;
+        while (pending != null)
+        {
+            final ArchiveSampleBlock next;
+            try
+            {
+                next = pending.get();
+            }
+            catch (ExecutionException ex)
+            {
+                pending = null;
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
+            }
+            if (next == null)
+                pending = null;
+            else
+            {
+                prefetch();
+                if (next.size() > 0)
+                {
+                    block = next;
+                    return;
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return block != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        final VType value = block.get(index++);
+        if (index >= block.size())
+            fetchBlock();
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        final ArchiveSampleBlock result;
+        if (index == 0  &&  block.size() <= max)
+            result = block;
+        else
+        {   // Copy (remaining part of) the current block
+            result = new ArchiveSampleBlock(Math.min(max, block.size() - index));
+            while (index < block.size()  &&  result.add(block, index))
+                ++index;
+            if (index < block.size())
+                return result;
+        }
+        fetchBlock();
+        return result;
+    }
+
+    /** {@inheritDoc}
+     *
+     *  <p>Waits for a pending read of the base iterator
+     *  to complete before closing the base iterator.
+     *  To abort a long running read, cancel the {@link ArchiveReader}.
+     */
+    @Override
+    public void close()
+    {
+        block = null;
+        if (pending != null)
+        {
+            try
+            {
+                pending.get();
+            }
+            catch (Exception ex)
+            {
+                // Ignore, closing anyway
+            }
+            pending = null;
+        }
+        base.close();
+    }
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+
+/** Iterator over blocks of samples
+ *
+ *  <p>Like the {@link ValueIterator}, but returns
+ *  samples in columnar {@link ArchiveSampleBlock}s
+ *  instead of one object per sample.
+ *
+ *  @author Kay Kasemir
+ */
+public interface SampleBlockIterator
+{
+    /** Suggested number of samples per block */
+    public static final int BLOCK_SIZE = 1000;
+
+    /** @return <tt>true</tt> if the iteration has more blocks */
+    public boolean hasNext();
+
+    /** Returns the next block of samples.
+     *
+     *  <p>Blocks are not empty.
+     *  Caller may keep the returned block,
+     *  iterator will not change it once returned.
+     *
+     *  @return the next block in the iteration.
+     *  @exception on Error in archive access
+     */
+    public ArchiveSampleBlock next() throws Exception;
+
+    /** Must be called to release resources */
+    public void close();
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+import org.diirt.vtype.VType;
+
+/** {@link ValueIterator} for a {@link SampleBlockIterator}
+ *
+ *  <p>Provides the samples of blocks as {@link VType}
+ *  for code that is not aware of blocks.
+ *
+ *  @author Kay Kasemir
+ */
+public class SampleBlockValueIterator implements ValueIterator
+{
+    final private SampleBlockIterator blocks;
+
+    /** Current block, <code>null</code> when done */
+    private ArchiveSampleBlock block = null;
+
+    /** Index of next sample in <code>block</code> */
+    private int index = 0;
+
+    /** @param blocks {@link SampleBlockIterator} to adapt
+     *  @throws Exception on error in archive access
+     */
+    public SampleBlockValueIterator(final SampleBlockIterator blocks) throws Exception
+    {
+        this.blocks = blocks;
+        fetchBlock();
+    }
+
+    /** Get next non-empty block, or set <code>block</code> to <code>null</code>
+     *  @throws Exception on error in archive access
+     */
+    private void fetchBlock() throws Exception
+    {
+        index = 0;
+        while (blocks.hasNext())
+        {
+            block = blocks.next();
+            if (block.size() > 0)
+                return;
+        }
+        block = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return block != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        final VType value = block.get(index++);
+        if (index >= block.size())
+            fetchBlock();
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        final ArchiveSampleBlock result;
+        if (index == 0  &&  block.size() <= max)
+            result = block;
+        else
+        {   // Copy (remaining part of) the current block
+            result = new ArchiveSampleBlock(Math.min(max, block.size() - index));
+            while (index < block.size()  &&  result.add(block, index))
+                ++index;
+            if (index < block.size())
+                return result;
+        }
+        fetchBlock();
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        block = null;
+        blocks.close();
+    }
+}
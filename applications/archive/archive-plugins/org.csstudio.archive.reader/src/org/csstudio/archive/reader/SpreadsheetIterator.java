@@ -9,6 +9,7 @@ package org.csstudio.archive.reader;
 
 import java.time.Instant;
 
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.VTypeHelper;
 import org.diirt.vtype.VType;
 
@@ -21,6 +22,8 @@ import org.diirt.vtype.VType;
  *  While it uses the common Java <code>Iterator</code> idea with
  *  <code>hasNext()/next()</code> for the values, pay attention to
  *  the comments for <code>getTime()</code>!
+ *  <p>
+ *  The base iterators are read in batches.
  *
  *  @author Kay Kasemir
  */
@@ -28,14 +31,11 @@ public class SpreadsheetIterator
 {
     final private static boolean debug = false;
 
-    /** The iterators for the individual channels. */
-    final private ValueIterator iters[];
-
-    /** The 'current' values of each <code>iter</code>.
+    /** Position in the individual channels.
      *  This is usually the 'next' value, stamped after <code>time</code>.
      *  @see #values
      */
-    private VType raw_data[];
+    final private ValueIteratorCursor cursors[];
 
     /** The timestamp for the current spreadsheet 'line'. */
     private Instant time;
@@ -50,16 +50,15 @@ public class SpreadsheetIterator
     @SuppressWarnings("nls")
     public SpreadsheetIterator(final ValueIterator... iters) throws Exception
     {
-        this.iters = iters;
-
-        // Get first sample from each base iterator
-        raw_data = new VType[iters.length];
+        // Get first samples from each base iterator
+        cursors = new ValueIteratorCursor[iters.length];
         values = new VType[iters.length];
         for (int i=0; i<iters.length; ++i)
         {
-            raw_data[i] = iters[i].hasNext()  ?  iters[i].next()  :  null;
+            cursors[i] = new ValueIteratorCursor(iters[i]);
             if (debug)
-                System.out.println("Initial " + i + ": " + VTypeHelper.toString(raw_data[i]));
+                System.out.println("Initial " + i + ": " +
+                        (cursors[i].isValid() ? VTypeHelper.toString(cursors[i].get()) : "null"));
         }
         getNextSpreadsheetLine();
     }
@@ -121,6 +120,34 @@ public class SpreadsheetIterator
         return result;
     }
 
+    /** Get several spreadsheet lines
+     *  <p>
+     *  Like calling <code>getTime()</code> and <code>next()</code>
+     *  while <code>hasNext()</code>, but re-uses the arrays for the lines.
+     *
+     *  @param times Receives the time stamp of each line
+     *  @param lines Receives the values of each line.
+     *               Existing arrays of the correct size are re-used.
+     *  @return Number of lines, up to the size of the <code>times</code> array.
+     *          0 when there are no more lines.
+     *  @throws Exception on error
+     */
+    public int nextBatch(final Instant[] times, final VType[][] lines) throws Exception
+    {
+        final int max = Math.min(times.length, lines.length);
+        int count = 0;
+        while (count < max  &&  hasNext())
+        {
+            times[count] = time;
+            if (lines[count] == null  ||  lines[count].length != values.length)
+                lines[count] = new VType[values.length];
+            System.arraycopy(values, 0, lines[count], 0, values.length);
+            ++count;
+            getNextSpreadsheetLine();
+        }
+        return count;
+    }
+
     /** Fill <code>time</code> and <code>values</code> with the next
      *  spreadsheet line.
      *  @throws Exception on error
@@ -128,40 +155,42 @@ public class SpreadsheetIterator
     private void getNextSpreadsheetLine() throws Exception
     {
         // Find oldest timestamp
-        time = null;
-        for (int i=0; i<raw_data.length; ++i)
+        long nanos = Long.MAX_VALUE;
+        boolean have_data = false;
+        for (ValueIteratorCursor cursor : cursors)
         {
-            if (raw_data[i] == null)
+            if (! cursor.isValid())
                 continue;
-            final Instant sample_time = VTypeHelper.getTimestamp(raw_data[i]);
-            if (time == null  ||  sample_time.compareTo(time) < 0)
-                time = sample_time;
+            nanos = Math.min(nanos, cursor.getEpochNanos());
+            have_data = true;
         }
-        if (time == null)
+        if (! have_data)
         {   // No channel left with any data.
+            time = null;
             values = null;
             return;
         }
+        time = ArchiveSampleBlock.toInstant(nanos);
 
         if (debug)
             System.out.println("Next time stamp: " + time.toString()); //$NON-NLS-1$
 
         // 'time' now defines the current spreadsheet line.
-        for (int i=0; i<raw_data.length; ++i)
+        for (int i=0; i<cursors.length; ++i)
         {
             // Channel has no new data? Leave at last known value[i].
-            if (raw_data[i] == null)
+            if (! cursors[i].isValid())
                 continue;
             // Channel has data.
-            if (VTypeHelper.getTimestamp(raw_data[i]).compareTo(time) <= 0)
-            {   // 'raw_data' is still valid, so use it ....
-                values[i] = raw_data[i];
+            if (cursors[i].getEpochNanos() <= nanos)
+            {   // Sample is still valid, so use it ....
+                values[i] = cursors[i].get();
                 // and get next sample in preparation for next()
-                raw_data[i] = iters[i].hasNext()  ?  iters[i].next()  :  null;
+                cursors[i].next();
             }
-            // else: raw_data.time is already > time,
+            // else: sample time is already > time,
             // so leave values[i] as is until 'time' catches up
-            // with raw_data.time.
+            // with the sample time.
             // This also covers the initial values[i] == null case.
         }
     }
@@ -169,7 +198,7 @@ public class SpreadsheetIterator
     /** Must be called to release resources */
     public void close()
     {
-        for (ValueIterator iter : iters)
-            iter.close();
+        for (ValueIteratorCursor cursor : cursors)
+            cursor.close();
     }
 }
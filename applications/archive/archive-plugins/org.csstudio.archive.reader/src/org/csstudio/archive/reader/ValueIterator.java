@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.archive.reader;
 
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.diirt.vtype.VType;
 
 /** In principle this is like
@@ -33,6 +34,31 @@ public interface ValueIterator
      */
     public VType next() throws Exception;
 
+    /** Returns the next samples of the iteration as a block.
+     *
+     *  <p>May only be called when {@link #hasNext()} returned <tt>true</tt>.
+     *
+     *  <p>Default implementation collects samples from {@link #next()}.
+     *  Iterators that can provide samples without creating
+     *  a {@link VType} for each sample should override.
+     *
+     *  @param max Maximum number of samples
+     *  @return Block with at least one sample
+     *  @exception on Error in archive access
+     */
+    @SuppressWarnings("nls")
+    public default ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(max);
+        while (! block.isFull()  &&  hasNext())
+        {
+            final VType value = next();
+            if (! (block.add(value)  ||  block.addObject(value)))
+                throw new Exception("Cannot add " + value + " to " + block);
+        }
+        return block;
+    }
+
     /** Must be called to release resources */
     public void close();
 }
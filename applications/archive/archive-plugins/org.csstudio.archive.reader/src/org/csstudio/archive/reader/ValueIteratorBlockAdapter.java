@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+
+/** {@link SampleBlockIterator} for a {@link ValueIterator}
+ *
+ *  <p>Used for archive readers that do not
+ *  produce blocks natively.
+ *  Blocks are obtained via {@link ValueIterator#nextBatch(int)}.
+ *
+ *  @author Kay Kasemir
+ */
+public class ValueIteratorBlockAdapter implements SampleBlockIterator
+{
+    final private ValueIterator values;
+    final private int block_size;
+
+    /** @param values {@link ValueIterator} to adapt */
+    public ValueIteratorBlockAdapter(final ValueIterator values)
+    {
+        this(values, BLOCK_SIZE);
+    }
+
+    /** @param values {@link ValueIterator} to adapt
+     *  @param block_size Maximum number of samples per block
+     */
+    public ValueIteratorBlockAdapter(final ValueIterator values, final int block_size)
+    {
+        this.values = values;
+        this.block_size = block_size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        return values.hasNext();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveSampleBlock next() throws Exception
+    {
+        return values.nextBatch(block_size);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        values.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
+import org.diirt.vtype.VType;
+
+/** Position in the samples of a {@link ValueIterator}
+ *
+ *  <p>Reads the samples in batches,
+ *  allowing iterators that combine several base iterators
+ *  to compare time stamps etc. without a {@link VType} for each sample.
+ *
+ *  @author Kay Kasemir
+ */
+class ValueIteratorCursor
+{
+    /** Number of samples read from the iterator at once */
+    final static int BATCH_SIZE = SampleBlockIterator.BLOCK_SIZE;
+
+    final private ValueIterator iter;
+
+    /** Current block, <code>null</code> at end */
+    private ArchiveSampleBlock block;
+
+    /** Index of current sample in <code>block</code> */
+    private int index;
+
+    /** @param iter Iterator, positioned on its first sample
+     *  @throws Exception on error in archive access
+     */
+    ValueIteratorCursor(final ValueIterator iter) throws Exception
+    {
+        this.iter = iter;
+        fetchBlock();
+    }
+
+    private void fetchBlock() throws Exception
+    {
+        index = 0;
+        while (iter.hasNext())
+        {
+            block = iter.nextBatch(BATCH_SIZE);
+            if (block.size() > 0)
+                return;
+        }
+        block = null;
+    }
+
+    /** @return <code>true</code> if positioned on a sample, <code>false</code> at end */
+    boolean isValid()
+    {
+        return block != null;
+    }
+
+    /** @return <code>true</code> if there is a sample after the current one */
+    boolean hasMore()
+    {
+        return block != null  &&  (index + 1 < block.size()  ||  iter.hasNext());
+    }
+
+    /** @return Block that holds the current sample */
+    ArchiveSampleBlock getBlock()
+    {
+        return block;
+    }
+
+    /** @return Index of the current sample in its block */
+    int getIndex()
+    {
+        return index;
+    }
+
+    /** @return Time stamp of current sample as epoch nanoseconds */
+    long getEpochNanos()
+    {
+        return block.getEpochNanos(index);
+    }
+
+    /** @return Current sample */
+    VType get()
+    {
+        return block.get(index);
+    }
+
+    /** Move to the next sample
+     *  @throws Exception on error in archive access
+     */
+    void next() throws Exception
+    {
+        if (++index >= block.size())
+            fetchBlock();
+    }
+
+    /** Release resources */
+    void close()
+    {
+        block = null;
+        iter.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.vtype;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArchiveSampleBlock}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveSampleBlockTest
+{
+    final private Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+
+    @Test
+    public void testTime()
+    {
+        final Instant time = Instant.ofEpochSecond(1500000000L, 123456789);
+        assertThat(ArchiveSampleBlock.toInstant(ArchiveSampleBlock.toEpochNanos(time)), equalTo(time));
+
+        final Instant before_1970 = Instant.ofEpochSecond(-1000L, 5);
+        assertThat(ArchiveSampleBlock.toInstant(ArchiveSampleBlock.toEpochNanos(before_1970)), equalTo(before_1970));
+    }
+
+    @Test
+    public void testSamples()
+    {
+        final Instant now = Instant.ofEpochSecond(1500000000L, 42);
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(4);
+        final VType dbl = new ArchiveVNumber(now, AlarmSeverity.MINOR, "LOW", display, 3.14);
+        final VType str = new ArchiveVString(now.plusSeconds(1), AlarmSeverity.NONE, "NO_ALARM", "Text");
+        final VType dbl2 = new ArchiveVNumber(now.plusSeconds(2), AlarmSeverity.MINOR, "LOW", display, 2.0);
+        assertThat(block.add(dbl), equalTo(true));
+        assertThat(block.add(str), equalTo(true));
+        assertThat(block.add(dbl2), equalTo(true));
+        assertThat(block.size(), equalTo(3));
+
+        // Numbers are kept in columns, equal to the original sample
+        assertThat(block.isNumeric(0), equalTo(true));
+        assertThat(block.get(0), equalTo(dbl));
+        assertThat(block.getDouble(0), equalTo(3.14));
+        assertThat(block.getSeverity(0), equalTo(AlarmSeverity.MINOR));
+        assertThat(block.getStatus(0), equalTo("LOW"));
+        assertThat(block.getTimestamp(0), equalTo(now));
+        assertThat(block.get(2), equalTo(dbl2));
+
+        // Other samples are kept as they are
+        assertThat(block.isNumeric(1), equalTo(false));
+        assertThat(block.get(1), sameInstance(str));
+        assertThat(block.getTimestamp(1), equalTo(now.plusSeconds(1)));
+
+        // Number with different display needs another block
+        final Display other = ValueFactory.newDisplay(0.0, 1.0, 2.0, "mA", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+        assertThat(block.add(new ArchiveVNumber(now.plusSeconds(3), AlarmSeverity.NONE, "", other, 1.0)), equalTo(false));
+        // Same display content as a different object is fine
+        final Display copy = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(3), 8.0, 9.0, 10.0, 0.0, 10.0);
+        assertThat(block.add(new ArchiveVNumber(now.plusSeconds(3), AlarmSeverity.NONE, "", copy, 1.0)), equalTo(true));
+        assertThat(block.isFull(), equalTo(true));
+        assertThat(block.add(dbl), equalTo(false));
+    }
+
+    @Test
+    public void testIntegers()
+    {
+        final Instant now = Instant.ofEpochSecond(1500000000L, 42);
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(10);
+        assertThat(block.add(new ArchiveVNumber(now, AlarmSeverity.NONE, "", display, Integer.valueOf(3))), equalTo(true));
+        assertThat(((VNumber)block.get(0)).getValue(), instanceOf(Integer.class));
+        assertThat(((VNumber)block.get(0)).getValue(), equalTo(3));
+        // Doubles would need a separate block
+        assertThat(block.add(new ArchiveVNumber(now, AlarmSeverity.NONE, "", display, 3.14)), equalTo(false));
+        assertThat(block.add(now.getEpochSecond(), AlarmSeverity.NONE, "", 3.14), equalTo(false));
+    }
+
+    @Test
+    public void testNativeSamples()
+    {
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(1000, display);
+        for (int i=0; i<1000; ++i)
+            assertThat(block.add(i * 1000000000L, AlarmSeverity.NONE, ArchiveVType.STATUS_OK, i), equalTo(true));
+        assertThat(block.isFull(), equalTo(true));
+        final VNumber sample = (VNumber) block.get(500);
+        assertThat(sample.getValue(), equalTo(500.0));
+        assertThat(sample.getTimestamp(), equalTo(Instant.ofEpochSecond(500)));
+        assertThat(sample.getUnits(), equalTo("a.u."));
+        assertThat(sample.getAlarmName(), sameInstance(block.getStatus(0)));
+    }
+}
@@ -0,0 +1,427 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.vtype;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VType;
+
+/** Block of archived samples, kept in columns
+ *
+ *  <p>Instead of one {@link ArchiveVNumber} with time stamp,
+ *  severity, status and display per sample,
+ *  scalar numeric samples are kept in arrays of epoch nanoseconds,
+ *  values and severities.
+ *  Status texts are interned per block,
+ *  and all numeric samples of a block share one {@link Display}.
+ *
+ *  <p>Samples that cannot be kept in columns,
+ *  like strings, enumerations, arrays or statistics,
+ *  are kept as {@link VType}, so a block can hold any
+ *  sequence of archived samples.
+ *  {@link #get(int)} adapts each sample back into a {@link VType}.
+ *
+ *  <p>Time stamps as epoch nanoseconds cover the years 1677 to 2262.
+ *
+ *  <p>Not thread-safe.
+ *  A block is filled by one thread, then handed to readers.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class ArchiveSampleBlock
+{
+    /** Nanoseconds per second */
+    private static final long NANOS = 1000000000L;
+
+    /** Alarm severities by ordinal */
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    /** Time stamps as epoch nanoseconds */
+    final private long[] times;
+
+    /** Numeric values */
+    final private double[] values;
+
+    /** Ordinals of {@link AlarmSeverity} */
+    final private byte[] severities;
+
+    /** Index into <code>status_names</code> */
+    final private short[] statuses;
+
+    /** Status texts used in this block */
+    final private List<String> status_names = new ArrayList<>();
+
+    /** Index of each status text in <code>status_names</code> */
+    final private Map<String, Short> status_index = new HashMap<>();
+
+    /** Samples that are not kept in columns, <code>null</code> if there are none */
+    private VType[] objects = null;
+
+    /** Display shared by all numeric samples */
+    private Display display;
+
+    /** Number of numeric samples */
+    private int numeric = 0;
+
+    /** Are numeric samples {@link Integer}, or {@link Double}? */
+    private boolean integer = false;
+
+    /** Number of samples in block */
+    private int size = 0;
+
+    /** Create block for any type of samples
+     *  @param capacity Maximum number of samples in block
+     */
+    public ArchiveSampleBlock(final int capacity)
+    {
+        this(capacity, null);
+    }
+
+    /** Create block for samples that are added as
+     *  {@link #add(long, AlarmSeverity, String, double)}
+     *  @param capacity Maximum number of samples in block
+     *  @param display Display for all numeric samples
+     */
+    public ArchiveSampleBlock(final int capacity, final Display display)
+    {
+        times = new long[capacity];
+        values = new double[capacity];
+        severities = new byte[capacity];
+        statuses = new short[capacity];
+        this.display = display;
+    }
+
+    /** @param time Time stamp
+     *  @return Epoch nanoseconds
+     */
+    public static long toEpochNanos(final Instant time)
+    {
+        return time.getEpochSecond() * NANOS + time.getNano();
+    }
+
+    /** @param epoch_nanos Epoch nanoseconds
+     *  @return Time stamp
+     */
+    public static Instant toInstant(final long epoch_nanos)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(epoch_nanos, NANOS), Math.floorMod(epoch_nanos, NANOS));
+    }
+
+    /** @return Number of samples in block */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return Maximum number of samples in block */
+    public int capacity()
+    {
+        return times.length;
+    }
+
+    /** @return <code>true</code> if no more samples can be added */
+    public boolean isFull()
+    {
+        return size >= times.length;
+    }
+
+    /** @return Display shared by all numeric samples in block, may be <code>null</code> */
+    public Display getDisplay()
+    {
+        return display;
+    }
+
+    /** @param status Status text
+     *  @return Index of status text, -1 if block has too many different texts
+     */
+    private short intern(final String status)
+    {
+        final Short index = status_index.get(status);
+        if (index != null)
+            return index;
+        if (status_names.size() >= Short.MAX_VALUE)
+            return -1;
+        final short added = (short) status_names.size();
+        status_names.add(status);
+        status_index.put(status, added);
+        return added;
+    }
+
+    /** Add numeric sample
+     *
+     *  <p>Used by archive readers that produce blocks natively
+     *  @param epoch_nanos Time stamp as epoch nanoseconds
+     *  @param severity Alarm severity
+     *  @param status Alarm status
+     *  @param value Value
+     *  @return <code>true</code> if added, <code>false</code> if the block is full
+     *          or holds integer samples
+     */
+    public boolean add(final long epoch_nanos, final AlarmSeverity severity, final String status, final double value)
+    {
+        if (isFull()  ||  (numeric > 0  &&  integer))
+            return false;
+        final short status_id = intern(status);
+        if (status_id < 0)
+            return false;
+        times[size] = epoch_nanos;
+        values[size] = value;
+        severities[size] = (byte) severity.ordinal();
+        statuses[size] = status_id;
+        integer = false;
+        ++numeric;
+        ++size;
+        return true;
+    }
+
+    /** Add sample
+     *
+     *  <p>Scalar numbers are kept in columns,
+     *  other samples are kept as they are.
+     *
+     *  @param sample Sample to add
+     *  @return <code>true</code> if added, <code>false</code> if the block is full,
+     *          or if the sample is a number with a different display or data type
+     *          than the numbers already in the block
+     */
+    public boolean add(final VType sample)
+    {
+        if (isFull())
+            return false;
+        final short status_id = intern(VTypeHelper.getMessage(sample));
+        if (status_id < 0)
+            return false;
+        if (! isColumnCandidate(sample))
+            return addObject(sample, status_id);
+
+        final boolean is_integer = ((VNumber) sample).getValue() instanceof Integer;
+        final Display sample_display = getDisplay(sample);
+        if (numeric == 0)
+        {
+            display = sample_display;
+            integer = is_integer;
+        }
+        else if (is_integer != integer  ||  ! isSameDisplay(display, sample_display))
+            return false;
+        ++numeric;
+        values[size] = ((VNumber) sample).getValue().doubleValue();
+        times[size] = toEpochNanos(((Time) sample).getTimestamp());
+        severities[size] = (byte) ((VNumber) sample).getAlarmSeverity().ordinal();
+        statuses[size] = status_id;
+        ++size;
+        return true;
+    }
+
+    /** Add sample without keeping it in columns
+     *
+     *  <p>For samples that {@link #add(VType)} does not accept
+     *  because they differ in display or data type from
+     *  the numbers already in the block.
+     *
+     *  @param sample Sample to add
+     *  @return <code>true</code> if added, <code>false</code> if the block is full
+     */
+    public boolean addObject(final VType sample)
+    {
+        if (isFull())
+            return false;
+        final short status_id = intern(VTypeHelper.getMessage(sample));
+        if (status_id < 0)
+            return false;
+        return addObject(sample, status_id);
+    }
+
+    private boolean addObject(final VType sample, final short status_id)
+    {
+        if (objects == null)
+            objects = new VType[times.length];
+        objects[size] = sample;
+        values[size] = VTypeHelper.toDouble(sample);
+        times[size] = toEpochNanos(VTypeHelper.getTimestamp(sample));
+        severities[size] = (byte) VTypeHelper.getSeverity(sample).ordinal();
+        statuses[size] = status_id;
+        ++size;
+        return true;
+    }
+
+    /** Add sample from another block
+     *
+     *  <p>Numbers are copied column by column when possible.
+     *  Otherwise the sample is added as {@link VType}.
+     *
+     *  @param source Block that holds the sample
+     *  @param index Index of sample in <code>source</code>
+     *  @return <code>true</code> if added, <code>false</code> if the block is full
+     */
+    public boolean add(final ArchiveSampleBlock source, final int index)
+    {
+        if (isFull())
+            return false;
+        if (source.isNumeric(index))
+        {
+            if (numeric == 0)
+            {
+                display = source.display;
+                integer = source.integer;
+            }
+            if (integer == source.integer  &&  isSameDisplay(display, source.display))
+            {
+                final short status_id = intern(source.getStatus(index));
+                if (status_id < 0)
+                    return false;
+                times[size] = source.times[index];
+                values[size] = source.values[index];
+                severities[size] = source.severities[index];
+                statuses[size] = status_id;
+                ++numeric;
+                ++size;
+                return true;
+            }
+        }
+        final VType sample = source.get(index);
+        return add(sample)  ||  addObject(sample);
+    }
+
+    /** @param sample Numeric sample
+     *  @return Display of the sample
+     */
+    private static Display getDisplay(final VType sample)
+    {
+        // Archived samples often share the same display information,
+        // which allows a quick comparison of displays
+        if (sample instanceof ArchiveVDisplayType)
+        {
+            final Display display = ((ArchiveVDisplayType) sample).getDisplayInfo();
+            if (display != null)
+                return display;
+        }
+        return (Display) sample;
+    }
+
+    /** @param sample Sample
+     *  @return <code>true</code> if sample can be kept in columns
+     */
+    private static boolean isColumnCandidate(final VType sample)
+    {
+        if (! (sample instanceof VNumber)  ||  sample instanceof VEnum)
+            return false;
+        if (! ((Time) sample).isTimeValid())
+            return false;
+        final Number value = ((VNumber) sample).getValue();
+        return value instanceof Double  ||  value instanceof Integer;
+    }
+
+    /** @param a Display
+     *  @param b Other display
+     *  @return <code>true</code> if both have the same limits, units and format
+     */
+    private static boolean isSameDisplay(final Display a, final Display b)
+    {
+        if (a == b)
+            return true;
+        if (a == null  ||  b == null)
+            return false;
+        return Objects.equals(a.getLowerDisplayLimit(), b.getLowerDisplayLimit())  &&
+               Objects.equals(a.getUpperDisplayLimit(), b.getUpperDisplayLimit())  &&
+               Objects.equals(a.getLowerCtrlLimit(), b.getLowerCtrlLimit())  &&
+               Objects.equals(a.getUpperCtrlLimit(), b.getUpperCtrlLimit())  &&
+               Objects.equals(a.getLowerAlarmLimit(), b.getLowerAlarmLimit())  &&
+               Objects.equals(a.getUpperAlarmLimit(), b.getUpperAlarmLimit())  &&
+               Objects.equals(a.getLowerWarningLimit(), b.getLowerWarningLimit())  &&
+               Objects.equals(a.getUpperWarningLimit(), b.getUpperWarningLimit())  &&
+               Objects.equals(a.getUnits(), b.getUnits())  &&
+               Objects.equals(a.getFormat(), b.getFormat());
+    }
+
+    /** @param index Sample index
+     *  @return <code>true</code> if sample is a number kept in columns
+     */
+    public boolean isNumeric(final int index)
+    {
+        return objects == null  ||  objects[index] == null;
+    }
+
+    /** @param index Sample index
+     *  @return Time stamp as epoch nanoseconds
+     */
+    public long getEpochNanos(final int index)
+    {
+        return times[index];
+    }
+
+    /** @param index Sample index
+     *  @return Time stamp
+     */
+    public Instant getTimestamp(final int index)
+    {
+        return toInstant(times[index]);
+    }
+
+    /** @param index Sample index
+     *  @return Numeric value, or value as determined by {@link VTypeHelper#toDouble(VType)}
+     */
+    public double getDouble(final int index)
+    {
+        return values[index];
+    }
+
+    /** @param index Sample index
+     *  @return Alarm severity
+     */
+    public AlarmSeverity getSeverity(final int index)
+    {
+        return SEVERITIES[severities[index]];
+    }
+
+    /** @param index Sample index
+     *  @return Alarm status
+     */
+    public String getStatus(final int index)
+    {
+        return status_names.get(statuses[index]);
+    }
+
+    /** @param index Sample index
+     *  @return Sample as {@link VType}
+     */
+    public VType get(final int index)
+    {
+        if (index < 0  ||  index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        if (! isNumeric(index))
+            return objects[index];
+        // Not using '?:', which would unbox and promote Integer to double
+        final Number value;
+        if (integer)
+            value = Integer.valueOf((int) values[index]);
+        else
+            value = Double.valueOf(values[index]);
+        return new ArchiveVNumber(getTimestamp(index), getSeverity(index), getStatus(index), display, value);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (size <= 0)
+            return "ArchiveSampleBlock: empty";
+        return "ArchiveSampleBlock: " + size + " samples " +
+               TimestampHelper.format(getTimestamp(0)) + " - " +
+               TimestampHelper.format(getTimestamp(size-1));
+    }
+}
@@ -29,6 +29,12 @@ public class ArchiveVDisplayType extends ArchiveVType implements Display
         this.display = display;
     }
 
+    /** @return Display information shared with other samples, may be <code>null</code> */
+    Display getDisplayInfo()
+    {
+        return display;
+    }
+
     @Override
     public Double getLowerDisplayLimit()
     {
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.influxdb;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.influxdb.MetaTypes.StoreAs;
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVNumberArray;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.ValueFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/** JUnit test of the line protocol encoding and writer
+ *
+ *  <p>Uses a local HTTP server as a stub for InfluxDB.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class LineProtocolWriterUnitTest
+{
+    final private Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(2), 8.0, 9.0, 10.0, 0.0, 10.0);
+    final private Instant stamp = Instant.ofEpochSecond(1500000000, 123456789);
+
+    private HttpServer server;
+    private String url;
+
+    /** Query and body of each request */
+    final private List<String> requests = new CopyOnWriteArrayList<>();
+
+    /** HTTP response codes to return, 204 when empty */
+    final private List<Integer> responses = new CopyOnWriteArrayList<>();
+
+    /** Delay of each response */
+    private volatile long delay_ms = 0;
+
+    /** Number of requests handled right now, and max. of that */
+    final private AtomicInteger active = new AtomicInteger(), max_active = new AtomicInteger();
+
+    @Before
+    public void startServer() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/write", exchange ->
+        {
+            max_active.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try
+            {
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                try
+                (
+                    final InputStream in = exchange.getRequestBody();
+                )
+                {
+                    final byte[] buf = new byte[1024];
+                    int len;
+                    while ((len = in.read(buf)) > 0)
+                        body.write(buf, 0, len);
+                }
+                requests.add(exchange.getRequestURI().getQuery() + "\n" + body.toString("UTF-8"));
+                Thread.sleep(delay_ms);
+                final int code = responses.isEmpty() ? 204 : responses.remove(0);
+                exchange.sendResponseHeaders(code, -1);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+            finally
+            {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final InfluxDBWriteChannel channel = new InfluxDBWriteChannel("test PV,1");
+        final LineProtocolBuffer buffer = new LineProtocolBuffer(10);
+
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVNumber(stamp, AlarmSeverity.MINOR, "LOW", display, 3.14), StoreAs.ARCHIVE_DOUBLE);
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVNumber(stamp, AlarmSeverity.NONE, "", display, Double.NaN), StoreAs.ARCHIVE_DOUBLE);
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVNumber(stamp, AlarmSeverity.NONE, "", display, 42), StoreAs.ARCHIVE_LONG);
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVEnum(stamp, AlarmSeverity.NONE, "", null, 1), StoreAs.ARCHIVE_ENUM);
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVString(stamp, AlarmSeverity.NONE, "", "Say \"Hi\", Jürgen"), StoreAs.ARCHIVE_STRING);
+        InfluxDBSampleEncoder.encodeSample(buffer, channel, stamp,
+            new ArchiveVNumberArray(stamp, AlarmSeverity.NONE, "", display, 1.0, Double.NaN, 3.0), StoreAs.ARCHIVE_DOUBLE_ARRAY);
+
+        final String text = buffer.toString();
+        System.out.println(text);
+        assertThat(buffer.getPointCount(), equalTo(6));
+        assertThat(text, equalTo(
+            "test\\ PV\\,1,severity=MINOR,status=LOW double.0=3.14 1500000000123456789\n" +
+            "test\\ PV\\,1,severity=UNDEFINED,status=NaN double.0=0.0 1500000000123456789\n" +
+            "test\\ PV\\,1,severity=NONE long.0=42i 1500000000123456789\n" +
+            "test\\ PV\\,1,severity=NONE long.0=1i 1500000000123456789\n" +
+            "test\\ PV\\,1,severity=NONE string.0=\"Say \\\"Hi\\\", Jürgen\" 1500000000123456789\n" +
+            "test\\ PV\\,1,severity=NONE double.0=1.0,double.1=0.0,double.2=3.0 1500000000123456789\n"));
+
+        // Buffer is re-used after clear
+        buffer.clear();
+        assertThat(buffer.isEmpty(), equalTo(true));
+        assertThat(buffer.size(), equalTo(0));
+    }
+
+    @Test
+    public void testWrite() throws Exception
+    {
+        final LineProtocolWriter writer = new LineProtocolWriter(url, "fred", "secret", 2, 0);
+        writer.getBuffer("data", null).measurement("x").field("double.0", 1.0).time(1);
+        writer.getBuffer("data", "short").measurement("x").field("double.0", 2.0).time(2);
+        writer.getBuffer("meta", null).append("y long.0=3i 3");
+        writer.flush();
+        writer.close();
+
+        assertThat(requests.size(), equalTo(3));
+        for (String request : requests)
+            System.out.println(request);
+        assertThat(requests.contains("db=data&rp=autogen&precision=ns&consistency=all&u=fred&p=secret\nx double.0=1.0 1\n"), equalTo(true));
+        assertThat(requests.contains("db=data&rp=short&precision=ns&consistency=all&u=fred&p=secret\nx double.0=2.0 2\n"), equalTo(true));
+        assertThat(requests.contains("db=meta&rp=autogen&precision=ns&consistency=all&u=fred&p=secret\ny long.0=3i 3\n"), equalTo(true));
+    }
+
+    @Test
+    public void testInFlightLimit() throws Exception
+    {
+        delay_ms = 200;
+        final LineProtocolWriter writer = new LineProtocolWriter(url, null, null, 2, 0);
+        for (int i=0; i<6; ++i)
+            writer.getBuffer("data", "rp" + i).measurement("x").field("long.0", (long) i).time(i);
+        writer.flush();
+        // flush() returns once all points have been written
+        assertThat(requests.size(), equalTo(6));
+        assertThat(max_active.get(), equalTo(2));
+        writer.close();
+    }
+
+    @Test
+    public void testRetry() throws Exception
+    {
+        // Server error, then OK
+        responses.add(500);
+        final LineProtocolWriter writer = new LineProtocolWriter(url, null, null, 1, 1);
+        writer.getBuffer("data", null).measurement("x").field("long.0", 1L).time(1);
+        writer.flush();
+        writer.close();
+        assertThat(requests.size(), equalTo(2));
+    }
+
+    @Test
+    public void testError() throws Exception
+    {
+        // Bad request is not retried, reported by flush
+        responses.add(400);
+        final LineProtocolWriter writer = new LineProtocolWriter(url, null, null, 1, 3);
+        writer.getBuffer("data", null).measurement("x").field("long.0", 1L).time(1);
+        try
+        {
+            writer.flush();
+            fail("Error not reported");
+        }
+        catch (Exception ex)
+        {
+            System.out.println(ex.getMessage());
+            assertThat(ex.getMessage(), containsString("400"));
+        }
+        // Recovers
+        writer.getBuffer("data", null).measurement("x").field("long.0", 2L).time(2);
+        writer.flush();
+        writer.close();
+        assertThat(requests.size(), equalTo(2));
+    }
+}
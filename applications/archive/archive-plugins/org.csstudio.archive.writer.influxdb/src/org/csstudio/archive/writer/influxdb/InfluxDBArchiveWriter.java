@@ -146,6 +146,9 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
 
     final batchPointSets batchSets = new batchPointSets();
 
+    /** Writer for line protocol, or <code>null</code> when using <code>batchSets</code> */
+    final private LineProtocolWriter line_writer;
+
     //    /** Severity (ID, name) cache */
     //    private SeverityCache severities;
     //
@@ -170,9 +173,27 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
      *  @throws Exception on error, for example InfluxDB connection error
      */
     public InfluxDBArchiveWriter(final String url, final String user, final String password) throws Exception
+    {
+        this(url, user, password, Preferences.useLineProtocol());
+    }
+
+    /** Initialize
+     *  @param url InfluxDB URL
+     *  @param user .. user name
+     *  @param password .. password
+     *  @param line_protocol Encode samples as line protocol and write them via HTTP?
+     *  @throws Exception on error, for example InfluxDB connection error
+     */
+    public InfluxDBArchiveWriter(final String url, final String user, final String password,
+                                 final boolean line_protocol) throws Exception
     {
         influxdb = InfluxDBUtil.connect(url, user, password);
         influxQuery = new InfluxDBQueries(influxdb, dbnames);
+        if (line_protocol)
+            line_writer = new LineProtocolWriter(url, user, password,
+                    Preferences.getMaxWritesInFlight(), Preferences.getWriteRetries());
+        else
+            line_writer = null;
         //        severities = new SeverityCache(influxdb, sql);
         //        stati = new StatusCache(influxdb, sql);
     }
@@ -251,8 +272,24 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
         final Instant stamp = VTypeHelper.getTimestamp(sample);
 
         writeMetaData(influxdb_channel, stamp, sample, storeas);
-        batchSets.getChannelSamplePoints(channel.getName(), influxdb_channel.getRP())
-            .point(InfluxDBSampleEncoder.encodeSample(influxdb_channel, stamp, sample, storeas));
+        if (line_writer != null)
+            InfluxDBSampleEncoder.encodeSample(
+                line_writer.getBuffer(dbnames.getDataDBName(channel.getName()), influxdb_channel.getRP()),
+                influxdb_channel, stamp, sample, storeas);
+        else
+            batchSets.getChannelSamplePoints(channel.getName(), influxdb_channel.getRP())
+                .point(InfluxDBSampleEncoder.encodeSample(influxdb_channel, stamp, sample, storeas));
+    }
+
+    /** @param channel_name Channel name
+     *  @param point Meta data point to write
+     */
+    private void addMetaPoint(final String channel_name, final Point point) throws Exception
+    {
+        if (line_writer != null)
+            line_writer.getBuffer(dbnames.getMetaDBName(channel_name), null).append(point.lineProtocol());
+        else
+            batchSets.getChannelMetaPoints(channel_name).point(point);
     }
 
     /** Write meta data if it was never written or has changed
@@ -274,7 +311,7 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
                 if ((channel.getStorageType() == storeas) && (MetaDataHelper.equals(display, channel.getMetadata())))
                     return;
                 Point point = MetaTypes.toDisplayMetaPoint(display, channel.getName(), stamp, storeas);
-                batchSets.getChannelMetaPoints(channel.getName()).point(point);
+                addMetaPoint(channel.getName(), point);
                 channel.setMetaData(display, storeas);
             }
             else {
@@ -290,7 +327,7 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
                 if ((channel.getStorageType() == storeas) && (MetaDataHelper.equals(labels, channel.getMetadata())))
                     return;
                 Point point = MetaTypes.toEnumMetaPoint(labels, channel.getName(), stamp, storeas);
-                batchSets.getChannelMetaPoints(channel.getName()).point(point);
+                addMetaPoint(channel.getName(), point);
                 channel.setMetaData(labels, storeas);
             }
             else {
@@ -303,7 +340,7 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
             if ((channel.getStorageType() == storeas) && (channel.getMetadata() == null))
                 return;
             Point point = MetaTypes.toNullMetaPoint(channel.getName(), stamp, storeas);
-            batchSets.getChannelMetaPoints(channel.getName()).point(point);
+            addMetaPoint(channel.getName(), point);
             channel.setMetaData(null, storeas);
             break;
         default:
@@ -314,11 +351,18 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
 
 
     /** {@inheritDoc}
-     *  InfluxDB implementation completes pending batches
+     *  InfluxDB implementation completes pending batches.
+     *  With line protocol, the batches for the various databases
+     *  and retention policies are written concurrently.
      */
     @Override
     public void flush() throws Exception
     {
+        if (line_writer != null)
+        {
+            line_writer.flush();
+            return;
+        }
         for (BatchPoints batchPoints : batchSets)
         {
             try
@@ -350,6 +394,8 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
         //        }
 
         //TODO: do we need to flush points here?
+        if (line_writer != null)
+            line_writer.close();
         influxdb.close();
     }
 }
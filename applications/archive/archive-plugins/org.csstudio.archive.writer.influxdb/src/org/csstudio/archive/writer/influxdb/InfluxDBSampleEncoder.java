@@ -156,23 +156,118 @@ public class InfluxDBSampleEncoder
     /** Encode a string value into database sample point */
     private static Point encodeTextSample(final InfluxDBWriteChannel channel,
             final Instant stamp, final String severity,
-            final String status, String txt) throws Exception
+            final String status, final String txt) throws Exception
     {
-        if (txt.length() > MAX_TEXT_SAMPLE_LENGTH)
-        {
-            Activator.getLogger().log(Level.INFO,
-                    "Value of {0} exceeds {1} chars: {2}",
-                    new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
-            txt = txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
-        }
         Point point = Point.measurement(channel.getName())
                 .time(InfluxDBUtil.toNanoLong(stamp), TimeUnit.NANOSECONDS)
                 .tag("severity", severity)
                 .tag("status", status)
-                .addField("string.0", txt).
+                .addField("string.0", limitText(channel, txt)).
                 build();
 
         return point;
     }
 
+    /** @param channel Channel
+     *  @param txt Text sample
+     *  @return Text, truncated to the maximum text sample length
+     */
+    private static String limitText(final InfluxDBWriteChannel channel, final String txt)
+    {
+        if (txt.length() <= MAX_TEXT_SAMPLE_LENGTH)
+            return txt;
+        Activator.getLogger().log(Level.INFO,
+                "Value of {0} exceeds {1} chars: {2}",
+                new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
+        return txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
+    }
+
+    /** Encode sample as line protocol
+     *
+     *  <p>Creates the same points as {@link #encodeSample(InfluxDBWriteChannel, Instant, VType, StoreAs)},
+     *  but writes them directly into the buffer without creating a {@link Point}.
+     *
+     *  @param buffer Buffer to which the point is added
+     *  @param channel Channel
+     *  @param stamp Time stamp of the sample
+     *  @param sample Sample to encode
+     *  @param storeas How to store the sample
+     *  @throws Exception on error
+     */
+    public static void encodeSample(final LineProtocolBuffer buffer, final InfluxDBWriteChannel channel,
+            final Instant stamp, final VType sample, final StoreAs storeas) throws Exception
+    {
+        final String severity = VTypeHelper.getSeverity(sample).toString();
+        final String status = VTypeHelper.getMessage(sample);
+        final long nanos = InfluxDBUtil.toNanoLong(stamp);
+
+        switch (storeas)
+        {
+        case ARCHIVE_DOUBLE :
+        {
+            final double dbl = ((VNumber)sample).getValue().doubleValue();
+            startDoublePoint(buffer, channel, severity, status, dbl);
+            buffer.time(nanos);
+            break;
+        }
+        case ARCHIVE_DOUBLE_ARRAY:
+        {
+            final ListNumber data = ((VNumberArray)sample).getData();
+            startDoublePoint(buffer, channel, severity, status, data.getDouble(0));
+            final int N = data.size();
+            for (int i = 1; i < N; i++)
+            {
+                final double dbli = data.getDouble(i);
+                buffer.field("double." + Integer.toString(i), Double.isNaN(dbli) ? 0.0 : dbli);
+            }
+            buffer.time(nanos);
+            break;
+        }
+        case ARCHIVE_LONG:
+            buffer.measurement(channel.getName())
+                  .tag("severity", severity)
+                  .tag("status", status)
+                  .field("long.0", ((VNumber)sample).getValue().longValue())
+                  .time(nanos);
+            break;
+        case ARCHIVE_ENUM:
+            buffer.measurement(channel.getName())
+                  .tag("severity", severity)
+                  .tag("status", status)
+                  .field("long.0", (long) ((VEnum)sample).getIndex())
+                  .time(nanos);
+            break;
+        case ARCHIVE_STRING:
+            buffer.measurement(channel.getName())
+                  .tag("severity", severity)
+                  .tag("status", status)
+                  .field("string.0", limitText(channel, ((VString)sample).getValue()))
+                  .time(nanos);
+            break;
+        case ARCHIVE_UNKNOWN:
+            buffer.measurement(channel.getName())
+                  .tag("severity", severity)
+                  .tag("status", status)
+                  .field("string.0", limitText(channel, sample.toString()))
+                  .time(nanos);
+            break;
+        default:
+            throw new Exception ("Tried to encode sample with unhandled store type: " + storeas.name());
+        }
+    }
+
+    /** Start point for double or array of doubles, patching NaN */
+    private static void startDoublePoint(final LineProtocolBuffer buffer, final InfluxDBWriteChannel channel,
+            final String severity, final String status, final double dbl)
+    {
+        buffer.measurement(channel.getName());
+        if (Double.isNaN(dbl))
+            buffer.tag("severity", AlarmSeverity.UNDEFINED.name())
+                  .tag("status", NOT_A_NUMBER_STATUS)
+                  .field("double.0", 0.0);
+        else
+            buffer.tag("severity", severity)
+                  .tag("status", status)
+                  .field("double.0", dbl);
+    }
 }
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.influxdb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** Byte buffer for InfluxDB line protocol
+ *
+ *  <p>Each point is one line:
+ *  <pre>
+ *  measurement,tag=value,tag=value field=value,field=value timestamp
+ *  </pre>
+ *  Text is UTF-8 encoded directly into the buffer,
+ *  which grows as needed and can be re-used after {@link #clear()}.
+ *
+ *  @author Kay Kasemir
+ */
+public class LineProtocolBuffer
+{
+    private byte[] data;
+    private int size = 0;
+
+    /** Number of points in buffer */
+    private int points = 0;
+
+    /** Position of current point while it is being added */
+    private int point_start;
+
+    /** Has current point tags resp. fields? */
+    private boolean have_fields;
+
+    /** @param capacity Initial capacity in bytes */
+    public LineProtocolBuffer(final int capacity)
+    {
+        data = new byte[capacity];
+    }
+
+    /** @return Number of bytes */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return Number of points */
+    public int getPointCount()
+    {
+        return points;
+    }
+
+    /** @return <code>true</code> if buffer holds no points */
+    public boolean isEmpty()
+    {
+        return points == 0;
+    }
+
+    /** Remove all points, keeping the allocated memory */
+    public void clear()
+    {
+        size = 0;
+        points = 0;
+    }
+
+    /** @param out Stream to which the buffered points are written
+     *  @throws IOException on error
+     */
+    public void writeTo(final OutputStream out) throws IOException
+    {
+        out.write(data, 0, size);
+    }
+
+    /** @return Buffered points as text */
+    @Override
+    public String toString()
+    {
+        return new String(data, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(final int needed)
+    {
+        if (size + needed > data.length)
+            data = Arrays.copyOf(data, Math.max(2 * data.length, size + needed));
+    }
+
+    private void append(final byte b)
+    {
+        ensureCapacity(1);
+        data[size++] = b;
+    }
+
+    /** Append text, escaping the given characters with a backslash
+     *  @param text Text to append
+     *  @param escape Characters to escape
+     */
+    private void append(final CharSequence text, final String escape)
+    {
+        final int len = text.length();
+        // Worst case for UTF-8, plus escapes
+        ensureCapacity(4 * len);
+        for (int i=0; i<len; ++i)
+        {
+            final char c = text.charAt(i);
+            if (c < 0x80)
+            {
+                if (escape.indexOf(c) >= 0)
+                    data[size++] = '\\';
+                data[size++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                data[size++] = (byte) (0xC0 | (c >> 6));
+                data[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c)  &&  i+1 < len  &&  Character.isLowSurrogate(text.charAt(i+1)))
+            {
+                final int cp = Character.toCodePoint(c, text.charAt(++i));
+                data[size++] = (byte) (0xF0 | (cp >> 18));
+                data[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                data[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                data[size++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else
+            {
+                data[size++] = (byte) (0xE0 | (c >> 12));
+                data[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                data[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /** Append plain ASCII text */
+    private void appendASCII(final String text)
+    {
+        final int len = text.length();
+        ensureCapacity(len);
+        for (int i=0; i<len; ++i)
+            data[size++] = (byte) text.charAt(i);
+    }
+
+    /** Start a point
+     *  @param measurement Measurement name
+     *  @return this
+     */
+    public LineProtocolBuffer measurement(final String measurement)
+    {
+        point_start = size;
+        have_fields = false;
+        append(measurement, ", ");
+        return this;
+    }
+
+    /** Add tag to current point. Must be called before adding fields.
+     *  @param key Tag key
+     *  @param value Tag value. Tags with empty value are skipped.
+     *  @return this
+     */
+    public LineProtocolBuffer tag(final String key, final String value)
+    {
+        if (value == null  ||  value.isEmpty())
+            return this;
+        append((byte) ',');
+        append(key, ",= ");
+        append((byte) '=');
+        append(value, ",= ");
+        return this;
+    }
+
+    private void startField(final String key)
+    {
+        append((byte) (have_fields ? ',' : ' '));
+        have_fields = true;
+        append(key, ",= ");
+        append((byte) '=');
+    }
+
+    /** @param key Field key
+     *  @param value Floating point value, must be finite
+     *  @return this
+     */
+    public LineProtocolBuffer field(final String key, final double value)
+    {
+        startField(key);
+        appendASCII(Double.toString(value));
+        return this;
+    }
+
+    /** @param key Field key
+     *  @param value Integer value
+     *  @return this
+     */
+    public LineProtocolBuffer field(final String key, final long value)
+    {
+        startField(key);
+        appendASCII(Long.toString(value));
+        append((byte) 'i');
+        return this;
+    }
+
+    /** @param key Field key
+     *  @param value String value
+     *  @return this
+     */
+    public LineProtocolBuffer field(final String key, final String value)
+    {
+        startField(key);
+        append((byte) '"');
+        append(value, "\"\\");
+        append((byte) '"');
+        return this;
+    }
+
+    /** Complete the current point
+     *  @param nanos Time stamp in nanoseconds since epoch
+     *  @throws IllegalStateException if point has no fields
+     */
+    @SuppressWarnings("nls")
+    public void time(final long nanos)
+    {
+        if (! have_fields)
+        {
+            size = point_start;
+            throw new IllegalStateException("Point without fields");
+        }
+        append((byte) ' ');
+        appendASCII(Long.toString(nanos));
+        append((byte) '\n');
+        ++points;
+    }
+
+    /** Add a complete point, for example from {@link org.influxdb.dto.Point#lineProtocol()}
+     *  @param line Point in line protocol, without line feed
+     */
+    public void append(final String line)
+    {
+        append(line, "");
+        append((byte) '\n');
+        ++points;
+    }
+}
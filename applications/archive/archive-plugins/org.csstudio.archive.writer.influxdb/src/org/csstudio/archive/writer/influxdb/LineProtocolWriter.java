@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.influxdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/** Writes line protocol to InfluxDB via HTTP, in parallel
+ *
+ *  <p>Points are collected in a {@link LineProtocolBuffer}
+ *  per database and retention policy.
+ *  {@link #flush()} writes the buffers concurrently,
+ *  with up to a maximum number of writes in flight per database,
+ *  and waits for all of them to complete.
+ *  When <code>flush()</code> returns, the points have been written.
+ *
+ *  <p>Failed writes are retried.
+ *  When all retries fail, <code>flush()</code> reports the error.
+ *  The caller then needs to keep or spill the samples,
+ *  since the buffered points of the failed flush are dropped.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class LineProtocolWriter
+{
+    /** Initial size of a buffer */
+    final private static int BUFFER_SIZE = 64 * 1024;
+
+    /** Delay before first retry, doubled for each retry */
+    final private static long RETRY_DELAY_MS = 500;
+
+    final private String url, user, password;
+
+    final private int max_in_flight, retries;
+
+    final private ExecutorService pool =
+        Executors.newCachedThreadPool(runnable ->
+        {
+            final Thread thread = new Thread(runnable, "InfluxDB Write");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /** Buffers that collect points, by database and retention policy */
+    final private Map<String, Map<String, LineProtocolBuffer>> buffers = new HashMap<>();
+
+    /** Permits for writes in flight, by database */
+    final private Map<String, Semaphore> in_flight = new HashMap<>();
+
+    /** Buffers that may be re-used */
+    final private Queue<LineProtocolBuffer> free_buffers = new ConcurrentLinkedQueue<>();
+
+    /** Error response from InfluxDB */
+    private static class ResponseException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+        final int code;
+
+        ResponseException(final int code, final String message)
+        {
+            super("HTTP " + code + ": " + message);
+            this.code = code;
+        }
+    }
+
+    /** @param url InfluxDB URL
+     *  @param user .. user name, may be <code>null</code>
+     *  @param password .. password, may be <code>null</code>
+     *  @param max_in_flight Maximum number of writes in flight per database
+     *  @param retries Number of times a failed write is retried
+     */
+    public LineProtocolWriter(final String url, final String user, final String password,
+                              final int max_in_flight, final int retries)
+    {
+        this.url = url.endsWith("/") ? url.substring(0, url.length()-1) : url;
+        this.user = user;
+        this.password = password;
+        this.max_in_flight = Math.max(1, max_in_flight);
+        this.retries = Math.max(0, retries);
+    }
+
+    /** @param database Database name
+     *  @param retention Retention policy, <code>null</code> for default
+     *  @return Buffer to which points for that database and retention policy can be added
+     */
+    public LineProtocolBuffer getBuffer(final String database, final String retention)
+    {
+        final Map<String, LineProtocolBuffer> rp_buffers = buffers.computeIfAbsent(database, db -> new HashMap<>());
+        return rp_buffers.computeIfAbsent(retention != null ? retention : "autogen", rp ->
+        {
+            final LineProtocolBuffer buffer = free_buffers.poll();
+            return buffer != null ? buffer : new LineProtocolBuffer(BUFFER_SIZE);
+        });
+    }
+
+    /** Write all buffered points
+     *
+     *  <p>Writes to different databases and retention policies
+     *  run concurrently.
+     *  Waits until all of them completed.
+     *
+     *  @throws Exception on error
+     */
+    public void flush() throws Exception
+    {
+        final List<Future<?>> writes = new ArrayList<>();
+        for (Map.Entry<String, Map<String, LineProtocolBuffer>> db_entry : buffers.entrySet())
+        {
+            final String database = db_entry.getKey();
+            final Semaphore permits = in_flight.computeIfAbsent(database, db -> new Semaphore(max_in_flight));
+            for (Map.Entry<String, LineProtocolBuffer> rp_entry : db_entry.getValue().entrySet())
+            {
+                final String retention = rp_entry.getKey();
+                final LineProtocolBuffer buffer = rp_entry.getValue();
+                if (buffer.isEmpty())
+                    continue;
+                permits.acquire();
+                writes.add(pool.submit(() ->
+                {
+                    try
+                    {
+                        write(database, retention, buffer);
+                    }
+                    finally
+                    {
+                        buffer.clear();
+                        free_buffers.add(buffer);
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+        }
+        // Buffers are now owned by the writes
+        buffers.clear();
+
+        // Wait for all writes, reporting the first error
+        Exception error = null;
+        for (Future<?> write : writes)
+        {
+            try
+            {
+                write.get();
+            }
+            catch (ExecutionException ex)
+            {
+                if (error == null)
+                    error = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            }
+        }
+        if (error != null)
+            throw new Exception("Write of points failed: " + error.getMessage(), error);
+    }
+
+    /** Write buffer, retrying on error
+     *  @param database Database name
+     *  @param retention Retention policy
+     *  @param buffer Points to write
+     *  @throws Exception on error
+     */
+    private void write(final String database, final String retention,
+                       final LineProtocolBuffer buffer) throws Exception
+    {
+        long delay = RETRY_DELAY_MS;
+        for (int attempt = 0;  ;  ++attempt)
+        {
+            try
+            {
+                post(database, retention, buffer);
+                return;
+            }
+            catch (IOException ex)
+            {
+                // Don't retry what InfluxDB rejected as a bad request
+                if (attempt >= retries  ||
+                    (ex instanceof ResponseException  &&  ((ResponseException) ex).code < 500))
+                    throw ex;
+                Activator.getLogger().log(Level.FINE, "Retrying write to " + database, ex);
+                Thread.sleep(delay);
+                delay *= 2;
+            }
+        }
+    }
+
+    /** POST buffer to InfluxDB
+     *  @param database Database name
+     *  @param retention Retention policy
+     *  @param buffer Points to write
+     *  @throws IOException on error
+     */
+    private void post(final String database, final String retention,
+                      final LineProtocolBuffer buffer) throws IOException
+    {
+        final StringBuilder query = new StringBuilder(url);
+        query.append("/write?db=").append(URLEncoder.encode(database, "UTF-8"))
+             .append("&rp=").append(URLEncoder.encode(retention, "UTF-8"))
+             .append("&precision=ns&consistency=all");
+        if (user != null  &&  password != null)
+            query.append("&u=").append(URLEncoder.encode(user, "UTF-8"))
+                 .append("&p=").append(URLEncoder.encode(password, "UTF-8"));
+
+        final HttpURLConnection connection = (HttpURLConnection) new URL(query.toString()).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(30000);
+        connection.setFixedLengthStreamingMode(buffer.size());
+        connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+        try
+        (
+            final OutputStream out = connection.getOutputStream();
+        )
+        {
+            buffer.writeTo(out);
+        }
+        final int code = connection.getResponseCode();
+        if (code / 100 == 2)
+        {   // Read response to allow re-use of the connection
+            try
+            (
+                final InputStream in = connection.getInputStream();
+            )
+            {
+                readAll(in);
+            }
+            return;
+        }
+        String message = connection.getResponseMessage();
+        try
+        (
+            final InputStream in = connection.getErrorStream();
+        )
+        {
+            if (in != null)
+                message = readAll(in);
+        }
+        throw new ResponseException(code, message);
+    }
+
+    private static String readAll(final InputStream in) throws IOException
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        final byte[] data = new byte[1024];
+        int len;
+        while ((len = in.read(data)) > 0)
+            buf.write(data, 0, len);
+        return buf.toString("UTF-8");
+    }
+
+    /** Stop the writer.
+     *  Points that were not flushed are dropped.
+     */
+    public void close()
+    {
+        buffers.clear();
+        pool.shutdown();
+        try
+        {
+            if (! pool.awaitTermination(60, TimeUnit.SECONDS))
+                Activator.getLogger().log(Level.WARNING, "InfluxDB writes did not complete");
+        }
+        catch (InterruptedException ex)
+        {
+            // Ignore, closing anyway
+        }
+    }
+}
@@ -17,6 +17,9 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 public class Preferences
 {
     public static final String MAX_TEXT_SAMPLE_LENGTH = "max_text_sample_length";
+    public static final String USE_LINE_PROTOCOL = "use_line_protocol";
+    public static final String MAX_WRITES_IN_FLIGHT = "max_writes_in_flight";
+    public static final String WRITE_RETRIES = "write_retries";
 
     /** @return Maximum length of text samples written to SAMPLE.STR_VAL */
     public static int getMaxStringSampleLength()
@@ -27,4 +30,30 @@ public class Preferences
         return prefs.getInt(Activator.ID, MAX_TEXT_SAMPLE_LENGTH, 80, null);
     }
 
+    /** @return Write line protocol via HTTP instead of batched points? */
+    public static boolean useLineProtocol()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return false;
+        return prefs.getBoolean(Activator.ID, USE_LINE_PROTOCOL, false, null);
+    }
+
+    /** @return Maximum number of line protocol writes in flight per database */
+    public static int getMaxWritesInFlight()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 4;
+        return prefs.getInt(Activator.ID, MAX_WRITES_IN_FLIGHT, 4, null);
+    }
+
+    /** @return Number of retries for a failed line protocol write */
+    public static int getWriteRetries()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 2;
+        return prefs.getInt(Activator.ID, WRITE_RETRIES, 2, null);
+    }
 }
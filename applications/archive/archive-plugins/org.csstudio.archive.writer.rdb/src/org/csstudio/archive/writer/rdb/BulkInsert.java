@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.util.logging.Level;
+
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
+
+/** Strategy for inserting the samples staged in a {@link SampleBatch}
+ *
+ *  <p>Each instance handles one INSERT statement,
+ *  i.e. one sample type.
+ *  Implementations submit the samples but do not commit.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+abstract class BulkInsert
+{
+    /** JDBC batch, array bind on Oracle */
+    final public static String BATCH = "batch";
+
+    /** Multi-row VALUES resp. Oracle INSERT ALL */
+    final public static String MULTI_ROW = "multirow";
+
+    /** PostgreSQL COPY ... FROM STDIN in binary format */
+    final public static String COPY = "copy";
+
+    /** Pick the best strategy for the dialect */
+    final public static String AUTO = "auto";
+
+    final protected RDBUtil rdb;
+
+    final protected SampleBatch batch;
+
+    /** @param rdb RDB connection
+     *  @param insert_sql Single-row INSERT statement
+     *  @throws Exception on error
+     */
+    protected BulkInsert(final RDBUtil rdb, final String insert_sql) throws Exception
+    {
+        this.rdb = rdb;
+        batch = new SampleBatch(rdb.getDialect(), insert_sql);
+    }
+
+    /** Create bulk insert
+     *  @param strategy {@link #BATCH}, {@link #MULTI_ROW}, {@link #COPY} or {@link #AUTO}
+     *  @param rdb RDB connection
+     *  @param insert_sql Single-row INSERT statement
+     *  @param timeout_secs SQL timeout, 0 to disable
+     *  @return {@link BulkInsert}
+     *  @throws Exception on error
+     */
+    public static BulkInsert create(String strategy, final RDBUtil rdb, final String insert_sql,
+                                    final int timeout_secs) throws Exception
+    {
+        final Dialect dialect = rdb.getDialect();
+        if (AUTO.equalsIgnoreCase(strategy))
+        {
+            if (dialect == Dialect.PostgreSQL)
+                strategy = COPY;
+            else if (dialect == Dialect.MySQL)
+                strategy = MULTI_ROW;
+            else
+                strategy = BATCH;
+        }
+        if (COPY.equalsIgnoreCase(strategy))
+        {
+            if (dialect == Dialect.PostgreSQL)
+            {
+                try
+                {
+                    return new PGCopyBinaryInsert(rdb, insert_sql);
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING,
+                        "Cannot use COPY for " + insert_sql + ", using batch", ex);
+                }
+            }
+            else
+                Activator.getLogger().log(Level.WARNING,
+                    "COPY requires PostgreSQL, using batch for {0}", dialect);
+        }
+        else if (MULTI_ROW.equalsIgnoreCase(strategy))
+            return new MultiRowInsert(rdb, insert_sql, timeout_secs);
+        else if (! BATCH.equalsIgnoreCase(strategy))
+            Activator.getLogger().log(Level.WARNING,
+                "Unknown bulk insert strategy ''{0}'', using batch", strategy);
+        return new JDBCBatchInsert(rdb, insert_sql, timeout_secs);
+    }
+
+    /** @return Staging area for samples */
+    public SampleBatch getBatch()
+    {
+        return batch;
+    }
+
+    /** Submit and clear all staged samples
+     *  @throws Exception on error. The batch is cleared in any case.
+     */
+    public void execute() throws Exception
+    {
+        if (batch.isEmpty())
+            return;
+        try
+        {
+            insert(batch);
+        }
+        finally
+        {
+            batch.clear();
+        }
+    }
+
+    /** Insert samples, without commit
+     *  @param batch Samples to insert
+     *  @throws Exception on error
+     */
+    abstract protected void insert(SampleBatch batch) throws Exception;
+
+    /** Release resources */
+    abstract public void close();
+}
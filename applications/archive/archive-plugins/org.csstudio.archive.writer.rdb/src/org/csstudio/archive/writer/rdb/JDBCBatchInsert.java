@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
+
+/** {@link BulkInsert} via JDBC batch of single-row INSERT statements
+ *
+ *  <p>The Oracle driver sends the batch as one array bind.
+ *  MySQL needs <code>rewriteBatchedStatements=true</code> in the URL
+ *  to combine the batch into multi-row INSERTs.
+ *  For PostgreSQL, the batch may use the {@link PGCopyPreparedStatement}.
+ *
+ *  @author Kay Kasemir
+ */
+class JDBCBatchInsert extends BulkInsert
+{
+    final private PreparedStatement statement;
+
+    /** @param rdb RDB connection
+     *  @param insert_sql Single-row INSERT statement
+     *  @param timeout_secs SQL timeout, 0 to disable
+     *  @throws Exception on error
+     */
+    @SuppressWarnings("resource")
+    JDBCBatchInsert(final RDBUtil rdb, final String insert_sql, final int timeout_secs) throws Exception
+    {
+        super(rdb, insert_sql);
+        if (rdb.getDialect() == Dialect.PostgreSQL  &&  Preferences.isUsePostgresCopy())
+            statement = new PGCopyPreparedStatement(rdb.getConnection(), insert_sql);
+        else
+            statement = rdb.getConnection().prepareStatement(insert_sql);
+        if (timeout_secs > 0)
+            statement.setQueryTimeout(timeout_secs);
+    }
+
+    @Override
+    protected void insert(final SampleBatch batch) throws Exception
+    {
+        try
+        {
+            final int N = batch.size();
+            for (int row=0; row<N; ++row)
+            {
+                batch.bind(statement, row, 0);
+                statement.addBatch();
+            }
+            // In principle this could return update counts for
+            // each batched insert, but Oracle 10g and 11g just throw
+            // an exception
+            statement.executeBatch();
+        }
+        catch (Exception ex)
+        {
+            // With Oracle 10g, the BatchUpdateException doesn't
+            // indicate which of the batched commands faulted...
+            try
+            {
+                statement.clearBatch();
+            }
+            catch (Exception nested)
+            {
+                Activator.getLogger().log(Level.WARNING, "clearBatch() error after batch issue", nested); //$NON-NLS-1$
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            statement.close();
+        }
+        catch (SQLException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "close() error", ex); //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
+
+/** {@link BulkInsert} via INSERT statements for many rows
+ *
+ *  <p>MySQL and PostgreSQL use
+ *  <code>INSERT INTO table (cols) VALUES (...), (...), ...</code>,
+ *  Oracle uses
+ *  <code>INSERT ALL INTO table (cols) VALUES (...) INTO ... SELECT * FROM DUAL</code>.
+ *
+ *  <p>Statements are limited to {@link #MAX_PARAMETERS}.
+ *  The statement for a full chunk of rows is prepared once,
+ *  the remaining rows use a statement prepared for each flush.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class MultiRowInsert extends BulkInsert
+{
+    /** Maximum number of parameters in one statement */
+    final private static int MAX_PARAMETERS = 1000;
+
+    final private int timeout_secs;
+
+    /** Rows per full statement */
+    final private int chunk;
+
+    /** Statement for a full chunk of rows */
+    private PreparedStatement chunk_statement = null;
+
+    /** @param rdb RDB connection
+     *  @param insert_sql Single-row INSERT statement
+     *  @param timeout_secs SQL timeout, 0 to disable
+     *  @throws Exception on error
+     */
+    MultiRowInsert(final RDBUtil rdb, final String insert_sql, final int timeout_secs) throws Exception
+    {
+        super(rdb, insert_sql);
+        this.timeout_secs = timeout_secs;
+        chunk = Math.max(1, MAX_PARAMETERS / batch.getColumns().length);
+    }
+
+    /** @param rows Number of rows
+     *  @return SQL for inserting that many rows
+     */
+    private String createSQL(final int rows)
+    {
+        final String columns = String.join(", ", batch.getColumnNames());
+        final StringBuilder values = new StringBuilder("(");
+        for (int i=0; i<batch.getColumns().length; ++i)
+        {
+            if (i > 0)
+                values.append(',');
+            values.append('?');
+        }
+        values.append(')');
+
+        final StringBuilder buf = new StringBuilder();
+        if (rdb.getDialect() == Dialect.Oracle)
+        {
+            buf.append("INSERT ALL");
+            for (int row=0; row<rows; ++row)
+                buf.append(" INTO ").append(batch.getTable())
+                   .append(" (").append(columns).append(") VALUES ").append(values);
+            buf.append(" SELECT * FROM DUAL");
+        }
+        else
+        {
+            buf.append("INSERT INTO ").append(batch.getTable())
+               .append(" (").append(columns).append(") VALUES ");
+            for (int row=0; row<rows; ++row)
+            {
+                if (row > 0)
+                    buf.append(", ");
+                buf.append(values);
+            }
+        }
+        return buf.toString();
+    }
+
+    private PreparedStatement prepare(final int rows) throws Exception
+    {
+        final PreparedStatement statement = rdb.getConnection().prepareStatement(createSQL(rows));
+        if (timeout_secs > 0)
+            statement.setQueryTimeout(timeout_secs);
+        return statement;
+    }
+
+    /** @param statement Statement for several rows
+     *  @param start First staged row to bind
+     *  @param rows Number of rows
+     */
+    private void bind(final PreparedStatement statement, final int start, final int rows) throws SQLException
+    {
+        final int params = batch.getColumns().length;
+        for (int i=0; i<rows; ++i)
+            batch.bind(statement, start + i, i * params);
+    }
+
+    @Override
+    protected void insert(final SampleBatch batch) throws Exception
+    {
+        final int N = batch.size();
+        final int full = N / chunk;
+        int row = 0;
+        if (full > 0)
+        {
+            if (chunk_statement == null)
+                chunk_statement = prepare(chunk);
+            try
+            {
+                for (int i=0; i<full; ++i)
+                {
+                    bind(chunk_statement, row, chunk);
+                    chunk_statement.addBatch();
+                    row += chunk;
+                }
+                chunk_statement.executeBatch();
+            }
+            catch (Exception ex)
+            {
+                try
+                {
+                    chunk_statement.clearBatch();
+                }
+                catch (Exception nested)
+                {
+                    Activator.getLogger().log(Level.WARNING, "clearBatch() error after batch issue", nested);
+                }
+                throw ex;
+            }
+        }
+        final int rest = N - row;
+        if (rest > 0)
+        {
+            try
+            (
+                final PreparedStatement statement = prepare(rest);
+            )
+            {
+                bind(statement, row, rest);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (chunk_statement == null)
+            return;
+        try
+        {
+            chunk_statement.close();
+        }
+        catch (SQLException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "close() error", ex);
+        }
+        chunk_statement = null;
+    }
+}
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.csstudio.archive.writer.rdb.SampleBatch.Column;
+import org.csstudio.platform.utility.rdb.RDBUtil;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/** {@link BulkInsert} via PostgreSQL <code>COPY ... FROM STDIN</code> in binary format
+ *
+ *  <p>Compared to the CSV-based {@link PGCopyPreparedStatement},
+ *  numbers and time stamps are sent in their binary representation,
+ *  so neither the client nor the server needs to format or parse text.
+ *
+ *  <p>The binary format must match the column types exactly,
+ *  which are therefore read from the database meta data.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class PGCopyBinaryInsert extends BulkInsert
+{
+    /** Signature of binary COPY data */
+    final private static byte[] SIGNATURE = new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    /** PostgreSQL time stamps count microseconds since 2000-01-01 */
+    final private static long POSTGRES_EPOCH_SECS = 946684800L;
+
+    /** Binary encodings */
+    private enum Encoding
+    {
+        INT2, INT4, INT8, FLOAT4, FLOAT8, TIMESTAMP, TIMESTAMPTZ, TEXT, BYTEA
+    }
+
+    /** Encodings by PostgreSQL type name */
+    final private static Map<String, Encoding> TYPES = new HashMap<>();
+    static
+    {
+        TYPES.put("int2", Encoding.INT2);
+        TYPES.put("int4", Encoding.INT4);
+        TYPES.put("serial", Encoding.INT4);
+        TYPES.put("int8", Encoding.INT8);
+        TYPES.put("bigserial", Encoding.INT8);
+        TYPES.put("float4", Encoding.FLOAT4);
+        TYPES.put("float8", Encoding.FLOAT8);
+        TYPES.put("timestamp", Encoding.TIMESTAMP);
+        TYPES.put("timestamptz", Encoding.TIMESTAMPTZ);
+        TYPES.put("text", Encoding.TEXT);
+        TYPES.put("varchar", Encoding.TEXT);
+        TYPES.put("bpchar", Encoding.TEXT);
+        TYPES.put("bytea", Encoding.BYTEA);
+    }
+
+    /** Zone used by JDBC for 'timestamp' without time zone */
+    final private ZoneId zone = ZoneId.systemDefault();
+
+    final private String copy_sql;
+
+    final private Encoding[] encodings;
+
+    final private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /** @param rdb RDB connection
+     *  @param insert_sql Single-row INSERT statement
+     *  @throws Exception on error, including column types that are not supported
+     */
+    PGCopyBinaryInsert(final RDBUtil rdb, final String insert_sql) throws Exception
+    {
+        super(rdb, insert_sql);
+        final String[] names = batch.getColumnNames();
+        copy_sql = "COPY " + batch.getTable() + " (" + String.join(", ", names) + ") FROM STDIN WITH (FORMAT binary)";
+
+        // Determine column types
+        final Connection connection = rdb.getConnection();
+        // Unquoted names are stored in lower case
+        String schema = null, table = batch.getTable().toLowerCase();
+        final int sep = table.lastIndexOf('.');
+        if (sep > 0)
+        {
+            schema = table.substring(0, sep);
+            table = table.substring(sep + 1);
+        }
+        final Map<String, String> types = new HashMap<>();
+        try
+        (
+            final ResultSet result = connection.getMetaData().getColumns(connection.getCatalog(), schema, table, null);
+        )
+        {
+            while (result.next())
+                types.put(result.getString("COLUMN_NAME").toLowerCase(), result.getString("TYPE_NAME").toLowerCase());
+        }
+
+        final Column[] columns = batch.getColumns();
+        encodings = new Encoding[columns.length];
+        for (int i=0; i<columns.length; ++i)
+        {
+            final String type = types.get(names[i].toLowerCase());
+            if (type == null)
+                throw new Exception("Unknown column " + names[i] + " in " + batch.getTable());
+            encodings[i] = TYPES.get(type);
+            if (encodings[i] == null  ||  ! isCompatible(columns[i], encodings[i]))
+                throw new Exception("Cannot COPY " + columns[i] + " into column " + names[i] + " of type " + type);
+        }
+    }
+
+    /** @param column Sample column
+     *  @param encoding Binary encoding of the database column
+     *  @return <code>true</code> if column can be written in that encoding
+     */
+    private static boolean isCompatible(final Column column, final Encoding encoding)
+    {
+        switch (column)
+        {
+        case SMPL_TIME:
+            return encoding == Encoding.TIMESTAMP  ||  encoding == Encoding.TIMESTAMPTZ;
+        case FLOAT_VAL:
+            return encoding == Encoding.FLOAT4  ||  encoding == Encoding.FLOAT8;
+        case STR_VAL:
+        case DATATYPE:
+            return encoding == Encoding.TEXT;
+        case ARRAY_VAL:
+            return encoding == Encoding.BYTEA;
+        default:
+            // Integer columns
+            return encoding == Encoding.INT2  ||  encoding == Encoding.INT4  ||  encoding == Encoding.INT8;
+        }
+    }
+
+    @Override
+    protected void insert(final SampleBatch batch) throws Exception
+    {
+        buffer.reset();
+        final DataOutputStream out = new DataOutputStream(buffer);
+        // Header: Signature, flags, header extension length
+        out.write(SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+        final Column[] columns = batch.getColumns();
+        final int N = batch.size();
+        for (int row=0; row<N; ++row)
+        {
+            out.writeShort(columns.length);
+            for (int i=0; i<columns.length; ++i)
+                writeField(out, batch, row, columns[i], encodings[i]);
+        }
+        // Trailer
+        out.writeShort(-1);
+        out.flush();
+
+        final CopyManager copy = rdb.getConnection().unwrap(PGConnection.class).getCopyAPI();
+        copy.copyIn(copy_sql, new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    /** Write field as length and binary data
+     *  @throws Exception on error, including integer values that exceed the column type
+     */
+    private void writeField(final DataOutputStream out, final SampleBatch batch, final int row,
+                            final Column column, final Encoding encoding) throws Exception
+    {
+        switch (encoding)
+        {
+        case INT2:
+            out.writeInt(2);
+            out.writeShort(checkRange(getInteger(batch, row, column), Short.MIN_VALUE, Short.MAX_VALUE, column, encoding));
+            break;
+        case INT4:
+            out.writeInt(4);
+            out.writeInt(checkRange(getInteger(batch, row, column), Integer.MIN_VALUE, Integer.MAX_VALUE, column, encoding));
+            break;
+        case INT8:
+            out.writeInt(8);
+            out.writeLong(getInteger(batch, row, column));
+            break;
+        case FLOAT4:
+            out.writeInt(4);
+            out.writeFloat((float) batch.getDouble(row));
+            break;
+        case FLOAT8:
+            out.writeInt(8);
+            out.writeDouble(batch.getDouble(row));
+            break;
+        case TIMESTAMP:
+        {   // JDBC writes the local time for columns without time zone
+            final long secs = batch.getSeconds(row);
+            final ZoneOffset offset = zone.getRules().getOffset(Instant.ofEpochSecond(secs));
+            out.writeInt(8);
+            out.writeLong(toPostgresMicros(secs + offset.getTotalSeconds(), batch.getNanos(row)));
+            break;
+        }
+        case TIMESTAMPTZ:
+            out.writeInt(8);
+            out.writeLong(toPostgresMicros(batch.getSeconds(row), batch.getNanos(row)));
+            break;
+        case TEXT:
+        {
+            final String text = column == Column.DATATYPE ? batch.getDataType(row) : batch.getText(row);
+            if (text == null)
+                out.writeInt(-1);
+            else
+            {
+                final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            break;
+        }
+        case BYTEA:
+        {
+            final byte[] blob = batch.getBlob(row);
+            if (blob == null)
+                out.writeInt(-1);
+            else
+            {
+                out.writeInt(blob.length);
+                out.write(blob);
+            }
+            break;
+        }
+        }
+    }
+
+    /** @return Value of an integer column */
+    private static long getInteger(final SampleBatch batch, final int row, final Column column)
+    {
+        switch (column)
+        {
+        case CHANNEL_ID:
+            return batch.getChannelId(row);
+        case SEVERITY_ID:
+            return batch.getSeverityId(row);
+        case STATUS_ID:
+            return batch.getStatusId(row);
+        case NANOSECS:
+            return batch.getNanos(row);
+        case SEQ_NBR:
+            return batch.getSequence(row);
+        default:
+            return batch.getLong(row);
+        }
+    }
+
+    /** @param value Integer value
+     *  @param min Minimum value of the column type
+     *  @param max Maximum value of the column type
+     *  @param column Sample column
+     *  @param encoding Binary encoding of the database column
+     *  @return Value
+     *  @throws Exception if value is outside of min .. max
+     */
+    private static int checkRange(final long value, final int min, final int max,
+                                  final Column column, final Encoding encoding) throws Exception
+    {
+        if (value < min  ||  value > max)
+            throw new Exception("Cannot COPY " + column + " value " + value + " into column of type " +
+                                encoding.name().toLowerCase());
+        return (int) value;
+    }
+
+    /** @param secs Seconds since 1970
+     *  @param nanos Nanoseconds
+     *  @return Microseconds since 2000, rounded like the server would
+     */
+    private static long toPostgresMicros(final long secs, final int nanos)
+    {
+        return (secs - POSTGRES_EPOCH_SECS) * 1000000L + (nanos + 500) / 1000;
+    }
+
+    @Override
+    public void close()
+    {
+        // Nothing to close, buffer is garbage collected
+    }
+}
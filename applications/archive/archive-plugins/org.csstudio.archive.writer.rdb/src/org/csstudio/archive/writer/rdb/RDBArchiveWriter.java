@@ -12,9 +12,7 @@ import java.io.DataOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -29,7 +27,6 @@ import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.archive.writer.ArchiveWriter;
 import org.csstudio.archive.writer.WriteChannel;
 import org.csstudio.platform.utility.rdb.RDBUtil;
-import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
 import org.diirt.util.array.ListNumber;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
@@ -72,29 +69,20 @@ public class RDBArchiveWriter implements ArchiveWriter
     /** Status (ID, name) cache */
     private StatusCache stati;
 
-    /** Prepared statement for inserting 'double' samples */
-    private PreparedStatement insert_double_sample = null;
+    /** Strategy for bulk inserts, see {@link BulkInsert#create} */
+    final private String bulk_insert;
 
-    /** Prepared statement for inserting array samples */
-    private PreparedStatement insert_array_sample = null;
+    /** Bulk insert for 'double' samples */
+    private BulkInsert insert_double_sample = null;
 
-    /** Prepared statement for inserting 'long' samples */
-    private PreparedStatement insert_long_sample = null;
+    /** Bulk insert for array samples */
+    private BulkInsert insert_array_sample = null;
 
-    /** Prepared statement for inserting 'String' samples */
-    private PreparedStatement insert_txt_sample = null;
+    /** Bulk insert for 'long' samples */
+    private BulkInsert insert_long_sample = null;
 
-    /** Counter for accumulated samples in 'double' batch */
-    private int batched_double_inserts = 0;
-
-    /** Counter for accumulated samples in 'double array' batch */
-    private int batched_double_array_inserts = 0;
-
-    /** Counter for accumulated samples in 'long' batch */
-    private int batched_long_inserts = 0;
-
-    /** Counter for accumulated samples in 'String' batch */
-    private int batched_txt_inserts = 0;
+    /** Bulk insert for 'String' samples */
+    private BulkInsert insert_txt_sample = null;
 
     /** Copy of batched samples, used to display batch errors */
     private final List<RDBWriteChannel> batched_channel = new ArrayList<RDBWriteChannel>();
@@ -109,7 +97,7 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         this(RDBArchivePreferences.getURL(), RDBArchivePreferences.getUser(),
                 RDBArchivePreferences.getPassword(), RDBArchivePreferences.getSchema(),
-                RDBArchivePreferences.useArrayBlob());
+                RDBArchivePreferences.useArrayBlob(), RDBArchivePreferences.getBulkInsert());
     }
 
     /** Initialize
@@ -122,8 +110,24 @@ public class RDBArchiveWriter implements ArchiveWriter
      */
     public RDBArchiveWriter(final String url, final String user, final String password,
             final String schema, boolean use_array_blob) throws Exception
+    {
+        this(url, user, password, schema, use_array_blob, RDBArchivePreferences.getBulkInsert());
+    }
+
+    /** Initialize
+     *  @param url RDB URL
+     *  @param user .. user name
+     *  @param password .. password
+     *  @param schema Schema/table prefix, not including ".". May be empty
+     *  @param use_array_blob Use BLOB for array elements?
+     *  @param bulk_insert Bulk insert strategy: "batch", "multirow", "copy" or "auto"
+     *  @throws Exception on error, for example RDB connection error
+     */
+    public RDBArchiveWriter(final String url, final String user, final String password,
+            final String schema, boolean use_array_blob, final String bulk_insert) throws Exception
     {
         this.use_array_blob = use_array_blob;
+        this.bulk_insert = bulk_insert;
         rdb = RDBUtil.connect(url, user, password, false);
         sql = new SQL(rdb.getDialect(), schema);
         severities = new SeverityCache(rdb, sql);
@@ -219,30 +223,13 @@ public class RDBArchiveWriter implements ArchiveWriter
         }
     }
 
-    /**
-     * Create a new prepared statement. For PostgreSQL connections, this method
-     * create a PGCopyPreparedStatement to improve insert speed using COPY
-     * insetad of INSERT.
-     *
-     * @param sqlQuery
-     * @return
-     * @throws SQLException
-     * @throws Exception
+    /** @param insert_sql Single-row INSERT statement
+     *  @return {@link BulkInsert} for that statement
+     *  @throws Exception on error
      */
-    @SuppressWarnings("resource")
-    private PreparedStatement createInsertPrepareStatement(String sqlQuery)
-            throws SQLException, Exception {
-        PreparedStatement statement = null;
-        if (rdb.getDialect() == Dialect.PostgreSQL
-                && Preferences.isUsePostgresCopy()) {
-            statement = new PGCopyPreparedStatement(rdb.getConnection(),
-                    sqlQuery);
-        } else {
-            statement = rdb.getConnection().prepareStatement(sqlQuery);
-        }
-        if (SQL_TIMEOUT_SECS > 0)
-            statement.setQueryTimeout(SQL_TIMEOUT_SECS);
-        return statement;
+    private BulkInsert createBulkInsert(final String insert_sql) throws Exception
+    {
+        return BulkInsert.create(bulk_insert, rdb, insert_sql, SQL_TIMEOUT_SECS);
     }
 
     /** Perform 'batched' insert for sample.
@@ -305,40 +292,21 @@ public class RDBArchiveWriter implements ArchiveWriter
             Status status, final double dbl, final ListNumber additional) throws Exception
     {
         if (insert_double_sample == null)
-        {
-            insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double_blob);
-        }
+            insert_double_sample = createBulkInsert(sql.sample_insert_double_blob);
         // Set scalar or 1st element of a waveform.
         // Catch not-a-number, which JDBC (at least Oracle) can't handle.
+        double value = dbl;
         if (Double.isNaN(dbl))
         {
-            insert_double_sample.setDouble(5, 0.0);
+            value = 0.0;
             severity = severities.findOrCreate(AlarmSeverity.UNDEFINED);
             status = stati.findOrCreate(NOT_A_NUMBER_STATUS);
         }
-        else
-            insert_double_sample.setDouble(5, dbl);
 
-        if (additional == null)
-        {    // No more array elements, only scalar
-            switch (rdb.getDialect())
-            {
-            case Oracle:
-                insert_double_sample.setString(6, " ");
-                insert_double_sample.setNull(7, Types.BLOB);
-                break;
-            case PostgreSQL:
-                insert_double_sample.setString(7, " ");
-                insert_double_sample.setBytes(8, null);
-                break;
-            default:
-                // Types.BINARY?
-                insert_double_sample.setString(7, " ");
-                insert_double_sample.setNull(8, Types.BLOB);
-            }
-        }
-        else
-        {   // More array elements
+        // Scalar has no blob, array elements are written as blob
+        byte[] asBytes = null;
+        if (additional != null)
+        {
             final ByteArrayOutputStream bout = new ByteArrayOutputStream();
             final DataOutputStream dout = new DataOutputStream(bout);
             // Indicate 'Double' as data type
@@ -348,21 +316,9 @@ public class RDBArchiveWriter implements ArchiveWriter
             for (int i=0; i<N; ++i)
                 dout.writeDouble(additional.getDouble(i));
             dout.close();
-            final byte[] asBytes = bout.toByteArray();
-            if (rdb.getDialect() == Dialect.Oracle)
-            {
-                insert_double_sample.setString(6, "d");
-                insert_double_sample.setBytes(7, asBytes);
-            }
-            else
-            {
-                insert_double_sample.setString(7, "d");
-                insert_double_sample.setBytes(8, asBytes);
-            }
+            asBytes = bout.toByteArray();
         }
-        // Batch
-        completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
-        ++batched_double_inserts;
+        insert_double_sample.getBatch().addDouble(channel.getId(), stamp, severity, status.getId(), value, asBytes);
     }
 
     /** Add 'insert' for double samples to batch, handling arrays
@@ -373,37 +329,24 @@ public class RDBArchiveWriter implements ArchiveWriter
             final Status status, final double dbl, final ListNumber additional) throws Exception
     {
         if (insert_double_sample == null)
-        {
-            insert_double_sample = createInsertPrepareStatement(sql.sample_insert_double);
-        }
+            insert_double_sample = createBulkInsert(sql.sample_insert_double);
         // Catch not-a-number, which JDBC (at least Oracle) can't handle.
         if (Double.isNaN(dbl))
-        {
-            insert_double_sample.setDouble(5, 0.0);
-            completeAndBatchInsert(insert_double_sample,
-                    channel, stamp,
+            insert_double_sample.getBatch().addDouble(channel.getId(), stamp,
                     severities.findOrCreate(AlarmSeverity.UNDEFINED),
-                    stati.findOrCreate(NOT_A_NUMBER_STATUS));
-        }
+                    stati.findOrCreate(NOT_A_NUMBER_STATUS).getId(),
+                    0.0, null);
         else
-        {
-            insert_double_sample.setDouble(5, dbl);
-            completeAndBatchInsert(insert_double_sample, channel, stamp, severity, status);
-        }
-        ++batched_double_inserts;
+            insert_double_sample.getBatch().addDouble(channel.getId(), stamp, severity, status.getId(), dbl, null);
         // More array elements?
         if (additional != null)
         {
             if (insert_array_sample == null)
-                insert_array_sample =
-                    rdb.getConnection().prepareStatement(
-                        sql.sample_insert_double_array_element);
+                insert_array_sample = createBulkInsert(sql.sample_insert_double_array_element);
+            final SampleBatch batch = insert_array_sample.getBatch();
             final int N = additional.size();
             for (int i = 1; i < N; i++)
             {
-                insert_array_sample.setInt(1, channel.getId());
-                insert_array_sample.setTimestamp(2, stamp);
-                insert_array_sample.setInt(3, i);
                 // Patch NaN.
                 // Conundrum: Should we set the status/severity to indicate NaN?
                 // Would be easy if we wrote the main sample with overall
@@ -411,16 +354,8 @@ public class RDBArchiveWriter implements ArchiveWriter
                 // But we have to write it first to avoid index (key) errors
                 // with the array sample time stamp....
                 // Go back and update the main sample after the fact??
-                if (Double.isNaN(additional.getDouble(i)))
-                    insert_array_sample.setDouble(4, 0.0);
-                else
-                    insert_array_sample.setDouble(4, additional.getDouble(i));
-                // MySQL nanosecs
-                if (rdb.getDialect() == Dialect.MySQL || rdb.getDialect() == Dialect.PostgreSQL)
-                    insert_array_sample.setInt(5, stamp.getNanos());
-                // Batch
-                insert_array_sample.addBatch();
-                ++batched_double_array_inserts;
+                final double element = additional.getDouble(i);
+                batch.addArrayElement(channel.getId(), stamp, i, Double.isNaN(element) ? 0.0 : element);
             }
         }
     }
@@ -431,12 +366,8 @@ public class RDBArchiveWriter implements ArchiveWriter
             final Status status, final long num) throws Exception
     {
         if (insert_long_sample == null)
-        {
-            insert_long_sample = createInsertPrepareStatement(sql.sample_insert_int);
-        }
-        insert_long_sample.setLong(5, num);
-        completeAndBatchInsert(insert_long_sample, channel, stamp, severity, status);
-        ++batched_long_inserts;
+            insert_long_sample = createBulkInsert(sql.sample_insert_int);
+        insert_long_sample.getBatch().addLong(channel.getId(), stamp, severity, status.getId(), num);
     }
 
     /** Helper for batchSample: Add text sample to batch. */
@@ -445,9 +376,7 @@ public class RDBArchiveWriter implements ArchiveWriter
             final Status status, String txt) throws Exception
     {
         if (insert_txt_sample == null)
-        {
-            insert_txt_sample = createInsertPrepareStatement(sql.sample_insert_string);
-        }
+            insert_txt_sample = createBulkInsert(sql.sample_insert_string);
         if (txt.length() > MAX_TEXT_SAMPLE_LENGTH)
         {
             Activator.getLogger().log(Level.INFO,
@@ -455,29 +384,7 @@ public class RDBArchiveWriter implements ArchiveWriter
                 new Object[] { channel.getName(), MAX_TEXT_SAMPLE_LENGTH, txt });
             txt = txt.substring(0, MAX_TEXT_SAMPLE_LENGTH);
         }
-        insert_txt_sample.setString(5, txt);
-        completeAndBatchInsert(insert_txt_sample, channel, stamp, severity, status);
-        ++batched_txt_inserts;
-    }
-
-    /** Helper for batchSample:
-     *  Set the parameters common to all insert statements, add to batch.
-     */
-    private void completeAndBatchInsert(
-            final PreparedStatement insert_xx, final RDBWriteChannel channel,
-            final Timestamp stamp, final int severity,
-            final Status status) throws Exception
-    {
-        // Set the stuff that's common to each type
-        insert_xx.setInt(1, channel.getId());
-        insert_xx.setTimestamp(2, stamp);
-        insert_xx.setInt(3, severity);
-        insert_xx.setInt(4, status.getId());
-        // MySQL nanosecs
-        if (rdb.getDialect() == Dialect.MySQL  ||  rdb.getDialect() == Dialect.PostgreSQL)
-            insert_xx.setInt(6, stamp.getNanos());
-        // Batch
-        insert_xx.addBatch();
+        insert_txt_sample.getBatch().addText(channel.getId(), stamp, severity, status.getId(), txt);
     }
 
     /** {@inheritDoc}
@@ -488,50 +395,10 @@ public class RDBArchiveWriter implements ArchiveWriter
     {
         try
         {
-            if (batched_double_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_double_sample);
-                }
-                finally
-                {
-                    batched_double_inserts = 0;
-                }
-            }
-            if (batched_long_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_long_sample);
-                }
-                finally
-                {
-                    batched_long_inserts = 0;
-                }
-            }
-            if (batched_txt_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_txt_sample);
-                }
-                finally
-                {
-                    batched_txt_inserts = 0;
-                }
-            }
-            if (batched_double_array_inserts > 0)
-            {
-                try
-                {
-                    checkBatchExecution(insert_array_sample);
-                }
-                finally
-                {
-                    batched_double_array_inserts = 0;
-                }
-            }
+            checkBatchExecution(insert_double_sample);
+            checkBatchExecution(insert_long_sample);
+            checkBatchExecution(insert_txt_sample);
+            checkBatchExecution(insert_array_sample);
         }
         catch (final Exception ex)
         {
@@ -554,24 +421,20 @@ public class RDBArchiveWriter implements ArchiveWriter
     }
 
     /** Submit and clear the batch, or roll back on error */
-    private void checkBatchExecution(final PreparedStatement insert) throws Exception
+    private void checkBatchExecution(final BulkInsert insert) throws Exception
     {
+        if (insert == null  ||  insert.getBatch().isEmpty())
+            return;
         try
         {   // Try to perform the inserts
-            // In principle this could return update counts for
-            // each batched insert, but Oracle 10g and 11g just throw
-            // an exception
-            insert.executeBatch();
+            insert.execute();
             rdb.getConnection().commit();
         }
         catch (final Exception ex)
         {
             try
             {
-                // On failure, roll back.
-                // With Oracle 10g, the BatchUpdateException doesn't
-                // indicate which of the batched commands faulted...
-                insert.clearBatch();
+                // On failure, the batch has been cleared.
                 // Still: Commit what's committable.
                 // Unfortunately no way to know what failed,
                 // and no way to re-submit the 'remaining' inserts.
@@ -580,7 +443,7 @@ public class RDBArchiveWriter implements ArchiveWriter
             catch (Exception nested)
             {
                 Activator.getLogger().log(Level.WARNING,
-                        "clearBatch(), commit() error after batch issue", nested);
+                        "commit() error after batch issue", nested);
             }
             throw ex;
         }
@@ -688,38 +551,20 @@ public class RDBArchiveWriter implements ArchiveWriter
             stati = null;
         }
 
-        if (insert_double_sample != null) {
-            try {
-                insert_double_sample.close();
-            } catch (SQLException e) {
-                Activator.getLogger().log(Level.WARNING, "close() error", e);
-            }
-            insert_double_sample = null;
-        }
-        if (insert_array_sample != null) {
-            try {
-                insert_array_sample.close();
-            } catch (SQLException e) {
-                Activator.getLogger().log(Level.WARNING, "close() error", e);
-            }
-            insert_array_sample = null;
-        }
-        if (insert_long_sample != null) {
-            try {
-                insert_long_sample.close();
-            } catch (SQLException e) {
-                Activator.getLogger().log(Level.WARNING, "close() error", e);
-            }
-            insert_long_sample = null;
-        }
-        if (insert_txt_sample != null) {
-            try {
-                insert_txt_sample.close();
-            } catch (SQLException e) {
-                Activator.getLogger().log(Level.WARNING, "close() error", e);
-            }
-            insert_txt_sample = null;
-        }
+        insert_double_sample = close(insert_double_sample);
+        insert_array_sample = close(insert_array_sample);
+        insert_long_sample = close(insert_long_sample);
+        insert_txt_sample = close(insert_txt_sample);
         rdb.close();
     }
+
+    /** @param insert {@link BulkInsert} to close, may be <code>null</code>
+     *  @return <code>null</code>
+     */
+    private BulkInsert close(final BulkInsert insert)
+    {
+        if (insert != null)
+            insert.close();
+        return null;
+    }
 }
@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.rdb;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.csstudio.platform.utility.rdb.RDBUtil.Dialect;
+
+/** Columnar staging area for samples of one INSERT statement
+ *  <p>
+ *  Instead of setting parameters of a prepared statement
+ *  for each sample, samples are collected in primitive arrays,
+ *  one per column, which a {@link BulkInsert} then submits.
+ *  <p>
+ *  The columns and their order are taken from the
+ *  column list of the INSERT statement.
+ *
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+class SampleBatch
+{
+    /** Columns known to the batch */
+    enum Column
+    {
+        CHANNEL_ID, SMPL_TIME, SEVERITY_ID, STATUS_ID,
+        FLOAT_VAL, NUM_VAL, STR_VAL, NANOSECS, DATATYPE, ARRAY_VAL, SEQ_NBR
+    }
+
+    /** Pattern for "INSERT INTO table (col, col, ...)" */
+    final private static Pattern INSERT_PATTERN =
+        Pattern.compile("^\\s*INSERT\\s+INTO\\s+(\\S+)\\s*\\(([^)]+)\\)", Pattern.CASE_INSENSITIVE);
+
+    final private static long NANOS_PER_SECOND = 1000000000L;
+
+    final private Dialect dialect;
+
+    final private String table;
+
+    final private String[] column_names;
+
+    final private Column[] columns;
+
+    private int size = 0;
+
+    private int[] channel_ids;
+
+    /** Time stamps as nanoseconds since epoch */
+    private long[] times;
+
+    private int[] severity_ids;
+
+    private int[] status_ids;
+
+    private double[] doubles;
+
+    private long[] longs;
+
+    private String[] texts;
+
+    /** Array blobs, <code>null</code> for scalars */
+    private byte[][] blobs;
+
+    private int[] sequence;
+
+    /** @param dialect RDB dialect
+     *  @param insert_sql "INSERT INTO table (columns) VALUES (?, ...)"
+     *  @throws Exception on error in SQL
+     */
+    SampleBatch(final Dialect dialect, final String insert_sql) throws Exception
+    {
+        this.dialect = dialect;
+        final Matcher matcher = INSERT_PATTERN.matcher(insert_sql);
+        if (! matcher.find())
+            throw new Exception("Cannot parse " + insert_sql);
+        table = matcher.group(1);
+        column_names = matcher.group(2).split(",");
+        columns = new Column[column_names.length];
+        for (int i=0; i<columns.length; ++i)
+        {
+            column_names[i] = column_names[i].trim();
+            columns[i] = Column.valueOf(column_names[i].toUpperCase());
+        }
+        allocate(100);
+    }
+
+    /** @return Table name, including schema */
+    String getTable()
+    {
+        return table;
+    }
+
+    /** @return Column names in the order of the INSERT statement */
+    String[] getColumnNames()
+    {
+        return column_names;
+    }
+
+    /** @return Columns in the order of the INSERT statement */
+    Column[] getColumns()
+    {
+        return columns;
+    }
+
+    /** @return Number of staged samples */
+    int size()
+    {
+        return size;
+    }
+
+    /** @return <code>true</code> if nothing is staged */
+    boolean isEmpty()
+    {
+        return size <= 0;
+    }
+
+    /** Remove all staged samples */
+    void clear()
+    {
+        Arrays.fill(texts, 0, size, null);
+        Arrays.fill(blobs, 0, size, null);
+        size = 0;
+    }
+
+    private void allocate(final int capacity)
+    {
+        channel_ids = new int[capacity];
+        times = new long[capacity];
+        severity_ids = new int[capacity];
+        status_ids = new int[capacity];
+        doubles = new double[capacity];
+        longs = new long[capacity];
+        texts = new String[capacity];
+        blobs = new byte[capacity][];
+        sequence = new int[capacity];
+    }
+
+    /** @return Index of next row, growing the columns as needed */
+    private int nextRow(final int channel_id, final Timestamp stamp)
+    {
+        if (size >= channel_ids.length)
+        {
+            final int capacity = channel_ids.length * 2;
+            channel_ids = Arrays.copyOf(channel_ids, capacity);
+            times = Arrays.copyOf(times, capacity);
+            severity_ids = Arrays.copyOf(severity_ids, capacity);
+            status_ids = Arrays.copyOf(status_ids, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            blobs = Arrays.copyOf(blobs, capacity);
+            sequence = Arrays.copyOf(sequence, capacity);
+        }
+        final int row = size++;
+        channel_ids[row] = channel_id;
+        times[row] = Math.floorDiv(stamp.getTime(), 1000L) * NANOS_PER_SECOND + stamp.getNanos();
+        return row;
+    }
+
+    /** Stage 'double' sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity_id Severity ID
+     *  @param status_id Status ID
+     *  @param value Scalar value or first array element
+     *  @param blob Array elements or <code>null</code>
+     */
+    void addDouble(final int channel_id, final Timestamp stamp, final int severity_id, final int status_id,
+                   final double value, final byte[] blob)
+    {
+        final int row = nextRow(channel_id, stamp);
+        severity_ids[row] = severity_id;
+        status_ids[row] = status_id;
+        doubles[row] = value;
+        blobs[row] = blob;
+    }
+
+    /** Stage 'long' sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity_id Severity ID
+     *  @param status_id Status ID
+     *  @param value Value
+     */
+    void addLong(final int channel_id, final Timestamp stamp, final int severity_id, final int status_id,
+                 final long value)
+    {
+        final int row = nextRow(channel_id, stamp);
+        severity_ids[row] = severity_id;
+        status_ids[row] = status_id;
+        longs[row] = value;
+    }
+
+    /** Stage 'String' sample
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param severity_id Severity ID
+     *  @param status_id Status ID
+     *  @param value Value
+     */
+    void addText(final int channel_id, final Timestamp stamp, final int severity_id, final int status_id,
+                 final String value)
+    {
+        final int row = nextRow(channel_id, stamp);
+        severity_ids[row] = severity_id;
+        status_ids[row] = status_id;
+        texts[row] = value;
+    }
+
+    /** Stage element of the original array_val table
+     *  @param channel_id Channel ID
+     *  @param stamp Time stamp
+     *  @param index Array index
+     *  @param value Array element
+     */
+    void addArrayElement(final int channel_id, final Timestamp stamp, final int index, final double value)
+    {
+        final int row = nextRow(channel_id, stamp);
+        sequence[row] = index;
+        doubles[row] = value;
+    }
+
+    int getChannelId(final int row)
+    {
+        return channel_ids[row];
+    }
+
+    /** @return Nanoseconds since epoch */
+    long getTime(final int row)
+    {
+        return times[row];
+    }
+
+    /** @return Seconds since epoch */
+    long getSeconds(final int row)
+    {
+        return Math.floorDiv(times[row], NANOS_PER_SECOND);
+    }
+
+    /** @return Nanoseconds within second */
+    int getNanos(final int row)
+    {
+        return (int) Math.floorMod(times[row], NANOS_PER_SECOND);
+    }
+
+    Timestamp getTimestamp(final int row)
+    {
+        final Timestamp stamp = new Timestamp(getSeconds(row) * 1000L);
+        stamp.setNanos(getNanos(row));
+        return stamp;
+    }
+
+    int getSeverityId(final int row)
+    {
+        return severity_ids[row];
+    }
+
+    int getStatusId(final int row)
+    {
+        return status_ids[row];
+    }
+
+    double getDouble(final int row)
+    {
+        return doubles[row];
+    }
+
+    long getLong(final int row)
+    {
+        return longs[row];
+    }
+
+    String getText(final int row)
+    {
+        return texts[row];
+    }
+
+    /** @return Array blob or <code>null</code> */
+    byte[] getBlob(final int row)
+    {
+        return blobs[row];
+    }
+
+    /** @return Data type of the blob, "d" for double, " " for scalar */
+    String getDataType(final int row)
+    {
+        return blobs[row] == null ? " " : "d";
+    }
+
+    int getSequence(final int row)
+    {
+        return sequence[row];
+    }
+
+    /** Set parameters of a statement to one staged row
+     *  @param statement Statement for the INSERT of this batch, possibly with several rows
+     *  @param row Staged row
+     *  @param offset Number of parameters before the parameters of this row
+     *  @throws SQLException on error
+     */
+    void bind(final PreparedStatement statement, final int row, final int offset) throws SQLException
+    {
+        for (int i=0; i<columns.length; ++i)
+        {
+            final int param = offset + i + 1;
+            switch (columns[i])
+            {
+            case CHANNEL_ID:
+                statement.setInt(param, channel_ids[row]);
+                break;
+            case SMPL_TIME:
+                statement.setTimestamp(param, getTimestamp(row));
+                break;
+            case SEVERITY_ID:
+                statement.setInt(param, severity_ids[row]);
+                break;
+            case STATUS_ID:
+                statement.setInt(param, status_ids[row]);
+                break;
+            case FLOAT_VAL:
+                statement.setDouble(param, doubles[row]);
+                break;
+            case NUM_VAL:
+                statement.setLong(param, longs[row]);
+                break;
+            case STR_VAL:
+                statement.setString(param, texts[row]);
+                break;
+            case NANOSECS:
+                statement.setInt(param, getNanos(row));
+                break;
+            case DATATYPE:
+                statement.setString(param, getDataType(row));
+                break;
+            case ARRAY_VAL:
+                if (blobs[row] != null)
+                    statement.setBytes(param, blobs[row]);
+                else if (dialect == Dialect.PostgreSQL)
+                    statement.setBytes(param, null);
+                else
+                    statement.setNull(param, Types.BLOB);
+                break;
+            case SEQ_NBR:
+                statement.setInt(param, sequence[row]);
+                break;
+            }
+        }
+    }
+}
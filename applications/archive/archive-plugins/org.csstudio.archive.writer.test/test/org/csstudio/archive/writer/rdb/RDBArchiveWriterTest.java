@@ -43,16 +43,17 @@ public class RDBArchiveWriterTest
 {
     final Display display = ValueFactory.newDisplay(0.0, 1.0, 2.0, "a.u.", NumberFormats.format(2), 8.0, 9.0, 10.0, 0.0, 10.0);
     private RDBArchiveWriter writer = null;
-    private String name, array_name;
+    private String url, user, password, schema, name, array_name;
+    private boolean use_blob;
 
     @Before
     public void connect() throws Exception
     {
         final TestProperties settings = new TestProperties();
-        final String url = settings.getString("archive_rdb_url");
-        final String user = settings.getString("archive_rdb_user");
-        final String password = settings.getString("archive_rdb_password");
-        final String schema = settings.getString("archive_rdb_schema");
+        url = settings.getString("archive_rdb_url");
+        user = settings.getString("archive_rdb_user");
+        password = settings.getString("archive_rdb_password");
+        schema = settings.getString("archive_rdb_schema");
         name = settings.getString("archive_channel");
         array_name = settings.getString("archive_array_channel");
         if (url == null  ||  user == null  ||  password == null  ||  name == null)
@@ -60,7 +61,7 @@ public class RDBArchiveWriterTest
             System.out.println("Skipping test, no archive_rdb_url, user, password");
             return;
         }
-        final boolean use_blob = Boolean.parseBoolean(settings.getString("archive_use_blob"));
+        use_blob = Boolean.parseBoolean(settings.getString("archive_use_blob"));
         if (use_blob)
             System.out.println("Running write test with BLOB");
         else
@@ -191,4 +192,57 @@ public class RDBArchiveWriterTest
         System.out.println("Wrote " + count + " samples, i.e. "
                          + ((double)count / TEST_DURATION_SECS) + " samples/sec.");
     }
+
+    final private static int BULK_TEST_DURATION_SECS = 20;
+
+    /** Compare throughput of the bulk insert strategies
+     *  for scalar, array and string samples
+     */
+    @Test
+    public void testWriteSpeedBulkInsert() throws Exception
+    {
+        if (writer == null)
+            return;
+        // Close default writer, test uses one per strategy
+        writer.close();
+        writer = null;
+
+        final double[] data = new double[100];
+        for (int i=0; i<data.length; ++i)
+            data[i] = i;
+        for (String strategy : new String[] { BulkInsert.BATCH, BulkInsert.MULTI_ROW, BulkInsert.COPY })
+        {
+            final RDBArchiveWriter bulk_writer = new RDBArchiveWriter(url, user, password, schema, use_blob, strategy);
+            try
+            {
+                final WriteChannel channel = bulk_writer.getChannel(name);
+                final WriteChannel array_channel = array_name == null ? null : bulk_writer.getChannel(array_name);
+                long count = 0;
+                final long start = System.currentTimeMillis();
+                final long end = start + BULK_TEST_DURATION_SECS*1000L;
+                do
+                {
+                    ++count;
+                    final Instant now = Instant.now();
+                    if (array_channel != null  &&  count % 10 == 0)
+                        bulk_writer.addSample(array_channel, new ArchiveVNumberArray(now, AlarmSeverity.NONE, "OK", display, data));
+                    else if (count % 10 == 5)
+                        bulk_writer.addSample(channel, new ArchiveVString(now, AlarmSeverity.NONE, "OK", "Text " + count));
+                    else
+                        bulk_writer.addSample(channel, new ArchiveVNumber(now, AlarmSeverity.NONE, "OK", display, 3.14));
+                    if (count % FLUSH_COUNT == 0)
+                        bulk_writer.flush();
+                }
+                while (System.currentTimeMillis() < end);
+                bulk_writer.flush();
+                final double secs = (System.currentTimeMillis() - start) / 1000.0;
+                System.out.format("%-10s: Wrote %d samples, i.e. %.1f samples/sec\n",
+                                  strategy, count, count / secs);
+            }
+            finally
+            {
+                bulk_writer.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test for FormulaItem
+ *
+ *  Compares incremental evaluation with complete re-evaluation
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class FormulaItemUnitTest
+{
+    /** Model item with plain array of samples */
+    private static class TestItem extends ModelItem
+    {
+        final PlotSampleArray samples = new PlotSampleArray();
+        final List<PlotSample> values = new ArrayList<>();
+
+        TestItem(final String name)
+        {
+            super(name);
+        }
+
+        /** Add samples, with the last one being provisional
+         *  @param start First pseudo-timestamp
+         *  @param count Number of samples
+         *  @param step Time step between samples
+         */
+        void add(final int start, final int count, final int step)
+        {
+            for (int i=0; i<count; ++i)
+            {
+                final int time = start + i*step;
+                values.add(new PlotSample("Test",
+                        ValueFactory.newVDouble(Double.valueOf(time), ValueFactory.newTime(Instant.ofEpochSecond(time)))));
+            }
+            final Instant last = values.get(values.size()-1).getPosition();
+            samples.update(null, Instant.EPOCH, new ArrayList<>(values), last);
+            samples.have_new_samples.set(true);
+        }
+
+        @Override
+        public PlotSamples getSamples()
+        {
+            return samples;
+        }
+
+        @Override
+        public void write(final PrintWriter writer)
+        {
+            // NOP
+        }
+    }
+
+    /** Model item with historic and live samples */
+    private static class TestPVItem extends ModelItem
+    {
+        final PVSamples samples = new PVSamples(new AtomicInteger(0));
+
+        TestPVItem(final String name)
+        {
+            super(name);
+        }
+
+        @Override
+        public PlotSamples getSamples()
+        {
+            return samples;
+        }
+
+        @Override
+        public void write(final PrintWriter writer)
+        {
+            // NOP
+        }
+    }
+
+    private static VType createValue(final Instant time, final double value)
+    {
+        return ValueFactory.newVDouble(value, ValueFactory.newTime(time));
+    }
+
+    private void assertSameValues(final PlotSamples expected, final PlotSamples actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        for (int i=0; i<expected.size(); ++i)
+        {
+            assertEquals(expected.get(i).getPosition(), actual.get(i).getPosition());
+            assertEquals(expected.get(i).getValue(), actual.get(i).getValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void testIncrementalEvaluation() throws Exception
+    {
+        final TestItem x = new TestItem("x");
+        final TestItem y = new TestItem("y");
+        final FormulaInput inputs[] = new FormulaInput[] { new FormulaInput(x, "x"), new FormulaInput(y, "y") };
+        final FormulaItem formula = new FormulaItem("f", "x + 2*y", inputs);
+        assertEquals(0, formula.getSamples().size());
+
+        // Large initial data, evaluated in several sections
+        x.add(0, 25000, 2);
+        y.add(1, 20000, 3);
+        assertTrue(formula.reevaluate());
+        assertTrue(formula.getSamples().size() > 35000);
+
+        // New samples, some overlapping the provisional ones
+        for (int run=0; run<10; ++run)
+        {
+            x.add(50000 + run*100, 50, 2);
+            y.add(60000 + run*100, 10, 7);
+            assertTrue(formula.reevaluate());
+
+            final FormulaItem full = new FormulaItem("full", "x + 2*y",
+                    new FormulaInput[] { new FormulaInput(x, "x"), new FormulaInput(y, "y") });
+            assertSameValues(full.getSamples(), formula.getSamples());
+        }
+
+        // Existing samples change: Evaluates everything
+        x.samples.set(new ArrayList<>(x.values.subList(0, 10)));
+        assertTrue(formula.reevaluate());
+        final FormulaItem full = new FormulaItem("full", "x + 2*y",
+                new FormulaInput[] { new FormulaInput(x, "x"), new FormulaInput(y, "y") });
+        assertSameValues(full.getSamples(), formula.getSamples());
+    }
+
+    @Test
+    public void testLiveRingBuffer() throws Exception
+    {
+        // Time stamps in the future, so the continuation of the
+        // last sample to 'now' doesn't change between evaluations
+        final Instant start = Instant.now().plusSeconds(24*60*60);
+        final TestPVItem x = new TestPVItem("x");
+        x.samples.setLiveCapacity(100);
+        final List<VType> history = new ArrayList<>();
+        for (int i=0; i<1000; ++i)
+            history.add(createValue(start.plusSeconds(i), i));
+        x.samples.mergeArchivedData("Test", history);
+
+        final FormulaItem formula = new FormulaItem("f", "2*x",
+                new FormulaInput[] { new FormulaInput(x, "x") });
+        assertEquals(1001, formula.getSamples().size());
+
+        // Live samples start within the history.
+        // Once the ring buffer is full, dropping the oldest live samples
+        // reveals more of the history
+        int time = 500;
+        for (int run=0; run<30; ++run)
+        {
+            for (int i=0; i<20; ++i)
+            {
+                x.samples.addLiveSample(createValue(start.plusSeconds(time), -time));
+                time += 10;
+            }
+            formula.reevaluate();
+
+            final FormulaItem full = new FormulaItem("full", "2*x",
+                    new FormulaInput[] { new FormulaInput(x, "x") });
+            assertSameValues(full.getSamples(), formula.getSamples());
+        }
+    }
+}
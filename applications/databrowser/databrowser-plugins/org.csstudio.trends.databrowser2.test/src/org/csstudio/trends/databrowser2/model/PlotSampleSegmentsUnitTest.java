@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.csstudio.swt.rtplot.data.ValueRange;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test for PlotSampleSegments
+ *
+ *  Compares merge results with the array-based {@link PlotSampleMerger}
+ *  @author Kay Kasemir
+ */
+@SuppressWarnings("nls")
+public class PlotSampleSegmentsUnitTest
+{
+    /** @param start First pseudo-timestamp
+     *  @param count Number of samples
+     *  @param step Time step between samples
+     *  @return Samples
+     */
+    private PlotSample[] makeSamples(final int start, final int count, final int step)
+    {
+        final PlotSample[] samples = new PlotSample[count];
+        for (int i=0; i<count; ++i)
+        {
+            final int time = start + i*step;
+            samples[i] = new PlotSample("Test",
+                    ValueFactory.newVDouble(Double.valueOf(time), ValueFactory.newTime(Instant.ofEpochSecond(time))));
+        }
+        return samples;
+    }
+
+    private void assertSameSamples(final PlotSample[] expected, final PlotSampleSegments segments)
+    {
+        assertEquals(expected.length, segments.size());
+        for (int i=0; i<expected.length; ++i)
+            assertSame(expected[i], segments.get(i));
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final PlotSampleSegments segments = new PlotSampleSegments();
+        assertEquals(0, segments.size());
+        assertEquals(-1, segments.findSampleLessThan(Instant.ofEpochSecond(10)));
+
+        PlotSample[] expected = makeSamples(10, 10, 1);
+        segments.merge(expected);
+        assertSameSamples(expected, segments);
+
+        // Before
+        PlotSample[] add = makeSamples(0, 5, 1);
+        expected = PlotSampleMerger.merge(expected, add);
+        segments.merge(add);
+        assertSameSamples(expected, segments);
+        assertEquals(2, segments.getSegmentCount());
+
+        // Inside, replacing some of the existing samples
+        add = makeSamples(12, 3, 2);
+        expected = PlotSampleMerger.merge(expected, add);
+        segments.merge(add);
+        assertSameSamples(expected, segments);
+        assertEquals(4, segments.getSegmentCount());
+
+        // Covering everything
+        add = makeSamples(-1, 31, 1);
+        expected = PlotSampleMerger.merge(expected, add);
+        segments.merge(add);
+        assertSameSamples(expected, segments);
+        assertEquals(1, segments.getSegmentCount());
+
+        // Nothing to add
+        assertTrue(! segments.merge(new PlotSample[0]));
+
+        segments.clear();
+        assertEquals(0, segments.size());
+    }
+
+    /** @param a Samples
+     *  @param b More samples
+     *  @return Samples of a, followed by those of b
+     */
+    private static PlotSample[] concat(final PlotSample[] a, final PlotSample[] b)
+    {
+        final PlotSample[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    @Test
+    public void testChunkBoundary()
+    {
+        // Samples arrive in chunks, split between samples with the same time stamp
+        final PlotSample[] first = concat(makeSamples(10, 10, 1), makeSamples(20, 2, 0));
+        final PlotSample[] second = concat(makeSamples(20, 3, 0), makeSamples(21, 10, 1));
+        final PlotSample[] all = concat(first, second);
+
+        final PlotSampleSegments segments = new PlotSampleSegments();
+        segments.merge(first);
+        segments.merge(second);
+        assertSameSamples(all, segments);
+        assertArrayEquals(all, PlotSampleMerger.merge(first, second));
+
+        // Same with older samples before the chunks
+        final PlotSample[] older = makeSamples(0, 10, 1);
+        segments.clear();
+        segments.merge(older);
+        segments.merge(first);
+        segments.merge(second);
+        assertSameSamples(concat(older, all), segments);
+
+        // Samples 15..20 replace the existing ones, except for the one at 15
+        final PlotSample[] add = makeSamples(15, 6, 1);
+        segments.merge(add);
+        final PlotSample[] expected = concat(concat(Arrays.copyOf(concat(older, all), 16), add),
+                                             Arrays.copyOfRange(second, 3, second.length));
+        assertSameSamples(expected, segments);
+        assertArrayEquals(expected, PlotSampleMerger.merge(concat(older, all), add));
+    }
+
+    @Test
+    public void testRandomMerges()
+    {
+        final Random random = new Random(42);
+        final PlotSampleSegments segments = new PlotSampleSegments();
+        PlotSample[] expected = new PlotSample[0];
+        for (int run=0; run<1000; ++run)
+        {
+            final PlotSample[] add = makeSamples(random.nextInt(10000), 1 + random.nextInt(50), 1 + random.nextInt(5));
+            expected = PlotSampleMerger.merge(expected, add);
+            segments.merge(add);
+            assertSameSamples(expected, segments);
+
+            final Instant goal = Instant.ofEpochSecond(random.nextInt(11000));
+            assertEquals(PlotSampleSearch.findSampleLessThan(expected, goal),
+                         segments.findSampleLessThan(goal));
+
+            // Value range of a section, compared with the samples
+            final int first = random.nextInt(expected.length);
+            final int last = first + random.nextInt(expected.length - first);
+            double low = Double.MAX_VALUE, high = -Double.MAX_VALUE;
+            for (int i=first; i<=last; ++i)
+            {
+                low = Math.min(low, expected[i].getValue());
+                high = Math.max(high, expected[i].getValue());
+            }
+            final ValueRange range = segments.getValueRange(first, last);
+            assertEquals(low, range.getLow(), 0.0);
+            assertEquals(high, range.getHigh(), 0.0);
+            assertEquals(last - first + 1, segments.getValueCount(first, last));
+        }
+        System.out.println(segments.size() + " samples in " + segments.getSegmentCount() + " segments");
+    }
+}
@@ -48,6 +48,17 @@ public class Activator extends AbstractUIPlugin
 
     final public static ExecutorService thread_pool = Executors.newCachedThreadPool(new NamedThreadFactory("DataBrowserJobs"));
 
+    /** Thread pool for computations, one thread per CPU core */
+    final private static ExecutorService compute_pool =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new NamedThreadFactory("DataBrowserCompute"));
+
+    /** Number of threads that read archived data for exports */
+    final private static int EXPORT_THREADS = 8;
+
+    /** Thread pool for reading archived data of exports */
+    final private static ExecutorService export_pool =
+        Executors.newFixedThreadPool(EXPORT_THREADS, new NamedThreadFactory("DataBrowserExport"));
+
     /** Width of the display in pixels. Used to scale negative plot_bins */
     public static int display_pixel_width = 0;
 
@@ -108,6 +119,24 @@ public class Activator extends AbstractUIPlugin
         return thread_pool;
     }
 
+    /** Tasks submitted to this pool must not block,
+     *  and must not wait for other tasks in the pool.
+     *  @return Thread pool for computations
+     */
+    public static ExecutorService getComputePool()
+    {
+        return compute_pool;
+    }
+
+    /** Tasks submitted to this pool may block while reading data,
+     *  but must not wait for other tasks in the pool.
+     *  @return Thread pool for reading archived data of exports
+     */
+    public static ExecutorService getExportPool()
+    {
+        return export_pool;
+    }
+
     /** Obtain image descriptor from file within plugin.
      *  @param path Path within plugin to image file
      *  @return {@link ImageDescriptor}
@@ -10,8 +10,11 @@ package org.csstudio.trends.databrowser2.archive;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
@@ -46,6 +49,9 @@ public class ArchiveFetchJob extends Job
     /** Poll period in millisecs */
     private static final int POLL_PERIOD_MS = 1000;
 
+    /** Number of samples after which a partial result is merged into the item */
+    private static final int CHUNK_SIZE = 5000;
+
     /**to manage concurrency on postgresql*/
     private final boolean concurrency;
 
@@ -65,32 +71,231 @@ public class ArchiveFetchJob extends Job
      *  can then poll the progress monitor for cancellation and if
      *  necessary interrupt the WorkerThread which might be 'stuck'
      *  in a long running operation.
+     *
+     *  The WorkerThread queries all data sources of the item concurrently,
+     *  each in a {@link SourceFetch}.
+     *  Since newer data replaces older data where they overlap,
+     *  the results are still merged in the order of the data sources:
+     *  A source only merges its samples right away when all sources
+     *  before it are done. Otherwise its samples are kept until then.
      */
     class WorkerThread implements Runnable
     {
-        private String message = "";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried.
-         *  Synchronize 'this' on access.
+        /** Fetches for the data sources, in order of the data sources.
+         *  Synchronize on access.
          */
-        private volatile ArchiveReader reader = null;
+        final private List<SourceFetch> fetches = new ArrayList<>();
+
+        /** Lock for merging samples into the item */
+        final private Object merge_lock = new Object();
+
+        /** Index of the fetch that may merge samples into the item.
+         *  Synchronize on merge_lock.
+         */
+        private int merge_turn = 0;
+
+        /** Number of data sources that have been handled */
+        final private AtomicInteger completed = new AtomicInteger();
+
+        /** Data sources where the channel doesn't exist */
+        final private List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new CopyOnWriteArrayList<>();
+
+        /** Number of samples that have been read */
+        final private AtomicLong samples = new AtomicLong();
 
         /** @return Message that somehow indicates progress */
-        public synchronized String getMessage()
+        public String getMessage()
         {
-            return message;
+            final StringBuilder active = new StringBuilder();
+            final int total;
+            synchronized (fetches)
+            {
+                total = fetches.size();
+                for (SourceFetch fetch : fetches)
+                    if (! fetch.done)
+                    {
+                        if (active.length() > 0)
+                            active.append(", ");
+                        active.append(fetch.archive.getName());
+                    }
+            }
+            return NLS.bind(Messages.ArchiveFetchDetailFmt,
+                            new Object[] { active.toString(), completed.get(), total });
         }
 
         /** Request thread to cancel its operation */
-        public synchronized void cancel()
+        public void cancel()
         {
             cancelled = true;
-            synchronized (this)
+            synchronized (fetches)
+            {
+                for (SourceFetch fetch : fetches)
+                    fetch.cancel();
+            }
+        }
+
+        /** Fetch data for one data source */
+        class SourceFetch implements Runnable
+        {
+            final private ArchiveDataSource archive;
+
+            final private int bins;
+
+            /** Index of this fetch in <code>fetches</code> */
+            final private int index;
+
+            /** Chunks of samples to merge once it's this fetch's turn.
+             *  Synchronize on merge_lock.
+             */
+            final private List<List<VType>> pending = new ArrayList<>();
+
+            /** Server name for merged samples */
+            private String server = null;
+
+            /** Has fetch ended, so the next fetch may merge its samples?
+             *  Synchronize on merge_lock.
+             */
+            private boolean finished = false;
+
+            /** Archive reader that's currently queried.
+             *  Synchronize 'this' on access.
+             */
+            private ArchiveReader reader = null;
+
+            private volatile boolean done = false;
+
+            SourceFetch(final ArchiveDataSource archive, final int bins, final int index)
+            {
+                this.archive = archive;
+                this.bins = bins;
+                this.index = index;
+            }
+
+            /** Cancel ongoing read */
+            synchronized void cancel()
             {
                 if (reader != null)
                     reader.cancel();
             }
+
+            @Override
+            public void run()
+            {
+                try
+                {
+                    if (! cancelled)
+                        fetch();
+                }
+                catch (Exception ex)
+                {   // Tell listener unless it's the result of a 'cancel'?
+                    if (! cancelled)
+                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
+                }
+                finally
+                {
+                    synchronized (this)
+                    {
+                        if (reader != null)
+                            reader.close();
+                        reader = null;
+                    }
+                    done = true;
+                    completed.incrementAndGet();
+                    synchronized (merge_lock)
+                    {
+                        finished = true;
+                        advanceMergeTurn();
+                    }
+                }
+            }
+
+            /** Merge samples into the item, or keep them until it's this fetch's turn
+             *  @param chunk Samples
+             */
+            private void merge(final List<VType> chunk)
+            {
+                samples.addAndGet(chunk.size());
+                synchronized (merge_lock)
+                {
+                    if (index == merge_turn)
+                        item.mergeArchivedSamples(server, chunk);
+                    else
+                        pending.add(chunk);
+                }
+            }
+
+            private void fetch() throws Exception
+            {
+                final ArchiveReader the_reader;
+                synchronized (this)
+                {
+                    the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(archive.getUrl());
+                }
+                the_reader.enableConcurrency(concurrency);
+                final ValueIterator value_iter;
+                try
+                {
+                    if (item.getRequestType() == RequestType.RAW)
+                        value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
+                                                             start, end);
+                    else
+                        value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
+                                                                   start, end, bins);
+                }
+                catch (UnknownChannelException e)
+                {
+                    // Do not immediately notify about unknown channels. First search for the data in all archive
+                    // sources and only report this kind of errors at the end
+                    sourcesWhereChannelDoesntExist.add(archive);
+                    return;
+                }
+                try
+                {
+                    // Stream samples into the item in chunks
+                    // so that the plot fills while data is still arriving
+                    server = the_reader.getServerName();
+                    List<VType> chunk = new ArrayList<VType>();
+                    long last_merge = System.currentTimeMillis();
+                    while (value_iter.hasNext()  &&  !cancelled)
+                    {
+                        chunk.add(value_iter.next());
+                        if (chunk.size() >= CHUNK_SIZE  ||
+                            System.currentTimeMillis() - last_merge > POLL_PERIOD_MS)
+                        {
+                            merge(chunk);
+                            chunk = new ArrayList<VType>();
+                            last_merge = System.currentTimeMillis();
+                        }
+                    }
+                    if (! cancelled)
+                        merge(chunk);
+                }
+                finally
+                {
+                    value_iter.close();
+                }
+            }
+        }
+
+        /** Pass the turn to merge samples on to the next fetch
+         *  that's not finished, merging the samples that it kept.
+         *  Caller must synchronize on merge_lock.
+         */
+        private void advanceMergeTurn()
+        {
+            while (merge_turn < fetches.size())
+            {
+                final SourceFetch fetch = fetches.get(merge_turn);
+                if (! cancelled)
+                    for (List<VType> chunk : fetch.pending)
+                        item.mergeArchivedSamples(fetch.server, chunk);
+                fetch.pending.clear();
+                if (! fetch.finished)
+                    break;
+                ++merge_turn;
+            }
         }
 
         /** {@inheritDoc} */
@@ -99,81 +304,35 @@ public class ArchiveFetchJob extends Job
         {
             Activator.getLogger().log(Level.FINE, "Starting {0}", ArchiveFetchJob.this);
             final BenchmarkTimer timer = new BenchmarkTimer();
-            long samples = 0;
 
             // Number of bins. Negative values are scaling factor for display width
             int bins = Preferences.getPlotBins();
             if (bins < 0)
                 bins = Activator.display_pixel_width * (- bins);
 
+            // Query all data sources concurrently
             final ArchiveDataSource archives[] = item.getArchiveDataSources();
-            List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new ArrayList<>();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            final List<Future<?>> running = new ArrayList<>(archives.length);
+            synchronized (fetches)
+            {   // Create all fetches before starting any,
+                // so that advanceMergeTurn() sees the complete list
+                for (int i=0; i<archives.length; ++i)
+                    fetches.add(new SourceFetch(archives[i], bins, i));
+                for (SourceFetch fetch : fetches)
+                    running.add(Activator.getThreadPool().submit(fetch));
+            }
+            for (Future<?> fetch : running)
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
-                // Display "N/total", using '1' for the first sub-archive.
-                synchronized  (this)
-                {
-                    message = NLS.bind(Messages.ArchiveFetchDetailFmt,
-                            new Object[]
-                            {
-                                archive.getName(),
-                                (i+1),
-                                archives.length
-                            });
-                }
                 try
                 {
-                    final ArchiveReader the_reader;
-                    synchronized (this)
-                    {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
-                    }
-                    the_reader.enableConcurrency(concurrency);
-                    final ValueIterator value_iter;
-                    try
-                    {
-                        if (item.getRequestType() == RequestType.RAW)
-                            value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
-                                                                 start, end);
-                        else
-                            value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
-                                                                       start, end, bins);
-                    }
-                    catch (UnknownChannelException e)
-                    {
-                        // Do not immediately notify about unknown channels. First search for the data in all archive
-                        // sources and only report this kind of errors at the end
-                        sourcesWhereChannelDoesntExist.add(archives[i]);
-                        continue;
-                    }
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    samples += result.size();
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
+                    fetch.get();
                 }
                 catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
-                }
-                finally
                 {
-                    synchronized (this)
-                    {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
-                    }
+                    Activator.getLogger().log(Level.WARNING, "Archive fetch error for " + item.getName(), ex);
                 }
             }
+
             if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
             {
                 listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
@@ -185,7 +344,7 @@ public class ArchiveFetchJob extends Job
                 listener.fetchCompleted(ArchiveFetchJob.this);
             Activator.getLogger().log(Level.FINE,
                     "Ended {0} with {1} samples in {2}",
-                    new Object[] { ArchiveFetchJob.this, samples, timer });
+                    new Object[] { ArchiveFetchJob.this, samples.get(), timer });
         }
 
         @Override
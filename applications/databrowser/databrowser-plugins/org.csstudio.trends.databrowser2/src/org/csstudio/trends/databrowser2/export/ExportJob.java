@@ -7,11 +7,18 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.export;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +28,7 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ArchiveRepository;
 import org.csstudio.archive.reader.LinearValueIterator;
 import org.csstudio.archive.reader.MergingValueIterator;
+import org.csstudio.archive.reader.PrefetchValueIterator;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
@@ -33,6 +41,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
 
 /** Base for Eclipse Job for exporting data from Model to file
  *  @author Kay Kasemir
@@ -41,6 +50,8 @@ import org.eclipse.core.runtime.jobs.Job;
 abstract public class ExportJob extends Job
 {
     final protected static int PROGRESS_UPDATE_LINES = 1000;
+    /** Size of the output buffer */
+    final private static int BUFFER_SIZE = 64 * 1024;
     final protected String comment;
     final protected Model model;
     final protected Instant start, end;
@@ -121,25 +132,36 @@ abstract public class ExportJob extends Job
     final protected IStatus run(final IProgressMonitor monitor)
     {
         monitor.beginTask("Data Export", IProgressMonitor.UNKNOWN);
+        PrintStream out = null;
         try
         {
-            final PrintStream out;
             if (filename != null)
             {
-                out = new PrintStream(filename);
+                final FileChannel channel = FileChannel.open(Paths.get(filename),
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
                 printExportInfo(out);
             }
-            else
-                out = null;
             // Start thread that checks monitor to cancels readers when
             // user tries to abort the export job
             final CancellationPoll cancel_poll = new CancellationPoll(monitor);
             final Future<?> done = Activator.getThreadPool().submit(cancel_poll);
-            performExport(monitor, out);
-            // ask thread to exit
-            cancel_poll.exit = true;
+            try
+            {
+                performExport(monitor, out);
+            }
+            finally
+            {
+                // ask thread to exit
+                cancel_poll.exit = true;
+            }
             if (out != null)
+            {
                 out.close();
+                // PrintStream doesn't throw exceptions
+                if (out.checkError())
+                    throw new Exception("Error writing " + filename);
+            }
             // Wait for poller to quit
             done.get();
         }
@@ -147,6 +169,11 @@ abstract public class ExportJob extends Job
         {
             error_handler.handleExportError(ex);
         }
+        finally
+        {
+            if (out != null)
+                out.close();
+        }
         for (ArchiveReader reader : archive_readers)
             reader.close();
         monitor.done();
@@ -168,7 +195,8 @@ abstract public class ExportJob extends Job
     }
 
     /** Perform the data export
-     *  @param out PrintStream for output
+     *  @param monitor Progress monitor
+     *  @param out PrintStream for output, buffered
      *  @throws Exception on error
      */
     abstract protected void performExport(final IProgressMonitor monitor,
@@ -246,4 +274,56 @@ abstract public class ExportJob extends Job
         // Return a merging iterator
         return new MergingValueIterator(iters.toArray(new ValueIterator[iters.size()]));
     }
+
+    /** Create value iterators for several items
+     *
+     *  <p>The iterators for all items are created in parallel,
+     *  and each iterator then reads its samples ahead in the background.
+     *  Waiting for the first samples happens on the calling thread,
+     *  so tasks in the export pool never wait for each other.
+     *
+     *  @param monitor Progress monitor
+     *  @param items ModelItems
+     *  @return ValueIterator for samples in each item
+     *  @throws Exception on error
+     */
+    protected ValueIterator[] createValueIterators(final IProgressMonitor monitor,
+                                                   final List<ModelItem> items) throws Exception
+    {
+        monitor.subTask(NLS.bind("Fetching data for {0} items", items.size()));
+        final ExecutorService pool = Activator.getExportPool();
+        final List<Future<ValueIterator>> results = new ArrayList<>(items.size());
+        for (ModelItem item : items)
+            results.add(pool.submit(() -> createValueIterator(item)));
+
+        final ValueIterator[] iters = new ValueIterator[items.size()];
+        Exception error = null;
+        for (int i=0; i<iters.length; ++i)
+        {
+            try
+            {
+                iters[i] = results.get(i).get();
+                if (error == null)
+                    iters[i] = new PrefetchValueIterator(iters[i], pool);
+            }
+            catch (ExecutionException ex)
+            {
+                if (error == null)
+                    error = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            }
+            catch (Exception ex)
+            {
+                if (error == null)
+                    error = ex;
+            }
+        }
+        if (error != null)
+        {
+            for (ValueIterator iter : iters)
+                if (iter != null)
+                    iter.close();
+            throw error;
+        }
+        return iters;
+    }
 }
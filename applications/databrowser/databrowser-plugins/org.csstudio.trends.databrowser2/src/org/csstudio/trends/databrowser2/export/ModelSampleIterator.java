@@ -10,6 +10,7 @@ package org.csstudio.trends.databrowser2.export;
 import java.time.Instant;
 
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.trends.databrowser2.model.ModelItem;
 import org.csstudio.trends.databrowser2.model.PlotSample;
@@ -132,15 +133,7 @@ public class ModelSampleIterator implements ValueIterator
         samples.getLock().lock();
         try
         {
-            ++index;
-            if (index >= samples.size())
-                index = -1; // No more samples
-            else
-            {
-                value = samples.get(index).getVType();
-                if (VTypeHelper.getTimestamp(value).compareTo(end) > 0)
-                    index = -1; // Beyond end time
-            }
+            advance();
         }
         finally
         {
@@ -149,6 +142,43 @@ public class ModelSampleIterator implements ValueIterator
         return result;
     }
 
+    /** {@inheritDoc}
+     *
+     *  <p>Locks the samples once for the whole batch.
+     */
+    @Override
+    public ArchiveSampleBlock nextBatch(final int max) throws Exception
+    {
+        if (index < 0)
+            throw new Exception("End of samples"); //$NON-NLS-1$
+        final ArchiveSampleBlock block = new ArchiveSampleBlock(max);
+        samples.getLock().lock();
+        try
+        {
+            while (index >= 0  &&  (block.add(value)  ||  block.addObject(value)))
+                advance();
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+        return block;
+    }
+
+    /** Move to the next sample. Caller must hold lock. */
+    private void advance()
+    {
+        ++index;
+        if (index >= samples.size())
+            index = -1; // No more samples
+        else
+        {
+            value = samples.get(index).getVType();
+            if (VTypeHelper.getTimestamp(value).compareTo(end) > 0)
+                index = -1; // Beyond end time
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close()
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/** Formats chunks of the export on a thread pool, writes them in order
+ *
+ *  <p>Chunks are formatted in parallel,
+ *  but written to the output in the order in which they were submitted.
+ *  The number of pending chunks is limited,
+ *  so memory usage does not depend on the amount of exported data.
+ *
+ *  <p>Chunks are kept as text and printed to the output,
+ *  which encodes them like all other text of the export.
+ *
+ *  <p>Not thread-safe, only to be called by the export job.
+ *
+ *  @author Kay Kasemir
+ */
+class ParallelExportWriter
+{
+    final private ExecutorService pool;
+    final private PrintStream out;
+    final private int max_pending;
+
+    /** Chunks that are being formatted, oldest first */
+    final private Deque<Future<String>> pending = new ArrayDeque<>();
+
+    /** @param pool Thread pool for formatting
+     *  @param out Output for formatted chunks
+     */
+    ParallelExportWriter(final ExecutorService pool, final PrintStream out)
+    {
+        this.pool = pool;
+        this.out = out;
+        max_pending = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Submit a chunk for formatting
+     *
+     *  <p>Blocks to write older chunks when too many are pending.
+     *
+     *  @param chunk Formats a chunk of text
+     *  @throws Exception on error while formatting or writing an older chunk
+     */
+    void submit(final Callable<CharSequence> chunk) throws Exception
+    {
+        while (pending.size() >= max_pending)
+            writeOldest();
+        pending.add(pool.submit(() -> chunk.call().toString()));
+    }
+
+    /** Wait for the oldest chunk and write it
+     *  @throws Exception on error
+     */
+    private void writeOldest() throws Exception
+    {
+        final String text;
+        try
+        {
+            text = pending.poll().get();
+        }
+        catch (ExecutionException ex)
+        {
+            cancel();
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+            throw ex;
+        }
+        out.print(text);
+    }
+
+    /** Write all pending chunks
+     *  @throws Exception on error
+     */
+    void flush() throws Exception
+    {
+        while (! pending.isEmpty())
+            writeOldest();
+        out.flush();
+    }
+
+    /** Drop all pending chunks */
+    void cancel()
+    {
+        for (Future<String> chunk : pending)
+            chunk.cancel(false);
+        pending.clear();
+    }
+}
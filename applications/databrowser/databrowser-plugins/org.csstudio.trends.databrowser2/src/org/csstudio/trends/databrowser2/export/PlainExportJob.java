@@ -9,14 +9,18 @@ package org.csstudio.trends.databrowser2.export;
 
 import java.io.PrintStream;
 import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.csstudio.archive.reader.PrefetchValueIterator;
+import org.csstudio.archive.reader.SampleBlockIterator;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveSampleBlock;
 import org.csstudio.archive.vtype.TimestampHelper;
-import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.model.Model;
 import org.csstudio.trends.databrowser2.model.ModelItem;
-import org.diirt.vtype.VType;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
 
@@ -26,8 +30,14 @@ import org.eclipse.osgi.util.NLS;
 @SuppressWarnings("nls")
 public class PlainExportJob extends ExportJob
 {
+    /** Number of samples or lines that are formatted as one chunk */
+    final protected static int CHUNK_SIZE = SampleBlockIterator.BLOCK_SIZE;
+
     final protected ValueFormatter formatter;
 
+    /** Copies of the <code>formatter</code> for use by parallel formatting tasks */
+    final private Queue<ValueFormatter> formatters = new ConcurrentLinkedQueue<>();
+
     public PlainExportJob(final Model model,
             final Instant start, final Instant end, final Source source,
             final double optimize_parameter, final ValueFormatter formatter,
@@ -49,11 +59,27 @@ public class PlainExportJob extends ExportJob
         out.println();
     }
 
+    /** @return Formatter for use by the calling thread.
+     *          Must be returned via <code>releaseFormatter</code>
+     */
+    protected ValueFormatter getFormatter()
+    {
+        final ValueFormatter copy = formatters.poll();
+        return copy != null ? copy : formatter.clone();
+    }
+
+    /** @param copy Formatter obtained via <code>getFormatter</code> */
+    protected void releaseFormatter(final ValueFormatter copy)
+    {
+        formatters.add(copy);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void performExport(final IProgressMonitor monitor,
                                  final PrintStream out) throws Exception
     {
+        final ParallelExportWriter writer = new ParallelExportWriter(Activator.getComputePool(), out);
         int count = 0;
         for (ModelItem item : model.getItems())
         {   // Item header
@@ -62,21 +88,53 @@ public class PlainExportJob extends ExportJob
             printItemInfo(out, item);
             // Get data
             monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator values = createValueIterator(item);
-            // Dump all values
-            out.println(comment + Messages.TimeColumn + Messages.Export_Delimiter + formatter.getHeader());
-            long line_count = 0;
-            while (values.hasNext()  &&  !monitor.isCanceled())
+            final ValueIterator values = new PrefetchValueIterator(createValueIterator(item), Activator.getExportPool());
+            try
             {
-                final VType value = values.next();
-
-                final String time = TimestampHelper.format(VTypeHelper.getTimestamp(value));
-                out.println(time + Messages.Export_Delimiter + formatter.format(value));
-                ++line_count;
-                if (++line_count % PROGRESS_UPDATE_LINES == 0)
-                    monitor.subTask(NLS.bind("{0}: Wrote {1} samples", item.getResolvedName(), line_count));
+                // Dump all values, formatting chunks in parallel
+                out.println(comment + Messages.TimeColumn + Messages.Export_Delimiter + formatter.getHeader());
+                long line_count = 0;
+                while (values.hasNext()  &&  !monitor.isCanceled())
+                {
+                    final ArchiveSampleBlock block = values.nextBatch(CHUNK_SIZE);
+                    writer.submit(() -> formatBlock(block));
+                    final long previous = line_count;
+                    line_count += block.size();
+                    if (line_count / PROGRESS_UPDATE_LINES  !=  previous / PROGRESS_UPDATE_LINES)
+                        monitor.subTask(NLS.bind("{0}: Wrote {1} samples", item.getResolvedName(), line_count));
+                }
+                if (monitor.isCanceled())
+                    writer.cancel();
+                else
+                    writer.flush();
+            }
+            finally
+            {
+                values.close();
             }
             ++count;
         }
     }
+
+    /** @param block Samples
+     *  @return Lines with time and value of each sample
+     */
+    private CharSequence formatBlock(final ArchiveSampleBlock block)
+    {
+        final ValueFormatter copy = getFormatter();
+        try
+        {
+            final StringBuilder buf = new StringBuilder(block.size() * 80);
+            for (int i=0; i<block.size(); ++i)
+                buf.append(TimestampHelper.format(block.getTimestamp(i)))
+                   .append(Messages.Export_Delimiter)
+                   .append(copy.format(block.get(i)))
+                   .append(System.lineSeparator());
+            return buf;
+        }
+        finally
+        {
+            releaseFormatter(copy);
+        }
+    }
 }
@@ -13,8 +13,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.csstudio.archive.reader.SpreadsheetIterator;
-import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.TimestampHelper;
+import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.model.Model;
 import org.csstudio.trends.databrowser2.model.ModelItem;
@@ -43,40 +43,71 @@ public class SpreadsheetExportJob extends PlainExportJob
                                  final PrintStream out) throws Exception
     {
         // Item header
+        final List<ModelItem> items = new ArrayList<>();
         for (ModelItem item : model.getItems())
+        {
             printItemInfo(out, item);
+            items.add(item);
+        }
         out.println();
         // Spreadsheet Header
         out.print("# " + Messages.TimeColumn);
-        for (ModelItem item : model.getItems())
+        for (ModelItem item : items)
             out.print(Messages.Export_Delimiter + item.getResolvedName() + " " + formatter.getHeader());
         out.println();
 
-        // Create speadsheet interpolation
-        final List<ValueIterator> iters = new ArrayList<>();
-        for (ModelItem item : model.getItems())
+        // Create speadsheet interpolation, fetching data for all items in parallel
+        final SpreadsheetIterator sheet = new SpreadsheetIterator(createValueIterators(monitor, items));
+        final ParallelExportWriter writer = new ParallelExportWriter(Activator.getComputePool(), out);
+        try
         {
-            monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            iters.add(createValueIterator(item));
+            // Dump the spreadsheet lines, formatting chunks of lines in parallel
+            long line_count = 0;
+            while (sheet.hasNext()  &&  !monitor.isCanceled())
+            {
+                final Instant[] times = new Instant[CHUNK_SIZE];
+                final VType[][] lines = new VType[CHUNK_SIZE][];
+                final int count = sheet.nextBatch(times, lines);
+                writer.submit(() -> formatLines(times, lines, count));
+                final long previous = line_count;
+                line_count += count;
+                if (line_count / PROGRESS_UPDATE_LINES  !=  previous / PROGRESS_UPDATE_LINES)
+                    monitor.subTask(NLS.bind("Wrote {0} samples", line_count));
+            }
+            if (monitor.isCanceled())
+                writer.cancel();
+            else
+                writer.flush();
         }
-        final SpreadsheetIterator sheet = new SpreadsheetIterator(iters.toArray(new ValueIterator[iters.size()]));
-        // Dump the spreadsheet lines
-        long line_count = 0;
-
-        while (sheet.hasNext()  &&  !monitor.isCanceled())
+        finally
         {
-            final Instant time = sheet.getTime();
-            final VType line[] = sheet.next();
-            out.print(TimestampHelper.format(time));
+            sheet.close();
+        }
+    }
 
-            for (int i=0; i<line.length; ++i)
-                out.print(Messages.Export_Delimiter + formatter.format(line[i]));
-            out.println();
-            ++line_count;
-            if ((line_count % PROGRESS_UPDATE_LINES) == 0)
-                monitor.subTask(NLS.bind("Wrote {0} samples", line_count));
-            if (monitor.isCanceled())
-                break;
+    /** @param times Time stamps of spreadsheet lines
+     *  @param lines Values of spreadsheet lines
+     *  @param count Number of lines
+     *  @return Formatted lines
+     */
+    private CharSequence formatLines(final Instant[] times, final VType[][] lines, final int count)
+    {
+        final ValueFormatter copy = getFormatter();
+        try
+        {
+            final StringBuilder buf = new StringBuilder(count * 40 * (1 + lines[0].length));
+            for (int l=0; l<count; ++l)
+            {
+                buf.append(TimestampHelper.format(times[l]));
+                for (VType value : lines[l])
+                    buf.append(Messages.Export_Delimiter).append(copy.format(value));
+                buf.append(System.lineSeparator());
+            }
+            return buf;
+        }
+        finally
+        {
+            releaseFormatter(copy);
         }
     }
 }
@@ -24,8 +24,10 @@ import org.diirt.vtype.VType;
  *
  *  @author Kay Kasemir
  */
-public class ValueFormatter
+public class ValueFormatter implements Cloneable
 {
+    final private Style style;
+    final private int precision;
     private boolean min_max_column = false;
     private VTypeFormat format = null;
 
@@ -34,11 +36,36 @@ public class ValueFormatter
      *  @param precision Precision
      */
     public ValueFormatter(final Style style, final int precision)
+    {
+        this.style = style;
+        this.precision = precision;
+        createFormat();
+    }
+
+    private void createFormat()
     {
         format = Style.getFormat(style, precision);
         format.setMaxArray(-1);
     }
 
+    /** The number formats used by a formatter are not thread-safe.
+     *  @return Copy of this formatter for use by another thread
+     */
+    @Override
+    public ValueFormatter clone()
+    {
+        try
+        {
+            final ValueFormatter copy = (ValueFormatter) super.clone();
+            copy.createFormat();
+            return copy;
+        }
+        catch (CloneNotSupportedException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     /** @param min_max_column Display min/max info in separate column? */
     public void useMinMaxColumn(final boolean min_max_column)
     {
@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.model;
 
+import java.time.Instant;
+
+import org.csstudio.swt.rtplot.data.PlotDataSearch;
 import org.diirt.vtype.VType;
 
 /** One input to the formula: Model item that provides data, Variable name
@@ -95,6 +98,42 @@ public class FormulaInput
         return result;
     }
 
+    /** Obtain snapshot of the input samples
+     *  @param start Time of the first formula value that needs to be computed,
+     *               <code>null</code> to get all samples
+     *  @return Samples from the last one before <code>start</code> to the end
+     */
+    FormulaInputSamples snapshot(final Instant start)
+    {
+        final PlotSamples samples = item.getSamples();
+        samples.getLock().lock();
+        try
+        {
+            final int N = samples.size();
+            final int stable = samples.getStableSize();
+            int first = 0;
+            if (start != null)
+            {   // Locate last sample before start
+                first = new PlotDataSearch<Instant>().findSampleLessOrEqual(samples, start);
+                while (first >= 0  &&  samples.get(first).getPosition().compareTo(start) >= 0)
+                    --first;
+                if (first < 0)
+                    first = 0;
+            }
+            final FormulaInputSamples snapshot = new FormulaInputSamples(samples.getRevision(),
+                    N > 0 ? samples.get(0).getPosition() : null,
+                    stable > 0 ? samples.get(stable-1).getPosition() : null,
+                    N - first);
+            for (int i=first; i<N; ++i)
+                snapshot.set(i - first, samples.get(i));
+            return snapshot;
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+    }
+
     /** Check for new samples.
      *  Note that this will not reset the new-sample flag,
      *  so its use has to be coordinated with the overall mechanism
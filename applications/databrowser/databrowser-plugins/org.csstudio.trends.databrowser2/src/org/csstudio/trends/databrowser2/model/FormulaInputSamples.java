@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+
+/** Snapshot of the samples of a {@link FormulaInput}
+ *  <p>
+ *  Holds the time stamps and numeric min/value/max of
+ *  a section of the input's samples, so that the formula
+ *  can be evaluated without locking the input,
+ *  and several sections can be evaluated in parallel.
+ *
+ *  @author Kay Kasemir
+ */
+class FormulaInputSamples
+{
+    /** Revision of the input samples */
+    final long revision;
+
+    /** Time stamp of the input's first sample, or <code>null</code> */
+    final Instant first_time;
+
+    /** Time stamp of the input's last stable sample, or <code>null</code> */
+    final Instant stable_time;
+
+    /** Time stamps of the samples */
+    final Instant[] times;
+
+    /** Minimum, value, maximum of the samples. Min and max are NaN unless it's a VStatistics */
+    final double[] min, val, max;
+
+    /** @param revision Revision of the input samples
+     *  @param first_time Time stamp of the input's first sample
+     *  @param stable_time Time stamp of the input's last stable sample
+     *  @param count Number of samples in the snapshot
+     */
+    FormulaInputSamples(final long revision, final Instant first_time, final Instant stable_time, final int count)
+    {
+        this.revision = revision;
+        this.first_time = first_time;
+        this.stable_time = stable_time;
+        times = new Instant[count];
+        min = new double[count];
+        val = new double[count];
+        max = new double[count];
+    }
+
+    /** @param i Index in snapshot
+     *  @param sample Sample to set
+     */
+    void set(final int i, final PlotSample sample)
+    {
+        final VType value = sample.getVType();
+        times[i] = sample.getPosition();
+        if (value instanceof VStatistics)
+        {
+            final VStatistics mmv = (VStatistics)value;
+            min[i] = mmv.getMin();
+            val[i] = mmv.getAverage();
+            max[i] = mmv.getMax();
+        }
+        else
+        {
+            min[i] = max[i] = Double.NaN;
+            val[i] = VTypeHelper.toDouble(value);
+            // Use NaN for any non-number
+            if (Double.isInfinite(val[i]))
+                val[i] = Double.NaN;
+        }
+    }
+
+    /** @return Number of samples in snapshot */
+    int size()
+    {
+        return times.length;
+    }
+
+    /** @param time Time stamp
+     *  @return Index of first sample at or after time, <code>size()</code> if there is none
+     */
+    int findFirst(final Instant time)
+    {
+        int low = 0, high = times.length;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (times[mid].compareTo(time) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -11,6 +11,9 @@ import java.io.PrintWriter;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
@@ -19,12 +22,11 @@ import org.csstudio.apputil.xml.XMLWriter;
 import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.ArchiveVStatistics;
 import org.csstudio.archive.vtype.ArchiveVType;
-import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.persistence.XMLPersistence;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.Display;
-import org.diirt.vtype.VStatistics;
 import org.diirt.vtype.VType;
 import org.diirt.vtype.ValueFactory;
 import org.w3c.dom.Element;
@@ -42,6 +44,9 @@ import org.w3c.dom.Element;
 @SuppressWarnings("nls")
 public class FormulaItem extends ModelItem
 {
+    /** Number of formula values per section when computing in parallel */
+    final private static int CHUNK_SIZE = 10000;
+
     /** Evaluate-able Formula
      *  <p>
      *  The formula as well as inputs and variables can be changed
@@ -63,6 +68,19 @@ public class FormulaItem extends ModelItem
      */
     private VariableNode variables[];
 
+    /** Revisions of the input samples used by the last computation,
+     *  <code>null</code> to compute all formula values.
+     *  @see #formula for synchronization
+     */
+    private long input_revisions[] = null;
+
+    /** Formula values at or after this time need to be re-computed
+     *  when inputs receive new samples,
+     *  <code>null</code> to compute all formula values.
+     *  @see #formula for synchronization
+     */
+    private Instant stable_time = null;
+
     /** Samples of the formula, computed from inputs.
      *  Access must synchronize on samples (done inside PlotSampleArray) */
     private PlotSampleArray samples = new PlotSampleArray();
@@ -79,7 +97,7 @@ public class FormulaItem extends ModelItem
         super(name);
         updateFormula(expression, inputs);
         // Compute initial values
-        compute();
+        compute(null);
     }
 
     /** @return Expression */
@@ -122,6 +140,7 @@ public class FormulaItem extends ModelItem
             for (int i=0; i<variables.length; ++i)
                 variables[i] = new VariableNode(inputs[i].getVariableName());
             this.formula = new Formula(expression, variables);
+            input_revisions = null;
         }
         fireItemLookChanged();
     }
@@ -131,156 +150,242 @@ public class FormulaItem extends ModelItem
      *  Iterates over the input samples in a manner of spreadsheet or
      *  staircase-interpolation: An input with a time stamp is valid
      *  until there's a sample with a greater time stamp.
+     *  <p>
+     *  Only computes formula values at or after the <code>start</code> time,
+     *  keeping the previously computed values before that time.
+     *  Larger computations are split into sections of about
+     *  {@link #CHUNK_SIZE} lines, evaluated in parallel.
+     *
+     *  @param start Time of first formula value to compute,
+     *               <code>null</code> to compute all values
      */
-    private void compute()
+    private void compute(final Instant start)
     {
-        final List<PlotSample> result = new ArrayList<PlotSample>();
-        final Display display = ValueFactory.displayNone();
         // Prevent changes to formula & inputs
         synchronized (this)
         {
-            // 'Current' value for each input or null when no more
-            // In computation loop, values is actually moved to the _next_
-            // value
-            final VType values[] = new VType[inputs.length];
+            final FormulaInputSamples snapshots[] = new FormulaInputSamples[inputs.length];
+            input_revisions = new long[inputs.length];
+            Instant first = null, stable = null;
+            boolean all_stable = true;
+            FormulaInputSamples largest = null;
+            for (int i=0; i<inputs.length; ++i)
+            {
+                snapshots[i] = inputs[i].snapshot(start);
+                input_revisions[i] = snapshots[i].revision;
+                if (snapshots[i].first_time != null  &&
+                    (first == null  ||  snapshots[i].first_time.isBefore(first)))
+                    first = snapshots[i].first_time;
+                // Formula values at or after the oldest 'last stable sample'
+                // of all inputs may change as inputs receive new samples
+                if (snapshots[i].stable_time == null)
+                    all_stable = false;
+                else if (stable == null  ||  snapshots[i].stable_time.isBefore(stable))
+                    stable = snapshots[i].stable_time;
+                if (largest == null  ||  snapshots[i].size() > largest.size())
+                    largest = snapshots[i];
+            }
+
+            // Split into sections based on time stamps of the largest input
+            final List<Instant> boundaries = new ArrayList<>();
+            boundaries.add(start);
+            if (largest != null)
+                for (int i = (start == null ? 0 : largest.findFirst(start)) + CHUNK_SIZE;
+                     i < largest.size();
+                     i += CHUNK_SIZE)
+                    if (! largest.times[i].equals(boundaries.get(boundaries.size()-1)))
+                        boundaries.add(largest.times[i]);
+            boundaries.add(null);
+
+            final List<PlotSample> result = new ArrayList<>();
+            try
+            {
+                if (boundaries.size() <= 2)
+                    result.addAll(compute(snapshots, start, null));
+                else
+                {
+                    final List<Callable<List<PlotSample>>> sections = new ArrayList<>();
+                    for (int i=1; i<boundaries.size(); ++i)
+                    {
+                        final Instant from = boundaries.get(i-1), to = boundaries.get(i);
+                        sections.add(() -> compute(snapshots, from, to));
+                    }
+                    for (Future<List<PlotSample>> section : Activator.getComputePool().invokeAll(sections))
+                        result.addAll(section.get());
+                }
+            }
+            catch (Exception ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Formula " + getName() + " computation failed", ex);
+                input_revisions = null;
+                return;
+            }
+
+            // Update PlotSamples
+            stable_time = all_stable ? stable : null;
+            if (start == null)
+                samples.set(result, stable_time);
+            else
+                samples.update(first, start, result, stable_time);
+        }
+    }
+
+    /** Evaluate formula for one section of the input samples
+     *  @param snapshots Input samples
+     *  @param from Time of first formula value to compute, <code>null</code> for first input sample
+     *  @param to Time at which to stop, <code>null</code> for end of input samples
+     *  @return Formula values
+     *  @throws Exception on error in formula
+     */
+    private List<PlotSample> compute(final FormulaInputSamples snapshots[],
+                                     final Instant from, final Instant to) throws Exception
+    {
+        final Display display = ValueFactory.displayNone();
+        final List<PlotSample> result = new ArrayList<PlotSample>();
+
+        // Separate formula and variables for each section
+        final VariableNode variables[] = new VariableNode[snapshots.length];
+        for (int i=0; i<variables.length; ++i)
+            variables[i] = new VariableNode(this.variables[i].getName());
+        final Formula formula = new Formula(this.formula.getFormula(), variables);
+        formula.compile();
 
-            // 'Current' numeric min/val/max of values
-            final double min[] = new double[inputs.length];
-            final double val[] = new double[inputs.length];
-            final double max[] = new double[inputs.length];
+        // Index of the next sample for each input, length when no more
+        final int index[] = new int[snapshots.length];
 
-            // Determine first sample for each input
-            boolean more_input = false;
-            for (int i = 0; i < values.length; i++)
+        // 'Current' numeric min/val/max of each input
+        final double min[] = new double[snapshots.length];
+        final double val[] = new double[snapshots.length];
+        final double max[] = new double[snapshots.length];
+
+        for (int i = 0; i < snapshots.length; i++)
+        {
+            final FormulaInputSamples input = snapshots[i];
+            index[i] = from == null ? 0 : input.findFirst(from);
+            // Input that has a sample before 'from' and continues
+            // after 'from' starts out with that sample
+            if (index[i] > 0  &&  index[i] < input.size())
             {
-                // Initially, none have any data
+                min[i] = input.min[index[i]-1];
+                val[i] = input.val[index[i]-1];
+                max[i] = input.max[index[i]-1];
+            }
+            else
                 min[i] = val[i] = max[i] = Double.NaN;
-                // Is there an initial value for any input?
-                values[i] = inputs[i].first();
-                if (values[i] != null)
-                    more_input = true;
+        }
+
+        // Compute result for each 'line in the spreadsheet'
+        while (true)
+        {   // Find oldest time stamp of all the inputs
+            Instant time = null;
+            for (int i = 0; i < snapshots.length; i++)
+            {
+                if (index[i] >= snapshots[i].size())
+                    continue;
+                final Instant sample_time = snapshots[i].times[index[i]];
+                if (time == null  ||  sample_time.compareTo(time) < 0)
+                    time = sample_time;
             }
+            if (time == null  ||  (to != null  &&  time.compareTo(to) >= 0))
+                break;
 
-            // Compute result for each 'line in the spreadsheet'
-            Instant time;
-            while (more_input)
-            {   // Find oldest time stamp of all the inputs
-                time = null;
-                for (int i = 0; i < values.length; i++)
+            // 'time' now defines the current spreadsheet line.
+            // Set min/max/val to sample from each input for that time.
+            // This might move index[i] to the 'next' sample
+            boolean have_min_max = true;
+            for (int i = 0; i < snapshots.length; i++)
+            {
+                final FormulaInputSamples input = snapshots[i];
+                if (index[i] >= input.size()) // No more data
                 {
-                    if (values[i] == null)
-                        continue;
-                    final Instant sample_time = VTypeHelper.getTimestamp(values[i]);
-                    if (time == null  ||  sample_time.compareTo(time) < 0)
-                        time = sample_time;
+                    min[i] = val[i] = max[i] = Double.NaN;
+                    have_min_max = false;
                 }
-                if (time == null)
-                {   // No input left with any data
-                    more_input = false;
-                    break;
+                else if (input.times[index[i]].compareTo(time) <= 0)
+                {   // Input is valid before-and-up-to 'time'
+                    min[i] = input.min[index[i]];
+                    val[i] = input.val[index[i]];
+                    max[i] = input.max[index[i]];
+                    if (Double.isNaN(min[i]))
+                        have_min_max = false;
+                    // Move to next input sample
+                    ++index[i];
                 }
-
-                // 'time' now defines the current spreadsheet line.
-                // Set min/max/val to sample from each input for that time.
-                // This might move values[i] resp. the inputs' iterators
-                // to the 'next' sample
-                boolean have_min_max = true;
-                for (int i = 0; i < values.length; i++)
-                {
-                    if (values[i] == null) // No more data
-                    {
-                        min[i] = val[i] = max[i] = Double.NaN;
+                else
+                {   // Next sample of input is after 'time', so leave min/max/val[i]
+                    // as is until 'time' catches up with the next input sample.
+                    // Just update the have_min_max flag
+                    if (Double.isNaN(min[i])  ||  Double.isNaN(max[i]))
                         have_min_max = false;
-                    }
-                    else if (VTypeHelper.getTimestamp(values[i]).compareTo(time) <= 0)
-                    {   // Input is valid before-and-up-to 'time'
-                        if (values[i] instanceof VStatistics)
-                        {
-                            final VStatistics mmv = (VStatistics)values[i];
-                            min[i] = mmv.getMin();
-                            val[i] = mmv.getAverage();
-                            max[i] = mmv.getMax();
-                        }
-                        else
-                        {
-                            min[i] = max[i] = Double.NaN;
-                            val[i] = VTypeHelper.toDouble(values[i]);
-                            // Use NaN for any non-number
-                            if (Double.isInfinite(val[i]))
-                                val[i] = Double.NaN;
-                            have_min_max = false;
-                        }
-                        // Move to next input sample
-                        values[i] = inputs[i].next();
-                    }
-                    else
-                    {   // values[i].getTime() > time, so leave min/max/val[i]
-                        // as is until 'time' catches up with the next input sample.
-                        // Just update the have_min_max flag
-                        if (Double.isNaN(min[i])  ||  Double.isNaN(max[i]))
-                            have_min_max = false;
-                    }
                 }
+            }
 
-                // Set variables[] from val to get res_val
-                for (int i = 0; i < values.length; i++)
-                    variables[i].setValue(val[i]);
-                // Evaluate formula for these inputs
-                final double res_val = formula.eval();
-                final VType value;
+            // Set variables[] from val to get res_val
+            for (int i = 0; i < snapshots.length; i++)
+                variables[i].setValue(val[i]);
+            // Evaluate formula for these inputs
+            final double res_val = formula.eval();
+            final VType value;
 
-                if (have_min_max)
-                {   // Set variables[] from min
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(min[i]);
-                    final double res_min = formula.eval();
-                    // Set variables[] from max
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(max[i]);
-                    final double res_max = formula.eval();
-                    value = new ArchiveVStatistics(time, AlarmSeverity.NONE, Messages.Formula,
-                            display, res_val, res_min, res_max, 0.0, 1);
-                }
+            if (have_min_max)
+            {   // Set variables[] from min
+                for (int i = 0; i < snapshots.length; i++)
+                    variables[i].setValue(min[i]);
+                final double res_min = formula.eval();
+                // Set variables[] from max
+                for (int i = 0; i < snapshots.length; i++)
+                    variables[i].setValue(max[i]);
+                final double res_max = formula.eval();
+                value = new ArchiveVStatistics(time, AlarmSeverity.NONE, Messages.Formula,
+                        display, res_val, res_min, res_max, 0.0, 1);
+            }
+            else
+            {   // No min/max.
+                if (Double.isNaN(res_val))
+                    value = new ArchiveVNumber(time, AlarmSeverity.INVALID, Messages.Formula,
+                                display, res_val);
                 else
-                {   // No min/max.
-                    if (Double.isNaN(res_val))
-                        value = new ArchiveVNumber(time, AlarmSeverity.INVALID, Messages.Formula,
-                                    display, res_val);
-                    else
-                        value = new ArchiveVNumber(time, AlarmSeverity.NONE, ArchiveVType.STATUS_OK,
-                                    display, res_val);
-                }
-                result.add(new PlotSample(Messages.Formula, value));
+                    value = new ArchiveVNumber(time, AlarmSeverity.NONE, ArchiveVType.STATUS_OK,
+                                display, res_val);
             }
+            result.add(new PlotSample(Messages.Formula, value));
         }
-        // Update PlotSamples
-        samples.set(result);
+        return result;
     }
 
     /** Re-evaluate the formula in case some of the input samples changed.
+     *  <p>
+     *  When inputs only received new samples, the formula is
+     *  evaluated for those new samples.
+     *  When inputs changed in other ways,
+     *  for example by merging archived data,
+     *  the formula is evaluated for all samples.
+     *
      *  @return <code>true</code> if it indeed re-evaluated,
      *          <code>false</code> if we assume there is no need to do anything.
      */
     public boolean reevaluate()
     {
-        boolean anything_new = false;
         // Prevent changes to inputs array
         synchronized (this)
         {
+            boolean revised = input_revisions == null  ||  input_revisions.length != inputs.length;
+            for (int i=0;  !revised  &&  i<inputs.length;  ++i)
+                if (inputs[i].getItem().getSamples().getRevision() != input_revisions[i])
+                    revised = true;
+            if (revised)
+            {
+                compute(null);
+                return true;
+            }
             for (FormulaInput input : inputs)
                 if (input.hasNewSamples())
                 {
-                    anything_new = true;
-                    break;
+                    compute(stable_time);
+                    return true;
                 }
         }
-        if (!anything_new)
-            return false;
-        // Formula and inputs could actually change right now,
-        // but we're about to re-compute anyway, and we'll lock while
-        // doing that
-        compute();
-        return true;
+        return false;
     }
 
     /** {@inheritDoc} */
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.csstudio.swt.rtplot.data.ValueRange;
 import org.diirt.vtype.VType;
 
 /** Holder for 'historic' samples.
@@ -35,13 +36,16 @@ public class HistoricSamples extends PlotSamples
 {
     // No locking in here, all access is via PVSamples
 
-    /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    /** "All" historic samples.
+     *  Kept in segments so that merging new archive data
+     *  does not need to copy all the existing samples.
+     */
+    final private PlotSampleSegments samples = new PlotSampleSegments();
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
 
-    /** Subset of samples.length that's below border_time
+    /** Subset of samples.size() that's below border_time
      *  @see #computeVisibleSize()
      */
     private int visible_size = 0;
@@ -72,12 +76,11 @@ public class HistoricSamples extends PlotSamples
     {
         if (border_time.isPresent())
         {
-            final int last_index = PlotSampleSearch.findSampleLessThan(
-                    samples, border_time.get());
+            final int last_index = samples.findSampleLessThan(border_time.get());
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = samples.size();
     }
 
     /** {@inheritDoc} */
@@ -87,7 +90,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i);
     }
 
     /** {@inheritDoc} */
@@ -101,7 +104,7 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-        return samples.length;
+        return samples.size();
     }
 
     /**
@@ -111,7 +114,31 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-        return samples[i];
+        return samples.get(i);
+    }
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Range of the finite sample values in first .. last
+     */
+    public ValueRange getValueRange(final int first, final int last)
+    {
+        return samples.getValueRange(first, Math.min(last, visible_size-1));
+    }
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Number of samples with finite value in first .. last
+     */
+    public int getValueCount(final int first, final int last)
+    {
+        return samples.getValueCount(first, Math.min(last, visible_size-1));
+    }
+
+    /** Re-compute summary of sample values after waveform index changed */
+    public void updateSummary()
+    {
+        samples.updateSummary();
     }
 
     /** Merge newly received archive data into historic samples
@@ -128,17 +155,14 @@ public class HistoricSamples extends PlotSamples
         for (int i=0; i<new_samples.length; ++i)
             new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
         // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
-        if (merged == samples)
-            return;
-        samples = merged;
-        computeVisibleSize();
+        if (samples.merge(new_samples))
+            computeVisibleSize();
     }
 
     /** Delete all samples */
     public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples.clear();
     }
 }
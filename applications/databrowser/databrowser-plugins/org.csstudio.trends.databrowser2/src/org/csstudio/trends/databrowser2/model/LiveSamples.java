@@ -10,11 +10,16 @@ package org.csstudio.trends.databrowser2.model;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.apputil.ringbuffer.RingBuffer;
+import org.csstudio.swt.rtplot.data.MinMaxPyramid;
+import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.trends.databrowser2.preferences.Preferences;
 
 /** Ring buffer for 'live' samples.
  *  <p>
  *  New samples are always added to the end of a ring buffer.
+ *  <p>
+ *  A {@link MinMaxPyramid} summarizes the values,
+ *  indexed by the position of the sample in the ring.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
@@ -26,6 +31,12 @@ public class LiveSamples extends PlotSamples
     private RingBuffer<PlotSample> samples =
         new RingBuffer<PlotSample>(Preferences.getLiveSampleBufferSize());
 
+    /** Summary of the values, by ring buffer slot */
+    private MinMaxPyramid summary = new MinMaxPyramid(samples.getCapacity());
+
+    /** Ring buffer slot of the oldest sample */
+    private int first_slot = 0;
+
     /** Waveform index */
     final private AtomicInteger waveform_index;
 
@@ -51,13 +62,19 @@ public class LiveSamples extends PlotSamples
         if (new_capacity < 10)
             new_capacity = 10;
         samples.setCapacity(new_capacity);
+        summary = new MinMaxPyramid(new_capacity);
+        updateSummary();
     }
 
     /** @param sample Sample to add to ring buffer */
     void add(final PlotSample sample)
     {
         sample.setWaveformIndex(waveform_index);
+        final int capacity = samples.getCapacity();
+        if (samples.isFull())
+            first_slot = (first_slot + 1) % capacity;
         samples.add(sample);
+        summary.set((first_slot + samples.size() - 1) % capacity, sample.getValue());
         have_new_samples.set(true);
     }
 
@@ -73,10 +90,59 @@ public class LiveSamples extends PlotSamples
         return samples.get(i);
     }
 
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Range of the finite sample values in first .. last
+     */
+    public ValueRange getValueRange(final int first, final int last)
+    {
+        if (first > last  ||  first >= samples.size())
+            return new ValueRange(Double.MAX_VALUE, -Double.MAX_VALUE);
+        final int capacity = samples.getCapacity();
+        final int from = (first_slot + first) % capacity;
+        final int to = (first_slot + Math.min(last, samples.size()-1)) % capacity;
+        if (from <= to)
+            return summary.getValueRange(from, to);
+        // Wraps around end of ring
+        final ValueRange a = summary.getValueRange(from, capacity-1);
+        final ValueRange b = summary.getValueRange(0, to);
+        return new ValueRange(Math.min(a.getLow(), b.getLow()), Math.max(a.getHigh(), b.getHigh()));
+    }
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Number of samples with finite value in first .. last
+     */
+    public int getValueCount(final int first, final int last)
+    {
+        if (first > last  ||  first >= samples.size())
+            return 0;
+        final int capacity = samples.getCapacity();
+        final int from = (first_slot + first) % capacity;
+        final int to = (first_slot + Math.min(last, samples.size()-1)) % capacity;
+        if (from <= to)
+            return summary.getCount(from, to);
+        return summary.getCount(from, capacity-1) + summary.getCount(0, to);
+    }
+
+    /** Re-compute summary of sample values,
+     *  for example after waveform index changed
+     */
+    public void updateSummary()
+    {
+        summary.clear();
+        first_slot = 0;
+        final int N = samples.size();
+        for (int i=0; i<N; ++i)
+            summary.set(i, samples.get(i).getValue());
+    }
+
     /** Delete all samples */
     public void clear()
     {
         samples.clear();
+        summary.clear();
+        first_slot = 0;
         have_new_samples.set(true);
     }
 }
@@ -111,7 +111,10 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
         if (index < 0)
             index = 0;
         if (waveform_index.getAndSet(index) != index)
+        {
+            samples.updateSummary();
             fireItemDataConfigChanged();
+        }
     }
 
     /** Set new item name, which changes the underlying PV name
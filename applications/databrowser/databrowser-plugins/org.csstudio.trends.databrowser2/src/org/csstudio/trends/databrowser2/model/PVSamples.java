@@ -13,6 +13,8 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.swt.rtplot.data.PlotDataSummary;
+import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.trends.databrowser2.Messages;
 import org.diirt.vtype.AlarmSeverity;
 import org.diirt.vtype.VType;
@@ -28,10 +30,13 @@ import org.diirt.vtype.ValueUtil;
  *  extended to 'now' assuming no new data means
  *  that the last value is still valid.
  *
+ *  The value summaries of the historic and live samples
+ *  are combined into a {@link PlotDataSummary}.
+ *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed PVSamples to handle waveform index.
  */
-public class PVSamples extends PlotSamples
+public class PVSamples extends PlotSamples implements PlotDataSummary
 {
     /* history and live are each PlotSamples, i.e. they
      * have a read/write lock, but those are never used.
@@ -72,7 +77,16 @@ public class PVSamples extends PlotSamples
      */
     public void setLiveCapacity(final int new_capacity) throws Exception
     {
-        live.setCapacity(new_capacity);
+        lockForWriting();
+        try
+        {
+            live.setCapacity(new_capacity);
+            markRevised();
+        }
+        finally
+        {
+            unlockForWriting();
+        }
     }
 
     /** @return Combined count of historic and live samples */
@@ -89,6 +103,15 @@ public class PVSamples extends PlotSamples
         return raw+1;
     }
 
+    /** @return Size of the actual historic and live samples
+     *          without the continuation to 'now'
+     */
+    @Override
+    public int getStableSize()
+    {
+        return getRawSize();
+    }
+
     /** @return Size of the actual historic and live samples
      *          without the continuation to 'now'
      */
@@ -126,6 +149,64 @@ public class PVSamples extends PlotSamples
         return live.get(index - num_old);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ValueRange getValueRange(final int first, int last)
+    {
+        // Continuation to 'now' has the value of the last raw sample
+        last = Math.min(last, getRawSize()-1);
+        final int num_old = history.size();
+        double low = Double.MAX_VALUE, high = -Double.MAX_VALUE;
+        if (first < num_old)
+        {
+            final ValueRange range = history.getValueRange(first, Math.min(last, num_old-1));
+            low = range.getLow();
+            high = range.getHigh();
+        }
+        if (last >= num_old)
+        {
+            final ValueRange range = live.getValueRange(Math.max(0, first - num_old), last - num_old);
+            low = Math.min(low, range.getLow());
+            high = Math.max(high, range.getHigh());
+        }
+        return new ValueRange(low, high);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getValueCount(final int first, final int last)
+    {
+        int count = 0;
+        final int raw = getRawSize();
+        final int num_old = history.size();
+        if (first < num_old)
+            count += history.getValueCount(first, Math.min(last, num_old-1));
+        if (last >= num_old)
+            count += live.getValueCount(Math.max(0, first - num_old), Math.min(last, raw-1) - num_old);
+        // Continuation to 'now'
+        if (last >= raw  &&  raw < size()  &&  Double.isFinite(get(raw).getValue()))
+            ++count;
+        return count;
+    }
+
+    /** Re-compute the summary of sample values
+     *  after the waveform index changed
+     */
+    void updateSummary()
+    {
+        lockForWriting();
+        try
+        {
+            history.updateSummary();
+            live.updateSummary();
+            markRevised();
+        }
+        finally
+        {
+            unlockForWriting();
+        }
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
@@ -166,6 +247,7 @@ public class PVSamples extends PlotSamples
                 history.clear();
             }
             history.mergeArchivedData(source, result);
+            markRevised();
         }
         finally
         {
@@ -195,11 +277,19 @@ public class PVSamples extends PlotSamples
             if (live.size() == 0  &&
                 VTypeHelper.getSeverity(sample.getVType()) == AlarmSeverity.UNDEFINED)
                 return;
+            final PlotSample old_start = live.size() > 0 ? live.get(0) : null;
             live.add(sample);
             // History ends before the start of 'live' samples.
             // Adding a live sample might have moved the ring buffer,
             // so need to update whenever live data is extended.
-            history.setBorderTime(Optional.of(live.get(0).getPosition()));
+            final PlotSample start = live.get(0);
+            if (start != old_start)
+            {   // Oldest live samples were dropped and previously
+                // hidden historic samples may now be visible:
+                // Existing samples changed, not just appended
+                history.setBorderTime(Optional.of(start.getPosition()));
+                markRevised();
+            }
         }
         finally
         {
@@ -216,6 +306,7 @@ public class PVSamples extends PlotSamples
         {
             history.clear();
             live.clear();
+            markRevised();
         }
         finally
         {
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.model;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -17,10 +19,93 @@ public class PlotSampleArray extends PlotSamples
 {
     private List<PlotSample> samples = Collections.emptyList();
 
+    /** Number of stable samples */
+    private int stable_size = 0;
+
     /** @param samples Samples <u>which are NOT copied</u> */
     public void set(final List<PlotSample> samples)
     {
-        this.samples = samples;
+        set(samples, null);
+    }
+
+    /** @param samples Samples <u>which are NOT copied</u>
+     *  @param stable_time Samples at or after this time are provisional,
+     *                     <code>null</code> if all samples are stable
+     */
+    public void set(final List<PlotSample> samples, final Instant stable_time)
+    {
+        lockForWriting();
+        try
+        {
+            this.samples = samples;
+            updateStableSize(stable_time);
+            markRevised();
+        }
+        finally
+        {
+            unlockForWriting();
+        }
+    }
+
+    /** Update samples
+     *  <p>
+     *  Removes the oldest samples,
+     *  replaces all samples at or after a start time with new samples.
+     *
+     *  @param first Samples before this time are removed, <code>null</code> to keep them
+     *  @param start Samples at or after this time are replaced
+     *  @param new_samples Samples to add
+     *  @param stable_time Samples at or after this time are provisional,
+     *                     <code>null</code> if all samples are stable
+     */
+    public void update(final Instant first, final Instant start,
+                       final List<PlotSample> new_samples, final Instant stable_time)
+    {
+        lockForWriting();
+        try
+        {
+            if (! (samples instanceof ArrayList))
+                samples = new ArrayList<>(samples);
+            samples.subList(findFirst(start), samples.size()).clear();
+            samples.addAll(new_samples);
+            if (first != null)
+                samples.subList(0, findFirst(first)).clear();
+            updateStableSize(stable_time);
+        }
+        finally
+        {
+            unlockForWriting();
+        }
+    }
+
+    /** @param stable_time Samples at or after this time are provisional */
+    private void updateStableSize(final Instant stable_time)
+    {
+        stable_size = stable_time == null ? samples.size() : findFirst(stable_time);
+    }
+
+    /** @param time Time stamp
+     *  @return Index of first sample at or after time, <code>size()</code> if there is none
+     */
+    private int findFirst(final Instant time)
+    {
+        int low = 0, high = samples.size();
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (samples.get(mid).getPosition().compareTo(time) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getStableSize()
+    {
+        return stable_size;
     }
 
     /** {@inheritDoc} */
@@ -13,6 +13,10 @@ import java.time.Instant;
  *  <p>
  *  New data is to some extend 'merged' with existing data:
  *  Where the time ranges overlap, the data replaces the old data.
+ *  Old samples at the start time of the new data are kept,
+ *  so when data arrives in consecutive chunks,
+ *  samples with the same time stamp at the end of one chunk
+ *  and the start of the next chunk are all preserved.
  *
  *  @author Kay Kasemir
  */
@@ -57,7 +61,7 @@ public class PlotSampleMerger
         }
         //                               +=x===========+
         // before, maybe overlap    +---..................+
-        if (add_start.compareTo(old_start) <= 0)
+        if (add_start.compareTo(old_start) < 0)
         {
             // Result starts with 'new' samples. Then, how many 'old' samples?
             // Determine the first sample to use from the 'old'
@@ -80,9 +84,10 @@ public class PlotSampleMerger
         if (add_start.compareTo(old_start) >= 0)
         {
             // Determine the left/right indices of the section within 'old'.
-            final int l = PlotSampleSearch.findSampleLessThan(old, add_start);
+            // Old samples up to and including add_start are kept.
+            final int l = PlotSampleSearch.findSampleGreaterThan(old, add_start);
             final int r = PlotSampleSearch.findSampleGreaterThan(old, add_end);
-            final int Nl = (l < 0) ? 0 : l + 1;
+            final int Nl = (l < 0) ? No : l;
             final int Nr = (r < 0) ? 0 : No-r;
             final PlotSample result[] = new PlotSample[Nl + Na + Nr];
             // Nl old samples
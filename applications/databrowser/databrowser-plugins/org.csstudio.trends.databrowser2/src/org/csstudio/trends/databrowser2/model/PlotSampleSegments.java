@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.swt.rtplot.data.MinMaxPyramid;
+import org.csstudio.swt.rtplot.data.ValueRange;
+
+/** Time-ordered samples, held in segments.
+ *  <p>
+ *  Each segment is an immutable section of a sorted sample array.
+ *  Merging new samples follows the same rules as the {@link PlotSampleMerger}:
+ *  Where the time ranges overlap, the new samples replace the existing ones.
+ *  Instead of copying all samples into a new array, however,
+ *  existing segments are at most split into the part before and
+ *  the part after the new samples, both still referencing the
+ *  original array.
+ *  <p>
+ *  Access by index uses a binary search over the segment offsets.
+ *  To keep that search short, the smallest neighboring segments
+ *  are combined when there are too many segments.
+ *  <p>
+ *  Each sample array has a {@link MinMaxPyramid} of its values,
+ *  shared by all segments that reference the array,
+ *  for determining the value range of a section of samples.
+ *  <p>
+ *  Not thread-safe.
+ *
+ *  @author Kay Kasemir
+ */
+class PlotSampleSegments
+{
+    /** Number of segments that triggers compaction */
+    final private static int MAX_SEGMENTS = 64;
+
+    /** Immutable section of a sorted sample array */
+    private static class Segment
+    {
+        final PlotSample[] samples;
+        final int start, end;
+        /** Summary of all values in samples[] */
+        MinMaxPyramid summary;
+
+        /** @param samples Sorted samples
+         *  @param start Index of first sample to use
+         *  @param end Index after last sample to use
+         *  @param summary Summary of the samples
+         */
+        Segment(final PlotSample[] samples, final int start, final int end, final MinMaxPyramid summary)
+        {
+            this.samples = samples;
+            this.start = start;
+            this.end = end;
+            this.summary = summary;
+        }
+
+        /** @param samples Sorted samples, all of which are used */
+        Segment(final PlotSample[] samples)
+        {
+            this(samples, 0, samples.length, createSummary(samples));
+        }
+
+        /** @param start Index of first sample to use
+         *  @param end Index after last sample to use
+         *  @return Segment for that section of this segment's samples
+         */
+        Segment section(final int start, final int end)
+        {
+            return new Segment(samples, start, end, summary);
+        }
+
+        int size()
+        {
+            return end - start;
+        }
+
+        Instant getFirstTime()
+        {
+            return samples[start].getPosition();
+        }
+
+        Instant getLastTime()
+        {
+            return samples[end-1].getPosition();
+        }
+
+        /** @param goal Time
+         *  @param inclusive Include samples that equal the goal?
+         *  @return Index of first sample at-or-after (inclusive) or after the goal, <code>end</code> if none
+         */
+        int findFirst(final Instant goal, final boolean inclusive)
+        {
+            int low = start, high = end;
+            while (low < high)
+            {
+                final int mid = (low + high) >>> 1;
+                final int cmp = samples[mid].getPosition().compareTo(goal);
+                if (cmp < 0  ||  (cmp == 0  &&  !inclusive))
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+    }
+
+    /** Segments, ordered by time */
+    private List<Segment> segments = new ArrayList<>();
+
+    /** offsets[i] is the number of samples before segment i,
+     *  last element is the total number of samples
+     */
+    private int[] offsets = new int[] { 0 };
+
+    /** @return Total number of samples */
+    public int size()
+    {
+        return offsets[offsets.length-1];
+    }
+
+    /** @return Number of segments */
+    int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    /** @param index Sample index, 0 .. size()-1
+     *  @return Sample
+     */
+    public PlotSample get(final int index)
+    {
+        if (index < 0  ||  index >= size())
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size()); //$NON-NLS-1$ //$NON-NLS-2$
+        final int i = findSegment(index);
+        final Segment segment = segments.get(i);
+        return segment.samples[segment.start + index - offsets[i]];
+    }
+
+    /** @param index Sample index
+     *  @return Index of segment that holds the sample
+     */
+    private int findSegment(final int index)
+    {
+        // Binary search for last segment with offset <= index
+        int low = 0, high = segments.size() - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= index)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /** Find the last sample that's smaller than the given time
+     *  @param goal The time to look for.
+     *  @return Index of sample smaller than given goal, or -1.
+     */
+    public int findSampleLessThan(final Instant goal)
+    {
+        // Binary search for last segment that starts before goal
+        int low = 0, high = segments.size() - 1, found = -1;
+        while (low <= high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (segments.get(mid).getFirstTime().compareTo(goal) < 0)
+            {
+                found = mid;
+                low = mid + 1;
+            }
+            else
+                high = mid - 1;
+        }
+        if (found < 0)
+            return -1;
+        final Segment segment = segments.get(found);
+        final int i = segment.findFirst(goal, true) - 1;
+        return offsets[found] + i - segment.start;
+    }
+
+    /** Merge new samples
+     *  @param add Time-ordered samples that replace existing samples in their time range,
+     *             except for existing samples at the start time.
+     *             Array is kept, caller must not modify it.
+     *  @return <code>true</code> if anything changed
+     */
+    public boolean merge(final PlotSample[] add)
+    {
+        if (add == null  ||  add.length <= 0)
+            return false;
+        final Instant add_start = add[0].getPosition();
+        final Instant add_end = add[add.length-1].getPosition();
+        final Segment added = new Segment(add);
+
+        final List<Segment> result = new ArrayList<>(segments.size() + 2);
+        boolean inserted = false;
+        for (Segment segment : segments)
+        {
+            if (segment.getLastTime().compareTo(add_start) <= 0)
+            {   // Segment is before new samples, or ends at their start
+                result.add(segment);
+                continue;
+            }
+            if (segment.getFirstTime().compareTo(add_end) > 0)
+            {   // Segment is after new samples
+                if (! inserted)
+                {
+                    result.add(added);
+                    inserted = true;
+                }
+                result.add(segment);
+                continue;
+            }
+            // Overlap: Keep what's before or at the start, and after the new samples
+            final int before = segment.findFirst(add_start, false);
+            if (before > segment.start)
+                result.add(segment.section(segment.start, before));
+            if (! inserted)
+            {
+                result.add(added);
+                inserted = true;
+            }
+            final int after = segment.findFirst(add_end, false);
+            if (after < segment.end)
+                result.add(segment.section(after, segment.end));
+        }
+        if (! inserted)
+            result.add(added);
+
+        segments = result;
+        if (segments.size() > MAX_SEGMENTS)
+            compact();
+        updateOffsets();
+        return true;
+    }
+
+    /** Combine the smallest neighboring segments until
+     *  only half of the maximum segment count remains.
+     *  This copies mostly small segments, large ones are kept as is.
+     */
+    private void compact()
+    {
+        while (segments.size() > MAX_SEGMENTS / 2)
+        {
+            int best = 0, best_size = Integer.MAX_VALUE;
+            for (int i=0; i<segments.size()-1; ++i)
+            {
+                final int size = segments.get(i).size() + segments.get(i+1).size();
+                if (size < best_size)
+                {
+                    best = i;
+                    best_size = size;
+                }
+            }
+            final Segment a = segments.get(best), b = segments.get(best+1);
+            final PlotSample[] combined = new PlotSample[best_size];
+            System.arraycopy(a.samples, a.start, combined, 0, a.size());
+            System.arraycopy(b.samples, b.start, combined, a.size(), b.size());
+            segments.set(best, new Segment(combined));
+            segments.remove(best+1);
+        }
+    }
+
+    /** @param samples Samples
+     *  @return Summary of their values
+     */
+    private static MinMaxPyramid createSummary(final PlotSample[] samples)
+    {
+        final MinMaxPyramid summary = new MinMaxPyramid(samples.length);
+        for (PlotSample sample : samples)
+            summary.add(sample.getValue());
+        return summary;
+    }
+
+    /** Re-compute the summary of sample values,
+     *  needed when the values change because of a different waveform index
+     */
+    public void updateSummary()
+    {
+        final Map<PlotSample[], MinMaxPyramid> summaries = new IdentityHashMap<>();
+        for (Segment segment : segments)
+            segment.summary = summaries.computeIfAbsent(segment.samples, PlotSampleSegments::createSummary);
+    }
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Range of the finite sample values in first .. last
+     */
+    public ValueRange getValueRange(final int first, final int last)
+    {
+        double low = Double.MAX_VALUE, high = -Double.MAX_VALUE;
+        for (int i = findSegment(first);  i < segments.size()  &&  offsets[i] <= last;  ++i)
+        {
+            final Segment segment = segments.get(i);
+            final int from = segment.start + Math.max(0, first - offsets[i]);
+            final int to = segment.start + Math.min(segment.size(), last - offsets[i] + 1) - 1;
+            final ValueRange range = segment.summary.getValueRange(from, to);
+            low = Math.min(low, range.getLow());
+            high = Math.max(high, range.getHigh());
+        }
+        return new ValueRange(low, high);
+    }
+
+    /** @param first Index of first sample
+     *  @param last Index of last sample, inclusive
+     *  @return Number of samples with finite value in first .. last
+     */
+    public int getValueCount(final int first, final int last)
+    {
+        int count = 0;
+        for (int i = findSegment(first);  i < segments.size()  &&  offsets[i] <= last;  ++i)
+        {
+            final Segment segment = segments.get(i);
+            final int from = segment.start + Math.max(0, first - offsets[i]);
+            final int to = segment.start + Math.min(segment.size(), last - offsets[i] + 1) - 1;
+            count += segment.summary.getCount(from, to);
+        }
+        return count;
+    }
+
+    private void updateOffsets()
+    {
+        final int N = segments.size();
+        final int[] new_offsets = new int[N+1];
+        for (int i=0; i<N; ++i)
+            new_offsets[i+1] = new_offsets[i] + segments.get(i).size();
+        offsets = new_offsets;
+    }
+
+    /** Remove all samples */
+    public void clear()
+    {
+        segments = new ArrayList<>();
+        offsets = new int[] { 0 };
+    }
+}
@@ -9,6 +9,7 @@ package org.csstudio.trends.databrowser2.model;
 
 import java.time.Instant;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -29,6 +30,9 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
      */
     final protected AtomicBoolean have_new_samples = new AtomicBoolean();
 
+    /** @see #getRevision() */
+    final private AtomicLong revision = new AtomicLong();
+
     /** Lock for writing */
     public void lockForWriting()
     {
@@ -74,6 +78,42 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
         return have_new_samples.getAndSet(false);
     }
 
+    /** Revision of the samples
+     *  <p>
+     *  Changes whenever existing samples are replaced
+     *  or their values change,
+     *  but not when newer samples are appended.
+     *  Dropping the oldest samples also changes the revision
+     *  when it affects other samples, for example the
+     *  historic samples that are visible before live data.
+     *  Users that process samples incrementally
+     *  need to start over when the revision changes.
+     *  @return Revision
+     */
+    public long getRevision()
+    {
+        return revision.get();
+    }
+
+    /** Indicate that existing samples were replaced
+     *  @see #getRevision()
+     */
+    protected void markRevised()
+    {
+        revision.incrementAndGet();
+    }
+
+    /** Samples <code>0 .. getStableSize()-1</code> only change
+     *  with a new revision.
+     *  Samples beyond, for example a continuation
+     *  of the last value until 'now', are provisional.
+     *  @return Number of stable samples
+     */
+    public int getStableSize()
+    {
+        return size();
+    }
+
     /** @return Info text about PlotSamples for debugging */
     @SuppressWarnings("nls")
     @Override
@@ -13,6 +13,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.List;
@@ -53,6 +54,7 @@ import org.csstudio.trends.databrowser2.propsheet.AddArchiveCommand;
 import org.csstudio.trends.databrowser2.propsheet.AddAxisCommand;
 import org.csstudio.ui.util.dialogs.ExceptionDetailsErrorDialog;
 import org.diirt.util.time.TimeDuration;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.window.Window;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.events.ShellAdapter;
@@ -113,6 +115,15 @@ public class Controller
     final private ArrayList<ArchiveFetchJob> archive_fetch_jobs =
         new ArrayList<ArchiveFetchJob>();
 
+    /** Currently active jobs that prefetch adjacent time ranges */
+    final private ArrayList<ArchiveFetchJob> archive_prefetch_jobs =
+        new ArrayList<ArchiveFetchJob>();
+
+    /** Time range of the last archive request for all items,
+     *  used to determine the direction for prefetching
+     */
+    private Instant last_fetch_start = null, last_fetch_end = null;
+
     /** Is the window (shell) iconized? */
     private volatile boolean window_is_iconized = false;
 
@@ -188,6 +199,34 @@ public class Controller
         }
     };
 
+    /** Listener for prefetch jobs: Only tracks completion, errors are not reported */
+    final private ArchiveFetchJobListener archive_prefetch_listener = new ArchiveFetchJobListener()
+    {
+        @Override
+        public void fetchCompleted(final ArchiveFetchJob job)
+        {
+            synchronized (archive_prefetch_jobs)
+            {
+                archive_prefetch_jobs.remove(job);
+            }
+        }
+
+        @Override
+        public void archiveFetchFailed(final ArchiveFetchJob job,
+                final ArchiveDataSource archive, final Exception error)
+        {
+            Logger.getLogger(getClass().getName()).log(Level.FINE,
+                    "Prefetch failed for " + job.getPVItem().getDisplayName(), error);
+        }
+
+        @Override
+        public void channelNotFound(final ArchiveFetchJob job, final boolean channelFoundAtLeastOnce,
+            final ArchiveDataSource[] archivesThatFailed)
+        {
+            // Will be reported by the non-prefetch request
+        }
+    };
+
     /** Initialize
      *  @param shell Shell
      *  @param model Model that has the data
@@ -675,6 +714,12 @@ public class Controller
                 job.cancel();
             archive_fetch_jobs.clear();
         }
+        synchronized (archive_prefetch_jobs)
+        {
+            for (ArchiveFetchJob job : archive_prefetch_jobs)
+                job.cancel();
+            archive_prefetch_jobs.clear();
+        }
         // Stop update task
         model.stop();
         model.removeListener(model_listener);
@@ -702,8 +747,27 @@ public class Controller
     {
         final Instant start = model.getStartTime();
         final Instant end = model.getEndTime();
+
+        // When the user panned or zoomed out, prefetch the adjacent range in that direction.
+        // Not while scrolling, where the end is 'now'
+        final List<Instant[]> prefetch = new ArrayList<>();
+        if (Preferences.doArchivePrefetch()  &&  !model.isScrollEnabled()  &&  last_fetch_start != null)
+        {
+            final Duration width = Duration.between(start, end);
+            if (start.isBefore(last_fetch_start))
+                prefetch.add(new Instant[] { start.minus(width), start });
+            final Instant now = Instant.now();
+            if (end.isAfter(last_fetch_end)  &&  end.isBefore(now))
+            {
+                final Instant next = end.plus(width);
+                prefetch.add(new Instant[] { end, next.isBefore(now) ? next : now });
+            }
+        }
+        last_fetch_start = start;
+        last_fetch_end = end;
+
         for (ModelItem item : model.getItems())
-            getArchivedData(item, start, end);
+            getArchivedData(item, start, end, prefetch);
     }
 
     /** Initiate archive data retrieval for a specific model item
@@ -713,6 +777,18 @@ public class Controller
      */
     private void getArchivedData(final ModelItem item,
             final Instant start, final Instant end)
+    {
+        getArchivedData(item, start, end, Collections.emptyList());
+    }
+
+    /** Initiate archive data retrieval for a specific model item
+     *  @param item Model item. NOP for non-PVItem
+     *  @param start Start time
+     *  @param end End time
+     *  @param prefetch Start/end of time ranges to fetch after the main request completed
+     */
+    private void getArchivedData(final ModelItem item,
+            final Instant start, final Instant end, final List<Instant[]> prefetch)
     {
         // Only useful for PVItems with archive data source
         if (!(item instanceof PVItem))
@@ -738,6 +814,27 @@ public class Controller
             // Track new job
             archive_fetch_jobs.add(new_job);
         }
+        // Prefetch jobs for this item are obsolete
+        final List<ArchiveFetchJob> prefetch_jobs = new ArrayList<>();
+        synchronized (archive_prefetch_jobs)
+        {
+            for (Iterator<ArchiveFetchJob> iter = archive_prefetch_jobs.iterator();  iter.hasNext();  /**/)
+            {
+                final ArchiveFetchJob job = iter.next();
+                if (job.getPVItem() == pv_item)
+                {
+                    job.cancel();
+                    iter.remove();
+                }
+            }
+            for (Instant[] range : prefetch)
+            {
+                final ArchiveFetchJob job = new ArchiveFetchJob(pv_item, range[0], range[1], archive_prefetch_listener);
+                job.setPriority(Job.DECORATE);
+                prefetch_jobs.add(job);
+                archive_prefetch_jobs.add(job);
+            }
+        }
 
         Activator.getThreadPool().execute(() ->
         {
@@ -756,6 +853,28 @@ public class Controller
             }
             // .. then start new one
             new_job.schedule();
+
+            // Once that completed, prefetch adjacent data
+            if (prefetch_jobs.isEmpty())
+                return;
+            try
+            {
+                new_job.join();
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            if (new_job.getResult() == null  ||  !new_job.getResult().isOK())
+                return;
+            for (ArchiveFetchJob job : prefetch_jobs)
+            {
+                synchronized (archive_prefetch_jobs)
+                {   // Skip if cancelled in the meantime
+                    if (archive_prefetch_jobs.contains(job))
+                        job.schedule();
+                }
+            }
         });
     }
 }